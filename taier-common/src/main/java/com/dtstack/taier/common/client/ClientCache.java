@@ -19,6 +19,7 @@
 package com.dtstack.taier.common.client;
 
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
 import com.dtstack.taier.common.exception.ClientAccessException;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.pluginapi.client.IClient;
@@ -26,13 +27,21 @@ import com.dtstack.taier.pluginapi.constrant.ConfigConstant;
 import com.dtstack.taier.pluginapi.util.MD5Util;
 import com.dtstack.taier.pluginapi.util.MathUtil;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 插件客户端
@@ -48,67 +57,158 @@ public class ClientCache {
 
     private static final String MD5_SUM_KEY = "md5sum";
     private static final String MD5_ZIP_KEY = "md5zip";
+
+    private static final long DEFAULT_MAX_CLIENTS = 100;
+    private static final long DEFAULT_IDLE_EXPIRE = 24 * 60 * 60 * 1000L;
+
     private String pluginPath;
 
     private Map<String, IClient> defaultClientMap = Maps.newConcurrentMap();
 
-    private Map<String, Map<String, IClient>> cache = Maps.newConcurrentMap();
+    /**
+     * 去掉队列后的集群配置 -> 该配置下各个队列的 client
+     * 不同租户的队列不同 pluginInfo 就不同，数量上限和空闲淘汰按去掉队列后的集群配置计算，不会因为租户、队列多而频繁淘汰重建
+     * 集群配置变更后旧的 client 不再被访问，空闲超时或超过数量上限时整组淘汰，正在执行的调用结束后关闭
+     */
+    private volatile Cache<String, ClusterClients> cache = buildCache(DEFAULT_MAX_CLIENTS, DEFAULT_IDLE_EXPIRE);
+
+    /**
+     * pluginInfo -> 去掉队列后的集群配置，命中时不需要解析 json 和计算 md5，集群配置淘汰时一起移除
+     */
+    private final Map<String, String> clusterKeys = Maps.newConcurrentMap();
 
     private static ClientCache singleton = new ClientCache();
 
     private ClientCache() {
     }
 
+    ClientCache(long maxClients, long idleExpire) {
+        this.cache = buildCache(maxClients, idleExpire);
+    }
+
     public static ClientCache getInstance(String pluginPath) {
         singleton.pluginPath = pluginPath;
         return singleton;
     }
 
+    public static ClientCache getInstance(String pluginPath, long maxClients, long idleExpire) {
+        singleton.pluginPath = pluginPath;
+        singleton.cache = singleton.buildCache(maxClients, idleExpire);
+        return singleton;
+    }
+
+    private Cache<String, ClusterClients> buildCache(long maxClients, long idleExpire) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleExpire, TimeUnit.MILLISECONDS)
+                .removalListener((RemovalListener<String, ClusterClients>) notification -> {
+                    ClusterClients clusterClients = notification.getValue();
+                    LOGGER.info("plugin clients of cluster {} removed, cause {}", notification.getKey(), notification.getCause());
+                    if (clusterClients != null) {
+                        clusterClients.close(clusterKeys);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
     /**
      *
      * @param pluginInfo 集群配置信息
      * @return
      */
     public IClient getClient(String pluginInfo) throws ClientAccessException {
-        String typeName = "";
-        try {
-            if (StringUtils.isBlank(pluginInfo)) {
-                throw new RdosDefineException("plugin info is empty");
-            }
-
-            Properties properties = PublicUtil.jsonStrToObjectWithOutNull(pluginInfo, Properties.class);
-            typeName = properties.getProperty(ConfigConstant.TYPE_NAME_KEY);
-            if (StringUtils.isBlank(typeName)) {
-                throw new RdosDefineException("typeName  is empty");
+        if (StringUtils.isBlank(pluginInfo)) {
+            throw new ClientAccessException(new RdosDefineException("plugin info is empty"));
+        }
+        String clusterKey = clusterKeys.get(pluginInfo);
+        if (clusterKey != null) {
+            ClusterClients clusterClients = cache.getIfPresent(clusterKey);
+            IClient client = clusterClients == null ? null : clusterClients.clients.get(pluginInfo);
+            if (client != null) {
+                return client;
             }
-            String md5plugin = MD5Util.getMd5String(pluginInfo);
-            String md5sum = null;
-            if (!properties.containsKey(MD5_SUM_KEY) || (md5sum = MathUtil.getString(properties.get(MD5_SUM_KEY))) == null) {
-                String md5zip = MathUtil.getString(properties.get(MD5_ZIP_KEY));
-                if (md5zip == null) {
-                    md5zip = "";
-                }
-                md5sum = md5zip + md5plugin;
-                properties.setProperty(MD5_SUM_KEY, md5sum);
+        }
+        try {
+            if (clusterKey == null) {
+                clusterKey = buildClusterKey(pluginInfo);
             }
-
-            Map<String, IClient> clientMap = cache.computeIfAbsent(typeName, k -> Maps.newConcurrentMap());
-            IClient client = clientMap.get(md5sum);
-            if (client == null) {
-                synchronized (clientMap) {
-                    client = clientMap.get(md5sum);
+            while (true) {
+                ClusterClients clusterClients = cache.get(clusterKey, ClusterClients::new);
+                synchronized (clusterClients) {
+                    // 加载期间整组已经被淘汰，重新获取
+                    if (clusterClients.closed) {
+                        continue;
+                    }
+                    IClient client = clusterClients.clients.get(pluginInfo);
                     if (client == null) {
-                        client = ClientFactory.buildPluginClient(pluginInfo, pluginPath);
-                        client.init(properties);
-                        clientMap.putIfAbsent(md5sum, client);
+                        client = loadClient(pluginInfo);
+                        clusterClients.clients.put(pluginInfo, client);
                     }
+                    clusterKeys.put(pluginInfo, clusterKey);
+                    return client;
                 }
             }
-
-            return client;
         } catch (Throwable e) {
-            LOGGER.error("------- typeName {}  plugin info {} get client error ", typeName, pluginInfo, e);
-            throw new ClientAccessException(e);
+            Throwable cause = e instanceof ExecutionException || e instanceof UncheckedExecutionException || e instanceof ExecutionError ? e.getCause() : e;
+            LOGGER.error("------- plugin info {} get client error ", pluginInfo, cause);
+            throw new ClientAccessException(cause);
+        }
+    }
+
+    /**
+     * 去掉租户的队列后的集群配置
+     */
+    static String buildClusterKey(String pluginInfo) {
+        JSONObject clusterConfig = JSONObject.parseObject(pluginInfo, Feature.OrderedField);
+        clusterConfig.remove(ConfigConstant.QUEUE);
+        return MD5Util.getMd5String(clusterConfig.toJSONString());
+    }
+
+    IClient loadClient(String pluginInfo) throws Exception {
+        long startTime = System.currentTimeMillis();
+        Properties properties = PublicUtil.jsonStrToObjectWithOutNull(pluginInfo, Properties.class);
+        String typeName = properties.getProperty(ConfigConstant.TYPE_NAME_KEY);
+        if (StringUtils.isBlank(typeName)) {
+            throw new RdosDefineException("typeName  is empty");
+        }
+        if (!properties.containsKey(MD5_SUM_KEY) || MathUtil.getString(properties.get(MD5_SUM_KEY)) == null) {
+            String md5zip = MathUtil.getString(properties.get(MD5_ZIP_KEY));
+            if (md5zip == null) {
+                md5zip = "";
+            }
+            properties.setProperty(MD5_SUM_KEY, md5zip + MD5Util.getMd5String(pluginInfo));
+        }
+
+        IClient client = ClientFactory.buildPluginClient(pluginInfo, pluginPath);
+        client.init(properties);
+        LOGGER.info("load plugin client typeName {} cost {}ms, cache stats {}", typeName, System.currentTimeMillis() - startTime, cache.stats());
+        return client;
+    }
+
+    /**
+     * 命中率、加载次数、加载耗时等统计
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * 同一个集群配置下各个队列的 client，一起淘汰、关闭
+     */
+    private static class ClusterClients {
+
+        private final Map<String, IClient> clients = Maps.newConcurrentMap();
+
+        private boolean closed = false;
+
+        private synchronized void close(Map<String, String> clusterKeys) {
+            closed = true;
+            for (Map.Entry<String, IClient> entry : clients.entrySet()) {
+                clusterKeys.remove(entry.getKey());
+                entry.getValue().close();
+            }
+            clients.clear();
         }
     }
 
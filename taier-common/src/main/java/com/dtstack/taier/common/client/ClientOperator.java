@@ -32,7 +32,9 @@ import com.google.common.base.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -66,6 +68,19 @@ public class ClientOperator {
         return singleton;
     }
 
+    public static ClientOperator getInstance(String pluginPath, long maxClients, long clientIdleExpire) {
+        if (singleton == null) {
+            synchronized (ClientOperator.class) {
+                if (singleton == null) {
+                    clientCache = ClientCache.getInstance(pluginPath, maxClients, clientIdleExpire);
+                    LOGGER.info("init client operator plugin path {}",pluginPath);
+                    singleton = new ClientOperator();
+                }
+            }
+        }
+        return singleton;
+    }
+
     public TaskStatus getJobStatus(String pluginInfo, JobIdentifier jobIdentifier) {
         checkoutOperator(pluginInfo, jobIdentifier);
 
@@ -90,6 +105,63 @@ public class ClientOperator {
     }
 
 
+    /**
+     * 批量获取同一个插件下任务的状态
+     *
+     * @param pluginInfo     插件信息
+     * @param jobIdentifiers 任务标识
+     * @return jobId -> 任务状态，获取插件失败时为 NOTFOUND，批量查询失败后逐个查询仍然失败的任务不在其中
+     */
+    public Map<String, TaskStatus> getJobStatusBatch(String pluginInfo, List<JobIdentifier> jobIdentifiers) {
+        if (null == pluginInfo || null == jobIdentifiers) {
+            throw new IllegalArgumentException("pluginInfo|jobIdentifiers is null.");
+        }
+
+        IClient client;
+        try {
+            client = clientCache.getClient(pluginInfo);
+        } catch (Exception e) {
+            LOGGER.error("getStatusBatch get client error, size:{}", jobIdentifiers.size(), e);
+            Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                statusMap.put(jobIdentifier.getJobId(), TaskStatus.NOTFOUND);
+            }
+            return statusMap;
+        }
+        return getJobStatusBatch(client, jobIdentifiers);
+    }
+
+    /**
+     * 批量查询失败时逐个查询，不因为一次批量调用失败把整批任务都当成 NOTFOUND
+     */
+    static Map<String, TaskStatus> getJobStatusBatch(IClient client, List<JobIdentifier> jobIdentifiers) {
+        Map<String, TaskStatus> statusMap;
+        try {
+            statusMap = client.getJobStatusBatch(jobIdentifiers);
+        } catch (Exception e) {
+            LOGGER.error("getStatusBatch happens error, size:{}, get status one by one", jobIdentifiers.size(), e);
+            statusMap = new HashMap<>(jobIdentifiers.size());
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                try {
+                    TaskStatus status = client.getJobStatus(jobIdentifier);
+                    statusMap.put(jobIdentifier.getJobId(), status == null ? TaskStatus.NOTFOUND : status);
+                } catch (Exception ex) {
+                    // 状态未知的任务不返回，本轮不处理，下一轮再查询
+                    LOGGER.error("jobId:{} getStatus happens error", jobIdentifier.getJobId(), ex);
+                }
+            }
+            return statusMap;
+        }
+
+        if (statusMap == null) {
+            statusMap = new HashMap<>(jobIdentifiers.size());
+        }
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            statusMap.putIfAbsent(jobIdentifier.getJobId(), TaskStatus.NOTFOUND);
+        }
+        return statusMap;
+    }
+
     public String getEngineLog(String pluginInfo, JobIdentifier jobIdentifier) {
         checkoutOperator(pluginInfo, jobIdentifier);
 
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.*;
 
@@ -56,6 +57,34 @@ public class ClientProxy implements IClient {
 
     private long timeout = 300000;
 
+    /**
+     * 已提交还没有执行完的调用数
+     */
+    private int inFlight = 0;
+
+    private boolean closing = false;
+
+    private boolean closed = false;
+
+    /**
+     * 提交到线程池的调用都经过这里计数，client 被淘汰后等这些调用执行完再释放资源
+     */
+    private final Executor trackedExecutor = command -> {
+        acquire();
+        try {
+            executorService.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            throw e;
+        }
+    };
+
     public ClientProxy(IClient targetClient) {
         this.targetClient = targetClient;
         executorService = new ThreadPoolExecutor(10, 10, 0L, TimeUnit.MILLISECONDS,
@@ -77,7 +106,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (Exception e) {
             // 初始化失败,关闭线程池
             executorService.shutdown();
@@ -85,6 +114,60 @@ public class ClientProxy implements IClient {
         }
     }
 
+    /**
+     * client 被淘汰后调用，正在执行的调用结束后再关闭插件 client 和线程池
+     * 淘汰前已经拿到 client 的调用方仍然可以正常调用
+     */
+    @Override
+    public synchronized void close() {
+        closing = true;
+        if (inFlight == 0) {
+            destroy();
+        }
+    }
+
+    private synchronized void acquire() {
+        if (closed) {
+            throw new RejectedExecutionException(this + " is closed");
+        }
+        inFlight++;
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        if (closing && inFlight == 0) {
+            destroy();
+        }
+    }
+
+    private void destroy() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 在线程池中关闭插件 client，线程池 shutdown 后已提交的任务仍会执行
+        executorService.execute(() -> {
+            try {
+                ClassLoaderCallBackMethod.callbackAndReset(new CallBack<String>() {
+                    @Override
+                    public String execute() throws Exception {
+                        targetClient.close();
+                        return null;
+                    }
+                }, targetClient.getClass().getClassLoader(), true);
+                LOGGER.info("{} closed", this);
+            } catch (Exception e) {
+                LOGGER.error("{} close error", this, e);
+            }
+        });
+        executorService.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return targetClient.getClass().getSimpleName() + "_" + this.getClass().getSimpleName();
+    }
+
     @Override
     public JobResult submitJob(JobClient jobClient) {
         try {
@@ -100,7 +183,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -121,7 +204,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -142,7 +225,28 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RdosDefineException(e);
+        }
+    }
+
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<Map<String, TaskStatus>>() {
+
+                        @Override
+                        public Map<String, TaskStatus> execute() throws Exception {
+                            return targetClient.getJobStatusBatch(jobIdentifiers);
+                        }
+                    }, targetClient.getClass().getClassLoader(), true);
+                } catch (Exception e) {
+                    throw new RdosDefineException(e);
+                }
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -163,7 +267,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -184,7 +288,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -205,7 +309,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -226,7 +330,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     return getJudgeResultWithException(e, e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             return getJudgeResultWithException(e, e.getCause());
         }
@@ -259,7 +363,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -275,7 +379,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -291,7 +395,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -307,7 +411,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -323,7 +427,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -348,7 +452,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -363,7 +467,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            }, trackedExecutor).get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -26,7 +26,8 @@ public enum DownloadType {
     Kerberos(0),
     Config(1),
     Template(2),
-    DEVELOP_LOG(3);
+    DEVELOP_LOG(3),
+    DEVELOP_DATA(4);
 
     private int code;
 
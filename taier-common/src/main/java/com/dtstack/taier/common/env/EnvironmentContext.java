@@ -106,6 +106,12 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${job.log.delay:5}")
     private long jobLogDelay;
 
+    @Value("${job.log.fetch.thread.num:2}")
+    private Integer jobLogFetchThreadNum;
+
+    @Value("${job.engine.log.max.size:1048576}")
+    private Integer jobEngineLogMaxSize;
+
     @Value("${job.compute.resource.plain:EngineTypeClusterQueueComputeType}")
     private String computeResourcePlain;
 
@@ -196,6 +202,9 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${batch.insert.jobjob.size:500}")
     private Integer batchJobJobInsertSize;
 
+    @Value("${batch.insert.max.bytes:4194304}")
+    private Integer batchInsertMaxBytes;
+
     @Value("${fillData.threadPool.core.pool.size:2}")
     private Integer fillDataThreadPoolCorePoolSize;
 
@@ -244,6 +253,30 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${plugin.path:#{systemProperties['user.dir']}/pluginLibs}")
     private String pluginPath;
 
+    @Value("${job.dependency.cache.expire:600000}")
+    private Long jobDependencyCacheExpire;
+
+    @Value("${job.status.batch.size:200}")
+    private Integer jobStatusBatchSize;
+
+    @Value("${plugin.client.cache.size:100}")
+    private Long pluginClientCacheSize;
+
+    @Value("${plugin.client.idle.expire:86400000}")
+    private Long pluginClientIdleExpire;
+
+    @Value("${job.info.cache.max.weight:52428800}")
+    private Long jobInfoCacheMaxWeight;
+
+    @Value("${job.submitted.batch.size:200}")
+    private Integer jobSubmittedBatchSize;
+
+    @Value("${job.submitted.batch.linger:50}")
+    private Long jobSubmittedBatchLinger;
+
+    @Value("${job.scanning.shard.num:1}")
+    private Integer jobScanningShardNum;
+
 
     @Override
     public void afterPropertiesSet() throws Exception {
@@ -551,4 +584,48 @@ public class EnvironmentContext implements InitializingBean {
     public String getPluginPath() {
         return pluginPath;
     }
+
+    public Long getJobDependencyCacheExpire() {
+        return jobDependencyCacheExpire;
+    }
+
+    public Integer getJobStatusBatchSize() {
+        return jobStatusBatchSize;
+    }
+
+    public Long getPluginClientCacheSize() {
+        return pluginClientCacheSize;
+    }
+
+    public Long getPluginClientIdleExpire() {
+        return pluginClientIdleExpire;
+    }
+
+    public Long getJobInfoCacheMaxWeight() {
+        return jobInfoCacheMaxWeight;
+    }
+
+    public Integer getJobSubmittedBatchSize() {
+        return jobSubmittedBatchSize;
+    }
+
+    public Long getJobSubmittedBatchLinger() {
+        return jobSubmittedBatchLinger;
+    }
+
+    public Integer getJobScanningShardNum() {
+        return jobScanningShardNum;
+    }
+
+    public Integer getBatchInsertMaxBytes() {
+        return batchInsertMaxBytes;
+    }
+
+    public Integer getJobLogFetchThreadNum() {
+        return jobLogFetchThreadNum;
+    }
+
+    public Integer getJobEngineLogMaxSize() {
+        return jobEngineLogMaxSize;
+    }
 }
@@ -0,0 +1,83 @@
+package com.dtstack.taier.common.util;
+
+import java.util.function.Function;
+
+/**
+ * 任务参数占位符替换
+ * 一次扫描文本，遇到 ${name} 或 @@{name} 时取参数值写入结果，不需要每个参数都对整个文本做一次 replace
+ * 没有对应参数的占位符原样保留
+ *
+ * Company: www.dtstack.com
+ */
+public class ParamPlaceholderUtil {
+
+    private static final String VAR_PREFIX = "${";
+
+    private static final String COMPONENT_PREFIX = "@@{";
+
+    private static final char PLACEHOLDER_SUFFIX = '}';
+
+    /**
+     * 替换 ${name} 格式的占位符
+     *
+     * @param text        需要替换的文本
+     * @param varResolver 参数名 -> 参数值，参数不存在返回 null
+     * @return 替换后的文本
+     */
+    public static String replace(String text, Function<String, String> varResolver) {
+        return replace(text, varResolver, null);
+    }
+
+    /**
+     * 替换 ${name} 和 @@{name} 格式的占位符
+     *
+     * @param text              需要替换的文本
+     * @param varResolver       ${name} 参数名 -> 参数值，参数不存在返回 null
+     * @param componentResolver @@{name} 参数名 -> 参数值，参数不存在返回 null，为 null 时不处理 @@{name}
+     * @return 替换后的文本
+     */
+    public static String replace(String text, Function<String, String> varResolver, Function<String, String> componentResolver) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        StringBuilder result = null;
+        int length = text.length();
+        int last = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int prefixLength;
+            Function<String, String> resolver;
+            if (c == '$' && text.startsWith(VAR_PREFIX, i)) {
+                prefixLength = VAR_PREFIX.length();
+                resolver = varResolver;
+            } else if (c == '@' && componentResolver != null && text.startsWith(COMPONENT_PREFIX, i)) {
+                prefixLength = COMPONENT_PREFIX.length();
+                resolver = componentResolver;
+            } else {
+                i++;
+                continue;
+            }
+
+            int end = text.indexOf(PLACEHOLDER_SUFFIX, i + prefixLength);
+            if (end < 0) {
+                break;
+            }
+            String value = resolver.apply(text.substring(i + prefixLength, end));
+            if (value == null) {
+                i++;
+                continue;
+            }
+            if (result == null) {
+                result = new StringBuilder(length + 16);
+            }
+            result.append(text, last, i).append(value);
+            last = end + 1;
+            i = last;
+        }
+        if (result == null) {
+            return text;
+        }
+        return result.append(text, last, length).toString();
+    }
+}
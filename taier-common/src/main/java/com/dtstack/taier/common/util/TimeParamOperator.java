@@ -8,7 +8,6 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
 import java.util.regex.Matcher;
@@ -230,7 +229,7 @@ public class TimeParamOperator {
         } else if (command.startsWith("${") && command.endsWith("}")) {
             // 特殊处理 ${bdp.system.currenttime}
             if (SYSTEM_CURRENTTIME.equals(command.substring(2, command.length() - 1).trim())) {
-                return new SimpleDateFormat(STD_FMT).format(new Date());
+                return cycTimeFormat.print(System.currentTimeMillis());
             }
 
             // 支持基于业务日期作为基准取值的格式 时间减一天，其余照原逻辑处理 不多做任何校验
@@ -239,7 +238,7 @@ public class TimeParamOperator {
             return dealCustomizeTimeOperator(normalCommand, yesterdayCycTime);
         } else if (command.startsWith("$(") && command.endsWith(")")) {
             // 支持基于当前时间作为基准取值的格式，其余照原逻辑处理 不多做任何校验
-            String currentTime = new SimpleDateFormat(STD_FMT).format(new Date());
+            String currentTime = cycTimeFormat.print(System.currentTimeMillis());
             String normalCommand = command.replaceFirst("\\(", "[");
             normalCommand = normalCommand.substring(0, normalCommand.length() - 1) + "]";
             return dealCustomizeTimeOperator(normalCommand, currentTime);
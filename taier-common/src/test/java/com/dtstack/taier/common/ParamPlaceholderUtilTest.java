@@ -0,0 +1,30 @@
+package com.dtstack.taier.common;
+
+import com.dtstack.taier.common.util.ParamPlaceholderUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ParamPlaceholderUtilTest {
+
+    @Test
+    public void testReplace() {
+        Map<String, String> vars = new HashMap<>();
+        vars.put("bdp.system.bizdate", "20220101");
+        vars.put("name", "taier");
+        Map<String, String> components = new HashMap<>();
+        components.put("path", "/tmp");
+
+        Assert.assertEquals("select '20220101', 'taier', '${unknown}', '20220101' from t",
+                ParamPlaceholderUtil.replace("select '${bdp.system.bizdate}', '${name}', '${unknown}', '${bdp.system.bizdate}' from t", vars::get));
+        Assert.assertEquals("cd /tmp && echo taier @@{other}",
+                ParamPlaceholderUtil.replace("cd @@{path} && echo ${name} @@{other}", vars::get, components::get));
+        // 不处理组件参数时 @@{} 原样保留
+        Assert.assertEquals("@@{path}", ParamPlaceholderUtil.replace("@@{path}", vars::get));
+        // 占位符中嵌套占位符时替换内层
+        Assert.assertEquals("${a taier} ${name", ParamPlaceholderUtil.replace("${a ${name}} ${name", vars::get));
+        Assert.assertEquals("no param", ParamPlaceholderUtil.replace("no param", vars::get));
+    }
+}
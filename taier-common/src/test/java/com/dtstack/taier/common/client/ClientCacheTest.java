@@ -0,0 +1,110 @@
+package com.dtstack.taier.common.client;
+
+import com.alibaba.fastjson.JSONObject;
+import com.dtstack.taier.pluginapi.JobClient;
+import com.dtstack.taier.pluginapi.JobIdentifier;
+import com.dtstack.taier.pluginapi.client.AbstractClient;
+import com.dtstack.taier.pluginapi.client.IClient;
+import com.dtstack.taier.pluginapi.constrant.ConfigConstant;
+import com.dtstack.taier.pluginapi.pojo.JobResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public class ClientCacheTest {
+
+    private final List<TestClient> loadedClients = new ArrayList<>();
+
+    private ClientCache clientCache;
+
+    @Before
+    public void setUp() {
+        // 只能缓存一个集群配置
+        clientCache = new ClientCache(1, 60000L) {
+            @Override
+            IClient loadClient(String pluginInfo) {
+                TestClient client = new TestClient();
+                loadedClients.add(client);
+                return client;
+            }
+        };
+    }
+
+    private static String pluginInfo(String yarnAddress, String queue) {
+        JSONObject pluginInfo = new JSONObject(true);
+        pluginInfo.put(ConfigConstant.TYPE_NAME_KEY, "yarn2-hdfs2-spark210");
+        pluginInfo.put("yarn.resourcemanager.address", yarnAddress);
+        pluginInfo.put(ConfigConstant.QUEUE, queue);
+        return pluginInfo.toJSONString();
+    }
+
+    @Test
+    public void testClusterKeyIgnoreQueue() {
+        Assert.assertEquals(ClientCache.buildClusterKey(pluginInfo("rm1:8032", "a")), ClientCache.buildClusterKey(pluginInfo("rm1:8032", "b")));
+        Assert.assertNotEquals(ClientCache.buildClusterKey(pluginInfo("rm1:8032", "a")), ClientCache.buildClusterKey(pluginInfo("rm2:8032", "a")));
+    }
+
+    @Test
+    public void testQueuesShareOneClusterEntry() throws Exception {
+        IClient queueA = clientCache.getClient(pluginInfo("rm1:8032", "a"));
+        IClient queueB = clientCache.getClient(pluginInfo("rm1:8032", "b"));
+
+        // 每个队列单独的 client，但只占用一个集群配置的数量上限
+        Assert.assertNotSame(queueA, queueB);
+        Assert.assertSame(queueA, clientCache.getClient(pluginInfo("rm1:8032", "a")));
+        Assert.assertSame(queueB, clientCache.getClient(pluginInfo("rm1:8032", "b")));
+        Assert.assertEquals(2, loadedClients.size());
+        Assert.assertFalse(loadedClients.get(0).closed);
+        Assert.assertFalse(loadedClients.get(1).closed);
+    }
+
+    @Test
+    public void testEvictWholeCluster() throws Exception {
+        IClient queueA = clientCache.getClient(pluginInfo("rm1:8032", "a"));
+        clientCache.getClient(pluginInfo("rm1:8032", "b"));
+
+        clientCache.getClient(pluginInfo("rm2:8032", "a"));
+
+        // 超过集群配置数量上限，淘汰整个集群下各个队列的 client
+        Assert.assertTrue(loadedClients.get(0).closed);
+        Assert.assertTrue(loadedClients.get(1).closed);
+        Assert.assertFalse(loadedClients.get(2).closed);
+
+        IClient reloaded = clientCache.getClient(pluginInfo("rm1:8032", "a"));
+        Assert.assertNotSame(queueA, reloaded);
+        Assert.assertEquals(4, loadedClients.size());
+    }
+
+    private static class TestClient extends AbstractClient {
+
+        private volatile boolean closed = false;
+
+        @Override
+        public void init(Properties prop) {
+        }
+
+        @Override
+        public JobResult cancelJob(JobIdentifier jobIdentifier) {
+            return null;
+        }
+
+        @Override
+        public String getJobMaster(JobIdentifier jobIdentifier) {
+            return null;
+        }
+
+        @Override
+        protected JobResult processSubmitJobWithType(JobClient jobClient) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
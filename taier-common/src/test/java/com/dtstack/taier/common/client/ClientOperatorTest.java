@@ -0,0 +1,107 @@
+package com.dtstack.taier.common.client;
+
+import com.dtstack.taier.pluginapi.JobClient;
+import com.dtstack.taier.pluginapi.JobIdentifier;
+import com.dtstack.taier.pluginapi.client.AbstractClient;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.pluginapi.pojo.JobResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class ClientOperatorTest {
+
+    private static List<JobIdentifier> jobIdentifiers(String... jobIds) {
+        List<JobIdentifier> jobIdentifiers = new ArrayList<>(jobIds.length);
+        for (String jobId : jobIds) {
+            jobIdentifiers.add(JobIdentifier.createInstance("engine_" + jobId, "application_" + jobId, jobId));
+        }
+        return jobIdentifiers;
+    }
+
+    @Test
+    public void testBatchResult() {
+        StatusClient client = new StatusClient(false);
+        client.batchStatus.put("job_1", TaskStatus.RUNNING);
+
+        Map<String, TaskStatus> statusMap = ClientOperator.getJobStatusBatch(client, jobIdentifiers("job_1", "job_2"));
+
+        Assert.assertEquals(TaskStatus.RUNNING, statusMap.get("job_1"));
+        // 批量结果中没有的任务为 NOTFOUND
+        Assert.assertEquals(TaskStatus.NOTFOUND, statusMap.get("job_2"));
+        Assert.assertEquals(0, client.singleCalls);
+    }
+
+    @Test
+    public void testBatchFailedFallbackOneByOne() {
+        StatusClient client = new StatusClient(true);
+        client.singleStatus.put("job_1", TaskStatus.RUNNING);
+        client.singleStatus.put("job_2", TaskStatus.FINISHED);
+
+        Map<String, TaskStatus> statusMap = ClientOperator.getJobStatusBatch(client, jobIdentifiers("job_1", "job_2", "job_3"));
+
+        Assert.assertEquals(3, client.singleCalls);
+        Assert.assertEquals(TaskStatus.RUNNING, statusMap.get("job_1"));
+        Assert.assertEquals(TaskStatus.FINISHED, statusMap.get("job_2"));
+        // 逐个查询仍然失败的任务不返回状态，不会被当成 NOTFOUND
+        Assert.assertFalse(statusMap.containsKey("job_3"));
+    }
+
+    private static class StatusClient extends AbstractClient {
+
+        private final boolean batchFailed;
+
+        private final Map<String, TaskStatus> batchStatus = new HashMap<>();
+
+        private final Map<String, TaskStatus> singleStatus = new HashMap<>();
+
+        private int singleCalls = 0;
+
+        private StatusClient(boolean batchFailed) {
+            this.batchFailed = batchFailed;
+        }
+
+        @Override
+        public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+            if (batchFailed) {
+                throw new RuntimeException("batch status error");
+            }
+            return new HashMap<>(batchStatus);
+        }
+
+        @Override
+        public TaskStatus getJobStatus(JobIdentifier jobIdentifier) throws IOException {
+            singleCalls++;
+            TaskStatus status = singleStatus.get(jobIdentifier.getJobId());
+            if (status == null) {
+                throw new IOException("status error");
+            }
+            return status;
+        }
+
+        @Override
+        public void init(Properties prop) {
+        }
+
+        @Override
+        public JobResult cancelJob(JobIdentifier jobIdentifier) {
+            return null;
+        }
+
+        @Override
+        public String getJobMaster(JobIdentifier jobIdentifier) {
+            return null;
+        }
+
+        @Override
+        protected JobResult processSubmitJobWithType(JobClient jobClient) {
+            return null;
+        }
+    }
+}
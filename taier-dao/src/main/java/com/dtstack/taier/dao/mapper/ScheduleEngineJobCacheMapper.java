@@ -42,7 +42,12 @@ public interface ScheduleEngineJobCacheMapper extends BaseMapper<ScheduleEngineJ
 
     List<ScheduleEngineJobCache> listByStage(@Param("startId") Long id, @Param("nodeAddress") String nodeAddress, @Param("stage") Integer stage, @Param("jobResource") String jobResource,@Param("selectJobInfo") Boolean selectJobInfo);
 
+    List<ScheduleEngineJobCache> listByStageOrderByPriority(@Param("nodeAddress") String nodeAddress, @Param("stage") Integer stage, @Param("jobResource") String jobResource,
+                                                            @Param("startPriority") Long startPriority, @Param("startId") Long startId, @Param("limit") Integer limit);
+
     Long minPriorityByStage(@Param("jobResource") String jobResource, @Param("stages") List<Integer> stages, @Param("nodeAddress") String nodeAddress);
 
+    List<Map<String, Object>> groupQueueInfoByStage(@Param("nodeAddress") String nodeAddress, @Param("stages") List<Integer> stages, @Param("priorityStages") List<Integer> priorityStages);
+
     Integer deleteByJobIds(@Param("jobIds") List<String> jobIds);
 }
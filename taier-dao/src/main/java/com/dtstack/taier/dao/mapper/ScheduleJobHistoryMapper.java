@@ -2,6 +2,17 @@ package com.dtstack.taier.dao.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.dtstack.taier.dao.domain.ScheduleJobHistory;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 public interface ScheduleJobHistoryMapper extends BaseMapper<ScheduleJobHistory> {
+
+    /**
+     * 批量插入执行历史
+     *
+     * @param histories 执行历史
+     * @return 插入数
+     */
+    Integer insertBatch(@Param("histories") List<ScheduleJobHistory> histories);
 }
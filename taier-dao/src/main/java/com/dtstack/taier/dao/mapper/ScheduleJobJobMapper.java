@@ -2,6 +2,9 @@ package com.dtstack.taier.dao.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * @Auther: dazhi
@@ -11,4 +14,11 @@ import com.dtstack.taier.dao.domain.ScheduleJobJob;
  */
 public interface ScheduleJobJobMapper extends BaseMapper<ScheduleJobJob> {
 
+    /**
+     * 多行 insert 批量插入实例关系
+     *
+     * @param scheduleJobJobs 实例关系
+     * @return 插入数
+     */
+    Integer insertBatch(@Param("scheduleJobJobs") List<ScheduleJobJob> scheduleJobJobs);
 }
@@ -111,5 +111,22 @@ public interface ScheduleJobMapper extends BaseMapper<ScheduleJob> {
      */
     Integer updateJobStatusAndExecTime(@Param("jobId") String jobId, @Param("status") int status);
 
+    /**
+     * 批量更新提交成功的实例: engineJobId、applicationId、开始执行时间和状态
+     *
+     * @param scheduleJobs 实例，需要 jobId、engineJobId、applicationId
+     * @param status       状态
+     * @return 更新数
+     */
+    Integer updateJobSubmitSuccessBatch(@Param("scheduleJobs") List<ScheduleJob> scheduleJobs, @Param("status") Integer status);
+
+    /**
+     * 多行 insert 批量插入实例，插入后回填 id
+     *
+     * @param scheduleJobs 实例
+     * @return 插入数
+     */
+    Integer insertBatch(@Param("scheduleJobs") List<ScheduleJob> scheduleJobs);
+
 
 }
@@ -4,6 +4,7 @@ import com.dtstack.taier.common.enums.DownloadType;
 import com.dtstack.taier.develop.service.develop.impl.BatchDownloadService;
 import com.dtstack.taier.develop.utils.develop.common.IDownload;
 import com.dtstack.taier.develop.vo.develop.query.BatchDownloadJobLogVO;
+import com.dtstack.taier.develop.vo.develop.query.BatchDownloadSqlResultVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,4 +33,11 @@ public class DevelopDownloadController {
         batchDownloadService.handleDownload(response, iDownload, DownloadType.DEVELOP_LOG, vo.getJobId());
     }
 
+    @GetMapping(value = "downloadSqlExeResult")
+    @ApiOperation("下载临时查询结果")
+    public void downloadSqlExeResult(BatchDownloadSqlResultVO vo, HttpServletResponse response) {
+        IDownload iDownload = batchDownloadService.downloadSqlExeResult(vo.getJobId(), vo.getTenantId());
+        batchDownloadService.handleDownload(response, iDownload, DownloadType.DEVELOP_DATA, vo.getJobId());
+    }
+
 }
@@ -21,6 +21,7 @@ import com.dtstack.taier.dao.mapper.ConsoleKerberosMapper;
 import com.dtstack.taier.develop.model.ClusterFactory;
 import com.dtstack.taier.develop.model.Part;
 import com.dtstack.taier.develop.model.PartCluster;
+import com.dtstack.taier.develop.utils.TransactionUtils;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.constrant.ConfigConstant;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
@@ -29,6 +30,7 @@ import com.dtstack.taier.pluginapi.sftp.SftpConfig;
 import com.dtstack.taier.pluginapi.sftp.SftpFileManage;
 import com.dtstack.taier.pluginapi.util.MD5Util;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
+import com.dtstack.taier.scheduler.PluginWrapper;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.impl.pojo.ClientTemplate;
 import com.dtstack.taier.scheduler.impl.pojo.ComponentMultiTestResult;
@@ -97,6 +99,9 @@ public class ConsoleComponentService {
     @Autowired
     private ComponentConfigService componentConfigService;
 
+    @Autowired
+    private PluginWrapper pluginWrapper;
+
     @Autowired
     private ScheduleDictService scheduleDictService;
 
@@ -719,8 +724,16 @@ public class ConsoleComponentService {
         }
     }
 
+    /**
+     * 在事务中调用时提交之后再清理缓存，避免提交前被并发的查询以旧配置重新加载
+     */
     public void updateCache() {
+        TransactionUtils.afterCommit(this::clearCache);
+    }
+
+    private void clearCache() {
         componentConfigService.clearComponentCache();
+        pluginWrapper.clearPluginInfoCache();
     }
 
     private List<PrincipalName> getPrincipal(File file) {
@@ -903,6 +916,7 @@ public class ConsoleComponentService {
                 consoleKerberosMapper.updateById(kerberosConfig);
                 LOGGER.info("Update krb5 remotePath {}", remotePath);
             }
+            this.updateCache();
         } catch (Exception e) {
             LOGGER.error("Update krb5 error! {}", e.getMessage());
             throw new RdosDefineException(e);
@@ -926,6 +940,7 @@ public class ConsoleComponentService {
         updateComponent.setId(componentId);
         updateComponent.setKerberosFileName("");
         componentMapper.updateById(updateComponent);
+        this.updateCache();
     }
 
 
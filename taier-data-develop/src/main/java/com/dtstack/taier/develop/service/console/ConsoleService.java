@@ -44,6 +44,7 @@ import com.dtstack.taier.scheduler.server.queue.GroupPriorityQueue;
 import com.dtstack.taier.scheduler.service.ComponentService;
 import com.dtstack.taier.develop.vo.console.ConsoleJobInfoVO;
 import com.dtstack.taier.develop.vo.console.ConsoleJobVO;
+import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import com.dtstack.taier.scheduler.zookeeper.ZkService;
 import com.google.common.base.Preconditions;
@@ -80,6 +81,9 @@ public class ConsoleService {
     @Autowired
     private ScheduleEngineJobCacheMapper scheduleEngineJobCacheMapper;
 
+    @Autowired
+    private ScheduleJobCacheService scheduleJobCacheService;
+
     @Autowired
     private ClusterMapper clusterMapper;
 
@@ -347,7 +351,7 @@ public class ConsoleService {
         if (CollectionUtils.isNotEmpty(jobIdList)) {
             //杀死指定jobIdList的任务
             if (EJobCacheStage.unSubmitted().contains(stage)) {
-                Integer deleted = scheduleEngineJobCacheMapper.deleteByJobIds(jobIdList);
+                Integer deleted = scheduleJobCacheService.deleteByJobIds(jobIdList);
                 Integer updated = scheduleJobMapper.updateJobStatusByJobIds(jobIdList, TaskStatus.CANCELED.getStatus());
                 LOGGER.info("delete job size:{}, update job size:{}, deal jobIds:{}", deleted, updated, jobIdList);
             } else {
@@ -390,7 +394,7 @@ public class ConsoleService {
                 }
 
                 if (EJobCacheStage.unSubmitted().contains(stage)) {
-                    Integer deleted = scheduleEngineJobCacheMapper.deleteByJobIds(jobIds);
+                    Integer deleted = scheduleJobCacheService.deleteByJobIds(jobIds);
                     Integer updated = scheduleJobMapper.updateJobStatusByJobIds(jobIds, TaskStatus.CANCELED.getStatus());
                     LOGGER.info("delete job size:{}, update job size:{}, query job size:{}, jobIds:{}", deleted, updated, jobCaches.size(), jobIds);
                 } else {
@@ -146,6 +146,7 @@ public class TenantService {
             //hadoop
             updateTenantQueue(tenantId, clusterId, queueId);
         }
+        consoleComponentService.updateCache();
         List<ComponentBindDBDTO> bindDTOList = ClusterTransfer.INSTANCE.bindDBtoDTOList(bindDBDTOList);
         initDataDevelop(clusterId, tenantId, tenant.getCreateUserId(), tenant.getTenantIdentity(), tenant.getTenantDesc(), bindDTOList);
     }
@@ -219,6 +220,7 @@ public class TenantService {
         if (result == 0) {
             throw new RdosDefineException("The update engine queue failed");
         }
+        consoleComponentService.updateCache();
     }
 
     /**
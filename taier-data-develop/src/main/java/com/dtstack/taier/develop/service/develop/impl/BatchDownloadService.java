@@ -18,9 +18,13 @@
 
 package com.dtstack.taier.develop.service.develop.impl;
 
+import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.common.enums.DownloadType;
+import com.dtstack.taier.common.enums.TempJobType;
 import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.dao.domain.BatchSelectSql;
 import com.dtstack.taier.dao.domain.ScheduleJobExpand;
+import com.dtstack.taier.dao.domain.TenantComponent;
 import com.dtstack.taier.develop.service.develop.IDataDownloadService;
 import com.dtstack.taier.develop.service.develop.MultiEngineServiceFactory;
 import com.dtstack.taier.develop.service.schedule.JobExpandService;
@@ -34,12 +38,19 @@ import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.regex.Matcher;
 
 
 /**
@@ -57,12 +68,35 @@ public class BatchDownloadService {
 
     public static final Integer DEFAULT_LOG_PREVIEW_BYTES = 16383;
 
+    /**
+     * 查询结果下载的写缓冲大小
+     */
+    private static final int DATA_WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 查询结果下载每写入多少行刷新一次，数据分块写到客户端，不在服务端堆积
+     */
+    private static final int DATA_FLUSH_ROWS = 1000;
+
+    private static final char CSV_SEPARATOR = ',';
+
+    private static final char CSV_QUOTE = '"';
+
     @Autowired
     private MultiEngineServiceFactory multiEngineServiceFactory;
 
     @Autowired
     private JobExpandService jobExpandService;
 
+    @Autowired
+    private BatchSelectSqlService batchSelectSqlService;
+
+    @Autowired
+    private HadoopDataDownloadService hadoopDataDownloadService;
+
+    @Autowired
+    private DevelopTenantComponentService developTenantComponentService;
+
     /**
      * 按行数获取job的log
      *
@@ -126,6 +160,44 @@ public class BatchDownloadService {
         return buildIDownLoad(jobId, taskType, dtuicTenantId, Integer.MAX_VALUE);
     }
 
+    /**
+     * 返回下载临时查询完整结果的downloader
+     *
+     * @param jobId    临时查询的jobId
+     * @param tenantId 租户id
+     * @return 查询结果下载器
+     */
+    public IDownload downloadSqlExeResult(String jobId, Long tenantId) {
+        BatchSelectSql selectSql = batchSelectSqlService.getByJobId(jobId, tenantId, Deleted.NORMAL.getStatus());
+        Integer taskType = selectSql.getTaskType();
+        if (TempJobType.SIMPLE_SELECT.getType().equals(selectSql.getIsSelectSql())) {
+            IDownload download = hadoopDataDownloadService.getSimpleSelectDownLoader(tenantId, selectSql.getSqlText(), taskType);
+            Integer limitNum = getSimpleSelectLimit(selectSql.getSqlText());
+            return limitNum == null ? download : new LimitDownload(download, limitNum);
+        }
+        if (!TempJobType.SELECT.getType().equals(selectSql.getIsSelectSql())) {
+            throw new RdosDefineException("只支持下载查询语句的结果");
+        }
+        TenantComponent tenantEngine = developTenantComponentService.getByTenantAndEngineType(tenantId, taskType);
+        Preconditions.checkNotNull(tenantEngine, String.format("tenant %d not support task type %d", tenantId, taskType));
+        return hadoopDataDownloadService.getTempTableDownloader(tenantId, selectSql.getTempTableName(), tenantEngine.getComponentIdentity(), taskType);
+    }
+
+    /**
+     * 获取简单查询 sql 中的 limit 条数，没有 limit 时返回 null
+     *
+     * @param sql 简单查询sql
+     * @return limit 条数
+     */
+    private Integer getSimpleSelectLimit(String sql) {
+        Matcher matcher = BatchHadoopSelectSqlService.SIMPLE_QUERY_PATTERN.matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        String limitStr = matcher.group("num");
+        return StringUtils.isNotEmpty(limitStr) ? Integer.parseInt(limitStr) : null;
+    }
+
     /**
      * 文件下载处理
      *
@@ -151,6 +223,8 @@ public class BatchDownloadService {
             } else {
                 if (iDownload instanceof SyncDownload) {
                     writeFileWithSyncLog(response, iDownload);
+                } else if (downloadType == DownloadType.DEVELOP_DATA) {
+                    writeFileWithData(response, iDownload);
                 } else {
                     try (OutputStream os = response.getOutputStream(); BufferedOutputStream bos = new BufferedOutputStream(os)) {
                         while (!iDownload.reachedEnd()) {
@@ -243,6 +317,67 @@ public class BatchDownloadService {
         }
     }
 
+    /**
+     * 以csv格式流式输出查询结果，逐行从下载器读取并直接写入响应，内存占用与结果集大小无关
+     *
+     * @param response
+     * @param iDownload
+     */
+    private void writeFileWithData(HttpServletResponse response, IDownload iDownload) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), DATA_WRITE_BUFFER_SIZE)) {
+            writeCsvRow(writer, iDownload.getMetaInfo());
+            int rowCount = 0;
+            while (!iDownload.reachedEnd()) {
+                writeCsvRow(writer, (List<?>) iDownload.readNext());
+                if (++rowCount % DATA_FLUSH_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    private void writeCsvRow(Writer writer, List<?> row) throws IOException {
+        if (row != null) {
+            for (int i = 0; i < row.size(); i++) {
+                if (i > 0) {
+                    writer.write(CSV_SEPARATOR);
+                }
+                Object value = row.get(i);
+                if (value != null) {
+                    writeCsvField(writer, value.toString());
+                }
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * 包含分隔符、引号、换行的字段用引号包裹，字段内的引号转义为两个引号
+     */
+    private void writeCsvField(Writer writer, String field) throws IOException {
+        boolean needQuote = false;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == CSV_SEPARATOR || c == CSV_QUOTE || c == '\n' || c == '\r') {
+                needQuote = true;
+                break;
+            }
+        }
+        if (!needQuote) {
+            writer.write(field);
+            return;
+        }
+        writer.write(CSV_QUOTE);
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == CSV_QUOTE) {
+                writer.write(CSV_QUOTE);
+            }
+            writer.write(c);
+        }
+        writer.write(CSV_QUOTE);
+    }
+
     /**
      * 根据类型生成下载的文件名
      * @param downloadType 文件下载类型
@@ -252,6 +387,8 @@ public class BatchDownloadService {
         String downFileNameSuf;
         if (downloadType == DownloadType.DEVELOP_LOG) {
             downFileNameSuf = ".log";
+        } else if (downloadType == DownloadType.DEVELOP_DATA) {
+            downFileNameSuf = ".csv";
         } else {
             throw new RdosDefineException("未知的文件下载类型");
         }
@@ -523,14 +523,18 @@ public class BatchHadoopSelectSqlService implements IBatchSelectSqlService {
         IDownload resultDownload = hadoopDataDownloadService.getSimpleSelectDownLoader(tenantId, sql, taskType);
         Integer num = getMaxQueryNum(sql, tenantId, taskType);
         int readCounter = 0;
-        // 第一行插入传字段信息
-        queryResult.add(resultDownload.getMetaInfo());
-        while (!resultDownload.reachedEnd()) {
-            if (readCounter >= num) {
-                break;
+        try {
+            // 第一行插入传字段信息
+            queryResult.add(resultDownload.getMetaInfo());
+            while (!resultDownload.reachedEnd()) {
+                if (readCounter >= num) {
+                    break;
+                }
+                queryResult.add(resultDownload.readNext());
+                readCounter++;
             }
-            queryResult.add(resultDownload.readNext());
-            readCounter++;
+        } finally {
+            resultDownload.close();
         }
         return queryResult;
     }
@@ -102,19 +102,53 @@ public class HadoopDataDownloadService implements IDataDownloadService {
     public List<Object> queryDataFromTempTable(Long tenantId, String tableName, String db) throws Exception {
         DataSourceType dataSourceType = datasourceService.getHadoopDefaultDataSourceByTenantId(tenantId);
         IDownload downloader = getDownloader(tenantId, tableName, db, dataSourceType.getVal());
-        List<Object> result = new ArrayList<>();
-        List<String> alias = downloader.getMetaInfo();
-        result.add(alias);
         JdbcInfo jdbcInfo = Engine2DTOService.getJdbcInfo(tenantId, null, DataSourceTypeJobTypeMapping.getTaskTypeByDataSourceType(dataSourceType.getVal()));
-        int readCounter = 0;
-        while (!downloader.reachedEnd() && readCounter < jdbcInfo.getMaxRows()) {
-            List<String> row = (List<String>) downloader.readNext();
-            result.add(row);
-            readCounter++;
+        return readPreview(downloader, jdbcInfo.getMaxRows());
+    }
+
+    /**
+     * 读取预览数据，第一行为字段信息，读取完成后关闭下载器释放结果集
+     *
+     * @param downloader 下载器
+     * @param maxRows    最大读取条数
+     * @return 预览数据
+     */
+    private List<Object> readPreview(IDownload downloader, int maxRows) {
+        List<Object> result = new ArrayList<>();
+        try {
+            result.add(downloader.getMetaInfo());
+            int readCounter = 0;
+            while (!downloader.reachedEnd() && readCounter < maxRows) {
+                result.add(downloader.readNext());
+                readCounter++;
+            }
+        } finally {
+            try {
+                downloader.close();
+            } catch (Exception e) {
+                LOGGER.error("close downloader error", e);
+            }
         }
         return result;
     }
 
+    /**
+     * 获取临时查询结果表的下载器，用于下载完整的查询结果
+     *
+     * @param tenantId  租户id
+     * @param tableName 临时表名
+     * @param db        临时表所在库
+     * @param taskType  任务类型 仅支持sparkSql和hiveSql
+     * @return 临时表下载器
+     */
+    public IDownload getTempTableDownloader(Long tenantId, String tableName, String db, Integer taskType) {
+        if (EScheduleJobType.HIVE_SQL.getVal().equals(taskType)) {
+            return getHiveServerDownloader(tenantId, tableName, db);
+        }
+        DataSourceType dataSourceType = datasourceService.getHadoopDefaultDataSourceByTenantId(tenantId);
+        return getDownloader(tenantId, tableName, db, dataSourceType.getVal());
+    }
+
     /**
      * 获取简单查询下载器
      *
@@ -304,19 +338,9 @@ public class HadoopDataDownloadService implements IDataDownloadService {
      * @throws Exception
      */
     public List<Object> queryDataFromHiveServerTempTable(Long tenantId, String tableName, String db) throws Exception {
-        List<Object> result = new ArrayList<>();
         IDownload downloader = getHiveServerDownloader(tenantId, tableName, db);
-        List<String> alias = downloader.getMetaInfo();
-        result.add(alias);
-
         JdbcInfo jdbcInfo = Engine2DTOService.getJdbcInfo(tenantId,null, EScheduleJobType.HIVE_SQL);
-        int readCounter = 0;
-        while (!downloader.reachedEnd() && readCounter < jdbcInfo.getMaxRows()) {
-            List<String> row = (List<String>) downloader.readNext();
-            result.add(row);
-            readCounter++;
-        }
-        return result;
+        return readPreview(downloader, jdbcInfo.getMaxRows());
     }
 
     public IDownload getHiveServerDownloader(Long tenantId, String tableName, String db){
@@ -232,9 +232,10 @@ public class HiveSelectDownload implements IDownload {
     public Object readNext() {
         try {
             List<String> row = (List<String>) pluginDownloader.readNext();
-            List<String> data = new ArrayList<>();
-            List<String> columns = CollectionUtils.isNotEmpty(queryFieldNames) ? queryFieldNames : columnNames;
-            for (int index = 0; index < columns.size(); index++) {
+            int columnSize = CollectionUtils.isNotEmpty(queryFieldNames) ? queryFieldNames.size() : columnNames.size();
+            // 按最终列数分配，避免下载大结果集时每行扩容
+            List<String> data = new ArrayList<>(columnSize + excludeCol.size());
+            for (int index = 0; index < columnSize; index++) {
                 String source = row.get(index);
                 data.add(dealHiveTextNull(source));
             }
@@ -19,19 +19,21 @@
 package com.dtstack.taier.develop.service.develop.impl;
 
 import com.dtstack.taier.common.enums.EParamType;
+import com.dtstack.taier.common.util.ParamPlaceholderUtil;
 import com.dtstack.taier.common.util.TimeParamOperator;
 import com.dtstack.taier.dao.domain.BatchSysParameter;
 import com.dtstack.taier.dao.domain.BatchTaskParam;
 import com.dtstack.taier.dao.domain.BatchTaskParamShade;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -48,48 +50,37 @@ public class JobParamReplace {
     @Autowired
     private BatchSysParamService batchSysParamService;
 
-    private static final Pattern PARAM_PATTERN = Pattern.compile("\\$\\{(.*?)\\}");
-
-    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
-
-    private final static String VAR_FORMAT = "${%s}";
+    private static final DateTimeFormatter CYC_TIME_FORMAT = DateTimeFormat.forPattern("yyyyMMddHHmmss");
 
     public String paramReplace(String sql, List paramList, String cycTime){
 
-        if(CollectionUtils.isEmpty(paramList)){
-            return sql;
-        }
-
-        Matcher matcher = PARAM_PATTERN.matcher(sql);
-        if(!matcher.find()){
+        if(CollectionUtils.isEmpty(paramList) || StringUtils.isEmpty(sql)){
             return sql;
         }
 
+        // 同名参数以第一个为准
+        Map<String, Object> params = new HashMap<>(paramList.size());
         for (Object param : paramList) {
-            Integer type;
-            String paramName;
-            String paramCommand;
-            if (param instanceof BatchTaskParamShade){
-                type = ((BatchTaskParamShade) param).getType();
-                paramName = ((BatchTaskParamShade) param).getParamName();
-                paramCommand = ((BatchTaskParamShade) param).getParamCommand();
-            } else {
-                type = ((BatchTaskParam) param).getType();
-                paramName = ((BatchTaskParam) param).getParamName();
-                paramCommand = ((BatchTaskParam) param).getParamCommand();
-            }
-
-            String replaceStr = String.format(VAR_FORMAT, paramName);
-            // 判断参数是否存在 SQL 中
-            if (!sql.contains(replaceStr)) {
-                continue;
-            }
-
-            String targetVal = convertParam(type,paramName,paramCommand,cycTime);
-            sql = sql.replace(replaceStr, targetVal);
+            String paramName = param instanceof BatchTaskParamShade ? ((BatchTaskParamShade) param).getParamName() : ((BatchTaskParam) param).getParamName();
+            params.putIfAbsent(paramName, param);
         }
 
-        return sql;
+        // 只计算文本中用到的参数，同一个参数只计算一次
+        Map<String, String> values = new HashMap<>(paramList.size());
+        return ParamPlaceholderUtil.replace(sql, name -> {
+            Object param = params.get(name);
+            if (param == null) {
+                return null;
+            }
+            return values.computeIfAbsent(name, k -> {
+                if (param instanceof BatchTaskParamShade) {
+                    BatchTaskParamShade paramShade = (BatchTaskParamShade) param;
+                    return convertParam(paramShade.getType(), paramShade.getParamName(), paramShade.getParamCommand(), cycTime);
+                }
+                BatchTaskParam taskParam = (BatchTaskParam) param;
+                return convertParam(taskParam.getType(), taskParam.getParamName(), taskParam.getParamCommand(), cycTime);
+            });
+        });
     }
 
     /**
@@ -100,7 +91,7 @@ public class JobParamReplace {
      * @return
      */
     public String paramReplace(String sql, List paramList){
-        return paramReplace(sql, paramList, sdf.format(new Date()));
+        return paramReplace(sql, paramList, CYC_TIME_FORMAT.print(System.currentTimeMillis()));
     }
 
     /**
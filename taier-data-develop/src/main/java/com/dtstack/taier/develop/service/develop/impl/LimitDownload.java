@@ -0,0 +1,55 @@
+package com.dtstack.taier.develop.service.develop.impl;
+
+import com.dtstack.taier.develop.utils.develop.common.IDownload;
+
+import java.util.List;
+
+/**
+ * 读取到指定条数后结束的下载器，用于保留简单查询 sql 中的 limit
+ *
+ * Company: www.dtstack.com
+ */
+public class LimitDownload implements IDownload {
+
+    private final IDownload download;
+
+    private final int limitNum;
+
+    private int readCounter = 0;
+
+    public LimitDownload(IDownload download, int limitNum) {
+        this.download = download;
+        this.limitNum = limitNum;
+    }
+
+    @Override
+    public void configure() throws Exception {
+        download.configure();
+    }
+
+    @Override
+    public List<String> getMetaInfo() throws Exception {
+        return download.getMetaInfo();
+    }
+
+    @Override
+    public Object readNext() {
+        readCounter++;
+        return download.readNext();
+    }
+
+    @Override
+    public boolean reachedEnd() {
+        return readCounter >= limitNum || download.reachedEnd();
+    }
+
+    @Override
+    public void close() throws Exception {
+        download.close();
+    }
+
+    @Override
+    public String getFileName() {
+        return download.getFileName();
+    }
+}
@@ -13,11 +13,14 @@ import com.dtstack.taier.dao.mapper.ScheduleTaskShadeMapper;
 import com.dtstack.taier.dao.pager.PageResult;
 import com.dtstack.taier.develop.mapstruct.task.ScheduleTaskMapstructTransfer;
 import com.dtstack.taier.develop.service.user.UserService;
+import com.dtstack.taier.develop.utils.TransactionUtils;
 import com.dtstack.taier.develop.vo.schedule.ReturnScheduleTaskVO;
 import com.dtstack.taier.develop.vo.schedule.ReturnTaskSupportTypesVO;
 import com.dtstack.taier.pluginapi.enums.ComputeType;
 import com.dtstack.taier.scheduler.dto.schedule.QueryTaskListDTO;
 import com.dtstack.taier.scheduler.dto.schedule.SavaTaskDTO;
+import com.dtstack.taier.scheduler.server.builder.dependency.TaskDependencyIndex;
+import com.dtstack.taier.scheduler.server.listener.JobSchedulerListener;
 import com.dtstack.taier.scheduler.service.ScheduleTaskShadeInfoService;
 import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
@@ -53,6 +56,12 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
     @Autowired
     private ScheduleTaskShadeInfoService scheduleTaskShadeInfoService;
 
+    @Autowired
+    private JobSchedulerListener jobSchedulerListener;
+
+    @Autowired
+    private TaskDependencyIndex taskDependencyIndex;
+
     /**
      * 根据任务id获得任务
      *
@@ -110,7 +119,9 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
         this.lambdaUpdate().eq(ScheduleTaskShade::getTaskId, taskId).update(scheduleTaskShade);
 
         // 直接删除任务依赖
-        return tasktaskService.lambdaUpdate().eq(ScheduleTaskTaskShade::getTaskId, taskId).remove();
+        boolean removed = tasktaskService.lambdaUpdate().eq(ScheduleTaskTaskShade::getTaskId, taskId).remove();
+        invalidateDependencyIndex();
+        return removed;
     }
 
     /**
@@ -175,7 +186,16 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
         // TODO 这块后面还需要考虑成环判断
         // 删除任务依赖
         tasktaskService.lambdaUpdate().eq(ScheduleTaskTaskShade::getTaskId, scheduleTaskShade.getTaskId()).remove();
-        return tasktaskService.saveBatch(scheduleTaskTaskShadeList);
+        boolean saved = tasktaskService.saveBatch(scheduleTaskTaskShadeList);
+        invalidateDependencyIndex();
+        return saved;
+    }
+
+    /**
+     * 任务依赖变更后使依赖索引失效，在事务中调用时提交之后再失效，避免提交前被并发的查询以旧依赖重新加载
+     */
+    private void invalidateDependencyIndex() {
+        TransactionUtils.afterCommit(taskDependencyIndex::invalidate);
     }
 
     /**
@@ -229,10 +249,15 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
 
         ScheduleTaskShade scheduleTask = new ScheduleTaskShade();
         scheduleTask.setScheduleStatus(scheduleStatus);
-        return this.lambdaUpdate()
+        boolean update = this.lambdaUpdate()
                 .in(ScheduleTaskShade::getTaskId,taskIdList)
                 .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
                 .update(scheduleTask);
+        if (update && EScheduleStatus.FREEZE.getVal().equals(scheduleStatus)) {
+            // 已经进入提交队列的实例不会再经过冻结判断，从队列中取消
+            jobSchedulerListener.removeQueuedJobsByTaskIds(taskIdList);
+        }
+        return update;
     }
 
     /**
@@ -0,0 +1,29 @@
+package com.dtstack.taier.develop.utils;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Company: www.dtstack.com
+ */
+public class TransactionUtils {
+
+    /**
+     * 在事务中调用时提交之后再执行，不在事务中时直接执行
+     * 用于清理缓存，避免提交前被并发的查询以旧数据重新加载
+     *
+     * @param action 提交后执行的动作
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
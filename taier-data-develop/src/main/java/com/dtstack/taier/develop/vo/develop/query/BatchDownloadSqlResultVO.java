@@ -0,0 +1,20 @@
+package com.dtstack.taier.develop.vo.develop.query;
+
+import com.dtstack.taier.common.param.DtInsightAuthParam;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel("下载临时查询结果信息")
+public class BatchDownloadSqlResultVO extends DtInsightAuthParam {
+
+    @ApiModelProperty(value = "临时查询的job id", example = "79275d9f", required = true)
+    private String jobId;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+}
@@ -26,9 +26,14 @@ import com.dtstack.taier.pluginapi.enums.EDeployMode;
 import com.dtstack.taier.pluginapi.enums.EJobType;
 import com.dtstack.taier.scheduler.service.ClusterService;
 import com.dtstack.taier.scheduler.service.ScheduleDictService;
+import com.dtstack.taier.scheduler.utils.LocalCacheUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.dtstack.taier.pluginapi.constrant.ConfigConstant.DEPLOY_MODEL;
@@ -36,33 +41,118 @@ import static com.dtstack.taier.pluginapi.constrant.ConfigConstant.DEPLOY_MODEL;
 @Component
 public class PluginWrapper {
 
+    /**
+     * 解析后的 pluginInfo 缓存，控制台保存组件、集群、队列配置时通过 zk 清理各节点缓存
+     */
+    private static final String PLUGIN_INFO_CACHE_GROUP = "pluginInfo";
+
+    /**
+     * 兜底的过期时间，版本字典等未主动清理缓存的配置修改后最多延迟该时间生效
+     */
+    private static final long PLUGIN_INFO_CACHE_EXPIRE = 10 * 60 * 1000L;
+
     @Autowired
     private ClusterService clusterService;
     @Autowired
     private ScheduleDictService scheduleDictService;
+    @Autowired
+    private LocalCacheUtil localCacheUtil;
 
-    public Map<String, Object> wrapperPluginInfo(Integer taskType, String taskParam, Integer computeType, String componentVersion, Long tenantId) {
+    public ResolvedPluginInfo getPluginInfo(Integer taskType, String taskParam, Integer computeType, String componentVersion, Long tenantId) {
         EDeployMode deployMode = EDeployMode.PERJOB;
         if (EScheduleJobType.SYNC.getType().equals(taskType)) {
             deployMode = TaskParamsUtils.parseDeployTypeByTaskParams(taskParam, computeType);
         }
+        String cacheKey = LocalCacheUtil.generateKey("job", tenantId, taskType, deployMode.getType(), componentVersion);
+        ResolvedPluginInfo resolvedPluginInfo = (ResolvedPluginInfo) localCacheUtil.get(PLUGIN_INFO_CACHE_GROUP, cacheKey);
+        if (resolvedPluginInfo != null) {
+            return resolvedPluginInfo;
+        }
         String componentVersionValue = scheduleDictService.convertVersionNameToValue(componentVersion, taskType);
         JSONObject pluginInfo = clusterService.pluginInfoJSON(tenantId, taskType, deployMode.getType(), componentVersionValue);
         pluginInfo.put(DEPLOY_MODEL,deployMode.getType());
-        return pluginInfo;
+        resolvedPluginInfo = new ResolvedPluginInfo(pluginInfo);
+        localCacheUtil.put(PLUGIN_INFO_CACHE_GROUP, cacheKey, resolvedPluginInfo, PLUGIN_INFO_CACHE_EXPIRE);
+        return resolvedPluginInfo;
     }
-    public Map<String, Object> wrapperPluginInfo(Integer taskType,String componentVersion, Long tenantId,Integer deployMode) {
+
+    public ResolvedPluginInfo getPluginInfo(Integer taskType, String componentVersion, Long tenantId, Integer deployMode) {
+        String cacheKey = LocalCacheUtil.generateKey("identifier", tenantId, taskType, deployMode, componentVersion);
+        ResolvedPluginInfo resolvedPluginInfo = (ResolvedPluginInfo) localCacheUtil.get(PLUGIN_INFO_CACHE_GROUP, cacheKey);
+        if (resolvedPluginInfo != null) {
+            return resolvedPluginInfo;
+        }
         String componentVersionValue = scheduleDictService.convertVersionNameToValue(componentVersion, taskType);
-        return clusterService.pluginInfoJSON(tenantId, taskType, deployMode, componentVersionValue);
+        JSONObject pluginInfo = clusterService.pluginInfoJSON(tenantId, taskType, deployMode, componentVersionValue);
+        if (pluginInfo == null) {
+            return null;
+        }
+        resolvedPluginInfo = new ResolvedPluginInfo(pluginInfo);
+        localCacheUtil.put(PLUGIN_INFO_CACHE_GROUP, cacheKey, resolvedPluginInfo, PLUGIN_INFO_CACHE_EXPIRE);
+        return resolvedPluginInfo;
     }
 
     public void wrapperJobClient(JobClient jobClient) {
-        Map<String, Object> pluginInfo = wrapperPluginInfo(jobClient.getTaskType(), jobClient.getTaskParams(), jobClient.getComputeType().getType(),
+        ResolvedPluginInfo resolvedPluginInfo = getPluginInfo(jobClient.getTaskType(), jobClient.getTaskParams(), jobClient.getComputeType().getType(),
                 jobClient.getComponentVersion(), jobClient.getTenantId());
-        jobClient.setPluginInfo(JSONObject.toJSONString(pluginInfo));
+        jobClient.setPluginInfo(resolvedPluginInfo.getPluginInfoStr());
         jobClient.setJobType(EJobType.getEjobType(EScheduleJobType.getByTaskType(jobClient.getTaskType()).getEngineJobType()));
-        if (pluginInfo.containsKey(DEPLOY_MODEL)) {
-            jobClient.setDeployMode((Integer) pluginInfo.get(DEPLOY_MODEL));
+        if (resolvedPluginInfo.getPluginInfo().containsKey(DEPLOY_MODEL)) {
+            jobClient.setDeployMode((Integer) resolvedPluginInfo.getPluginInfo().get(DEPLOY_MODEL));
+        }
+    }
+
+    /**
+     * 清理所有节点的 pluginInfo 缓存
+     */
+    public void clearPluginInfoCache() {
+        localCacheUtil.removeGroup(PLUGIN_INFO_CACHE_GROUP);
+    }
+
+    /**
+     * 解析完成的 pluginInfo，构建时序列化一次，多个任务共享
+     * 嵌套的配置也复制为只读，避免某个任务修改后影响其他任务
+     */
+    public static final class ResolvedPluginInfo {
+
+        private final Map<String, Object> pluginInfo;
+
+        private final String pluginInfoStr;
+
+        private ResolvedPluginInfo(JSONObject pluginInfo) {
+            this.pluginInfo = readOnlyMap(pluginInfo);
+            this.pluginInfoStr = pluginInfo.toJSONString();
+        }
+
+        private static Map<String, Object> readOnlyMap(Map<String, Object> map) {
+            Map<String, Object> copy = new LinkedHashMap<>(map.size());
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                copy.put(entry.getKey(), readOnly(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object readOnly(Object value) {
+            if (value instanceof Map) {
+                return readOnlyMap((Map<String, Object>) value);
+            }
+            if (value instanceof List) {
+                List<Object> copy = new ArrayList<>(((List<Object>) value).size());
+                for (Object item : (List<Object>) value) {
+                    copy.add(readOnly(item));
+                }
+                return Collections.unmodifiableList(copy);
+            }
+            return value;
+        }
+
+        public Map<String, Object> getPluginInfo() {
+            return pluginInfo;
+        }
+
+        public String getPluginInfoStr() {
+            return pluginInfoStr;
         }
     }
 }
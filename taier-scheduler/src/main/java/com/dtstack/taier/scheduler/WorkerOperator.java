@@ -25,7 +25,6 @@ import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.JobIdentifier;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.pojo.*;
-import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -33,7 +32,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -73,16 +73,11 @@ public class WorkerOperator {
             LOGGER.error("pluginInfo params lost {}", jobIdentifier);
             throw new RdosDefineException("pluginInfo params lost");
         }
-        Map<String, Object> info = pluginWrapper.wrapperPluginInfo(jobIdentifier.getTaskType(), jobIdentifier.getComponentVersion(), jobIdentifier.getTenantId(), jobIdentifier.getDeployMode());
+        PluginWrapper.ResolvedPluginInfo info = pluginWrapper.getPluginInfo(jobIdentifier.getTaskType(), jobIdentifier.getComponentVersion(), jobIdentifier.getTenantId(), jobIdentifier.getDeployMode());
         if(null == info){
             return null;
         }
-        try {
-            return PublicUtil.objToString(info);
-        } catch (IOException e) {
-            LOGGER.error("{} buildPluginInfo failed!", jobIdentifier.getJobId(), e);
-        }
-        return null;
+        return info.getPluginInfoStr();
     }
 
     public JudgeResult judgeSlots(JobClient jobClient) throws Exception {
@@ -103,6 +98,36 @@ public class WorkerOperator {
         return status;
     }
 
+    /**
+     * 批量获取任务状态，相同插件的任务合并为一次调用
+     *
+     * @param jobIdentifiers 任务标识
+     * @return jobId -> 任务状态，状态未知的任务不在其中
+     */
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        Map<String, List<JobIdentifier>> pluginJobs = new HashMap<>();
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            String pluginInfo;
+            try {
+                pluginInfo = this.getPluginInfo(jobIdentifier);
+            } catch (Exception e) {
+                // 单个任务 pluginInfo 获取失败不影响其他任务，该任务不返回状态，本轮不处理
+                LOGGER.error("{} get pluginInfo failed!", jobIdentifier.getJobId(), e);
+                continue;
+            }
+            if (null == pluginInfo) {
+                continue;
+            }
+            pluginJobs.computeIfAbsent(pluginInfo, k -> new ArrayList<>()).add(jobIdentifier);
+        }
+
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        for (Map.Entry<String, List<JobIdentifier>> entry : pluginJobs.entrySet()) {
+            statusMap.putAll(clientOperator.getJobStatusBatch(entry.getKey(), entry.getValue()));
+        }
+        return statusMap;
+    }
+
     public String getEngineLog(JobIdentifier jobIdentifier) {
         String engineLog = clientOperator.getEngineLog(this.getPluginInfo(jobIdentifier), jobIdentifier);
         if (null == engineLog) {
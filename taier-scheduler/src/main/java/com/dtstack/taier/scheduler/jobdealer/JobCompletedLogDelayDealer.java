@@ -18,6 +18,10 @@
 
 package com.dtstack.taier.scheduler.jobdealer;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.queue.DelayBlockingQueue;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.JobIdentifier;
@@ -29,27 +33,58 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 
+/**
+ * 任务结束后延迟拉取引擎日志，多个线程并行拉取，一个日志很大的任务不会阻塞其他任务
+ * 日志超过 job.engine.log.max.size 时只保留末尾部分，json 格式的日志截断后仍是合法的 json
+ */
 public class JobCompletedLogDelayDealer implements Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JobCompletedLogDelayDealer.class);
 
+    private static final int METRICS_LOG_MULTIPLES = 100;
+
+    private static final String TRUNCATED_FORMAT = "...(engine log is too large, %d characters before are truncated)\n";
+
+    /**
+     * 截断字段时给截断提示预留的长度
+     */
+    private static final int TRUNCATED_RESERVE = 100;
+
+    private static final String MSG_INFO_KEY = "msg_info";
+
     private ApplicationContext applicationContext;
     private WorkerOperator workerOperator;
     private ScheduleJobExpandService scheduleJobExpandService;
+    private int engineLogMaxSize;
 
     private DelayBlockingQueue<JobCompletedInfo> delayBlockingQueue = new DelayBlockingQueue<JobCompletedInfo>(1000);
-    private ExecutorService taskStatusPool = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(1), new CustomThreadFactory(this.getClass().getSimpleName()));
+    private ExecutorService taskStatusPool;
+
+    private final AtomicLong fetchCount = new AtomicLong();
+    private final AtomicLong fetchChars = new AtomicLong();
+    private final AtomicLong fetchCost = new AtomicLong();
+    private final AtomicLong truncatedCount = new AtomicLong();
 
     public JobCompletedLogDelayDealer(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
         setBean();
-        taskStatusPool.execute(this);
+        EnvironmentContext environmentContext = applicationContext.getBean(EnvironmentContext.class);
+        int fetchThreadNum = Math.max(1, environmentContext.getJobLogFetchThreadNum());
+        this.engineLogMaxSize = environmentContext.getJobEngineLogMaxSize();
+        this.taskStatusPool = new ThreadPoolExecutor(fetchThreadNum, fetchThreadNum, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(fetchThreadNum), new CustomThreadFactory(this.getClass().getSimpleName()));
+        for (int i = 0; i < fetchThreadNum; i++) {
+            taskStatusPool.execute(this);
+        }
     }
 
     @Override
@@ -75,9 +110,11 @@ public class JobCompletedLogDelayDealer implements Runnable {
     private void updateJobEngineLog(String jobId, JobIdentifier jobIdentifier) {
 
         try {
+            long startTime = System.currentTimeMillis();
             String jobLog = workerOperator.getEngineLog(jobIdentifier);
             if (jobLog != null) {
-                scheduleJobExpandService.updateEngineLog(jobId, jobLog);
+                recordMetrics(jobLog.length(), System.currentTimeMillis() - startTime);
+                scheduleJobExpandService.updateEngineLog(jobId, truncateEngineLog(jobId, jobLog));
             }
         } catch (Throwable e) {
             String errorLog = ExceptionUtil.getErrorMessage(e);
@@ -86,6 +123,99 @@ public class JobCompletedLogDelayDealer implements Runnable {
         }
     }
 
+    /**
+     * 日志过大时截断，错误信息一般在日志末尾
+     * json 格式的日志保留结构，从最长的字段开始只保留字段末尾部分；字段截断后仍然过大时把末尾部分放到 msg_info 中
+     * 非 json 格式的日志直接保留末尾部分
+     */
+    private String truncateEngineLog(String jobId, String jobLog) {
+        if (engineLogMaxSize <= 0 || jobLog.length() <= engineLogMaxSize) {
+            return jobLog;
+        }
+        truncatedCount.incrementAndGet();
+        LOGGER.info("jobId:{} engine log length {} over {}, keep the tail.", jobId, jobLog.length(), engineLogMaxSize);
+        return truncateLog(jobLog, engineLogMaxSize);
+    }
+
+    static String truncateLog(String jobLog, int maxSize) {
+        if (maxSize <= 0 || jobLog.length() <= maxSize) {
+            return jobLog;
+        }
+        JSONObject logJson = parseJsonObject(jobLog);
+        if (logJson == null) {
+            return truncateTail(jobLog, maxSize);
+        }
+        String truncated = truncateJsonFields(logJson, maxSize);
+        // 转义后长度会变长，逐步缩小保留的长度
+        int keep = maxSize;
+        while (truncated.length() > maxSize && keep > 0) {
+            keep = keep / 2;
+            JSONObject wrapper = new JSONObject();
+            wrapper.put(MSG_INFO_KEY, truncateTail(jobLog, keep));
+            truncated = wrapper.toJSONString();
+        }
+        return truncated;
+    }
+
+    private static JSONObject parseJsonObject(String jobLog) {
+        if (!jobLog.trim().startsWith("{")) {
+            return null;
+        }
+        try {
+            return JSON.parseObject(jobLog, Feature.OrderedField);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 依次截断最长的字符串字段，直到整体长度不超过限制或者没有可以截断的字段
+     */
+    static String truncateJsonFields(JSONObject logJson, int maxSize) {
+        String json = logJson.toJSONString();
+        Set<String> truncatedKeys = new HashSet<>();
+        while (json.length() > maxSize) {
+            String longestKey = null;
+            int longestLength = 0;
+            for (Map.Entry<String, Object> entry : logJson.entrySet()) {
+                if (entry.getValue() instanceof String && !truncatedKeys.contains(entry.getKey())
+                        && ((String) entry.getValue()).length() > longestLength) {
+                    longestKey = entry.getKey();
+                    longestLength = ((String) entry.getValue()).length();
+                }
+            }
+            if (longestKey == null) {
+                break;
+            }
+            int keep = longestLength - (json.length() - maxSize) - TRUNCATED_RESERVE;
+            logJson.put(longestKey, truncateTail(logJson.getString(longestKey), Math.max(keep, 0)));
+            truncatedKeys.add(longestKey);
+            json = logJson.toJSONString();
+        }
+        return json;
+    }
+
+    static String truncateTail(String value, int keep) {
+        if (value.length() <= keep) {
+            return value;
+        }
+        int begin = value.length() - keep;
+        if (begin < value.length() && Character.isLowSurrogate(value.charAt(begin))) {
+            begin++;
+        }
+        return String.format(TRUNCATED_FORMAT, begin) + value.substring(begin);
+    }
+
+    private void recordMetrics(int chars, long cost) {
+        long count = fetchCount.incrementAndGet();
+        long totalChars = fetchChars.addAndGet(chars);
+        long totalCost = fetchCost.addAndGet(cost);
+        if (count % METRICS_LOG_MULTIPLES == 0) {
+            LOGGER.info("engine log fetched:{} chars:{} cost:{}ms truncated:{} avgCost:{}ms",
+                    count, totalChars, totalCost, truncatedCount.get(), totalCost / count);
+        }
+    }
+
 
     private void setBean() {
         scheduleJobExpandService = applicationContext.getBean(ScheduleJobExpandService.class);
@@ -23,7 +23,6 @@ import com.dtstack.taier.common.enums.EJobCacheStage;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.util.GenerateErrorMsgUtil;
 import com.dtstack.taier.common.util.SystemPropertyUtil;
-import com.dtstack.taier.common.util.TaskParamsUtils;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.dao.domain.po.SimpleScheduleJobPO;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
@@ -35,6 +34,7 @@ import com.dtstack.taier.pluginapi.pojo.ParamAction;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
+import com.dtstack.taier.scheduler.jobdealer.cache.JobInfoCache;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.jobdealer.resource.JobComputeResourcePlain;
 import com.dtstack.taier.scheduler.server.queue.GroupInfo;
@@ -97,6 +97,9 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     @Autowired
     private WorkerOperator workerOperator;
 
+    @Autowired
+    private JobInfoCache jobInfoCache;
+
     /**
      * key: jobResource, 计算引擎类型
      * value: queue
@@ -125,32 +128,24 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     }
 
     /**
-     * 获取所有节点的队列大小信息（job已经submitted的除外）
-     * key1: nodeAddress,
-     * key2: jobResource
+     * 获取本节点的队列大小信息（job已经submitted的除外），由 QueueListener 定时推送到 zk
+     * key: jobResource
      */
-    public Map<String, Map<String, GroupInfo>> getAllNodesGroupQueueInfo() {
-        List<String> allNodeAddress = scheduleJobCacheService.getAllNodeAddress();
-        Map<String, Map<String, GroupInfo>> allNodeGroupInfo = Maps.newHashMap();
-        for (String nodeAddress : allNodeAddress) {
-            if (StringUtils.isBlank(nodeAddress)) {
+    public Map<String, GroupInfo> getLocalGroupQueueInfo() {
+        Map<String, GroupInfo> nodeGroupInfo = Maps.newHashMap();
+        priorityQueueMap.keySet().forEach(jobResource -> nodeGroupInfo.put(jobResource, new GroupInfo()));
+        List<Map<String, Object>> groupQueueInfo = scheduleJobCacheService.groupQueueInfoByStage(environmentContext.getLocalAddress(),
+                EJobCacheStage.unSubmitted(), Lists.newArrayList(EJobCacheStage.PRIORITY.getStage(), EJobCacheStage.LACKING.getStage()));
+        for (Map<String, Object> record : groupQueueInfo) {
+            String jobResource = MapUtils.getString(record, "jobResource");
+            if (StringUtils.isBlank(jobResource)) {
                 continue;
             }
-            allNodeGroupInfo.computeIfAbsent(nodeAddress, na -> {
-                Map<String, GroupInfo> nodeGroupInfo = Maps.newHashMap();
-                priorityQueueMap.forEach((jobResource, priorityQueue) -> {
-                    int groupSize = scheduleJobCacheService.countByStage(jobResource, EJobCacheStage.unSubmitted(), nodeAddress);
-                    Long minPriority = scheduleJobCacheService.minPriorityByStage(jobResource, Lists.newArrayList(EJobCacheStage.PRIORITY.getStage(), EJobCacheStage.LACKING.getStage()), nodeAddress);
-                    minPriority = minPriority == null ? 0 : minPriority;
-                    GroupInfo groupInfo = new GroupInfo();
-                    groupInfo.setSize(groupSize);
-                    groupInfo.setPriority(minPriority);
-                    nodeGroupInfo.put(jobResource, groupInfo);
-                });
-                return nodeGroupInfo;
-            });
+            GroupInfo groupInfo = nodeGroupInfo.computeIfAbsent(jobResource, k -> new GroupInfo());
+            groupInfo.setSize(MapUtils.getIntValue(record, "jobSize"));
+            groupInfo.setPriority(MapUtils.getLongValue(record, "minPriority"));
         }
-        return allNodeGroupInfo;
+        return nodeGroupInfo;
     }
 
     /**
@@ -172,7 +167,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
      */
     private void addSubmitJobVast(List<JobClient> jobClients) {
         List<String> jobIds = jobClients.stream().map(JobClient::getJobId).collect(Collectors.toList());
-        updateCacheBatch(jobIds, EJobCacheStage.DB.getStage());
+        updateCacheBatch(jobClients, EJobCacheStage.DB.getStage());
         scheduleJobService.updateJobStatusByJobIds(jobIds, TaskStatus.WAITENGINE.getStatus(),null);
         LOGGER.info(" addSubmitJobBatch jobId:{} update", JSONObject.toJSONString(jobIds));
         for (JobClient jobClient : jobClients) {
@@ -189,7 +184,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
      */
     public void afterSubmitJobVast(List<JobClient> jobClients) {
         List<String> jobIds = jobClients.stream().map(JobClient::getJobId).collect(Collectors.toList());
-        updateCacheBatch(jobIds, EJobCacheStage.SUBMITTED.getStage());
+        updateCacheBatch(jobClients, EJobCacheStage.SUBMITTED.getStage());
         LOGGER.info(" afterSubmitJobBatch jobId:{} update", JSONObject.toJSONString(jobIds));
         for (String taskId : jobIds) {
             shardCache.updateLocalMemTaskStatus(taskId, TaskStatus.SUBMITTED.getStatus());
@@ -202,6 +197,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
             boolean rs = groupPriorityQueue.add(jobClient, judgeBlock, insert);
             if (!rs) {
                 saveCache(jobClient, jobResource, EJobCacheStage.DB.getStage(), insert);
+                groupPriorityQueue.signalRefill();
             }
             return rs;
         } catch (Exception e) {
@@ -226,6 +222,19 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
         return groupPriorityQueue;
     }
 
+    /**
+     * jobResource 上有任务结束，通知对应的队列资源可能已经释放
+     */
+    public void signalResourceAvailable(String jobResource) {
+        if (StringUtils.isBlank(jobResource)) {
+            return;
+        }
+        GroupPriorityQueue groupPriorityQueue = priorityQueueMap.get(jobResource);
+        if (groupPriorityQueue != null) {
+            groupPriorityQueue.resourceAvailable();
+        }
+    }
+
     public void updateJobStatus(String jobId, Integer status) {
         scheduleJobService.updateJobStatusByJobIds(Lists.newArrayList(jobId), status,null);
         LOGGER.info("jobId:{} update job status:{}.", jobId, status);
@@ -234,19 +243,26 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     public void saveCache(JobClient jobClient, String jobResource, int stage, boolean insert) {
         String nodeAddress = environmentContext.getLocalAddress();
         if (insert) {
-            scheduleJobCacheService.insert(jobClient.getJobId(), jobClient.getComputeType().getType(), stage, jobClient.getParamAction().toString(), nodeAddress, jobClient.getJobName(), jobClient.getPriority(), jobResource, jobClient.getTenantId());
+            ParamAction paramAction = jobClient.getParamAction();
+            String jobInfo = paramAction.toString();
+            scheduleJobCacheService.insert(jobClient.getJobId(), jobClient.getComputeType().getType(), stage, jobInfo, nodeAddress, jobClient.getJobName(), jobClient.getPriority(), jobResource, jobClient.getTenantId());
+            shardCache.addIndex(jobClient.getJobId(), jobResource);
+            jobInfoCache.put(paramAction, jobClient.getComputeType().getType());
             jobClient.doStatusCallBack(TaskStatus.WAITENGINE.getStatus());
         } else {
             scheduleJobCacheService.updateStage(jobClient.getJobId(), stage, nodeAddress, jobClient.getPriority(), null);
         }
     }
 
-    private void updateCacheBatch(List<String> jobIds, int stage) {
+    private void updateCacheBatch(List<JobClient> jobClients, int stage) {
         String nodeAddress = environmentContext.getLocalAddress();
-        scheduleJobCacheService.updateStageBatch(jobIds, stage, nodeAddress);
+        Map<String, Long> jobPriorities = jobClients.stream()
+                .collect(Collectors.toMap(JobClient::getJobId, JobClient::getPriority, (first, second) -> second));
+        scheduleJobCacheService.updateStageBatch(jobPriorities, stage, nodeAddress);
     }
 
     public void updateCache(JobClient jobClient, int stage) {
+        jobInfoCache.invalidate(jobClient.getJobId());
         String nodeAddress = environmentContext.getLocalAddress();
         scheduleJobCacheService.updateStage(jobClient.getJobId(), stage, nodeAddress, jobClient.getPriority(), null);
     }
@@ -262,11 +278,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
             if (null == engineJobCache) {
                 return "";
             }
-            ParamAction paramAction = PublicUtil.jsonStrToObject(engineJobCache.getJobInfo(), ParamAction.class);
-            Map<String, Object> pluginInfo = paramAction.getPluginInfo();
-            JobIdentifier jobIdentifier = new JobIdentifier(engineJobId, appId, jobId,tenantId,paramAction.getTaskType(),
-                    TaskParamsUtils.parseDeployTypeByTaskParams(paramAction.getTaskParams(),engineJobCache.getComputeType()).getType(),
-                    null, MapUtils.isEmpty(pluginInfo) ? null : JSONObject.toJSONString(pluginInfo),paramAction.getComponentVersion());
+            JobIdentifier jobIdentifier = jobInfoCache.buildJobIdentifier(engineJobCache, engineJobId, appId, tenantId);
             //从engine获取log
             engineLog = workerOperator.getEngineLog(jobIdentifier);
             if (engineLog != null) {
@@ -18,13 +18,11 @@
 
 package com.dtstack.taier.scheduler.jobdealer;
 
-import com.alibaba.fastjson.JSONObject;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.dtstack.taier.common.BlockCallerPolicy;
 import com.dtstack.taier.common.enums.EScheduleType;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.util.LogCountUtil;
-import com.dtstack.taier.common.util.TaskParamsUtils;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleJobHistory;
@@ -33,24 +31,25 @@ import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.JobIdentifier;
 import com.dtstack.taier.pluginapi.enums.ComputeType;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
-import com.dtstack.taier.pluginapi.pojo.ParamAction;
-import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.jobdealer.bo.JobCompletedInfo;
 import com.dtstack.taier.scheduler.jobdealer.bo.JobStatusFrequency;
+import com.dtstack.taier.scheduler.jobdealer.cache.JobInfoCache;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardManager;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -87,6 +86,7 @@ public class JobStatusDealer implements Runnable {
     private String jobResource;
     private ScheduleJobService scheduleJobService;
     private ScheduleJobCacheService scheduleJobCacheService;
+    private JobInfoCache jobInfoCache;
     private JobRestartDealer jobRestartDealer;
     private WorkerOperator workerOperator;
     private EnvironmentContext environmentContext;
@@ -115,27 +115,16 @@ public class JobStatusDealer implements Runnable {
                 return;
             }
 
-            jobs = jobs.stream().filter(job -> !TaskStatus.needClean(job.getValue())).collect(Collectors.toList());
+            List<String> jobIds = jobs.stream()
+                    .filter(job -> !TaskStatus.needClean(job.getValue()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
 
-            Semaphore buildSemaphore = new Semaphore(taskStatusDealerPoolSize);
-            for (Map.Entry<String, Integer> job : jobs) {
+            for (List<String> partition : Lists.partition(jobIds, environmentContext.getJobStatusBatchSize())) {
                 try {
-                    buildSemaphore.acquire();
-                    taskStatusPool.submit(() -> {
-                        try {
-                            if (LOGGER.isDebugEnabled()) {
-                                LOGGER.debug("jobId:{} before dealJob status:{}", job.getKey(), job.getValue());
-                            }
-                            dealJob(job.getKey());
-                        } catch (Throwable e) {
-                            LOGGER.error("jobId:{}", job.getKey(), e);
-                        } finally {
-                            buildSemaphore.release();
-                        }
-                    });
+                    dealJobBatch(partition);
                 } catch (Throwable e) {
-                    LOGGER.error("jobId:{} [acquire pool error]:",job.getKey(), e);
-                    buildSemaphore.release();
+                    LOGGER.error("jobResource:{} deal job batch error:", jobResource, e);
                 }
             }
 
@@ -144,77 +133,129 @@ public class JobStatusDealer implements Runnable {
         }
     }
 
+    /**
+     * 一批实例只查一次库，同一个插件的实例合并成一次状态查询，状态回写再交给线程池处理
+     */
+    private void dealJobBatch(List<String> jobIds) throws InterruptedException {
+        Map<String, ScheduleJob> scheduleJobMap = scheduleJobService.getByJobIds(jobIds)
+                .stream()
+                .collect(Collectors.toMap(ScheduleJob::getJobId, g -> (g), (k1, k2) -> k1));
+        Map<String, ScheduleEngineJobCache> engineJobCacheMap = scheduleJobCacheService.getByJobIds(jobIds)
+                .stream()
+                .collect(Collectors.toMap(ScheduleEngineJobCache::getJobId, g -> (g), (k1, k2) -> k1));
+
+        Map<String, JobIdentifier> jobIdentifierMap = new HashMap<>(jobIds.size());
+        for (String jobId : jobIds) {
+            ScheduleJob scheduleJob = scheduleJobMap.get(jobId);
+            ScheduleEngineJobCache engineJobCache = engineJobCacheMap.get(jobId);
+            try {
+                if (scheduleJob == null || engineJobCache == null ||
+                        (StringUtils.isBlank(scheduleJob.getApplicationId()) && StringUtils.isBlank(scheduleJob.getEngineJobId()))) {
+                    dealLostJob(jobId, scheduleJob, engineJobCache);
+                } else {
+                    jobIdentifierMap.put(jobId, buildJobIdentifier(scheduleJob, engineJobCache));
+                }
+            } catch (Throwable e) {
+                LOGGER.error("jobId:{}", jobId, e);
+            }
+        }
 
-    private void dealJob(String jobId) throws Exception {
-        ScheduleJob scheduleJob = scheduleJobService.getByJobId(jobId);
-        ScheduleEngineJobCache engineJobCache = scheduleJobCacheService.getJobCacheByJobId(jobId);
-        if (scheduleJob == null || engineJobCache == null ||
-                (StringUtils.isBlank(scheduleJob.getApplicationId()) && StringUtils.isBlank(scheduleJob.getEngineJobId()))) {
-            shardCache.updateLocalMemTaskStatus(jobId, TaskStatus.CANCELED.getStatus());
+        if (jobIdentifierMap.isEmpty()) {
+            return;
+        }
 
-            Integer status = TaskStatus.CANCELED.getStatus();
-            String engineJobId = null;
-            if (scheduleJob != null) {
-                engineJobId = scheduleJob.getEngineJobId();
+        Map<String, TaskStatus> statusMap = workerOperator.getJobStatusBatch(new ArrayList<>(jobIdentifierMap.values()));
+
+        Semaphore buildSemaphore = new Semaphore(taskStatusDealerPoolSize);
+        for (Map.Entry<String, JobIdentifier> entry : jobIdentifierMap.entrySet()) {
+            String jobId = entry.getKey();
+            try {
+                buildSemaphore.acquire();
+                taskStatusPool.submit(() -> {
+                    try {
+                        dealJob(scheduleJobMap.get(jobId), engineJobCacheMap.get(jobId), entry.getValue(), statusMap.get(jobId));
+                    } catch (Throwable e) {
+                        LOGGER.error("jobId:{}", jobId, e);
+                    } finally {
+                        buildSemaphore.release();
+                    }
+                });
+            } catch (Throwable e) {
+                LOGGER.error("jobId:{} [acquire pool error]:", jobId, e);
+                buildSemaphore.release();
+            }
+        }
+        // 等待这一批处理完，保证和逐个处理时一样同一时刻只有一轮在更新状态
+        buildSemaphore.acquire(taskStatusDealerPoolSize);
+    }
 
-                if (TaskStatus.getStoppedStatus().contains(scheduleJob.getStatus())) {
-                    status = scheduleJob.getStatus();
-                } else {
-                    scheduleJobService.updateJobStatusAndExecTime(jobId, status);
-                }
+    /**
+     * 实例或者 cache 已经不存在，或者还没有提交到引擎上
+     */
+    private void dealLostJob(String jobId, ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache) {
+        shardCache.updateLocalMemTaskStatus(jobId, TaskStatus.CANCELED.getStatus());
+
+        Integer status = TaskStatus.CANCELED.getStatus();
+        String engineJobId = null;
+        if (scheduleJob != null) {
+            engineJobId = scheduleJob.getEngineJobId();
+
+            if (TaskStatus.getStoppedStatus().contains(scheduleJob.getStatus())) {
+                status = scheduleJob.getStatus();
             } else {
                 scheduleJobService.updateJobStatusAndExecTime(jobId, status);
             }
-
-            scheduleJobCacheService.deleteByJobId(jobId);
-            LOGGER.info("jobId:{} set job finished, status:{}, scheduleJob is {} null, engineJobCache is {} null, engineJobId is {} blank.",
-                    jobId, status, scheduleJob == null ? "" : "not", engineJobCache == null ? "" : "not", engineJobId == null ? "" : "not");
         } else {
-            String engineTaskId = scheduleJob.getEngineJobId();
-            String appId = scheduleJob.getApplicationId();
-            ParamAction paramAction = PublicUtil.jsonStrToObject(engineJobCache.getJobInfo(), ParamAction.class);
-            Integer taskType = paramAction.getTaskType();
-            Map<String, Object> pluginInfo = paramAction.getPluginInfo();
-            JobIdentifier jobIdentifier = new JobIdentifier(engineTaskId, appId, jobId,scheduleJob.getTenantId(),taskType,
-                    TaskParamsUtils.parseDeployTypeByTaskParams(paramAction.getTaskParams(),scheduleJob.getComputeType()).getType(),
-                    null,  MapUtils.isEmpty(pluginInfo) ? null : JSONObject.toJSONString(pluginInfo),paramAction.getComponentVersion());
+            scheduleJobService.updateJobStatusAndExecTime(jobId, status);
+        }
 
-            TaskStatus taskStatus = workerOperator.getJobStatus(jobIdentifier);
+        scheduleJobCacheService.deleteByJobId(jobId);
+        LOGGER.info("jobId:{} set job finished, status:{}, scheduleJob is {} null, engineJobCache is {} null, engineJobId is {} blank.",
+                jobId, status, scheduleJob == null ? "" : "not", engineJobCache == null ? "" : "not", engineJobId == null ? "" : "not");
+    }
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("------ jobId:{} dealJob status:{}", jobId, taskStatus);
-            }
+    private JobIdentifier buildJobIdentifier(ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache) throws IOException {
+        return jobInfoCache.buildJobIdentifier(engineJobCache, scheduleJob.getEngineJobId(), scheduleJob.getApplicationId(), scheduleJob.getTenantId());
+    }
 
-            if (taskStatus != null) {
-
-                taskStatus = checkNotFoundStatus(taskStatus, jobId);
-                Integer status = taskStatus.getStatus();
-                // 重试状态 先不更新状态
-                boolean isRestart = jobRestartDealer.checkAndRestart(status, scheduleJob, engineJobCache, (job, client) -> ForkJoinPool.commonPool().execute(() -> {
-                    String engineLog = workerOperator.getEngineLog(jobIdentifier);
-                    jobRestartDealer.jobRetryRecord(job, client, engineLog);
-                }));
-                if (isRestart) {
-                    LOGGER.info("----- jobId:{} after dealJob status:{}", jobId, taskStatus);
-                    return;
-                }
+    private void dealJob(ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache, JobIdentifier jobIdentifier, TaskStatus taskStatus) {
+        String jobId = scheduleJob.getJobId();
+        String appId = scheduleJob.getApplicationId();
 
-                shardCache.updateLocalMemTaskStatus(jobId, status);
-                updateJobStatusWithPredicate(scheduleJob, jobId, status);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("------ jobId:{} dealJob status:{}", jobId, taskStatus);
+        }
 
-                //数据的更新顺序，先更新job_cache，再更新engine_batch_job
-                if (TaskStatus.getStoppedStatus().contains(status)) {
-                    jobLogDelayDealer(jobId, jobIdentifier, engineJobCache.getComputeType(),scheduleJob.getType());
-                    jobStatusFrequency.remove(jobId);
-                    scheduleJobCacheService.deleteByJobId(jobId);
-                    updateHistoryEndTime(jobId,appId);
-                    LOGGER.info("------ jobId:{} is stop status {} delete jobCache", jobId, status);
-                }
+        if (taskStatus != null) {
+
+            taskStatus = checkNotFoundStatus(taskStatus, jobId);
+            Integer status = taskStatus.getStatus();
+            // 重试状态 先不更新状态
+            boolean isRestart = jobRestartDealer.checkAndRestart(status, scheduleJob, engineJobCache, (job, client) -> ForkJoinPool.commonPool().execute(() -> {
+                String engineLog = workerOperator.getEngineLog(jobIdentifier);
+                jobRestartDealer.jobRetryRecord(job, client, engineLog);
+            }));
+            if (isRestart) {
+                LOGGER.info("----- jobId:{} after dealJob status:{}", jobId, taskStatus);
+                return;
+            }
 
+            shardCache.updateLocalMemTaskStatus(jobId, status);
+            updateJobStatusWithPredicate(scheduleJob, jobId, status);
 
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("------ jobId:{} after dealJob status:{}", jobId, taskStatus);
-                }
+            //数据的更新顺序，先更新job_cache，再更新engine_batch_job
+            if (TaskStatus.getStoppedStatus().contains(status)) {
+                jobLogDelayDealer(jobId, jobIdentifier, engineJobCache.getComputeType(),scheduleJob.getType());
+                jobStatusFrequency.remove(jobId);
+                scheduleJobCacheService.deleteByJobId(jobId);
+                applicationContext.getBean(JobDealer.class).signalResourceAvailable(jobResource);
+                updateHistoryEndTime(jobId,appId);
+                LOGGER.info("------ jobId:{} is stop status {} delete jobCache", jobId, status);
+            }
+
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("------ jobId:{} after dealJob status:{}", jobId, taskStatus);
             }
         }
     }
@@ -316,6 +357,7 @@ public class JobStatusDealer implements Runnable {
         this.workerOperator = applicationContext.getBean(WorkerOperator.class);
         this.scheduleJobService = applicationContext.getBean(ScheduleJobService.class);
         this.scheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
+        this.jobInfoCache = applicationContext.getBean(JobInfoCache.class);
         this.scheduleJobHistoryMapper = applicationContext.getBean(ScheduleJobHistoryMapper.class);
     }
 
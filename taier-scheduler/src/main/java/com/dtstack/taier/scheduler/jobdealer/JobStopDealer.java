@@ -23,8 +23,8 @@ import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWra
 import com.dtstack.taier.common.CustomThreadRunsPolicy;
 import com.dtstack.taier.common.enums.*;
 import com.dtstack.taier.common.env.EnvironmentContext;
-import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.common.queue.DelayBlockingQueue;
+import com.dtstack.taier.common.thread.SignRunnable;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleJobOperatorRecord;
@@ -37,6 +37,7 @@ import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.jobdealer.bo.StoppedJob;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
+import com.dtstack.taier.scheduler.server.listener.JobSchedulerListener;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobOperatorRecordService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
@@ -83,7 +84,15 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
     @Autowired
     private ScheduleJobOperatorRecordService scheduleJobOperatorRecordService;
 
+    @Autowired
+    private JobSchedulerListener jobSchedulerListener;
+
     private static final int JOB_STOP_LIMIT = 1000;
+    /**
+     * 同一个 jobResource 的停止请求按批提交，每批的 jobCache、实例各只查询一次
+     * 批内逐个停止，请求少时按线程数拆小批次，让停止请求分散到各个线程并行执行
+     */
+    private static final int STOP_BATCH_SIZE = 20;
     private static final int WAIT_INTERVAL = 3000;
     private static final int OPERATOR_EXPIRED_INTERVAL = 60000;
     private final int asyncDealStopJobQueueSize = 100;
@@ -91,9 +100,15 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
     private int jobStoppedRetry;
     private long jobStoppedDelay;
 
+    /**
+     * 本节点正在处理（线程池中或重试队列中）的停止记录 id，拉取时跳过，处理结束后移除
+     * 线程池拒绝或重试队列已满时也移除，记录仍在表中，下一轮拉取时重新处理
+     */
+    private final Set<Long> stoppingRecordIds = ConcurrentHashMap.newKeySet();
     private final DelayBlockingQueue<StoppedJob<JobElement>> stopJobQueue = new DelayBlockingQueue<StoppedJob<JobElement>>(1000);
     private final ExecutorService delayStopProcessorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new CustomThreadFactory("delayStopProcessor"));
-    private final ExecutorService asyncDealStopJobService = new ThreadPoolExecutor(asyncDealStopJobPoolSize, asyncDealStopJobPoolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(asyncDealStopJobQueueSize), new CustomThreadFactory("asyncDealStopJob"), new CustomThreadRunsPolicy("asyncDealStopJob", "stop", 180));
+    private final ExecutorService asyncDealStopJobService = new ThreadPoolExecutor(asyncDealStopJobPoolSize, asyncDealStopJobPoolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(asyncDealStopJobQueueSize), new CustomThreadFactory("asyncDealStopJob"),
+            new CustomThreadRunsPolicy<List<Long>>("asyncDealStopJob", "stop", 180, stoppingRecordIds::removeAll));
     private final ScheduledExecutorService scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName()));
     private final DelayStopProcessor delayStopProcessor = new DelayStopProcessor();
     private final AcquireStopJob acquireStopJob = new AcquireStopJob();
@@ -122,10 +137,6 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             return 0;
         }
 
-        if (scheduleJobList.size() > JOB_STOP_LIMIT) {
-            throw new RdosDefineException("please don't stop too many tasks at once, limit:" + JOB_STOP_LIMIT);
-        }
-
         // 分离实例是否提交到yarn上，如果提交到yarn上，需要发送请求stop，如果未提交，直接更新db
         List<ScheduleJob> needSendStopJobs = new ArrayList<>(scheduleJobList.size());
         List<String> unSubmitJobList= new ArrayList<>(scheduleJobList.size());
@@ -137,21 +148,25 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             }
         }
 
-        // 查询一遍Operator表，过滤数据
-        List<ScheduleJobOperatorRecord> scheduleJobOperatorRecordList = scheduleJobOperatorRecordService.lambdaQuery()
-                .in(ScheduleJobOperatorRecord::getJobId, scheduleJobList.stream().map(ScheduleJob::getJobId).collect(Collectors.toList()))
-                .eq(ScheduleJobOperatorRecord::getIsDeleted, Deleted.NORMAL.getStatus())
-                .eq(ScheduleJobOperatorRecord::getOperatorType,OperatorType.STOP.getType())
-                .list();
-        List<String> alreadyExistJobIds = scheduleJobOperatorRecordList.stream().map(ScheduleJobOperatorRecord::getJobId).collect(Collectors.toList());
+        // 查询一遍Operator表，过滤数据，实例数量较多时分批查询
+        Set<String> alreadyExistJobIds = new HashSet<>();
+        for (List<ScheduleJob> partition : Lists.partition(scheduleJobList, JOB_STOP_LIMIT)) {
+            scheduleJobOperatorRecordService.lambdaQuery()
+                    .in(ScheduleJobOperatorRecord::getJobId, partition.stream().map(ScheduleJob::getJobId).collect(Collectors.toList()))
+                    .eq(ScheduleJobOperatorRecord::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .eq(ScheduleJobOperatorRecord::getOperatorType, OperatorType.STOP.getType())
+                    .list()
+                    .forEach(record -> alreadyExistJobIds.add(record.getJobId()));
+        }
 
 
         // 处理已经提交到yarn的实例状态
         if (CollectionUtils.isNotEmpty(needSendStopJobs)) {
             isForce = Optional.ofNullable(isForce).orElse(ForceCancelFlag.NO.getFlag());
             Integer finalIsForce = isForce;
+            // 已经存在停止记录以及重复传入的实例只保留一条记录
             List<ScheduleJobOperatorRecord> jobOperatorRecordList = needSendStopJobs.stream()
-                    .filter(scheduleJob -> !alreadyExistJobIds.contains(scheduleJob.getJobId()))
+                    .filter(scheduleJob -> alreadyExistJobIds.add(scheduleJob.getJobId()))
                     .map(scheduleJob -> buildScheduleJobOperatorRecord(finalIsForce, scheduleJob)).collect(Collectors.toList());
 
             scheduleJobOperatorRecordService.saveBatch(jobOperatorRecordList);
@@ -159,7 +174,10 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
 
         // 更新未提交到yarn实例状态
         if (CollectionUtils.isNotEmpty(unSubmitJobList)) {
-            cancellingJob(scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId, unSubmitJobList));
+            jobSchedulerListener.removeQueuedJobs(unSubmitJobList);
+            for (List<String> partition : Lists.partition(unSubmitJobList, JOB_STOP_LIMIT)) {
+                cancellingJob(scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId, partition));
+            }
         }
         return scheduleJobList.size();
     }
@@ -236,16 +254,21 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             while (true) {
                 try {
                     //根据条件判断是否有数据存在
-                    List<ScheduleJobOperatorRecord> jobStopRecords = scheduleJobOperatorRecordService.listOperatorRecord(tmpStartId, environmentContext.getLocalAddress(), OperatorType.STOP.getType(), true);
+                    List<ScheduleJobOperatorRecord> jobStopRecords = scheduleJobOperatorRecordService.listOperatorRecord(tmpStartId, environmentContext.getLocalAddress(), OperatorType.STOP.getType(), false);
                     if (jobStopRecords.isEmpty()) {
                         break;
                     }
+                    tmpStartId = jobStopRecords.get(jobStopRecords.size() - 1).getId();
 
                     //使用乐观锁防止多节点重复停止任务
                     Iterator<ScheduleJobOperatorRecord> it = jobStopRecords.iterator();
                     while (it.hasNext()) {
                         ScheduleJobOperatorRecord jobStopRecord = it.next();
-                        tmpStartId = jobStopRecord.getId();
+                        //本节点正在处理的任务不再重复拉取
+                        if (stoppingRecordIds.contains(jobStopRecord.getId())) {
+                            it.remove();
+                            continue;
+                        }
                         //已经被修改过version的任务代表其他节点正在处理，可以忽略
                         Integer update = scheduleJobOperatorRecordService.updateOperatorExpiredVersion(jobStopRecord.getId(), operatorExpired, jobStopRecord.getVersion());
                         if (update != 1) {
@@ -254,7 +277,7 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                     }
                     //经乐观锁判断，经过remove后所剩下的数据
                     if (jobStopRecords.isEmpty()) {
-                        break;
+                        continue;
                     }
                     List<String> jobIds = jobStopRecords.stream().map(ScheduleJobOperatorRecord::getJobId).collect(Collectors.toList());
                     List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.getByJobIds(jobIds);
@@ -265,6 +288,8 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                         jobCacheMap.put(jobCache.getJobId(), jobCache);
                     }
 
+                    //按 jobResource 分组，同一集群、插件的任务一起提交处理
+                    Map<String, List<ScheduleJobOperatorRecord>> groupRecords = new HashMap<>();
                     for (ScheduleJobOperatorRecord jobStopRecord : jobStopRecords) {
                         ScheduleEngineJobCache jobCache = jobCacheMap.get(jobStopRecord.getJobId());
                         if (jobCache != null) {
@@ -273,10 +298,7 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                                 scheduleJobOperatorRecordService.removeById(jobStopRecord.getId());
                                 continue;
                             }
-
-                            boolean forceCancelFlag = ForceCancelFlag.YES.getFlag().equals(jobStopRecord.getForceCancelFlag());
-                            JobElement jobElement = new JobElement(jobCache.getJobId(), jobStopRecord.getId(), forceCancelFlag );
-                            asyncDealStopJobService.submit(() -> asyncDealStopJob(new StoppedJob<>(jobElement, jobStoppedRetry, jobStoppedDelay)));
+                            groupRecords.computeIfAbsent(jobCache.getJobResource(), k -> new ArrayList<>()).add(jobStopRecord);
                         } else {
                             //jobCache表没有记录，可能任务已经停止。在update表时增加where条件不等于stopped
                             ScheduleJob scheduleJob = new ScheduleJob();
@@ -292,7 +314,20 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                         }
                     }
 
-                    Thread.sleep(500);
+                    for (List<ScheduleJobOperatorRecord> records : groupRecords.values()) {
+                        //未提交的任务不需要请求计算引擎，优先处理，尽快释放队列
+                        records.sort(Comparator.comparing(record -> !EJobCacheStage.unSubmitted().contains(jobCacheMap.get(record.getJobId()).getStage())));
+                        for (List<ScheduleJobOperatorRecord> batch : Lists.partition(records, stopBatchSize(records.size(), asyncDealStopJobPoolSize))) {
+                            List<Long> stopJobIds = batch.stream().map(ScheduleJobOperatorRecord::getId).collect(Collectors.toList());
+                            stoppingRecordIds.addAll(stopJobIds);
+                            asyncDealStopJobService.submit(new SignRunnable<List<Long>>(stopJobIds) {
+                                @Override
+                                public void run() {
+                                    asyncDealStopJobs(batch);
+                                }
+                            });
+                        }
+                    }
                 } catch (Throwable e) {
                     LOGGER.error("when acquire stop jobs happens error:", e);
                 }
@@ -309,7 +344,12 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             while (open) {
                 try {
                     StoppedJob<JobElement> stoppedJob = stopJobQueue.take();
-                    asyncDealStopJobService.submit(() -> asyncDealStopJob(stoppedJob));
+                    asyncDealStopJobService.submit(new SignRunnable<List<Long>>(Lists.newArrayList(stoppedJob.getJob().stopJobId)) {
+                        @Override
+                        public void run() {
+                            asyncDealStopJob(stoppedJob);
+                        }
+                    });
                 } catch (InterruptedException ie){
                     LOGGER.warn("interruption of stopJobQueue.take...");
                     break;
@@ -325,11 +365,66 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
 
     }
 
+    /**
+     * ceil(n / 线程数)，不超过 STOP_BATCH_SIZE，停止记录分散到所有线程处理
+     */
+    static int stopBatchSize(int recordSize, int poolSize) {
+        int batchSize = (recordSize + poolSize - 1) / poolSize;
+        return Math.max(1, Math.min(STOP_BATCH_SIZE, batchSize));
+    }
+
+    /**
+     * 批量处理同一个 jobResource 的停止记录，jobCache 和实例在处理前各批量查询一次
+     */
+    private void asyncDealStopJobs(List<ScheduleJobOperatorRecord> jobStopRecords) {
+        Map<String, ScheduleEngineJobCache> jobCacheMap = new HashMap<>(jobStopRecords.size());
+        Map<String, ScheduleJob> scheduleJobMap = new HashMap<>(jobStopRecords.size());
+        try {
+            List<String> jobIds = jobStopRecords.stream().map(ScheduleJobOperatorRecord::getJobId).collect(Collectors.toList());
+            ScheduleJobCacheService.getByJobIds(jobIds).forEach(jobCache -> jobCacheMap.put(jobCache.getJobId(), jobCache));
+            scheduleJobService.lambdaQuery()
+                    .in(ScheduleJob::getJobId, jobIds)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list()
+                    .forEach(scheduleJob -> scheduleJobMap.put(scheduleJob.getJobId(), scheduleJob));
+        } catch (Exception e) {
+            LOGGER.error("", e);
+            jobStopRecords.forEach(record -> stoppingRecordIds.remove(record.getId()));
+            return;
+        }
+
+        for (ScheduleJobOperatorRecord jobStopRecord : jobStopRecords) {
+            boolean forceCancelFlag = ForceCancelFlag.YES.getFlag().equals(jobStopRecord.getForceCancelFlag());
+            JobElement jobElement = new JobElement(jobStopRecord.getJobId(), jobStopRecord.getId(), forceCancelFlag);
+            asyncDealStopJob(new StoppedJob<>(jobElement, jobStoppedRetry, jobStoppedDelay), jobCacheMap.get(jobStopRecord.getJobId()),
+                    scheduleJobMap.get(jobStopRecord.getJobId()), jobStopRecord);
+        }
+    }
+
     private void asyncDealStopJob(StoppedJob<JobElement> stoppedJob) {
+        ScheduleEngineJobCache jobCache;
+        ScheduleJob scheduleJob;
+        ScheduleJobOperatorRecord jobStopRecord;
         try {
-            if (!checkExpired(stoppedJob.getJob())) {
-                ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(stoppedJob.getJob().jobId);
-                StoppedStatus stoppedStatus = this.stopJob(stoppedJob.getJob());
+            jobCache = ScheduleJobCacheService.getByJobId(stoppedJob.getJob().jobId);
+            scheduleJob = scheduleJobService.lambdaQuery()
+                    .eq(ScheduleJob::getJobId, stoppedJob.getJob().jobId)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .one();
+            jobStopRecord = scheduleJobOperatorRecordService.getById(stoppedJob.getJob().stopJobId);
+        } catch (Exception e) {
+            LOGGER.error("", e);
+            stoppingRecordIds.remove(stoppedJob.getJob().stopJobId);
+            return;
+        }
+        asyncDealStopJob(stoppedJob, jobCache, scheduleJob, jobStopRecord);
+    }
+
+    private void asyncDealStopJob(StoppedJob<JobElement> stoppedJob, ScheduleEngineJobCache jobCache, ScheduleJob scheduleJob, ScheduleJobOperatorRecord jobStopRecord) {
+        boolean retry = false;
+        try {
+            if (!checkExpired(jobCache, jobStopRecord)) {
+                StoppedStatus stoppedStatus = this.stopJob(stoppedJob.getJob(), jobCache, scheduleJob);
                 switch (stoppedStatus) {
                     case STOPPED:
                     case MISSED:
@@ -344,7 +439,11 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                                 stoppedJob.resetDelay(jobStoppedDelay);
                             }
                             stoppedJob.incrCount();
-                            stopJobQueue.put(stoppedJob);
+                            // 重试队列已满时不阻塞处理线程，记录仍在表中，由下一轮拉取重新处理
+                            retry = stopJobQueue.tryPut(stoppedJob);
+                            if (!retry) {
+                                LOGGER.warn("jobId:{} stop retry queue is full, wait for next acquire.", stoppedJob.getJob().jobId);
+                            }
                         } else {
                             if (EComputeType.STREAM.getType() == jobCache.getComputeType()) {
                                 // stream 任务 超过停止最大限制不更改状态
@@ -364,15 +463,14 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
 
         } catch (Exception e) {
             LOGGER.error("", e);
+        } finally {
+            if (!retry) {
+                stoppingRecordIds.remove(stoppedJob.getJob().stopJobId);
+            }
         }
     }
 
-    private StoppedStatus stopJob(JobElement jobElement) throws Exception {
-        ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(jobElement.jobId);
-        ScheduleJob scheduleJob = scheduleJobService.lambdaQuery()
-                .eq(ScheduleJob::getJobId, jobElement.jobId)
-                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                .one();
+    private StoppedStatus stopJob(JobElement jobElement, ScheduleEngineJobCache jobCache, ScheduleJob scheduleJob) throws Exception {
         if (jobCache == null) {
             if (scheduleJob != null && TaskStatus.isStopped(scheduleJob.getStatus())) {
                 LOGGER.info("jobId:{} stopped success, set job is STOPPED.", jobElement.jobId);
@@ -434,10 +532,7 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         LOGGER.info("jobId:{} delete jobCache and update job status:{}, job set finished.", jobId, TaskStatus.CANCELED.getStatus());
     }
 
-    private boolean checkExpired(JobElement jobElement) {
-        ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(jobElement.jobId);
-        ScheduleJobOperatorRecord scheduleJobOperatorRecord = scheduleJobOperatorRecordService.getById(jobElement.stopJobId);
-
+    private boolean checkExpired(ScheduleEngineJobCache jobCache, ScheduleJobOperatorRecord scheduleJobOperatorRecord) {
         if (jobCache != null && scheduleJobOperatorRecord != null && scheduleJobOperatorRecord.getGmtCreate() != null) {
             return jobCache.getGmtCreate().after(scheduleJobOperatorRecord.getGmtCreate());
         } else {
@@ -31,6 +31,7 @@ import com.dtstack.taier.common.util.SleepUtil;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.JobClient;
+import com.dtstack.taier.pluginapi.ResourceCallBack;
 import com.dtstack.taier.pluginapi.constrant.JobResultConstant;
 import com.dtstack.taier.pluginapi.enums.EQueueSourceType;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
@@ -88,6 +89,16 @@ public class JobSubmitDealer implements Runnable {
     private PriorityBlockingQueue<JobClient> queue = null;
     private DelayBlockingQueue<SimpleJobDelay<JobClient>> delayJobQueue = null;
     private JudgeResult workerNotFindResult = JudgeResult.notOk( "worker not find");
+
+    /**
+     * 资源不足时当前 jobResource 暂停提交，每连续一次资源不足等待时间翻倍，资源释放时提前唤醒
+     */
+    private ResourceParkBackoff parkBackoff;
+
+    /**
+     * 资源不足时登记到插件的资源快照上，快照中资源释放时提前结束退避
+     */
+    private final ResourceCallBack resourceCallBack = this::resourceAvailable;
     private ExecutorService jobSubmitConcurrentService;
     private ScheduleJobExpandService scheduleJobExpandService;
 
@@ -106,6 +117,7 @@ public class JobSubmitDealer implements Runnable {
         jobLackingDelay = environmentContext.getJobLackingDelay();
         jobPriorityStep = environmentContext.getJobPriorityStep();
         jobLackingInterval = environmentContext.getJobLackingInterval();
+        parkBackoff = new ResourceParkBackoff(jobLackingInterval, jobLackingDelay);
         jobSubmitExpired = environmentContext.getJobSubmitExpired();
         jobLackingCountLimited = environmentContext.getJobLackingCountLimited();
         checkJobMaxPriorityStrategy = environmentContext.isCheckJobMaxPriorityStrategy();
@@ -181,7 +193,9 @@ public class JobSubmitDealer implements Runnable {
     public void run() {
         while (true) {
             try {
+                awaitResource();
                 JobClient jobClient = queue.take();
+                priorityQueue.signalRefill();
                 if(LOGGER.isDebugEnabled()){
                     LOGGER.debug("jobId:{} jobResource:{} queue size:{} take job from priorityQueue.", jobClient.getJobId(), jobResource, queue.size());
                 }
@@ -212,6 +226,30 @@ public class JobSubmitDealer implements Runnable {
         }
     }
 
+    /**
+     * 等待当前 jobResource 的退避结束，只阻塞本 jobResource 的取任务线程
+     */
+    private void awaitResource() throws InterruptedException {
+        parkBackoff.await();
+    }
+
+    /**
+     * 资源不足，按指数退避暂停当前 jobResource 的提交，并发提交的任务在同一个退避窗口内只退避一次
+     */
+    private void parkForResource() {
+        long backoff = parkBackoff.park(System.currentTimeMillis());
+        if (backoff > 0) {
+            LOGGER.info("jobResource:{} lacking resource, park {}ms, round:{}.", jobResource, backoff, parkBackoff.getParkRound());
+        }
+    }
+
+    /**
+     * 同一 jobResource 上有任务结束或者资源发生变化，提前结束退避
+     */
+    public void resourceAvailable() {
+        parkBackoff.wakeUp();
+    }
+
     private boolean checkIsFinished(JobClient jobClient) {
         ScheduleEngineJobCache engineJobCache = ScheduleJobCacheService.getByJobId(jobClient.getJobId());
         try {
@@ -311,10 +349,13 @@ public class JobSubmitDealer implements Runnable {
         try {
 
             // 判断资源
+            jobClient.setResourceCallBack(resourceCallBack);
             JudgeResult judgeResult = workerOperator.judgeSlots(jobClient);
             if (JudgeResult.JudgeType.OK == judgeResult.getResult()) {
-                LOGGER.info("jobId:{} taskType:{} submit to engine start.", jobClient.getJobId(), jobClient.getTaskType());
+                LOGGER.info("jobId:{} taskType:{} submit to engine start, waited {}ms since generated.", jobClient.getJobId(), jobClient.getTaskType(),
+                        System.currentTimeMillis() - jobClient.getGenerateTime());
 
+                resetParkRound();
                 jobClient.doStatusCallBack(TaskStatus.COMPUTING.getStatus());
 
                 // 提交任务
@@ -376,6 +417,10 @@ public class JobSubmitDealer implements Runnable {
         }
     }
 
+    private void resetParkRound() {
+        parkBackoff.reset();
+    }
+
     private void handlerFailedWithRetry(JobClient jobClient, boolean checkRetry, Throwable e) {
         LOGGER.error("jobId:{} taskType:{} submitJob happens system error:", jobClient.getJobId(), jobClient.getTaskType(), e);
         jobClient.setEngineTaskId(null);
@@ -392,7 +437,7 @@ public class JobSubmitDealer implements Runnable {
         } else {
             ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.PRIORITY.getStage(), localAddress, jobClient.getPriority(), null);
             queue.put(jobClient);
-            SleepUtil.sleep(jobLackingInterval);
+            parkForResource();
             LOGGER.info("jobId:{} unlimited_lackingCount:{} add to priorityQueue.", jobClient.getJobId(), jobClient.getLackingCount());
 
         }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.jobdealer;
+
+import com.dtstack.taier.common.enums.EJobCacheStage;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobExpand;
+import com.dtstack.taier.dao.domain.ScheduleJobHistory;
+import com.dtstack.taier.dao.mapper.ScheduleJobHistoryMapper;
+import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import com.dtstack.taier.scheduler.service.ScheduleJobExpandService;
+import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 提交成功的任务批量落库
+ * 一批任务的实例、扩展信息、job cache、执行历史在同一个事务中写入，失败时整体回滚，由调用方逐个重试
+ *
+ * Company: www.dtstack.com
+ */
+@Component
+public class JobSubmittedBatchWriter {
+
+    @Autowired
+    private ScheduleJobService scheduleJobService;
+
+    @Autowired
+    private ScheduleJobExpandService scheduleJobExpandService;
+
+    @Autowired
+    private ScheduleJobCacheService scheduleJobCacheService;
+
+    @Autowired
+    private ScheduleJobHistoryMapper historyMapper;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    @Transactional(rollbackFor = Exception.class)
+    public void write(List<SubmittedJob> submittedJobs) {
+        if (submittedJobs.isEmpty()) {
+            return;
+        }
+        List<ScheduleJob> scheduleJobs = new ArrayList<>(submittedJobs.size());
+        List<ScheduleJobExpand> jobExpands = new ArrayList<>(submittedJobs.size());
+        List<ScheduleJobHistory> histories = new ArrayList<>(submittedJobs.size());
+        Map<String, Long> jobPriorities = new LinkedHashMap<>(submittedJobs.size());
+        for (SubmittedJob submittedJob : submittedJobs) {
+            scheduleJobs.add(submittedJob.scheduleJob);
+            jobExpands.add(submittedJob.jobExpand);
+            histories.add(submittedJob.history);
+            jobPriorities.put(submittedJob.scheduleJob.getJobId(), submittedJob.priority);
+        }
+        scheduleJobService.updateJobSubmitSuccessBatch(scheduleJobs);
+        scheduleJobExpandService.updateExtraInfoAndLogBatch(jobExpands);
+        scheduleJobCacheService.updateStageBatch(jobPriorities, EJobCacheStage.SUBMITTED.getStage(), environmentContext.getLocalAddress());
+        historyMapper.insertBatch(histories);
+    }
+
+    /**
+     * 一个提交成功的任务需要写入的数据
+     */
+    public static class SubmittedJob {
+
+        private final ScheduleJob scheduleJob;
+
+        private final ScheduleJobExpand jobExpand;
+
+        private final ScheduleJobHistory history;
+
+        private final long priority;
+
+        public SubmittedJob(ScheduleJob scheduleJob, ScheduleJobExpand jobExpand, ScheduleJobHistory history, long priority) {
+            this.scheduleJob = scheduleJob;
+            this.jobExpand = jobExpand;
+            this.history = history;
+            this.priority = priority;
+        }
+    }
+}
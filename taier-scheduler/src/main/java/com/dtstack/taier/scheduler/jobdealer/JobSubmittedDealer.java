@@ -19,17 +19,17 @@
 package com.dtstack.taier.scheduler.jobdealer;
 
 import com.alibaba.fastjson.JSONObject;
-import com.dtstack.taier.common.enums.EJobCacheStage;
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.util.JobGraphUtil;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobExpand;
 import com.dtstack.taier.dao.domain.ScheduleJobHistory;
-import com.dtstack.taier.dao.mapper.ScheduleJobHistoryMapper;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.constrant.JobResultConstant;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.pojo.JobResult;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
-import com.dtstack.taier.scheduler.service.ScheduleJobExpandService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
@@ -38,7 +38,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * company: www.dtstack.com
@@ -61,17 +65,14 @@ public class JobSubmittedDealer implements Runnable {
     @Autowired
     private ShardCache shardCache;
 
-    @Autowired
-    private JobDealer jobDealer;
-
     @Autowired
     private JobRestartDealer jobRestartDealer;
 
     @Autowired
-    private ScheduleJobHistoryMapper historyMapper;
+    private JobSubmittedBatchWriter jobSubmittedBatchWriter;
 
     @Autowired
-    private ScheduleJobExpandService scheduleJobExpandService;
+    private EnvironmentContext environmentContext;
 
 
     public JobSubmittedDealer() {
@@ -81,52 +82,117 @@ public class JobSubmittedDealer implements Runnable {
     @Override
     public void run() {
         while (true) {
-            JobClient jobClient = null;
+            List<JobClient> jobClients = new ArrayList<>();
             try {
-                jobClient = queue.take();
-
-                if (jobRestartDealer.checkAndRestartForSubmitResult(jobClient)) {
-                    LOGGER.warn("failed submit job restarting, jobId:{} jobResult:{} ...", jobClient.getJobId(), jobClient.getJobResult());
-                    continue;
-                }
+                takeBatch(jobClients);
+            } catch (InterruptedException e) {
+                LOGGER.warn("take submitted job interrupted", e);
+            }
 
-                LOGGER.info("success submit job to Engine, jobId:{} jobResult:{} ...", jobClient.getJobId(), jobClient.getJobResult());
-
-                //存储执行日志
-                if (StringUtils.isNotBlank(jobClient.getEngineTaskId()) || StringUtils.isNotBlank(jobClient.getApplicationId())) {
-                    JobResult jobResult = jobClient.getJobResult();
-                    String appId = jobResult.getData(JobResult.JOB_ID_KEY);
-                    JSONObject jobExtraInfo = jobResult.getExtraInfoJson();
-                    jobExtraInfo.put(JobResultConstant.JOB_GRAPH,JobGraphUtil.formatJSON(jobClient.getEngineTaskId(), jobExtraInfo.getString(JobResultConstant.JOB_GRAPH), jobClient.getComputeType()));
-                    scheduleJobService.updateJobSubmitSuccess(jobClient.getJobId(), jobClient.getEngineTaskId(), appId);
-                    scheduleJobExpandService.updateExtraInfoAndLog(jobClient.getJobId(),jobExtraInfo.toJSONString(),jobClient.getJobResult().getJsonStr(),null);
-                    jobDealer.updateCache(jobClient, EJobCacheStage.SUBMITTED.getStage());
-                    jobClient.doStatusCallBack(TaskStatus.SUBMITTED.getStatus());
-                    JobClient finalJobClient = jobClient;
-                    shardCache.updateLocalMemTaskStatus(jobClient.getJobId(), TaskStatus.SUBMITTED.getStatus(), (jobId) -> {
-                        LOGGER.warn("success submit job to Engine, jobId:{} jobResult:{} but shareManager is not found ...", jobId, finalJobClient.getJobResult());
-                        finalJobClient.doStatusCallBack(TaskStatus.CANCELED.getStatus());
-                    });
-                    saveHistory(jobClient);
-                } else {
-                    jobClientFail(jobClient.getJobId(), jobClient.getJobResult().getJsonStr());
-                }
-            } catch (Throwable e) {
-                LOGGER.error("jobId submitted {} jobStatus dealer run error", null == jobClient ? "" : jobClient.getJobId(), e);
-                if (null != jobClient) {
+            List<JobClient> submittedClients = new ArrayList<>(jobClients.size());
+            List<JobSubmittedBatchWriter.SubmittedJob> submittedJobs = new ArrayList<>(jobClients.size());
+            for (JobClient jobClient : jobClients) {
+                try {
+                    if (jobRestartDealer.checkAndRestartForSubmitResult(jobClient)) {
+                        LOGGER.warn("failed submit job restarting, jobId:{} jobResult:{} ...", jobClient.getJobId(), jobClient.getJobResult());
+                        continue;
+                    }
+
+                    LOGGER.info("success submit job to Engine, jobId:{} jobResult:{} ...", jobClient.getJobId(), jobClient.getJobResult());
+
+                    //存储执行日志
+                    if (StringUtils.isNotBlank(jobClient.getEngineTaskId()) || StringUtils.isNotBlank(jobClient.getApplicationId())) {
+                        submittedJobs.add(buildSubmittedJob(jobClient));
+                        submittedClients.add(jobClient);
+                    } else {
+                        jobClientFail(jobClient.getJobId(), jobClient.getJobResult().getJsonStr());
+                    }
+                } catch (Throwable e) {
+                    LOGGER.error("jobId submitted {} jobStatus dealer run error", jobClient.getJobId(), e);
                     jobClientFail(jobClient.getJobId(), JobResult.createErrorResult(e).getJsonStr());
                 }
             }
+            writeSubmitted(submittedClients, submittedJobs);
         }
     }
 
-    private void saveHistory(JobClient jobClient) {
+    /**
+     * 阻塞等待第一个任务，之后在 linger 时间内尽量攒满一批
+     */
+    private void takeBatch(List<JobClient> jobClients) throws InterruptedException {
+        int batchSize = Math.max(environmentContext.getJobSubmittedBatchSize(), 1);
+        jobClients.add(queue.take());
+        queue.drainTo(jobClients, batchSize - jobClients.size());
+        long deadline = System.currentTimeMillis() + environmentContext.getJobSubmittedBatchLinger();
+        while (jobClients.size() < batchSize) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            JobClient jobClient = queue.poll(remaining, TimeUnit.MILLISECONDS);
+            if (jobClient == null) {
+                break;
+            }
+            jobClients.add(jobClient);
+            queue.drainTo(jobClients, batchSize - jobClients.size());
+        }
+    }
+
+    private JobSubmittedBatchWriter.SubmittedJob buildSubmittedJob(JobClient jobClient) {
+        JobResult jobResult = jobClient.getJobResult();
+        String appId = jobResult.getData(JobResult.JOB_ID_KEY);
+        JSONObject jobExtraInfo = jobResult.getExtraInfoJson();
+        jobExtraInfo.put(JobResultConstant.JOB_GRAPH, JobGraphUtil.formatJSON(jobClient.getEngineTaskId(), jobExtraInfo.getString(JobResultConstant.JOB_GRAPH), jobClient.getComputeType()));
+
+        ScheduleJob scheduleJob = new ScheduleJob();
+        scheduleJob.setJobId(jobClient.getJobId());
+        scheduleJob.setEngineJobId(jobClient.getEngineTaskId());
+        scheduleJob.setApplicationId(appId);
+
+        ScheduleJobExpand jobExpand = new ScheduleJobExpand();
+        jobExpand.setJobId(jobClient.getJobId());
+        jobExpand.setJobExtraInfo(jobExtraInfo.toJSONString());
+        jobExpand.setLogInfo(jobResult.getJsonStr());
+
         ScheduleJobHistory scheduleJobHistory = new ScheduleJobHistory();
         scheduleJobHistory.setJobId(jobClient.getJobId());
         scheduleJobHistory.setEngineJobId(jobClient.getEngineTaskId());
         scheduleJobHistory.setApplicationId(jobClient.getApplicationId());
         scheduleJobHistory.setExecStartTime(DateTime.now().toDate());
-        historyMapper.insert(scheduleJobHistory);
+        return new JobSubmittedBatchWriter.SubmittedJob(scheduleJob, jobExpand, scheduleJobHistory, jobClient.getPriority());
+    }
+
+    /**
+     * 整批写入失败时逐个写入，避免一个任务的数据问题影响整批
+     */
+    private void writeSubmitted(List<JobClient> jobClients, List<JobSubmittedBatchWriter.SubmittedJob> submittedJobs) {
+        if (jobClients.isEmpty()) {
+            return;
+        }
+        try {
+            jobSubmittedBatchWriter.write(submittedJobs);
+            jobClients.forEach(this::updateLocalMemTaskStatus);
+            return;
+        } catch (Throwable e) {
+            LOGGER.error("batch write {} submitted jobs error, write one by one", jobClients.size(), e);
+        }
+        for (int i = 0; i < jobClients.size(); i++) {
+            JobClient jobClient = jobClients.get(i);
+            try {
+                jobSubmittedBatchWriter.write(Collections.singletonList(submittedJobs.get(i)));
+                updateLocalMemTaskStatus(jobClient);
+            } catch (Throwable e) {
+                LOGGER.error("jobId submitted {} jobStatus dealer run error", jobClient.getJobId(), e);
+                jobClientFail(jobClient.getJobId(), JobResult.createErrorResult(e).getJsonStr());
+            }
+        }
+    }
+
+    private void updateLocalMemTaskStatus(JobClient jobClient) {
+        shardCache.updateLocalMemTaskStatus(jobClient.getJobId(), TaskStatus.SUBMITTED.getStatus(), (jobId) -> {
+            LOGGER.warn("success submit job to Engine, jobId:{} jobResult:{} but shareManager is not found ...", jobId, jobClient.getJobResult());
+            jobClient.doStatusCallBack(TaskStatus.CANCELED.getStatus());
+        });
     }
 
     private void jobClientFail(String jobId, String info) {
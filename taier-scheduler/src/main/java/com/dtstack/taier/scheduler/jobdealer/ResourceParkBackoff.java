@@ -0,0 +1,89 @@
+package com.dtstack.taier.scheduler.jobdealer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 资源不足时的指数退避：暂停提交到 parkUntil，退避结束后再次资源不足时等待时间翻倍，资源释放时提前唤醒
+ * 多个并发提交的线程在同一个退避窗口内资源不足只算一次，等待时间不会一次翻倍多次
+ *
+ * Company: www.dtstack.com
+ */
+public class ResourceParkBackoff {
+
+    /**
+     * 退避时间最多翻倍的次数
+     */
+    private static final int MAX_PARK_SHIFT = 6;
+
+    private final long baseInterval;
+
+    private final long maxInterval;
+
+    /**
+     * 等待时间加入随机抖动避免多个节点同时重试
+     */
+    private final LongUnaryOperator jitter;
+
+    private long parkUntil = 0L;
+
+    private int parkRound = 0;
+
+    public ResourceParkBackoff(long baseInterval, long maxInterval) {
+        this(baseInterval, maxInterval, backoff -> backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+    }
+
+    ResourceParkBackoff(long baseInterval, long maxInterval, LongUnaryOperator jitter) {
+        this.baseInterval = baseInterval;
+        this.maxInterval = Math.max(baseInterval, maxInterval);
+        this.jitter = jitter;
+    }
+
+    /**
+     * 等待退避结束
+     */
+    public synchronized void await() throws InterruptedException {
+        long waitTime;
+        while ((waitTime = parkUntil - System.currentTimeMillis()) > 0) {
+            wait(waitTime);
+        }
+    }
+
+    /**
+     * 资源不足，开始一个新的退避窗口；已经在退避窗口内时不再翻倍
+     *
+     * @param now 当前时间
+     * @return 本次退避的时间，已经在退避窗口内时返回 0
+     */
+    public synchronized long park(long now) {
+        if (now < parkUntil) {
+            return 0L;
+        }
+        long backoff = jitter.applyAsLong(Math.min(baseInterval << Math.min(parkRound, MAX_PARK_SHIFT), maxInterval));
+        parkRound++;
+        parkUntil = now + backoff;
+        return backoff;
+    }
+
+    /**
+     * 资源释放，提前结束退避并唤醒等待的线程
+     */
+    public synchronized void wakeUp() {
+        parkRound = 0;
+        if (parkUntil > 0) {
+            parkUntil = 0L;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 提交成功，下次资源不足时从最短的等待时间开始
+     */
+    public synchronized void reset() {
+        parkRound = 0;
+    }
+
+    public synchronized int getParkRound() {
+        return parkRound;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.jobdealer.cache;
+
+import com.alibaba.fastjson.JSONObject;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.common.util.TaskParamsUtils;
+import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
+import com.dtstack.taier.pluginapi.JobIdentifier;
+import com.dtstack.taier.pluginapi.pojo.ParamAction;
+import com.dtstack.taier.pluginapi.util.PublicUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.collections.MapUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * job cache 中 jobInfo 解析结果的缓存
+ * 状态轮询、日志获取每次都需要从 jobInfo 中获得插件信息构建 JobIdentifier，jobInfo 在任务整个生命周期内不会变化，只需要解析一次
+ * 按 jobId 缓存，按插件信息的长度限制缓存总大小；job cache 删除或重新写入时通过 {@link #invalidate(String)} 显式失效
+ *
+ * Company: www.dtstack.com
+ */
+@Component
+public class JobInfoCache implements InitializingBean {
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    private Cache<String, ParsedJobInfo> cache;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(environmentContext.getJobInfoCacheMaxWeight())
+                .weigher((String jobId, ParsedJobInfo parsedJobInfo) -> parsedJobInfo.weight())
+                .build();
+    }
+
+    /**
+     * 任务写入 job cache 时直接使用已有的 paramAction，不需要再解析 jobInfo
+     */
+    public void put(ParamAction paramAction, Integer computeType) {
+        cache.put(paramAction.getJobId(), new ParsedJobInfo(paramAction, computeType));
+    }
+
+    public ParsedJobInfo get(ScheduleEngineJobCache jobCache) throws IOException {
+        ParsedJobInfo parsedJobInfo = cache.getIfPresent(jobCache.getJobId());
+        if (parsedJobInfo != null) {
+            return parsedJobInfo;
+        }
+        ParamAction paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
+        parsedJobInfo = new ParsedJobInfo(paramAction, jobCache.getComputeType());
+        cache.put(jobCache.getJobId(), parsedJobInfo);
+        return parsedJobInfo;
+    }
+
+    public JobIdentifier buildJobIdentifier(ScheduleEngineJobCache jobCache, String engineJobId, String applicationId, Long tenantId) throws IOException {
+        ParsedJobInfo parsedJobInfo = get(jobCache);
+        return new JobIdentifier(engineJobId, applicationId, jobCache.getJobId(), tenantId, parsedJobInfo.taskType,
+                parsedJobInfo.deployMode, null, parsedJobInfo.pluginInfo, parsedJobInfo.componentVersion);
+    }
+
+    public void invalidate(String jobId) {
+        cache.invalidate(jobId);
+    }
+
+    public static class ParsedJobInfo {
+
+        private final Integer taskType;
+
+        private final Integer deployMode;
+
+        private final String pluginInfo;
+
+        private final String componentVersion;
+
+        private ParsedJobInfo(ParamAction paramAction, Integer computeType) {
+            this.taskType = paramAction.getTaskType();
+            this.deployMode = TaskParamsUtils.parseDeployTypeByTaskParams(paramAction.getTaskParams(), computeType).getType();
+            Map<String, Object> pluginInfoMap = paramAction.getPluginInfo();
+            this.pluginInfo = MapUtils.isEmpty(pluginInfoMap) ? null : JSONObject.toJSONString(pluginInfoMap);
+            this.componentVersion = paramAction.getComponentVersion();
+        }
+
+        private int weight() {
+            return pluginInfo == null ? 1 : pluginInfo.length();
+        }
+
+        public Integer getTaskType() {
+            return taskType;
+        }
+
+        public Integer getDeployMode() {
+            return deployMode;
+        }
+
+        public String getPluginInfo() {
+            return pluginInfo;
+        }
+
+        public String getComponentVersion() {
+            return componentVersion;
+        }
+    }
+}
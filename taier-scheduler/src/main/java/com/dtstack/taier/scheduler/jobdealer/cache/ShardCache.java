@@ -18,10 +18,13 @@
 
 package com.dtstack.taier.scheduler.jobdealer.cache;
 
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.scheduler.jobdealer.JobStatusDealer;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -29,8 +32,12 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -43,26 +50,124 @@ public class ShardCache implements ApplicationContextAware {
 
     private static Logger LOGGER = LoggerFactory.getLogger(ShardCache.class);
 
+    private static final long DATA_CLEAN_INTERVAL = 1000;
+
     private ApplicationContext applicationContext;
 
     private Map<String, ShardManager> jobResourceShardManager = new ConcurrentHashMap<>();
 
+    /**
+     * key: jobId, value: 任务所在的分片
+     * 与本节点 schedule_engine_job_cache 中的数据保持一致，查找分片时不再查询 db
+     */
+    private Map<String, ShardManager> jobShardIndex = new ConcurrentHashMap<>();
+
+    private volatile boolean indexLoaded = false;
+
+    /**
+     * 所有分片共用一个清理线程
+     */
+    private ScheduledExecutorService cleanService;
+
     private ShardManager getShardManager(String jobId) {
+        loadIndexIfNecessary();
+        ShardManager shardManager = jobShardIndex.get(jobId);
+        if (shardManager != null) {
+            return shardManager;
+        }
+        // 索引中没有的任务（如容灾转移到本节点的任务）再查询 db
         ScheduleJobCacheService ScheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
         ScheduleEngineJobCache engineJobCache = ScheduleJobCacheService.getByJobId(jobId);
         if (engineJobCache == null) {
             return null;
         }
-        return jobResourceShardManager.computeIfAbsent(engineJobCache.getJobResource(), jr -> {
-            ShardManager shardManager = new ShardManager(engineJobCache.getJobResource());
-            JobStatusDealer jobStatusDealer = new JobStatusDealer();
-            jobStatusDealer.setJobResource(engineJobCache.getJobResource());
-            jobStatusDealer.setShardManager(shardManager);
-            jobStatusDealer.setShardCache(this);
-            jobStatusDealer.setApplicationContext(applicationContext);
-            jobStatusDealer.start();
-            return shardManager;
-        });
+        shardManager = getShardManagerByJobResource(engineJobCache.getJobResource());
+        jobShardIndex.put(jobId, shardManager);
+        return shardManager;
+    }
+
+    private ShardManager getShardManagerByJobResource(String jobResource) {
+        return jobResourceShardManager.computeIfAbsent(jobResource, this::createShardManager);
+    }
+
+    /**
+     * 创建分片并启动分片的状态轮询
+     */
+    ShardManager createShardManager(String jobResource) {
+        ShardManager shardManager = new ShardManager(jobResource);
+        JobStatusDealer jobStatusDealer = new JobStatusDealer();
+        jobStatusDealer.setJobResource(jobResource);
+        jobStatusDealer.setShardManager(shardManager);
+        jobStatusDealer.setShardCache(this);
+        jobStatusDealer.setApplicationContext(applicationContext);
+        jobStatusDealer.start();
+        return shardManager;
+    }
+
+    /**
+     * 首次使用时根据 schedule_engine_job_cache 重建索引
+     */
+    private void loadIndexIfNecessary() {
+        if (indexLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (indexLoaded) {
+                return;
+            }
+            ScheduleJobCacheService ScheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
+            String localAddress = applicationContext.getBean(EnvironmentContext.class).getLocalAddress();
+            long startId = 0L;
+            while (true) {
+                List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.listByStage(startId, localAddress, null, null, Boolean.FALSE);
+                if (CollectionUtils.isEmpty(jobCaches)) {
+                    break;
+                }
+                for (ScheduleEngineJobCache jobCache : jobCaches) {
+                    jobShardIndex.putIfAbsent(jobCache.getJobId(), getShardManagerByJobResource(jobCache.getJobResource()));
+                    startId = jobCache.getId();
+                }
+            }
+
+            cleanService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName() + "_Cleaner"));
+            cleanService.scheduleWithFixedDelay(
+                    this::cleanShards,
+                    0,
+                    DATA_CLEAN_INTERVAL,
+                    TimeUnit.MILLISECONDS);
+            indexLoaded = true;
+            LOGGER.info("shard index loaded, jobs:{} jobResources:{}", jobShardIndex.size(), jobResourceShardManager.size());
+        }
+    }
+
+    private void cleanShards() {
+        try {
+            for (ShardManager shardManager : jobResourceShardManager.values()) {
+                shardManager.clean(jobId -> jobShardIndex.remove(jobId, shardManager));
+            }
+        } catch (Throwable e) {
+            LOGGER.error("clean shards error:", e);
+        }
+    }
+
+    /**
+     * 任务写入 schedule_engine_job_cache 时加入索引
+     */
+    public void addIndex(String jobId, String jobResource) {
+        if (jobId == null || jobResource == null) {
+            return;
+        }
+        jobShardIndex.put(jobId, getShardManagerByJobResource(jobResource));
+    }
+
+    /**
+     * 任务从 schedule_engine_job_cache 删除时移出索引，分片中的状态由清理线程按状态移除
+     */
+    public void removeIndex(String jobId) {
+        if (jobId == null) {
+            return;
+        }
+        jobShardIndex.remove(jobId);
     }
 
     public boolean updateLocalMemTaskStatus(String jobId, Integer status) {
@@ -95,8 +200,10 @@ public class ShardCache implements ApplicationContextAware {
         if (jobId == null) {
             throw new IllegalArgumentException("jobId must not null.");
         }
+        applicationContext.getBean(JobInfoCache.class).invalidate(jobId);
         ShardManager shardManager = getShardManager(jobId);
         if (shardManager != null) {
+            jobShardIndex.remove(jobId);
             shardManager.removeJob(jobId);
             return true;
         }
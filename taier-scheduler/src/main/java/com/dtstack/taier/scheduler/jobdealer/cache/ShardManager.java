@@ -18,38 +18,27 @@
 
 package com.dtstack.taier.scheduler.jobdealer.cache;
 
-import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
- * data 数据分片及空闲检测
+ * data 数据分片，空闲检测由 ShardCache 统一调度
  * <p>
  * company: www.dtstack.com
  * author: toutian
  * create: 2018/9/1
  */
-public class ShardManager implements Runnable {
+public class ShardManager {
 
-    private static final long DATA_CLEAN_INTERVAL = 1000;
-    private ScheduledExecutorService scheduledService = null;
     private Map<String, Integer> shard;
     private String jobResource;
 
     public ShardManager(String jobResource) {
         this.jobResource = jobResource;
         this.shard = new ConcurrentHashMap<>();
-        scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(jobResource + this.getClass().getSimpleName()));
-        scheduledService.scheduleWithFixedDelay(
-                this,
-                0,
-                DATA_CLEAN_INTERVAL,
-                TimeUnit.MILLISECONDS);
     }
 
     public Integer putJob(String jobId, Integer status) {
@@ -68,9 +57,19 @@ public class ShardManager implements Runnable {
         return jobResource;
     }
 
-    @Override
-    public void run() {
-        shard.entrySet().removeIf(jobWithStatus -> TaskStatus.needClean(jobWithStatus.getValue()));
+    /**
+     * 移除已经结束的任务
+     *
+     * @param removed 被移除的 jobId 回调
+     */
+    public void clean(Consumer<String> removed) {
+        shard.entrySet().removeIf(jobWithStatus -> {
+            if (TaskStatus.needClean(jobWithStatus.getValue())) {
+                removed.accept(jobWithStatus.getKey());
+                return true;
+            }
+            return false;
+        });
     }
 
 }
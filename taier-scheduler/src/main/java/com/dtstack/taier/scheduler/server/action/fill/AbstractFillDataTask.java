@@ -1,13 +1,12 @@
 package com.dtstack.taier.scheduler.server.action.fill;
 
 import com.dtstack.taier.common.env.EnvironmentContext;
-import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
+import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.scheduler.dto.fill.FillDataInfoDTO;
-import com.dtstack.taier.scheduler.service.ScheduleTaskTaskService;
+import com.dtstack.taier.scheduler.server.builder.dependency.TaskDependencyIndex;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
@@ -16,7 +15,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -31,14 +29,14 @@ public abstract class AbstractFillDataTask implements FillDataTask {
 
     protected final FillDataInfoDTO fillDataInfoBO;
 
-    protected final ScheduleTaskTaskService scheduleTaskTaskService;
+    protected final TaskDependencyIndex taskDependencyIndex;
 
     protected final EnvironmentContext environmentContext;
 
     public AbstractFillDataTask(ApplicationContext applicationContext, FillDataInfoDTO fillDataInfoDTO) {
         this.applicationContext = applicationContext;
         this.fillDataInfoBO = fillDataInfoDTO;
-        this.scheduleTaskTaskService = applicationContext.getBean(ScheduleTaskTaskService.class);
+        this.taskDependencyIndex = applicationContext.getBean(TaskDependencyIndex.class);
         this.environmentContext = applicationContext.getBean(EnvironmentContext.class);
 
     }
@@ -77,60 +75,15 @@ public abstract class AbstractFillDataTask implements FillDataTask {
      * @return nodeSide
      */
     private Map<Long, List<Long>> getNodeSideByRun(Set<Long> run) {
-        Map<Long, List<Long>> nodeSide = Maps.newHashMap();
-        Integer fillDataLimitSize = environmentContext.getFillDataLimitSize();
-
-        List<Long> needFindChildTaskKeyList = Lists.newArrayList(run);
-        while (CollectionUtils.isNotEmpty(needFindChildTaskKeyList)) {
-            List<Long> childTaskKeys = Lists.newArrayList();
-            // 切割,防止runList太大
-            List<List<Long>> needFindChildTaskKeyListPartitions = Lists.partition(needFindChildTaskKeyList, fillDataLimitSize);
-            needFindChildTaskKeyListPartitions.forEach(needFindChildTaskKeyListPartition->childTaskKeys.addAll(getListChildTaskKeyAndFillNodeSide(needFindChildTaskKeyListPartition,nodeSide)));
-            needFindChildTaskKeyList = childTaskKeys;
+        Map<Long, List<Long>> nodeSide = taskDependencyIndex.getChildSide(run);
+        // 有环时递归查询有效路径不会结束
+        Long cycleTaskId = TaskDependencyIndex.findCycle(nodeSide);
+        if (cycleTaskId != null) {
+            throw new RdosDefineException("task dependency has cycle on taskId:" + cycleTaskId);
         }
-
         return nodeSide;
     }
 
-    /**
-     * 获得RunList的下游taskKey和填充nodeSide
-     *
-     * @param needFindChildTaskKeyList 需要查询下游的节点的集合列表
-     * @param nodeSide 边的关系映射
-     * @return
-     */
-    private List<Long> getListChildTaskKeyAndFillNodeSide(List<Long> needFindChildTaskKeyList,Map<Long, List<Long>> nodeSide) {
-        List<Long> childTaskKeys = Lists.newArrayList();
-        List<ScheduleTaskTaskShade> scheduleTaskTaskShades = getScheduleTaskTaskShades(needFindChildTaskKeyList);
-
-        if (CollectionUtils.isNotEmpty(scheduleTaskTaskShades)) {
-            Map<Long, List<ScheduleTaskTaskShade>> keyMaps = scheduleTaskTaskShades.stream().collect(Collectors.groupingBy(ScheduleTaskTaskShade::getParentTaskId));
-
-            for (Map.Entry<Long, List<ScheduleTaskTaskShade>> entry : keyMaps.entrySet()) {
-                Long key = entry.getKey();
-                if (!nodeSide.containsKey(key)) {
-                    List<ScheduleTaskTaskShade> value = entry.getValue();
-                    List<Long> childValueTaskKeys = value.stream().map(ScheduleTaskTaskShade::getTaskId).collect(Collectors.toList());
-                    nodeSide.put(key, childValueTaskKeys);
-                    childTaskKeys.addAll(childValueTaskKeys);
-                }
-            }
-        }
-        return childTaskKeys;
-    }
-
-    /**
-     * 查询下游节点
-     *
-     * @param taskIds
-     * @return
-     */
-    protected List<ScheduleTaskTaskShade> getScheduleTaskTaskShades(List<Long> taskIds) {
-        return CollectionUtils.isNotEmpty(taskIds) ?
-                scheduleTaskTaskService.lambdaQuery().in(ScheduleTaskTaskShade::getParentTaskId, taskIds).list() :
-                Lists.newArrayList();
-    }
-
     /**
      * 初始化路径
      * @param aimNode
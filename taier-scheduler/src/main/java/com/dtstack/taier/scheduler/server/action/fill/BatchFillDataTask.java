@@ -1,19 +1,16 @@
 package com.dtstack.taier.scheduler.server.action.fill;
 
-import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
 import com.dtstack.taier.scheduler.dto.fill.FillDataChooseTaskDTO;
 import com.dtstack.taier.scheduler.dto.fill.FillDataInfoDTO;
 import com.dtstack.taier.scheduler.enums.FillDataTypeEnum;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -43,22 +40,10 @@ public class BatchFillDataTask extends AbstractRecursionFillDataTask {
             List<FillDataChooseTaskDTO> taskIds = this.fillDataInfoBO.getTaskChooseList();
             taskIds.forEach(task -> runList.add(task.getTaskId()));
         } else {
-            List<Long> taskIds = Lists.newArrayList(rootTaskId.getTaskId());
-            runList.addAll(taskIds);
-            int level = 0;
-            List<ScheduleTaskTaskShade> scheduleTaskTaskShades = getScheduleTaskTaskShades(taskIds);
-            while (CollectionUtils.isNotEmpty(scheduleTaskTaskShades)) {
-                List<Long> taskId = scheduleTaskTaskShades.stream().map(ScheduleTaskTaskShade::getTaskId).collect(Collectors.toList());
-                runList.addAll(taskId);
-
-                level++;
-                if (level > environmentContext.getFillDataRootTaskMaxLevel()) {
-                    LOGGER.warn("rootTaskId:{} max:{} break cycle",rootTaskId.getTaskId(),level);
-                    break;
-                }
-
-                scheduleTaskTaskShades = getScheduleTaskTaskShades(taskId);
-            }
+            runList.add(rootTaskId.getTaskId());
+            // 最多向下查询 fillDataRootTaskMaxLevel + 1 层
+            runList.addAll(taskDependencyIndex.listDescendants(Lists.newArrayList(rootTaskId.getTaskId()),
+                    environmentContext.getFillDataRootTaskMaxLevel() + 1));
         }
 
         return runList;
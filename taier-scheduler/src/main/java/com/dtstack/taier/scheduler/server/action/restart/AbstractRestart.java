@@ -7,6 +7,7 @@ import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.service.ScheduleJobJobService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.slf4j.Logger;
@@ -17,7 +18,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -89,23 +90,27 @@ public abstract class AbstractRestart {
     }
 
     /**
-     * 递归查找当前jobId下的子任务
+     * 查找当前实例同一天的所有下游实例
      *
-     * @param jobId
+     * @param job
      * @param isOnlyNextChild
      * @return
      */
-    protected Map<String,String> getAllChildJobWithSameDayByForkJoin(String jobId, boolean isOnlyNextChild) {
-        ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
-        ConcurrentHashMap<String,String> results = new ConcurrentHashMap<>();
-        ForkJoinJobTask forkJoinJobTask = new ForkJoinJobTask(jobId, results, scheduleJobService, scheduleJobJobService, isOnlyNextChild);
-        ForkJoinTask<Map<String,String>> submit = forkJoinPool.submit(forkJoinJobTask);
-        try {
-            return submit.get(environmentContext.getForkJoinResultTimeOut(), TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            LOGGER.error("get all child job {} error ", jobId, e);
-        }
-        return null;
+    protected Map<String,String> getAllChildJobWithSameDay(ScheduleJob job, boolean isOnlyNextChild) {
+        return getAllChildJobWithSameDay(Lists.newArrayList(job), isOnlyNextChild);
+    }
+
+    /**
+     * 查找多个实例同一天的所有下游实例，按层批量查询
+     *
+     * @param jobs
+     * @param isOnlyNextChild
+     * @return
+     */
+    protected Map<String,String> getAllChildJobWithSameDay(List<ScheduleJob> jobs, boolean isOnlyNextChild) {
+        DownstreamJobSearcher searcher = new DownstreamJobSearcher(scheduleJobService, scheduleJobJobService);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(environmentContext.getForkJoinResultTimeOut());
+        return searcher.search(jobs, isOnlyNextChild, deadline);
     }
 
     /**
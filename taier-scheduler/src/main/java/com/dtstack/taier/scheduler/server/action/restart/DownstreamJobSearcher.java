@@ -0,0 +1,181 @@
+package com.dtstack.taier.scheduler.server.action.restart;
+
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.common.enums.EScheduleJobType;
+import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import com.dtstack.taier.scheduler.service.ScheduleJobJobService;
+import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.utils.JobKeyUtils;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 查询出实例的所有下游实例（同一调度日期内）
+ * 按层广度遍历，每一层的实例关系、工作流子实例、下游实例各用一次批量查询，不再每个实例递归查询
+ * 已经访问过的实例不再展开，实例关系成环时也能结束
+ * 超时时不返回查到的部分实例，避免只重跑一部分下游
+ *
+ * Company: www.dtstack.com
+ */
+public class DownstreamJobSearcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownstreamJobSearcher.class);
+
+    /**
+     * in 查询每批的最大数量
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    private final ScheduleJobService scheduleJobService;
+
+    private final ScheduleJobJobService scheduleJobJobService;
+
+    public DownstreamJobSearcher(ScheduleJobService scheduleJobService, ScheduleJobJobService scheduleJobJobService) {
+        this.scheduleJobService = scheduleJobService;
+        this.scheduleJobJobService = scheduleJobJobService;
+    }
+
+    /**
+     * 查询下游实例
+     *
+     * @param rootJobs        开始的实例
+     * @param isOnlyNextChild 是否只查询直接下游
+     * @param deadline        超过该时间停止查询并抛出异常
+     * @return jobId -> cycTime，不包含开始的实例
+     * @throws RdosDefineException 超过 deadline 还没有查询完
+     */
+    public Map<String, String> search(Collection<ScheduleJob> rootJobs, boolean isOnlyNextChild, long deadline) {
+        Map<String, String> results = new HashMap<>();
+        Set<String> visited = rootJobs.stream().map(ScheduleJob::getJobId).collect(Collectors.toSet());
+        List<ScheduleJob> currentLevel = Lists.newArrayList(rootJobs);
+        int level = 0;
+        while (CollectionUtils.isNotEmpty(currentLevel)) {
+            if (System.currentTimeMillis() > deadline) {
+                LOGGER.error("search downstream jobs timeout at level {}, found {}", level, results.size());
+                throw new RdosDefineException("search downstream jobs timeout at level " + level + ", found " + results.size());
+            }
+            List<ScheduleJob> nextLevel = Lists.newArrayList();
+            for (ScheduleJob childJob : listChildJobs(currentLevel)) {
+                if (visited.add(childJob.getJobId())) {
+                    results.put(childJob.getJobId(), childJob.getCycTime());
+                    nextLevel.add(childJob);
+                }
+            }
+            if (isOnlyNextChild) {
+                break;
+            }
+            currentLevel = nextLevel;
+            level++;
+        }
+        LOGGER.info("search downstream jobs of {} level {} found {}", visited.size() - results.size(), level, results.size());
+        return results;
+    }
+
+    /**
+     * 查询一层实例的直接下游
+     */
+    private List<ScheduleJob> listChildJobs(List<ScheduleJob> parentJobs) {
+        Map<String, List<ScheduleJobJob>> jobJobMap = new HashMap<>(parentJobs.size());
+        for (List<ScheduleJob> partition : Lists.partition(parentJobs, QUERY_BATCH_SIZE)) {
+            listJobJobs(partition.stream().map(ScheduleJob::getJobKey).collect(Collectors.toList()))
+                    .forEach(jobJob -> jobJobMap.computeIfAbsent(jobJob.getParentJobKey(), k -> Lists.newArrayList()).add(jobJob));
+        }
+
+        // 有下游的工作流实例，需要把子实例全部添加进来
+        List<String> flowJobIds = parentJobs.stream()
+                .filter(job -> EScheduleJobType.WORK_FLOW.getVal().equals(job.getTaskType()) && jobJobMap.containsKey(job.getJobKey()))
+                .map(ScheduleJob::getJobId)
+                .collect(Collectors.toList());
+        Map<String, List<ScheduleJob>> flowSubJobMap = new HashMap<>(flowJobIds.size());
+        for (List<String> partition : Lists.partition(flowJobIds, QUERY_BATCH_SIZE)) {
+            listFlowSubJobs(partition)
+                    .forEach(subJob -> flowSubJobMap.computeIfAbsent(subJob.getFlowJobId(), k -> Lists.newArrayList()).add(subJob));
+        }
+
+        Set<String> childJobKeys = new LinkedHashSet<>();
+        for (ScheduleJob parentJob : parentJobs) {
+            List<ScheduleJobJob> jobJobs = jobJobMap.get(parentJob.getJobKey());
+            if (CollectionUtils.isEmpty(jobJobs)) {
+                continue;
+            }
+            childJobKeys.addAll(filterJobKeyList(parentJob, jobJobs, flowSubJobMap.get(parentJob.getJobId())));
+        }
+
+        List<ScheduleJob> childJobs = Lists.newArrayList();
+        for (List<String> partition : Lists.partition(Lists.newArrayList(childJobKeys), QUERY_BATCH_SIZE)) {
+            childJobs.addAll(listJobsByJobKeys(partition));
+        }
+        return childJobs;
+    }
+
+    List<ScheduleJobJob> listJobJobs(List<String> parentJobKeys) {
+        return scheduleJobJobService.lambdaQuery()
+                .in(ScheduleJobJob::getParentJobKey, parentJobKeys)
+                .eq(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+    }
+
+    List<ScheduleJob> listFlowSubJobs(List<String> flowJobIds) {
+        return scheduleJobService.lambdaQuery()
+                .in(ScheduleJob::getFlowJobId, flowJobIds)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+    }
+
+    List<ScheduleJob> listJobsByJobKeys(List<String> jobKeys) {
+        return scheduleJobService.lambdaQuery()
+                .in(ScheduleJob::getJobKey, jobKeys)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+    }
+
+    private Set<String> filterJobKeyList(ScheduleJob scheduleJob, List<ScheduleJobJob> scheduleJobJobList, List<ScheduleJob> subJobsAndStatusByFlowId) {
+        Set<String> jobKeyList = new HashSet<>();
+        //从jobKey获取父任务的触发时间
+        String parentJobDayStr = JobKeyUtils.getJobTriggerTimeFromJobKey(scheduleJob.getJobKey());
+        Long jobTaskShadeId = JobKeyUtils.getTaskShadeIdFromJobKey(scheduleJob.getJobKey());
+        if (Strings.isNullOrEmpty(parentJobDayStr) || null == jobTaskShadeId) {
+            return jobKeyList;
+        }
+
+        Set<String> flowJobKeys = new HashSet<>();
+        if (CollectionUtils.isNotEmpty(subJobsAndStatusByFlowId)) {
+            flowJobKeys = subJobsAndStatusByFlowId.stream().map(ScheduleJob::getJobKey).map(String::toLowerCase).collect(Collectors.toSet());
+            jobKeyList.addAll(subJobsAndStatusByFlowId.stream().map(ScheduleJob::getJobKey).collect(Collectors.toList()));
+        }
+
+        for (ScheduleJobJob scheduleJobJob : scheduleJobJobList) {
+            String childJobKey = scheduleJobJob.getJobKey();
+            Long childJobShadeId = JobKeyUtils.getTaskShadeIdFromJobKey(childJobKey);
+            //排除自依赖
+            if (null != childJobShadeId && childJobShadeId.equals(jobTaskShadeId)) {
+                continue;
+            }
+            String childJobDayStr = JobKeyUtils.getJobTriggerTimeFromJobKey(childJobKey);
+            //排除不是同一天执行的
+            if (!parentJobDayStr.equals(childJobDayStr)) {
+                continue;
+            }
+            //添加除工作流内部子任务之外的下游任务依赖
+            if (flowJobKeys.contains(childJobKey.toLowerCase())) {
+                continue;
+            }
+            jobKeyList.add(childJobKey);
+        }
+        return jobKeyList;
+    }
+}
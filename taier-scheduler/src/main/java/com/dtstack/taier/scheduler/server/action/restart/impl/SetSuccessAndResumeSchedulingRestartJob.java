@@ -26,11 +26,16 @@ public class SetSuccessAndResumeSchedulingRestartJob extends AbstractRestartJob
     @Override
     public Map<String, String> computeResumeBatchJobs(List<ScheduleJob> jobs) {
         Map<String, String> resumeBatchJobs = new HashMap<>();
+        // 先查询完所有实例的下游，查询超时时不会有实例已经被置成功
+        Map<String, Map<String, String>> jobChildren = new HashMap<>(jobs.size());
         for (ScheduleJob job : jobs) {
-            Map<String, String> allChildJobWithSameDayByForkJoin = getAllChildJobWithSameDayByForkJoin(job.getJobId(), false);
-            setSuccess(job, allChildJobWithSameDayByForkJoin);
-            if (MapUtils.isNotEmpty(allChildJobWithSameDayByForkJoin)) {
-                resumeBatchJobs.putAll(allChildJobWithSameDayByForkJoin);
+            jobChildren.put(job.getJobId(), getAllChildJobWithSameDay(job, false));
+        }
+        for (ScheduleJob job : jobs) {
+            Map<String, String> allChildJobWithSameDay = jobChildren.get(job.getJobId());
+            setSuccess(job, allChildJobWithSameDay);
+            if (MapUtils.isNotEmpty(allChildJobWithSameDay)) {
+                resumeBatchJobs.putAll(allChildJobWithSameDay);
             }
             if (!"0".equalsIgnoreCase(job.getFlowJobId())) {
                 ScheduleJob workFlowJob = scheduleJobService.lambdaQuery()
@@ -78,8 +78,30 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
                                              Long fillId,
                                              JobSortWorker jobSortWorker) throws Exception{
 
-        // 解析周期信息
-        ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
+        return buildJob(buildTemplate(scheduleTaskShade, getKeyPreStr(name)), name, triggerDay, beginTime, endTime, fillId, jobSortWorker);
+    }
+
+    /**
+     * 根据模板生成实例
+     *
+     * @param template 任务模板
+     * @param name 实例名称
+     * @param triggerDay 目标天
+     * @param beginTime 开始时间
+     * @param endTime 结束时间
+     * @param fillId 补数据id
+     * @param jobSortWorker 排序器
+     * @return 实例
+     */
+    public List<ScheduleJobDetails> buildJob(JobBuildTemplate template,
+                                             String name,
+                                             String triggerDay,
+                                             String beginTime,
+                                             String endTime,
+                                             Long fillId,
+                                             JobSortWorker jobSortWorker) throws Exception {
+        ScheduleTaskShade scheduleTaskShade = template.getTaskShade();
+        ScheduleCorn corn = template.getCorn();
         ScheduleConf scheduleConf = corn.getScheduleConf();
 
         // 校验时间是否符合规范，且获得时间范围
@@ -91,35 +113,60 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
 
         List<ScheduleJobDetails> jobBuilderBeanList = Lists.newArrayList();
 
-        Date next = corn.isMatch(startDate) ? startDate : corn.next(startDate);
-        while (next != null) {
+        // 一次获得范围内的所有执行时间，最后一个可能是结束时间之后的下一次执行时间
+        List<Date> triggerTimes = corn.listTriggerTimes(startDate, endDate);
+        for (int i = 0; i < triggerTimes.size(); i++) {
+            Date next = triggerTimes.get(i);
             // 如下下一次执行时间已经在结束时间之后，停止生成实例
             if (next.after(endDate)) {
                 break;
             }
-            ScheduleJobDetails jobBuilderBean = buildJobBuilderBean(scheduleTaskShade, name, fillId, jobSortWorker, corn, scheduleConf, next, NORMAL_TASK_FLOW_ID);
+            Date nextCycle = i + 1 < triggerTimes.size() ? triggerTimes.get(i + 1) : null;
+            ScheduleJobDetails jobBuilderBean = buildJobBuilderBean(template, name, fillId, jobSortWorker, scheduleConf, next, nextCycle, NORMAL_TASK_FLOW_ID);
 
             if (EScheduleJobType.WORK_FLOW.getVal().equals(scheduleTaskShade.getTaskType())) {
                 // 该任务是工作流任务 先生成子任务
-                List<ScheduleTaskShade> subTasks = scheduleTaskService.lambdaQuery()
-                        .eq(ScheduleTaskShade::getFlowId, scheduleTaskShade.getTaskId())
-                        .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .list();
                 List<ScheduleJobDetails> flowBean = Lists.newArrayList();
                 ScheduleJob scheduleJob = jobBuilderBean.getScheduleJob();
-                for (ScheduleTaskShade subTask : subTasks) {
-                    flowBean.add(buildJobBuilderBean(subTask, name, fillId, jobSortWorker, corn, scheduleConf, next, scheduleJob.getJobId()));
+                for (JobBuildTemplate subTemplate : template.getSubTemplates()) {
+                    flowBean.add(buildJobBuilderBean(subTemplate, name, fillId, jobSortWorker, scheduleConf, next, nextCycle, scheduleJob.getJobId()));
                 }
                 jobBuilderBean.setFlowBean(flowBean);
             }
 
 
             jobBuilderBeanList.add(jobBuilderBean);
-            next = corn.next(next);
         }
         return jobBuilderBeanList;
     }
 
+    /**
+     * 查询任务的周期、上游任务和工作流子任务，生成模板
+     *
+     * @param scheduleTaskShade 任务
+     * @param keyPreStr 实例key前缀
+     * @return 任务模板
+     */
+    protected JobBuildTemplate buildTemplate(ScheduleTaskShade scheduleTaskShade, String keyPreStr) throws Exception {
+        // 解析周期信息
+        ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
+
+        List<JobBuildTemplate> subTemplates = Lists.newArrayList();
+        if (EScheduleJobType.WORK_FLOW.getVal().equals(scheduleTaskShade.getTaskType())) {
+            List<ScheduleTaskShade> subTasks = scheduleTaskService.lambdaQuery()
+                    .eq(ScheduleTaskShade::getFlowId, scheduleTaskShade.getTaskId())
+                    .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list();
+            for (ScheduleTaskShade subTask : subTasks) {
+                // 子任务使用工作流的周期
+                JobDependency subDependency = dependencyManager.getDependencyHandler(keyPreStr, subTask, corn);
+                subTemplates.add(new JobBuildTemplate(subTask, corn, subDependency, null, null));
+            }
+        }
+        JobDependency jobDependency = dependencyManager.getDependencyHandler(keyPreStr, scheduleTaskShade, corn);
+        return new JobBuildTemplate(scheduleTaskShade, corn, jobDependency, subTemplates, null);
+    }
+
     /**
      * 周期实例生成bean方法
      * @param batchTaskShade 任务
@@ -143,23 +190,24 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
     /**
      * 构建JobBuilderBean
      *
-     * @param scheduleTaskShade 需要被构建的任务
+     * @param template 需要被构建的任务模板
      * @param name 实例名称
      * @param fillId 补数据id
      * @param jobSortWorker 排序器
-     * @param corn 周期实例
      * @param scheduleConf 调度配置
      * @param currentData 当前时间
+     * @param nextData 下一个周期的执行时间
      * @return
      */
-    private ScheduleJobDetails buildJobBuilderBean(ScheduleTaskShade scheduleTaskShade,
+    private ScheduleJobDetails buildJobBuilderBean(JobBuildTemplate template,
                                                    String name,
                                                    Long fillId,
                                                    JobSortWorker jobSortWorker,
-                                                   ScheduleCorn corn,
                                                    ScheduleConf scheduleConf,
                                                    Date currentData,
+                                                   Date nextData,
                                                    String flowJobId) {
+        ScheduleTaskShade scheduleTaskShade = template.getTaskShade();
         String triggerTime = DateUtil.getDate(currentData,DateUtil.STANDARD_DATETIME_FORMAT);
         String cycTime = DateUtil.getTimeStrWithoutSymbol(triggerTime);
         String jobKey = JobKeyUtils.generateJobKey(getKeyPreStr(name), scheduleTaskShade.getTaskId(), cycTime);
@@ -186,13 +234,12 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
         scheduleJob.setMaxRetryNum(scheduleConf.getMaxRetryNum());
         scheduleJob.setVersionId(scheduleTaskShade.getVersionId());
         scheduleJob.setComputeType(scheduleTaskShade.getComputeType());
-        scheduleJob.setNextCycTime(DateUtil.getDate(corn.next(currentData), DateUtil.STANDARD_DATETIME_FORMAT));
+        scheduleJob.setNextCycTime(DateUtil.getDate(nextData, DateUtil.STANDARD_DATETIME_FORMAT));
         scheduleJob.setJobExecuteOrder(JobExecuteOrderUtil.buildJobExecuteOrder(cycTime,jobSortWorker.getSort()));
 
         // 获得依赖
         List<ScheduleJobJob> jobJobList = Lists.newArrayList();
-        JobDependency dependencyHandler = dependencyManager.getDependencyHandler(getKeyPreStr(name), scheduleTaskShade, corn);
-        jobJobList.addAll(dependencyHandler.generationJobJobForTask(corn, currentData,jobKey));
+        jobJobList.addAll(template.getJobDependency().generationJobJobForTask(template.getCorn(), currentData,jobKey));
 
         ScheduleJobDetails jobBuilderBean = new ScheduleJobDetails();
         jobBuilderBean.setJobJobList(jobJobList);
@@ -200,7 +247,7 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
         return jobBuilderBean;
     }
 
-    private String getKeyPreStr(String name) {
+    protected String getKeyPreStr(String name) {
         return getPrefix() + "_" + name;
     }
 
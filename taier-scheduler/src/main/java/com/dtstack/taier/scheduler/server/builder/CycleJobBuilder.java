@@ -1,18 +1,25 @@
 package com.dtstack.taier.scheduler.server.builder;
 
 import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.common.enums.EScheduleJobType;
 import com.dtstack.taier.common.enums.EScheduleStatus;
 import com.dtstack.taier.common.enums.EScheduleType;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.dao.domain.ScheduleTaskShade;
+import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
 import com.dtstack.taier.pluginapi.util.DateUtil;
 import com.dtstack.taier.pluginapi.util.RetryUtil;
 import com.dtstack.taier.scheduler.druid.DtDruidRemoveAbandoned;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleConfManager;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
+import com.dtstack.taier.scheduler.server.builder.dependency.JobDependency;
 import com.dtstack.taier.scheduler.service.JobGraphTriggerService;
+import com.dtstack.taier.scheduler.service.ScheduleTaskTaskService;
 import com.dtstack.taier.scheduler.utils.JobExecuteOrderUtil;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,12 +27,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -43,8 +60,17 @@ public class CycleJobBuilder extends AbstractJobBuilder {
     @Autowired
     protected JobGraphTriggerService jobGraphTriggerService;
 
+    @Autowired
+    protected ScheduleTaskTaskService scheduleTaskTaskService;
+
     private final Lock lock = new ReentrantLock();
 
+    /**
+     * taskId -> 上一次生成实例使用的模板
+     * 任务、周期、上游任务没有变化时直接复用，不再重新解析周期和查询依赖
+     */
+    private final Map<Long, JobBuildTemplate> templateCache = new ConcurrentHashMap<>();
+
     public void buildTaskJobGraph(String triggerDay) {
         if (!environmentContext.isOpenJobSchedule()) {
             return;
@@ -80,6 +106,9 @@ public class CycleJobBuilder extends AbstractJobBuilder {
             Semaphore sph = new Semaphore(environmentContext.getMaxTaskBuildThread());
             CountDownLatch ctl = new CountDownLatch(totalBatch);
             AtomicJobSortWorker sortWorker = new AtomicJobSortWorker();
+            // 本次生成涉及的任务，结束后清理已删除任务的模板
+            Set<Long> buildTaskIds = ConcurrentHashMap.newKeySet();
+            long startTime = System.currentTimeMillis();
 
             // 3. 查询db多线程生成周期实例
             Long startId = 0L;
@@ -101,16 +130,27 @@ public class CycleJobBuilder extends AbstractJobBuilder {
                     sph.acquire();
                     jobGraphBuildPool.submit(()->{
                         try {
+                            Map<Long, JobBuildTemplate> templates = loadTemplates(batchTaskShades, buildTaskIds);
+                            Map<Long, List<ScheduleJobDetails>> taskJobDetails = new LinkedHashMap<>(batchTaskShades.size());
                             for (ScheduleTaskShade batchTaskShade : batchTaskShades) {
                                 try {
-                                    List<ScheduleJobDetails> scheduleJobDetails = RetryUtil.executeWithRetry(() -> buildJob(batchTaskShade, triggerDay, sortWorker),
+                                    JobBuildTemplate template = templates.get(batchTaskShade.getTaskId());
+                                    List<ScheduleJobDetails> scheduleJobDetails = RetryUtil.executeWithRetry(() -> template != null
+                                                    ? buildJob(template, "", triggerDay, "00:00", "23:59", 0L, sortWorker)
+                                                    : buildJob(batchTaskShade, triggerDay, sortWorker),
                                             environmentContext.getBuildJobErrorRetry(), 200, false);
-                                    // 插入周期实例
-                                    savaJobList(scheduleJobDetails);
+                                    taskJobDetails.put(batchTaskShade.getTaskId(), scheduleJobDetails);
                                 } catch (Throwable e) {
                                     LOGGER.error("build task failure taskId:{}",batchTaskShade.getTaskId(), e);
                                 }
                             }
+                            // 整批插入周期实例，失败时逐个任务插入未提交的实例，一个任务的错误不影响其他任务
+                            try {
+                                savaJobList(flatJobDetails(taskJobDetails.values()));
+                            } catch (Throwable e) {
+                                LOGGER.error("save batch job failure, retry by task", e);
+                                saveJobListByTask(taskJobDetails);
+                            }
                         } catch (Throwable e) {
                             LOGGER.error("!!! buildTaskJobGraph  build job error !!!", e);
                         } finally {
@@ -124,6 +164,8 @@ public class CycleJobBuilder extends AbstractJobBuilder {
                 }
             }
             ctl.await();
+            templateCache.keySet().retainAll(buildTaskIds);
+            LOGGER.info("{} build job graph cost:{}ms, templates:{}", triggerTimeStr, System.currentTimeMillis() - startTime, templateCache.size());
 
             // 循环已经结束，说明周期实例已经全部生成了
             saveJobGraph(triggerDay);
@@ -135,6 +177,125 @@ public class CycleJobBuilder extends AbstractJobBuilder {
         }
     }
 
+    /**
+     * 获得一批任务的模板
+     * 工作流子任务、上游依赖和上游任务都按批查询，签名没有变化的任务复用上一次的模板
+     *
+     * @param batchTaskShades 任务
+     * @param buildTaskIds    本次生成涉及的任务
+     * @return taskId -> 模板，模板生成失败的任务不在其中
+     */
+    private Map<Long, JobBuildTemplate> loadTemplates(List<ScheduleTaskShade> batchTaskShades, Set<Long> buildTaskIds) {
+        String keyPreStr = getKeyPreStr("");
+        List<Long> taskIds = Lists.newArrayList();
+        List<Long> flowTaskIds = Lists.newArrayList();
+        for (ScheduleTaskShade batchTaskShade : batchTaskShades) {
+            taskIds.add(batchTaskShade.getTaskId());
+            if (EScheduleJobType.WORK_FLOW.getVal().equals(batchTaskShade.getTaskType())) {
+                flowTaskIds.add(batchTaskShade.getTaskId());
+            }
+        }
+
+        // 工作流子任务
+        Map<Long, List<ScheduleTaskShade>> subTaskMap = new HashMap<>(flowTaskIds.size());
+        if (CollectionUtils.isNotEmpty(flowTaskIds)) {
+            List<ScheduleTaskShade> subTasks = scheduleTaskService.lambdaQuery()
+                    .in(ScheduleTaskShade::getFlowId, flowTaskIds)
+                    .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list();
+            for (ScheduleTaskShade subTask : subTasks) {
+                subTaskMap.computeIfAbsent(subTask.getFlowId(), k -> Lists.newArrayList()).add(subTask);
+                taskIds.add(subTask.getTaskId());
+            }
+        }
+        buildTaskIds.addAll(taskIds);
+
+        // 上游任务
+        List<ScheduleTaskTaskShade> taskTaskShades = scheduleTaskTaskService.lambdaQuery()
+                .in(ScheduleTaskTaskShade::getTaskId, taskIds)
+                .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+        Map<Long, ScheduleTaskShade> parentTaskMap = new HashMap<>(taskTaskShades.size());
+        if (CollectionUtils.isNotEmpty(taskTaskShades)) {
+            Set<Long> parentTaskIds = Sets.newHashSet();
+            taskTaskShades.forEach(taskTaskShade -> parentTaskIds.add(taskTaskShade.getParentTaskId()));
+            scheduleTaskService.lambdaQuery()
+                    .in(ScheduleTaskShade::getTaskId, parentTaskIds)
+                    .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list()
+                    .forEach(parentTask -> parentTaskMap.put(parentTask.getTaskId(), parentTask));
+        }
+        Map<Long, List<ScheduleTaskShade>> parentsMap = new HashMap<>(taskIds.size());
+        for (ScheduleTaskTaskShade taskTaskShade : taskTaskShades) {
+            ScheduleTaskShade parentTask = parentTaskMap.get(taskTaskShade.getParentTaskId());
+            if (parentTask != null) {
+                parentsMap.computeIfAbsent(taskTaskShade.getTaskId(), k -> Lists.newArrayList()).add(parentTask);
+            }
+        }
+
+        Map<Long, JobBuildTemplate> templates = new HashMap<>(batchTaskShades.size());
+        for (ScheduleTaskShade batchTaskShade : batchTaskShades) {
+            try {
+                List<JobBuildTemplate> subTemplates = Lists.newArrayList();
+                for (ScheduleTaskShade subTask : subTaskMap.getOrDefault(batchTaskShade.getTaskId(), Collections.emptyList())) {
+                    // 子任务使用工作流的周期
+                    subTemplates.add(getTemplate(subTask, batchTaskShade.getScheduleConf(), parentsMap.get(subTask.getTaskId()), Collections.emptyList(), keyPreStr));
+                }
+                templates.put(batchTaskShade.getTaskId(), getTemplate(batchTaskShade, batchTaskShade.getScheduleConf(),
+                        parentsMap.get(batchTaskShade.getTaskId()), subTemplates, keyPreStr));
+            } catch (Exception e) {
+                // 不使用模板，生成实例时按原有方式查询，失败原因在生成实例时记录
+                LOGGER.warn("build template failure taskId:{}", batchTaskShade.getTaskId(), e);
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * 签名没有变化时复用缓存的模板，否则重新解析周期并生成依赖处理器
+     */
+    private JobBuildTemplate getTemplate(ScheduleTaskShade taskShade, String scheduleConf, List<ScheduleTaskShade> parentTasks,
+                                         List<JobBuildTemplate> subTemplates, String keyPreStr) throws Exception {
+        if (parentTasks != null) {
+            parentTasks.sort(Comparator.comparing(ScheduleTaskShade::getTaskId));
+        }
+        String signature = buildSignature(taskShade, scheduleConf, parentTasks, subTemplates);
+        JobBuildTemplate template = templateCache.get(taskShade.getTaskId());
+        if (template != null && signature.equals(template.getSignature())) {
+            return template;
+        }
+
+        ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleConf);
+        JobDependency jobDependency = dependencyManager.getDependencyHandler(keyPreStr, taskShade, corn, parentTasks);
+        template = new JobBuildTemplate(taskShade, corn, jobDependency, subTemplates, signature);
+        templateCache.put(taskShade.getTaskId(), template);
+        return template;
+    }
+
+    /**
+     * 模板签名，包含生成实例用到的任务字段、调度周期、上游任务及其周期、工作流子任务的签名
+     */
+    private String buildSignature(ScheduleTaskShade taskShade, String scheduleConf, List<ScheduleTaskShade> parentTasks,
+                                  List<JobBuildTemplate> subTemplates) {
+        StringBuilder signature = new StringBuilder(256)
+                .append(taskShade.getTenantId()).append('|')
+                .append(taskShade.getName()).append('|')
+                .append(taskShade.getTaskType()).append('|')
+                .append(taskShade.getComputeType()).append('|')
+                .append(taskShade.getVersionId()).append('|')
+                .append(taskShade.getCreateUserId()).append('|')
+                .append(scheduleConf);
+        if (parentTasks != null) {
+            for (ScheduleTaskShade parentTask : parentTasks) {
+                signature.append('|').append(parentTask.getTaskId()).append(':').append(parentTask.getScheduleConf());
+            }
+        }
+        for (JobBuildTemplate subTemplate : subTemplates) {
+            signature.append('|').append(subTemplate.getSignature());
+        }
+        return Hashing.murmur3_128().hashString(signature, StandardCharsets.UTF_8).toString();
+    }
+
     private void clearInterruptJob(Timestamp triggerDay) {
         String date = DateUtil.getUnStandardFormattedDate(triggerDay.getTime());
         Long startExecuteOrder = JobExecuteOrderUtil.buildJobExecuteOrder(date, 0);
@@ -143,24 +304,53 @@ public class CycleJobBuilder extends AbstractJobBuilder {
     }
 
     /**
-     * 保存周期实例
+     * 保存周期实例，每批实例单独提交
      *
-     * @param scheduleJobDetails 实例详情
+     * @param scheduleJobDetails 实例详情，包含工作流子实例
      */
-    @Transactional(rollbackFor = Exception.class)
     @DtDruidRemoveAbandoned
     public void savaJobList(List<ScheduleJobDetails> scheduleJobDetails) {
-        List<ScheduleJobDetails> savaJobDetails = Lists.newArrayList();
-        for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
-            savaJobDetails.add(scheduleJobDetail);
-            List<ScheduleJobDetails> flowBean = scheduleJobDetail.getFlowBean();
+        scheduleJobService.insertJobList(scheduleJobDetails, getType());
+    }
 
-            if (CollectionUtils.isNotEmpty(flowBean)) {
-                savaJobDetails.addAll(flowBean);
+    /**
+     * 逐个任务保存没有提交的实例
+     *
+     * @param taskJobDetails taskId -> 任务的实例
+     */
+    private void saveJobListByTask(Map<Long, List<ScheduleJobDetails>> taskJobDetails) {
+        for (Map.Entry<Long, List<ScheduleJobDetails>> entry : taskJobDetails.entrySet()) {
+            // 已经提交的实例 id 不为空
+            List<ScheduleJobDetails> unsavedJobDetails = flatJobDetails(Collections.singletonList(entry.getValue())).stream()
+                    .filter(jobDetails -> jobDetails.getScheduleJob().getId() == null)
+                    .collect(Collectors.toList());
+            if (unsavedJobDetails.isEmpty()) {
+                continue;
+            }
+            try {
+                savaJobList(unsavedJobDetails);
+            } catch (Throwable e) {
+                LOGGER.error("save task job failure taskId:{}", entry.getKey(), e);
             }
         }
+    }
 
-        scheduleJobService.insertJobList(savaJobDetails, getType());
+    /**
+     * 展开工作流子实例
+     */
+    private List<ScheduleJobDetails> flatJobDetails(Collection<List<ScheduleJobDetails>> scheduleJobDetailsList) {
+        List<ScheduleJobDetails> savaJobDetails = Lists.newArrayList();
+        for (List<ScheduleJobDetails> scheduleJobDetails : scheduleJobDetailsList) {
+            for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
+                savaJobDetails.add(scheduleJobDetail);
+                List<ScheduleJobDetails> flowBean = scheduleJobDetail.getFlowBean();
+
+                if (CollectionUtils.isNotEmpty(flowBean)) {
+                    savaJobDetails.addAll(flowBean);
+                }
+            }
+        }
+        return savaJobDetails;
     }
 
     /**
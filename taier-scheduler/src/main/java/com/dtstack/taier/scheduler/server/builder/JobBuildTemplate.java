@@ -0,0 +1,71 @@
+package com.dtstack.taier.scheduler.server.builder;
+
+import com.dtstack.taier.dao.domain.ScheduleTaskShade;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
+import com.dtstack.taier.scheduler.server.builder.dependency.JobDependency;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 任务生成实例的模板
+ * 包含解析好的调度周期和依赖处理器，与生成的日期无关，任务、周期、上游任务不变时可以重复使用
+ *
+ * Company: www.dtstack.com
+ */
+public class JobBuildTemplate {
+
+    /**
+     * 模板对应的任务
+     */
+    private final ScheduleTaskShade taskShade;
+
+    /**
+     * 调度周期，工作流子任务使用工作流的周期
+     */
+    private final ScheduleCorn corn;
+
+    /**
+     * 依赖处理器链
+     */
+    private final JobDependency jobDependency;
+
+    /**
+     * 工作流子任务的模板
+     */
+    private final List<JobBuildTemplate> subTemplates;
+
+    /**
+     * 任务、周期和上游任务的签名，签名不变时模板可以复用
+     */
+    private final String signature;
+
+    public JobBuildTemplate(ScheduleTaskShade taskShade, ScheduleCorn corn, JobDependency jobDependency,
+                            List<JobBuildTemplate> subTemplates, String signature) {
+        this.taskShade = taskShade;
+        this.corn = corn;
+        this.jobDependency = jobDependency;
+        this.subTemplates = subTemplates == null ? Collections.emptyList() : subTemplates;
+        this.signature = signature;
+    }
+
+    public ScheduleTaskShade getTaskShade() {
+        return taskShade;
+    }
+
+    public ScheduleCorn getCorn() {
+        return corn;
+    }
+
+    public JobDependency getJobDependency() {
+        return jobDependency;
+    }
+
+    public List<JobBuildTemplate> getSubTemplates() {
+        return subTemplates;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+}
@@ -6,10 +6,14 @@ import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.model.time.ExecutionTime;
 import com.cronutils.parser.CronParser;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static com.cronutils.model.CronType.QUARTZ;
 
@@ -21,7 +25,14 @@ import static com.cronutils.model.CronType.QUARTZ;
  */
 public class ScheduleCorn {
 
-    private final CronDefinition CRON_DEFINITION = CronDefinitionBuilder.instanceDefinitionFor(QUARTZ);
+    private static final CronDefinition CRON_DEFINITION = CronDefinitionBuilder.instanceDefinitionFor(QUARTZ);
+
+    /**
+     * 解析后的cron表达式，生成周期实例时同一个表达式会被计算成千上万次，不需要每次都重新解析
+     */
+    private static final Cache<String, ExecutionTime> EXECUTION_TIME_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(2000)
+            .build();
 
     /**
      * cron表达式
@@ -43,11 +54,7 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
-
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
-        ZonedDateTime zonedDateTime = executionTime.lastExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
+        ZonedDateTime zonedDateTime = getExecutionTime().lastExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
 
         if (zonedDateTime == null) {
             return null;
@@ -66,11 +73,7 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
-
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
-        ZonedDateTime zonedDateTime = executionTime.nextExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
+        ZonedDateTime zonedDateTime = getExecutionTime().nextExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
 
         if (zonedDateTime == null) {
             return null;
@@ -87,11 +90,47 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
+        return getExecutionTime().isMatch(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
+    }
+
+    /**
+     * 一次遍历获得[startDate, endDate]内的所有执行时间，额外返回endDate之后的第一次执行时间(没有则不返回)，
+     * 用于生成一整天的实例时计算每个实例的下一个周期
+     *
+     * @param startDate 开始时间(包含)
+     * @param endDate 结束时间(包含)
+     * @return 按时间排序的执行时间
+     */
+    public List<Date> listTriggerTimes(Date startDate, Date endDate) {
+        List<Date> triggerTimes = new ArrayList<>();
+        if (startDate == null || endDate == null) {
+            return triggerTimes;
+        }
+
+        ExecutionTime executionTime = getExecutionTime();
+        ZonedDateTime end = ZonedDateTime.ofInstant(endDate.toInstant(), ZoneId.systemDefault());
+        ZonedDateTime next = ZonedDateTime.ofInstant(startDate.toInstant(), ZoneId.systemDefault());
+        if (!executionTime.isMatch(next)) {
+            next = executionTime.nextExecution(next).orElse(null);
+        }
+        while (next != null) {
+            triggerTimes.add(Date.from(next.toInstant()));
+            if (next.isAfter(end)) {
+                break;
+            }
+            next = executionTime.nextExecution(next).orElse(null);
+        }
+        return triggerTimes;
+    }
 
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
-        return executionTime.isMatch(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
+    private ExecutionTime getExecutionTime() {
+        ExecutionTime executionTime = EXECUTION_TIME_CACHE.getIfPresent(cron);
+        if (executionTime == null) {
+            Cron quartzCron = new CronParser(CRON_DEFINITION).parse(cron);
+            executionTime = ExecutionTime.forCron(quartzCron);
+            EXECUTION_TIME_CACHE.put(cron, executionTime);
+        }
+        return executionTime;
     }
 
     public String getCron() {
@@ -60,7 +60,19 @@ public class DependencyManager {
                     .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
                     .list();
         }
+        return getDependencyHandler(keyPreStr, currentTaskShade, corn, taskShadeList);
+    }
 
+    /**
+     * 获得依赖处理器链，上游任务由调用方查询
+     *
+     * @param keyPreStr        前缀
+     * @param currentTaskShade 任务
+     * @param corn             执行周期
+     * @param taskShadeList    上游任务
+     * @return 依赖处理器链
+     */
+    public JobDependency getDependencyHandler(String keyPreStr, ScheduleTaskShade currentTaskShade, ScheduleCorn corn, List<ScheduleTaskShade> taskShadeList) {
         // 上游任务的依赖处理器
         JobDependency jobDependency = new UpstreamDependencyHandler(keyPreStr, currentTaskShade,scheduleJobService,taskShadeList);
 
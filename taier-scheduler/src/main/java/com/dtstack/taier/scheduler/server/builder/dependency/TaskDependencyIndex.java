@@ -0,0 +1,329 @@
+package com.dtstack.taier.scheduler.server.builder.dependency;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
+import com.dtstack.taier.scheduler.service.ScheduleTaskTaskService;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 任务依赖关系的内存索引
+ * 第一次使用时全量加载 schedule_task_task_shade，之后每次查询前比较 (行数, 最大id, id之和) 版本：
+ * 任务保存依赖时先删除再插入，id 大于已加载最大 id 的行对应的任务只重新加载这些任务的上游；
+ * 增量加载后行数或 id 之和仍然对不上（其他任务的依赖被物理删除）时全量重新加载。
+ * 本节点保存、删除任务依赖后调用 {@link #invalidate()}，下次查询时全量重新加载
+ *
+ * Company: www.dtstack.com
+ */
+@Component
+public class TaskDependencyIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskDependencyIndex.class);
+
+    /**
+     * in 查询每批的最大数量
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    @Autowired
+    private ScheduleTaskTaskService scheduleTaskTaskService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * taskId -> 下游任务
+     */
+    private final Map<Long, Set<Long>> children = new HashMap<>();
+
+    /**
+     * taskId -> 上游任务
+     */
+    private final Map<Long, Set<Long>> parents = new HashMap<>();
+
+    /**
+     * taskId -> 该任务的依赖行 id，用于增量加载后核对版本
+     */
+    private final Map<Long, List<Long>> rowIds = new HashMap<>();
+
+    private boolean loaded = false;
+
+    private long loadedCount = 0L;
+
+    private long loadedMaxId = 0L;
+
+    private long loadedSumId = 0L;
+
+    /**
+     * 检查版本，依赖有变化时刷新索引
+     */
+    public void refresh() {
+        Map<String, Object> version = scheduleTaskTaskService.getMap(Wrappers.<ScheduleTaskTaskShade>query()
+                .select("count(1) as edgeCount", "coalesce(max(id), 0) as maxId", "coalesce(sum(id), 0) as sumId")
+                .eq("is_deleted", Deleted.NORMAL.getStatus()));
+        long count = versionValue(version, "edgeCount");
+        long maxId = versionValue(version, "maxId");
+        long sumId = versionValue(version, "sumId");
+
+        lock.writeLock().lock();
+        try {
+            if (loaded && count == loadedCount && maxId == loadedMaxId && sumId == loadedSumId) {
+                return;
+            }
+            if (loaded && maxId > loadedMaxId) {
+                loadIncrement(maxId);
+                if (loadedCount == count && loadedSumId == sumId) {
+                    return;
+                }
+            }
+            loadAll(count, maxId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 任务依赖保存或删除后调用，下次查询时全量重新加载
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从 roots 开始广度遍历，获得能到达的所有边
+     *
+     * @param roots 开始的任务
+     * @return 上游任务 -> 下游任务，没有下游的任务不在其中
+     */
+    public Map<Long, List<Long>> getChildSide(Collection<Long> roots) {
+        refresh();
+        Map<Long, List<Long>> nodeSide = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> visited = new HashSet<>(roots);
+            Deque<Long> queue = new ArrayDeque<>(roots);
+            while (!queue.isEmpty()) {
+                Long taskId = queue.poll();
+                Set<Long> childTaskIds = children.get(taskId);
+                if (CollectionUtils.isEmpty(childTaskIds)) {
+                    continue;
+                }
+                nodeSide.put(taskId, Lists.newArrayList(childTaskIds));
+                for (Long childTaskId : childTaskIds) {
+                    if (visited.add(childTaskId)) {
+                        queue.add(childTaskId);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return nodeSide;
+    }
+
+    /**
+     * 获得 roots 在 maxDepth 层以内的所有下游任务
+     *
+     * @param roots    开始的任务
+     * @param maxDepth 最大层数
+     * @return 下游任务，不包含 roots
+     */
+    public Set<Long> listDescendants(Collection<Long> roots, int maxDepth) {
+        refresh();
+        Set<Long> descendants = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> visited = new HashSet<>(roots);
+            List<Long> currentLevel = Lists.newArrayList(roots);
+            for (int depth = 1; depth <= maxDepth && !currentLevel.isEmpty(); depth++) {
+                List<Long> nextLevel = Lists.newArrayList();
+                for (Long taskId : currentLevel) {
+                    for (Long childTaskId : children.getOrDefault(taskId, Collections.emptySet())) {
+                        if (visited.add(childTaskId)) {
+                            descendants.add(childTaskId);
+                            nextLevel.add(childTaskId);
+                        }
+                    }
+                }
+                currentLevel = nextLevel;
+            }
+            if (!currentLevel.isEmpty()) {
+                LOGGER.warn("roots:{} descendants reach max depth {}", roots, maxDepth);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return descendants;
+    }
+
+    /**
+     * 查找边集合中的环
+     *
+     * @param nodeSide 上游任务 -> 下游任务
+     * @return 环上的一个任务，没有环返回 null
+     */
+    public static Long findCycle(Map<Long, List<Long>> nodeSide) {
+        // 0 未访问 1 访问中 2 已完成
+        Map<Long, Integer> states = new HashMap<>(nodeSide.size());
+        for (Long start : nodeSide.keySet()) {
+            if (states.containsKey(start)) {
+                continue;
+            }
+            Deque<Long> path = new ArrayDeque<>();
+            Deque<PathCursor> cursors = new ArrayDeque<>();
+            states.put(start, 1);
+            path.push(start);
+            cursors.push(new PathCursor(nodeSide.getOrDefault(start, Collections.emptyList())));
+            while (!path.isEmpty()) {
+                PathCursor cursor = cursors.peek();
+                if (cursor.hasNext()) {
+                    Long next = cursor.next();
+                    Integer state = states.get(next);
+                    if (state == null) {
+                        states.put(next, 1);
+                        path.push(next);
+                        cursors.push(new PathCursor(nodeSide.getOrDefault(next, Collections.emptyList())));
+                    } else if (state == 1) {
+                        return next;
+                    }
+                } else {
+                    states.put(path.pop(), 2);
+                    cursors.pop();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void loadAll(long count, long maxId) {
+        long startTime = System.currentTimeMillis();
+        children.clear();
+        parents.clear();
+        rowIds.clear();
+        List<ScheduleTaskTaskShade> taskTaskShades = scheduleTaskTaskService.lambdaQuery()
+                .select(ScheduleTaskTaskShade::getId, ScheduleTaskTaskShade::getTaskId, ScheduleTaskTaskShade::getParentTaskId)
+                .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+        long loadMaxId = 0L;
+        long loadSumId = 0L;
+        for (ScheduleTaskTaskShade taskTaskShade : taskTaskShades) {
+            addEdge(taskTaskShade.getParentTaskId(), taskTaskShade.getTaskId());
+            rowIds.computeIfAbsent(taskTaskShade.getTaskId(), k -> Lists.newArrayList()).add(taskTaskShade.getId());
+            loadMaxId = Math.max(loadMaxId, taskTaskShade.getId());
+            loadSumId += taskTaskShade.getId();
+        }
+        loaded = true;
+        loadedCount = taskTaskShades.size();
+        loadedMaxId = loadMaxId;
+        loadedSumId = loadSumId;
+        LOGGER.info("load task dependency index edges:{} (version count:{} maxId:{}) cost:{}ms", loadedCount, count, maxId, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 重新加载 id 大于已加载最大 id 的行所属任务的上游
+     */
+    private void loadIncrement(long maxId) {
+        Set<Long> changedTaskIds = scheduleTaskTaskService.lambdaQuery()
+                .select(ScheduleTaskTaskShade::getTaskId)
+                .gt(ScheduleTaskTaskShade::getId, loadedMaxId)
+                .le(ScheduleTaskTaskShade::getId, maxId)
+                .list()
+                .stream()
+                .map(ScheduleTaskTaskShade::getTaskId)
+                .collect(Collectors.toSet());
+        for (Long taskId : changedTaskIds) {
+            Set<Long> oldParents = parents.remove(taskId);
+            if (oldParents != null) {
+                for (Long parentTaskId : oldParents) {
+                    removeEdge(parentTaskId, taskId);
+                }
+            }
+            List<Long> oldRowIds = rowIds.remove(taskId);
+            if (oldRowIds != null) {
+                loadedCount -= oldRowIds.size();
+                loadedSumId -= oldRowIds.stream().mapToLong(Long::longValue).sum();
+            }
+        }
+        for (List<Long> partition : Lists.partition(Lists.newArrayList(changedTaskIds), QUERY_BATCH_SIZE)) {
+            List<ScheduleTaskTaskShade> taskTaskShades = scheduleTaskTaskService.lambdaQuery()
+                    .select(ScheduleTaskTaskShade::getId, ScheduleTaskTaskShade::getTaskId, ScheduleTaskTaskShade::getParentTaskId)
+                    .in(ScheduleTaskTaskShade::getTaskId, partition)
+                    .le(ScheduleTaskTaskShade::getId, maxId)
+                    .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list();
+            for (ScheduleTaskTaskShade taskTaskShade : taskTaskShades) {
+                addEdge(taskTaskShade.getParentTaskId(), taskTaskShade.getTaskId());
+                rowIds.computeIfAbsent(taskTaskShade.getTaskId(), k -> Lists.newArrayList()).add(taskTaskShade.getId());
+                loadedCount++;
+                loadedSumId += taskTaskShade.getId();
+            }
+        }
+        loadedMaxId = maxId;
+        LOGGER.info("reload task dependency of tasks:{} edges:{}", changedTaskIds, loadedCount);
+    }
+
+    private static long versionValue(Map<String, Object> version, String key) {
+        Object value = version == null ? null : version.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private void addEdge(Long parentTaskId, Long taskId) {
+        children.computeIfAbsent(parentTaskId, k -> new LinkedHashSet<>()).add(taskId);
+        parents.computeIfAbsent(taskId, k -> new LinkedHashSet<>()).add(parentTaskId);
+    }
+
+    private void removeEdge(Long parentTaskId, Long taskId) {
+        Set<Long> childTaskIds = children.get(parentTaskId);
+        if (childTaskIds != null) {
+            childTaskIds.remove(taskId);
+            if (childTaskIds.isEmpty()) {
+                children.remove(parentTaskId);
+            }
+        }
+    }
+
+    /**
+     * 非递归深度遍历时记录每个节点的遍历位置
+     */
+    private static class PathCursor {
+
+        private final List<Long> nodes;
+
+        private int index = 0;
+
+        PathCursor(List<Long> nodes) {
+            this.nodes = nodes;
+        }
+
+        boolean hasNext() {
+            return index < nodes.size();
+        }
+
+        Long next() {
+            return nodes.get(index++);
+        }
+    }
+}
@@ -77,7 +77,7 @@ public class UpstreamDependencyHandler extends AbstractJobDependency {
         ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
         // 上一个周期
         Date lastDate = corn.isMatch(currentDate) ? currentDate : corn.last(currentDate);
-        String lastDateStr = DateUtil.getDate(corn.isMatch(currentDate) ? currentDate : corn.last(currentDate), DateUtil.STANDARD_DATETIME_FORMAT);
+        String lastDateStr = DateUtil.getDate(lastDate, DateUtil.STANDARD_DATETIME_FORMAT);
 
         if (StringUtils.isBlank(lastDateStr)) {
             throw new RdosDefineException("no find upstream task of last cycle");
@@ -43,6 +43,7 @@ import org.springframework.stereotype.Component;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -113,6 +114,28 @@ public class JobSchedulerListener implements DisposableBean, ApplicationListener
         return allNodeJobInfo;
     }
 
+    /**
+     * 取消本节点队列中等待提交的实例
+     *
+     * @param jobIds 实例id
+     */
+    public void removeQueuedJobs(Collection<String> jobIds) {
+        for (AbstractJobSummitScheduler scheduler : executors) {
+            scheduler.removeJobs(jobIds);
+        }
+    }
+
+    /**
+     * 取消本节点队列中等待提交的属于指定任务的实例
+     *
+     * @param taskIds 任务id
+     */
+    public void removeQueuedJobsByTaskIds(Collection<Long> taskIds) {
+        for (AbstractJobSummitScheduler scheduler : executors) {
+            scheduler.removeJobsByTaskIds(taskIds);
+        }
+    }
+
     public Pair<String, String> getCycTimeLimit() {
         Integer dayGap = environmentContext.getJobCycTimeGap();
         Calendar calendar = Calendar.getInstance();
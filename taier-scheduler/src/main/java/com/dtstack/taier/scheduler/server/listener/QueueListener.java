@@ -24,6 +24,8 @@ import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.scheduler.jobdealer.JobDealer;
 import com.dtstack.taier.scheduler.server.queue.GroupInfo;
 import com.dtstack.taier.scheduler.server.queue.QueueInfo;
+import com.dtstack.taier.scheduler.zookeeper.ZkService;
+import com.dtstack.taier.scheduler.zookeeper.data.BrokerQueueNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -50,6 +52,10 @@ public class QueueListener implements InitializingBean, Runnable {
     private int logOutput = 0;
     private final static int MULTIPLES = 10;
     private final static int CHECK_INTERVAL = 5000;
+    /**
+     * 快照超过多少个推送周期没有更新认为已过期
+     */
+    private final static int SNAPSHOT_EXPIRE_MULTIPLES = 6;
 
     @Autowired
     private JobSchedulerListener jobExecutorTrigger;
@@ -60,6 +66,9 @@ public class QueueListener implements InitializingBean, Runnable {
     @Autowired
     private EnvironmentContext environmentContext;
 
+    @Autowired
+    private ZkService zkService;
+
     private boolean checkJobMaxPriorityStrategy = false;
 
     private ScheduledExecutorService scheduledService;
@@ -67,6 +76,12 @@ public class QueueListener implements InitializingBean, Runnable {
     private volatile Map<Integer, Map<String, QueueInfo>> allNodesJobQueueTypes = new HashMap<>();
     private volatile Map<String, Map<String, GroupInfo>> allNodesGroupQueueJobResources = new HashMap<>();
 
+    /**
+     * 最近一次读取时，最旧快照的延迟（毫秒）和过期快照的节点数
+     */
+    private volatile long maxSnapshotDelay = 0L;
+    private volatile int expiredSnapshotCount = 0;
+
     @Override
     public void afterPropertiesSet() throws Exception {
         checkJobMaxPriorityStrategy = environmentContext.isCheckJobMaxPriorityStrategy();
@@ -105,15 +120,28 @@ public class QueueListener implements InitializingBean, Runnable {
             LOGGER.error("allNodesJobQueueInfo error:", e);
         }
 
+        publishLocalGroupQueueInfo();
+
         if (checkJobMaxPriorityStrategy) {
             computeAllNodesGroupQueueJobResources();
         }
     }
 
+    /**
+     * 推送本节点的队列快照，其他节点读取快照即可，不需要再按节点和计算资源查询 db
+     */
+    private void publishLocalGroupQueueInfo() {
+        try {
+            zkService.updateLocalBrokerQueueNode(BrokerQueueNode.initBrokerQueueNode(jobDealer.getLocalGroupQueueInfo()));
+        } catch (Throwable e) {
+            LOGGER.error("publishLocalGroupQueueInfo error:", e);
+        }
+    }
+
 
     private void computeAllNodesGroupQueueJobResources() {
         try {
-            Map<String, Map<String, GroupInfo>> allNodesGroupQueueInfo = jobDealer.getAllNodesGroupQueueInfo();
+            Map<String, Map<String, GroupInfo>> allNodesGroupQueueInfo = getAllNodesGroupQueueInfoFromSnapshot();
             if (allNodesGroupQueueInfo != null) {
                 Map<String, Map<String, GroupInfo>> tmpAllNodesGroupQueueJobResources = new HashMap<>();
                 allNodesGroupQueueInfo.forEach((address, jobResourceGroupQueueInfo) -> {
@@ -133,6 +161,46 @@ public class QueueListener implements InitializingBean, Runnable {
         }
     }
 
+    /**
+     * 读取所有节点推送的队列快照，过期的快照忽略
+     * key1: nodeAddress,
+     * key2: jobResource
+     */
+    private Map<String, Map<String, GroupInfo>> getAllNodesGroupQueueInfoFromSnapshot() {
+        long now = System.currentTimeMillis();
+        long expireTime = (long) CHECK_INTERVAL * SNAPSHOT_EXPIRE_MULTIPLES;
+        long maxDelay = 0L;
+        int expiredCount = 0;
+        Map<String, Map<String, GroupInfo>> allNodeGroupInfo = new HashMap<>();
+        for (Map.Entry<String, BrokerQueueNode> entry : zkService.getAllBrokerQueueNode().entrySet()) {
+            BrokerQueueNode queueNode = entry.getValue();
+            if (queueNode == null || queueNode.getGmtModified() == null || queueNode.getGroupQueueInfo() == null) {
+                continue;
+            }
+            long delay = now - queueNode.getGmtModified();
+            if (delay > expireTime) {
+                expiredCount++;
+                continue;
+            }
+            maxDelay = Math.max(maxDelay, delay);
+            allNodeGroupInfo.put(entry.getKey(), queueNode.getGroupQueueInfo());
+        }
+        this.maxSnapshotDelay = maxDelay;
+        this.expiredSnapshotCount = expiredCount;
+        if (LogCountUtil.count(logOutput, MULTIPLES)) {
+            LOGGER.info("group queue snapshot nodes:{} maxDelay:{}ms expired:{}", allNodeGroupInfo.size(), maxDelay, expiredCount);
+        }
+        return allNodeGroupInfo;
+    }
+
+    public long getMaxSnapshotDelay() {
+        return maxSnapshotDelay;
+    }
+
+    public int getExpiredSnapshotCount() {
+        return expiredSnapshotCount;
+    }
+
     public Map<Integer, Map<String, QueueInfo>> getAllNodesJobQueueInfo() {
         return allNodesJobQueueTypes;
     }
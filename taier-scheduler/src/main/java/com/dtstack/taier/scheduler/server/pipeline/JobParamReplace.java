@@ -19,15 +19,17 @@
 package com.dtstack.taier.scheduler.server.pipeline;
 
 import com.dtstack.taier.common.enums.EParamType;
+import com.dtstack.taier.common.util.ParamPlaceholderUtil;
 import com.dtstack.taier.common.util.TimeParamOperator;
 import com.dtstack.taier.dao.dto.ScheduleTaskParamShade;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * 变量替换
@@ -43,47 +45,41 @@ public class JobParamReplace {
     private static final Logger LOGGER = LoggerFactory.getLogger(JobParamReplace.class);
 
 
-    private static final Pattern PARAM_PATTERN = Pattern.compile("\\$\\{(.*?)\\}|\\@@\\{(.*?)\\}");
-
-    private final static String VAR_FORMAT = "${%s}";
-
-    private final static String VAR_COMPONENT = "@@{%s}";
-
-
     public static String paramReplace(String sql, List<ScheduleTaskParamShade> paramList, String cycTime) {
 
-        if (CollectionUtils.isEmpty(paramList)) {
+        if (CollectionUtils.isEmpty(paramList) || StringUtils.isEmpty(sql)) {
             return sql;
         }
 
-        Matcher matcher = PARAM_PATTERN.matcher(sql);
-        if (!matcher.find()) {
-            return sql;
-        }
-
-        for (Object param : paramList) {
-            Integer type;
-            String paramName;
-            String paramCommand;
-            type = ((ScheduleTaskParamShade) param).getType();
-            paramName = ((ScheduleTaskParamShade) param).getParamName();
-            paramCommand = ((ScheduleTaskParamShade) param).getParamCommand();
-
-            String targetVal = convertParam(type, paramName, paramCommand, cycTime, ((ScheduleTaskParamShade) param).getTaskId());
-            String parseSymbol = convertSymbol(type);
-            String replaceStr = String.format(parseSymbol, paramName);
-            sql = sql.replace(replaceStr, targetVal);
+        // 同名参数以第一个为准
+        Map<String, ScheduleTaskParamShade> varParams = new HashMap<>(paramList.size());
+        Map<String, ScheduleTaskParamShade> componentParams = new HashMap<>(4);
+        for (ScheduleTaskParamShade param : paramList) {
+            if (EParamType.COMPONENT.getType().equals(param.getType())) {
+                componentParams.putIfAbsent(param.getParamName(), param);
+            } else {
+                varParams.putIfAbsent(param.getParamName(), param);
+            }
         }
 
-        return sql;
+        // 只计算文本中用到的参数，同一个参数只计算一次
+        Map<String, String> values = new HashMap<>(paramList.size());
+        return ParamPlaceholderUtil.replace(sql,
+                name -> resolve(varParams.get(name), values, cycTime),
+                componentParams.isEmpty() ? null : name -> resolve(componentParams.get(name), values, cycTime));
     }
 
-    private static String convertSymbol(Integer type) {
-        if (EParamType.COMPONENT.getType().equals(type)) {
-            return VAR_COMPONENT;
-        } else {
-            return VAR_FORMAT;
+    private static String resolve(ScheduleTaskParamShade param, Map<String, String> values, String cycTime) {
+        if (param == null) {
+            return null;
+        }
+        String key = param.getType() + ":" + param.getParamName();
+        String value = values.get(key);
+        if (value == null) {
+            value = convertParam(param.getType(), param.getParamName(), param.getParamCommand(), cycTime, param.getTaskId());
+            values.put(key, value);
         }
+        return value;
     }
 
     public static String convertParam(Integer type, String paramName, String paramCommand, String cycTime, Long taskId) {
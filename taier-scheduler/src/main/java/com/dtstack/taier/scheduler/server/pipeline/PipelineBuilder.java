@@ -20,6 +20,7 @@ package com.dtstack.taier.scheduler.server.pipeline;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleTaskShade;
 import com.dtstack.taier.dao.dto.ScheduleTaskParamShade;
@@ -27,12 +28,15 @@ import com.dtstack.taier.scheduler.server.pipeline.operator.*;
 import com.dtstack.taier.scheduler.server.pipeline.params.FileParamPipeline;
 import com.dtstack.taier.scheduler.server.pipeline.params.JobIdParamPipeline;
 import com.dtstack.taier.scheduler.server.pipeline.params.UploadParamPipeline;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 
 /**
@@ -45,6 +49,9 @@ import java.util.function.Consumer;
  * 在通过key后面的operatorMethod进行顺序操作 如 modelParam 先jobParam替换 在url编码
  * <p>
  * pipeline 的key存在顺序依赖 后续操作依赖前一操作结果
+ * <p>
+ * pipeline 各个节点只保存处理的key，不保存运行时状态，构建好的pipeline按配置内容缓存后在各次提交之间共用
+ * 任务修改pipeline配置后配置内容变化，会按新的配置重新构建
  */
 public class PipelineBuilder {
 
@@ -52,6 +59,27 @@ public class PipelineBuilder {
     private static final String operatorKey = "operator";
     public static final String pipelineKey = "pipeline";
 
+    private static final String DEFAULT_SQL_PIPELINE_CONFIG = "{\n" +
+            "    \"params\":[\n" +
+            "        \"jobId\"\n" +
+            "    ],\n" +
+            "    \"operator\":[\n" +
+            "        {\n" +
+            "            \"sqlText\":[\n" +
+            "                \"jobParam\",\n" +
+            "                \"replace\"\n" +
+            "            ]\n" +
+            "        }\n" +
+            "    ]\n" +
+            "}";
+
+    /**
+     * pipeline配置 -> 构建好的pipeline
+     */
+    private static final Cache<String, CompiledPipeline> COMPILED_PIPELINES = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build();
+
     /**
      * {
      * "params":[
@@ -94,6 +122,18 @@ public class PipelineBuilder {
         if (StringUtils.isBlank(pipelineConfig)) {
             return null;
         }
+        return getCompiledPipeline(pipelineConfig).pipeline;
+    }
+
+    private static CompiledPipeline getCompiledPipeline(String pipelineConfig) {
+        try {
+            return COMPILED_PIPELINES.get(pipelineConfig, () -> new CompiledPipeline(compilePipeline(pipelineConfig), needUpload(pipelineConfig)));
+        } catch (ExecutionException e) {
+            throw new RdosDefineException("build pipeline error:" + pipelineConfig, e.getCause());
+        }
+    }
+
+    private static IPipeline compilePipeline(String pipelineConfig) {
         JSONObject config = JSONObject.parseObject(pipelineConfig);
         JSONArray params = config.getJSONArray(paramKey);
         IPipeline firstPipeline = null;
@@ -183,21 +223,25 @@ public class PipelineBuilder {
         pipelineMap.put(IPipeline.AbstractPipeline.scheduleJobKey, scheduleJob);
         pipelineMap.put(IPipeline.AbstractPipeline.taskShadeKey, scheduleTaskShade);
         pipelineMap.put(IPipeline.AbstractPipeline.taskParamsToReplaceKey, taskParamsToReplace);
-        JSONObject config = JSONObject.parseObject(pipelineConfig);
-        if (null == config || config.size() == 0 || !config.containsKey(paramKey)) {
-            return pipelineMap;
-        }
-        List<String> params = config.getJSONArray(paramKey).toJavaList(String.class);
-        if (CollectionUtils.isEmpty(params)) {
+        if (StringUtils.isBlank(pipelineConfig)) {
             return pipelineMap;
         }
-        if (params.contains(UploadParamPipeline.pipelineKey)) {
+        if (getCompiledPipeline(pipelineConfig).needUpload) {
             //填充upload必要的参数
             uploadConsumer.accept(pipelineMap);
         }
         return pipelineMap;
     }
 
+    private static boolean needUpload(String pipelineConfig) {
+        JSONObject config = JSONObject.parseObject(pipelineConfig);
+        if (null == config || config.size() == 0 || !config.containsKey(paramKey)) {
+            return false;
+        }
+        List<String> params = config.getJSONArray(paramKey).toJavaList(String.class);
+        return CollectionUtils.isNotEmpty(params) && params.contains(UploadParamPipeline.pipelineKey);
+    }
+
 
     /**
      * 默认sql 的组件只有
@@ -218,21 +262,22 @@ public class PipelineBuilder {
      * @return
      */
     public static IPipeline buildDefaultSqlPipeline() {
-        String defaultSqlPipeConfig = "{\n" +
-                "    \"params\":[\n" +
-                "        \"jobId\"\n" +
-                "    ],\n" +
-                "    \"operator\":[\n" +
-                "        {\n" +
-                "            \"sqlText\":[\n" +
-                "                \"jobParam\",\n" +
-                "                \"replace\"\n" +
-                "            ]\n" +
-                "        }\n" +
-                "    ]\n" +
-                "}";
-        return buildPipeline(defaultSqlPipeConfig);
+        return buildPipeline(DEFAULT_SQL_PIPELINE_CONFIG);
     }
 
-}
+    private static class CompiledPipeline {
+
+        private final IPipeline pipeline;
 
+        /**
+         * 是否需要填充上传文件的参数
+         */
+        private final boolean needUpload;
+
+        private CompiledPipeline(IPipeline pipeline, boolean needUpload) {
+            this.pipeline = pipeline;
+            this.needUpload = needUpload;
+        }
+    }
+
+}
@@ -52,10 +52,20 @@ public class GroupPriorityQueue {
 
     private static final int WAIT_INTERVAL = 5000;
 
+    /**
+     * 兜底轮询的间隔，正常情况下由队列消费和任务落库触发补充
+     */
+    private static final int SAFETY_POLL_INTERVAL = WAIT_INTERVAL * 6;
+
+    private static final int REFILL_BATCH_SIZE = 500;
+
     private AtomicBoolean blocked = new AtomicBoolean(false);
 
+    private AtomicBoolean refillPending = new AtomicBoolean(false);
+
     private String jobResource;
     private int queueSizeLimited;
+    private int refillWaterMark;
 
     private ApplicationContext applicationContext;
     private EnvironmentContext environmentContext;
@@ -66,6 +76,7 @@ public class GroupPriorityQueue {
 
     private PriorityBlockingQueue<JobClient> queue = null;
     private JobSubmitDealer jobSubmitDealer = null;
+    private ExecutorService refillExecutor = null;
 
     private GroupPriorityQueue() {
     }
@@ -112,6 +123,13 @@ public class GroupPriorityQueue {
         return queue;
     }
 
+    /**
+     * 资源释放，唤醒因资源不足退避的提交
+     */
+    public void resourceAvailable() {
+        jobSubmitDealer.resourceAvailable();
+    }
+
     public boolean remove(JobClient jobClient) {
         if (queue.remove(jobClient)) {
             return true;
@@ -136,9 +154,33 @@ public class GroupPriorityQueue {
     }
 
     /**
+     * 队列低于水位线并且有任务落到了 db，立即触发一次补充
+     */
+    public void signalRefill() {
+        if (!needRefill(isBlocked(), priorityQueueSize(), refillWaterMark)) {
+            return;
+        }
+        if (refillPending.compareAndSet(false, true)) {
+            refillExecutor.execute(() -> {
+                refillPending.set(false);
+                emitJob2PriorityQueue();
+            });
+        }
+    }
+
+    /**
+     * 只有任务落到了 db（队列 blocked）并且队列低于水位线时才需要补充
+     */
+    static boolean needRefill(boolean blocked, long queueSize, int refillWaterMark) {
+        return blocked && queueSize < refillWaterMark;
+    }
+
+    /**
+     * 按优先级从 db 中补充队列的缺口
+     *
      * @return false: blocked | true: unblocked
      */
-    private boolean emitJob2PriorityQueue() {
+    private synchronized boolean emitJob2PriorityQueue() {
         boolean empty = false;
         String localAddress = "";
         try {
@@ -146,15 +188,23 @@ public class GroupPriorityQueue {
                 return false;
             }
             localAddress = environmentContext.getLocalAddress();
+            Long startPriority = null;
             long startId = 0L;
             outLoop:
             while (true) {
-                List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.listByStage(startId, localAddress, EJobCacheStage.DB.getStage(), jobResource);
+                long deficit = getQueueSizeLimited() - priorityQueueSize();
+                if (deficit <= 0) {
+                    break;
+                }
+                List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.listByStageOrderByPriority(localAddress, EJobCacheStage.DB.getStage(), jobResource,
+                        startPriority, startId, (int) Math.min(deficit, REFILL_BATCH_SIZE));
                 if (CollectionUtils.isEmpty(jobCaches)) {
                     empty = true;
                     break;
                 }
                 for (ScheduleEngineJobCache jobCache : jobCaches) {
+                    startPriority = jobCache.getJobPriority() == null ? 0L : jobCache.getJobPriority();
+                    startId = jobCache.getId();
                     try {
                         ParamAction paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
                         JobClient jobClient = new JobClient(paramAction);
@@ -168,7 +218,6 @@ public class GroupPriorityQueue {
                             empty = false;
                             break outLoop;
                         }
-                        startId = jobCache.getId();
                     } catch (Exception e) {
                         LOGGER.error("", e);
                         //数据转换异常--打日志
@@ -254,7 +303,7 @@ public class GroupPriorityQueue {
     }
 
     /**
-     * 每个GroupPriorityQueue中增加独立线程，以定时调度方式从数据库中获取任务。（数据库查询以id和优先级为条件）
+     * 每个GroupPriorityQueue中增加独立线程，队列消费到水位线以下或者任务落库时从数据库中按优先级补充任务，定时调度只做兜底。
      */
     public GroupPriorityQueue build() {
         this.environmentContext = applicationContext.getBean(EnvironmentContext.class);
@@ -263,6 +312,7 @@ public class GroupPriorityQueue {
         this.workerOperator = applicationContext.getBean(WorkerOperator.class);
 
         this.queueSizeLimited = environmentContext.getQueueSize();
+        this.refillWaterMark = Math.max(1, queueSizeLimited / 2);
 
         checkParams();
 
@@ -273,8 +323,9 @@ public class GroupPriorityQueue {
         scheduledService.scheduleWithFixedDelay(
                 new AcquireGroupQueueJob(),
                 WAIT_INTERVAL * 10L,
-                WAIT_INTERVAL,
+                SAFETY_POLL_INTERVAL,
                 TimeUnit.MILLISECONDS);
+        this.refillExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_Refill"));
 
         ExecutorService jobSubmitService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_JobSubmit"));
         jobSubmitService.submit(jobSubmitDealer);
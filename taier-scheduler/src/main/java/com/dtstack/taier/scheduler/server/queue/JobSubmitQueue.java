@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.server.queue;
+
+import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 实例提交队列
+ * 按 jobId 建立索引，判断实例是否已在队列中为 O(1)，支持按 jobId 取消队列中的实例
+ * 容量由信号量控制，取消的实例立即释放容量，留在队列中的元素在出队时跳过
+ *
+ * Company: www.dtstack.com
+ */
+public class JobSubmitQueue {
+
+    private final Semaphore capacity;
+
+    private final LinkedBlockingQueue<ScheduleJobDetails> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * jobId -> 队列中的实例
+     */
+    private final Map<String, ScheduleJobDetails> index = new ConcurrentHashMap<>();
+
+    public JobSubmitQueue(int capacity) {
+        this.capacity = new Semaphore(capacity);
+    }
+
+    /**
+     * 实例入队，队列已满时阻塞
+     *
+     * @param scheduleJobDetails 实例详情
+     * @return 实例已在队列中返回false
+     */
+    public boolean put(ScheduleJobDetails scheduleJobDetails) throws InterruptedException {
+        String jobId = scheduleJobDetails.getScheduleJob().getJobId();
+        if (index.containsKey(jobId)) {
+            return false;
+        }
+        capacity.acquire();
+        if (index.putIfAbsent(jobId, scheduleJobDetails) != null) {
+            capacity.release();
+            return false;
+        }
+        queue.offer(scheduleJobDetails);
+        return true;
+    }
+
+    /**
+     * 取出一批实例，队列为空时阻塞直到有实例入队
+     *
+     * @param maxSize 一批最多取出的实例数
+     * @return 实例列表
+     */
+    public List<ScheduleJobDetails> takeBatch(int maxSize) throws InterruptedException {
+        List<ScheduleJobDetails> batch = new ArrayList<>(Math.min(maxSize, 16));
+        ScheduleJobDetails scheduleJobDetails = queue.take();
+        do {
+            if (dequeue(scheduleJobDetails)) {
+                batch.add(scheduleJobDetails);
+            }
+        } while (batch.size() < maxSize && (scheduleJobDetails = queue.poll()) != null);
+        return batch;
+    }
+
+    /**
+     * 取消队列中的实例
+     *
+     * @param jobId 实例id
+     * @return 实例在队列中并被取消返回true
+     */
+    public boolean remove(String jobId) {
+        if (index.remove(jobId) != null) {
+            capacity.release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 取消队列中属于指定任务的实例
+     *
+     * @param taskIds 任务id
+     * @return 被取消的实例
+     */
+    public List<String> removeByTaskIds(Collection<Long> taskIds) {
+        List<String> removed = new ArrayList<>();
+        Iterator<Map.Entry<String, ScheduleJobDetails>> iterator = index.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ScheduleJobDetails> entry = iterator.next();
+            if (taskIds.contains(entry.getValue().getScheduleJob().getTaskId()) && index.remove(entry.getKey(), entry.getValue())) {
+                capacity.release();
+                removed.add(entry.getKey());
+            }
+        }
+        return removed;
+    }
+
+    public boolean contains(String jobId) {
+        return index.containsKey(jobId);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 已被取消的实例不在索引中，出队时跳过
+     */
+    private boolean dequeue(ScheduleJobDetails scheduleJobDetails) {
+        String jobId = scheduleJobDetails.getScheduleJob().getJobId();
+        if (index.get(jobId) == scheduleJobDetails && index.remove(jobId, scheduleJobDetails)) {
+            capacity.release();
+            return true;
+        }
+        return false;
+    }
+}
@@ -8,6 +8,7 @@ import com.dtstack.taier.dao.domain.ScheduleTaskShade;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.server.scheduler.dependency.JobDependencyTracker;
 import com.dtstack.taier.scheduler.server.scheduler.interceptor.InterceptorInvocation;
 import com.dtstack.taier.scheduler.server.scheduler.interceptor.SubmitInterceptor;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
@@ -20,11 +21,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -49,6 +58,30 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
     @Autowired
     protected ScheduleTaskShadeService scheduleTaskService;
 
+    @Autowired
+    protected JobDependencyTracker jobDependencyTracker;
+
+    private ScheduledExecutorService scheduledService;
+
+    /**
+     * 是否已经有一次被唤醒的扫描在等待执行
+     */
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+
+    /**
+     * 分片扫描时每个分片一个线程，分片内按顺序处理，未开启分片时为 null
+     */
+    private ExecutorService[] shardLanes;
+
+    /**
+     * 排好序的拦截器
+     */
+    private List<SubmitInterceptor> interceptors;
+
+    private volatile int lastScanCount;
+
+    private volatile long lastScanCost;
+
     /**
      * 获得实例列表
      * @param startSort 开始id
@@ -83,14 +116,19 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
                 return;
             }
             LOGGER.info("scanningJob start scheduleType : {} nodeAddress:{}", getSchedulerName(),nodeAddress);
+            jobDependencyTracker.cleanExpire();
+            long startTime = System.currentTimeMillis();
+            int scanCount = 0;
 
             // 2. 获得排序最小序号
             Long minSort = getMinSort();
             LOGGER.info("scanning start param: scheduleType {} nodeAddress {} minSort {} ", getSchedulerName(), nodeAddress, minSort);
 
             // 3. 扫描实例
+            List<Future<?>> pendingShards = Collections.emptyList();
             List<ScheduleJobDetails> scheduleJobDetails = listExecJob(minSort, nodeAddress, Boolean.TRUE);
             while (CollectionUtils.isNotEmpty(scheduleJobDetails)) {
+                scanCount += scheduleJobDetails.size();
                 // 查询任务
                 List<Long> taskIds = scheduleJobDetails.stream().map(ScheduleJobDetails::getScheduleJob).map(ScheduleJob::getTaskId).collect(Collectors.toList());
                 Map<Long, ScheduleTaskShade> scheduleTaskShadeMap = scheduleTaskService.lambdaQuery()
@@ -101,38 +139,143 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
                         .collect(Collectors.toMap(ScheduleTaskShade::getTaskId, g -> (g)));
 
                 for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
-                    // 提交实例
-                    ScheduleJob scheduleJob = scheduleJobDetail.getScheduleJob();
-                    ScheduleTaskShade scheduleTaskShade = scheduleTaskShadeMap.get(scheduleJob.getTaskId());
-
-                    if (scheduleTaskShade == null) {
-                        String errMsg = JobCheckStatus.NO_TASK.getMsg();
-                        scheduleJobService.updateStatusAndLogInfoById(scheduleJob.getJobId(), TaskStatus.SUBMITFAILD.getStatus(), errMsg);
-                        LOGGER.warn("jobId:{} scheduleType:{} submit failed for taskId:{} already deleted.", scheduleJob.getJobId(), getSchedulerName(), scheduleJob.getTaskId());
-                        continue;
+                    Long jobExecuteOrder = scheduleJobDetail.getScheduleJob().getJobExecuteOrder();
+                    if (minSort < jobExecuteOrder) {
+                        minSort = jobExecuteOrder;
                     }
-                    scheduleJobDetail.setScheduleTaskShade(scheduleTaskShade);
-
-                    // 提交任务
-                    InterceptorInvocation interceptorInvocation = new InterceptorInvocation(this, getInterceptor());
-                    interceptorInvocation.submit(scheduleJobDetail);
+                }
 
-                    if (minSort < scheduleJob.getJobExecuteOrder()) {
-                        minSort = scheduleJob.getJobExecuteOrder();
+                if (shardLanes == null) {
+                    for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
+                        evaluateJob(scheduleJobDetail, scheduleTaskShadeMap);
                     }
+                    scheduleJobDetails = listExecJob(minSort, nodeAddress, Boolean.FALSE);
+                } else {
+                    // 上一页全部处理完之后再分发当前页，查询下一页和当前页的处理并行
+                    waitShards(pendingShards);
+                    pendingShards = dispatchShards(scheduleJobDetails, scheduleTaskShadeMap);
+                    scheduleJobDetails = listExecJob(minSort, nodeAddress, Boolean.FALSE);
                 }
-                scheduleJobDetails = listExecJob(minSort, nodeAddress, Boolean.FALSE);
             }
+            waitShards(pendingShards);
+
+            long cost = System.currentTimeMillis() - startTime;
+            lastScanCount = scanCount;
+            lastScanCost = cost;
+            LOGGER.info("scanningJob end scheduleType:{} shards:{} scanned:{} cost:{}ms rate:{}/s", getSchedulerName(),
+                    shardLanes == null ? 1 : shardLanes.length, scanCount, cost, cost == 0 ? scanCount : scanCount * 1000L / cost);
         } catch (Exception e) {
             LOGGER.error("scheduleType:{} emitJob2Queue error:", getSchedulerName(), e);
         }
     }
 
+    /**
+     * 按任务把一页实例分到各个分片，同一个任务的实例在同一个分片中按顺序处理，保证自依赖的判断顺序
+     */
+    private List<Future<?>> dispatchShards(List<ScheduleJobDetails> scheduleJobDetails, Map<Long, ScheduleTaskShade> scheduleTaskShadeMap) {
+        int shardNum = shardLanes.length;
+        List<List<ScheduleJobDetails>> shards = new ArrayList<>(shardNum);
+        for (int i = 0; i < shardNum; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
+            int shard = (int) Math.floorMod(scheduleJobDetail.getScheduleJob().getTaskId(), (long) shardNum);
+            shards.get(shard).add(scheduleJobDetail);
+        }
+
+        List<Future<?>> futures = new ArrayList<>(shardNum);
+        for (int i = 0; i < shardNum; i++) {
+            List<ScheduleJobDetails> shard = shards.get(i);
+            if (shard.isEmpty()) {
+                continue;
+            }
+            futures.add(shardLanes[i].submit(() -> {
+                for (ScheduleJobDetails scheduleJobDetail : shard) {
+                    try {
+                        evaluateJob(scheduleJobDetail, scheduleTaskShadeMap);
+                    } catch (Exception e) {
+                        LOGGER.error("jobId:{} scheduleType:{} submit error:", scheduleJobDetail.getScheduleJob().getJobId(), getSchedulerName(), e);
+                    }
+                }
+            }));
+        }
+        return futures;
+    }
+
+    private void waitShards(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                LOGGER.error("scheduleType:{} shard scanning error:", getSchedulerName(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 实例经过拦截器判断后提交
+     */
+    private void evaluateJob(ScheduleJobDetails scheduleJobDetail, Map<Long, ScheduleTaskShade> scheduleTaskShadeMap) {
+        // 提交实例
+        ScheduleJob scheduleJob = scheduleJobDetail.getScheduleJob();
+        ScheduleTaskShade scheduleTaskShade = scheduleTaskShadeMap.get(scheduleJob.getTaskId());
+
+        if (scheduleTaskShade == null) {
+            String errMsg = JobCheckStatus.NO_TASK.getMsg();
+            scheduleJobService.updateStatusAndLogInfoById(scheduleJob.getJobId(), TaskStatus.SUBMITFAILD.getStatus(), errMsg);
+            LOGGER.warn("jobId:{} scheduleType:{} submit failed for taskId:{} already deleted.", scheduleJob.getJobId(), getSchedulerName(), scheduleJob.getTaskId());
+            return;
+        }
+        scheduleJobDetail.setScheduleTaskShade(scheduleTaskShade);
+
+        // 提交任务
+        InterceptorInvocation interceptorInvocation = new InterceptorInvocation(this, interceptors);
+        interceptorInvocation.submit(scheduleJobDetail);
+    }
+
+    /**
+     * 最近一次扫描的实例数
+     */
+    public int getLastScanCount() {
+        return lastScanCount;
+    }
+
+    /**
+     * 最近一次扫描的耗时，单位毫秒
+     */
+    public long getLastScanCost() {
+        return lastScanCost;
+    }
+
+    /**
+     * 父实例结束后立即触发一次扫描，不用等到下一个扫描周期
+     * 扫描和定时扫描在同一个线程中执行，多次唤醒只会合并成一次
+     */
+    public void wakeUp() {
+        if (scheduledService == null || !wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        scheduledService.execute(() -> {
+            wakeUpPending.set(false);
+            scanningJob();
+        });
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         LOGGER.info("Initializing scheduleType:{} acquireQueueJobInterval:{} queueSize:{}", getSchedulerName(), env.getJobAcquireQueueJobInterval(), env.getQueueSize());
-        ScheduledExecutorService scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(getSchedulerName() + "_AcquireJob"));
+        interceptors = InterceptorInvocation.sort(getInterceptor());
+        int shardNum = env.getJobScanningShardNum();
+        if (shardNum > 1) {
+            shardLanes = new ExecutorService[shardNum];
+            for (int i = 0; i < shardNum; i++) {
+                shardLanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(), new CustomThreadFactory(getSchedulerName() + "_ScanningShard" + i));
+            }
+        }
+        scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(getSchedulerName() + "_AcquireJob"));
         scheduledService.scheduleWithFixedDelay(this::scanningJob, 0, env.getJobAcquireQueueJobInterval(), TimeUnit.MILLISECONDS);
+        jobDependencyTracker.addReadyListener(this::wakeUp);
     }
 
 
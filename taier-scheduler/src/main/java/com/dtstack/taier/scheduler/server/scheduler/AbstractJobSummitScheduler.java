@@ -6,16 +6,20 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.server.queue.JobSubmitQueue;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -34,10 +38,15 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
      */
     private ExecutorService executorService;
 
+    /**
+     * 每次从队列中取出提交的最大实例数
+     */
+    private static final int TAKE_BATCH_SIZE = 100;
+
     /**
      * 队列用于控制提交速度
      */
-    private LinkedBlockingQueue<ScheduleJobDetails> scheduleJobQueue;
+    private JobSubmitQueue scheduleJobQueue;
 
     @Autowired
     private ScheduleJobService scheduleJobService;
@@ -52,13 +61,12 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
     public Boolean submitJob(ScheduleJobDetails scheduleJobDetails) {
         try {
             ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
-            boolean updateStatus = scheduleJobService.updatePhaseStatusById(scheduleJob.getId(), JobPhaseStatus.CREATE, JobPhaseStatus.JOIN_THE_TEAM);
-            if (updateStatus && scheduleJobQueue.contains(scheduleJobDetails)) {
-                //元素已存在，返回true
+            scheduleJobService.updatePhaseStatusById(scheduleJob.getId(), JobPhaseStatus.CREATE, JobPhaseStatus.JOIN_THE_TEAM);
+            if (!scheduleJobQueue.put(scheduleJobDetails)) {
+                //元素已存在
                 LOGGER.info("jobId:{} scheduleType:{} queue has contains ", scheduleJob.getJobId(), getSchedulerName());
                 return false;
             }
-            scheduleJobQueue.put(scheduleJobDetails);
             LOGGER.info("jobId:{} scheduleType:{} enter queue", scheduleJob.getJobId(), getSchedulerName());
             return true;
         } catch (InterruptedException e) {
@@ -69,6 +77,45 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
         }
     }
 
+    /**
+     * 取消还在队列中等待提交的实例，实例阶段回退到创建，之后扫描时重新判断是否需要提交
+     *
+     * @param jobIds 实例id
+     * @return 被取消的实例
+     */
+    public List<String> removeJobs(Collection<String> jobIds) {
+        List<String> removed = jobIds.stream().filter(scheduleJobQueue::remove).collect(Collectors.toList());
+        rollbackRemovedJobs(removed);
+        return removed;
+    }
+
+    /**
+     * 取消还在队列中等待提交的属于指定任务的实例，用于任务冻结
+     *
+     * @param taskIds 任务id
+     * @return 被取消的实例
+     */
+    public List<String> removeJobsByTaskIds(Collection<Long> taskIds) {
+        List<String> removed = scheduleJobQueue.removeByTaskIds(taskIds);
+        rollbackRemovedJobs(removed);
+        return removed;
+    }
+
+    private void rollbackRemovedJobs(List<String> jobIds) {
+        for (String jobId : jobIds) {
+            scheduleJobService.lambdaUpdate()
+                    .eq(ScheduleJob::getJobId, jobId)
+                    .eq(ScheduleJob::getPhaseStatus, JobPhaseStatus.JOIN_THE_TEAM.getCode())
+                    .set(ScheduleJob::getPhaseStatus, JobPhaseStatus.CREATE.getCode())
+                    .update();
+            LOGGER.info("jobId:{} scheduleType:{} removed from queue", jobId, getSchedulerName());
+        }
+    }
+
+    public int getQueueSize() {
+        return scheduleJobQueue.size();
+    }
+
     /**
      * 提交实例
      *
@@ -107,7 +154,7 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
     @Override
     public void afterPropertiesSet() throws Exception {
         super.afterPropertiesSet();
-        scheduleJobQueue = new LinkedBlockingQueue<>(env.getQueueSize());
+        scheduleJobQueue = new JobSubmitQueue(env.getQueueSize());
 
         String threadName = this.getClass().getSimpleName() + "_" + getSchedulerName() + "_startJobProcessor";
         executorService = new ThreadPoolExecutor(env.getJobExecutorPoolCorePoolSize(), env.getJobExecutorPoolMaximumPoolSize(), env.getJobExecutorPoolKeepAliveTime(), TimeUnit.MILLISECONDS,
@@ -125,10 +172,12 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
 
             ScheduleJob scheduleJob = null;
             try {
-                ScheduleJobDetails scheduleJobDetails = scheduleJobQueue.take();
-                scheduleJob = scheduleJobDetails.getScheduleJob();
-                LOGGER.info("jobId:{} scheduleType:{} take job from queue.", scheduleJob.getJobId(), getSchedulerName());
-                this.submit(scheduleJobDetails);
+                List<ScheduleJobDetails> batch = scheduleJobQueue.takeBatch(TAKE_BATCH_SIZE);
+                for (ScheduleJobDetails scheduleJobDetails : batch) {
+                    scheduleJob = scheduleJobDetails.getScheduleJob();
+                    LOGGER.info("jobId:{} scheduleType:{} take job from queue.", scheduleJob.getJobId(), getSchedulerName());
+                    this.submit(scheduleJobDetails);
+                }
             } catch (InterruptedException ie){
                 // swallow the interrupt as it's only possible from either a background
                 // operation and, thus, doesn't apply to this loop or the instance
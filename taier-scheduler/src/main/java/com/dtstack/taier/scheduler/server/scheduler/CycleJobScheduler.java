@@ -59,6 +59,8 @@ public class CycleJobScheduler extends AbstractJobSummitScheduler {
             scheduleJobDetailsList.add(scheduleJobDetails);
         }
 
+        // 建立父子实例索引并批量刷新父实例状态
+        jobDependencyTracker.register(scheduleJobDetailsList);
         return scheduleJobDetailsList;
     }
 
@@ -73,6 +73,8 @@ public abstract class OperatorRecordJobScheduler extends AbstractJobSummitSchedu
                     scheduleJobDetails.setJobJobList(jobJobMap.get(scheduleJob.getJobKey()));
                     scheduleJobDetailsList.add(scheduleJobDetails);
                 }
+                // 建立父子实例索引并批量刷新父实例状态
+                jobDependencyTracker.register(scheduleJobDetailsList);
                 return scheduleJobDetailsList;
             } else {
                 removeOperatorRecord(Lists.newArrayList(jobIds));
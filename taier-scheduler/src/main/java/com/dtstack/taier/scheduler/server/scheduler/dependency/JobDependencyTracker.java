@@ -0,0 +1,370 @@
+package com.dtstack.taier.scheduler.server.scheduler.dependency;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import com.dtstack.taier.dao.mapper.ScheduleJobMapper;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 上游依赖追踪器
+ *
+ * 扫描周期实例时，根据 ScheduleJobJob 记录建立 父实例 -> 子实例 的内存索引，并缓存父实例的状态：
+ * 1. 每一页实例只批量查询一次尚未结束的父实例，不再每个子实例各查一次
+ * 2. 本节点的状态变更直接更新缓存，并把依赖它的子实例标记为需要重新判断
+ * 3. 子实例在父实例状态没有变化之前，不再重复走依赖判断
+ *
+ * 其他节点的状态变更通过下一次扫描时的批量刷新感知，已结束的父实例状态在 expire 时间后重新加载
+ */
+@Component
+public class JobDependencyTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobDependencyTracker.class);
+
+    @Autowired
+    private ScheduleJobMapper scheduleJobMapper;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    /**
+     * 父实例 jobKey -> 父实例状态
+     */
+    private final Map<String, ParentNode> parentNodes = new ConcurrentHashMap<>();
+
+    /**
+     * 父实例 jobId -> jobKey，用于状态变更时定位
+     */
+    private final Map<String, String> parentJobIdToKey = new ConcurrentHashMap<>();
+
+    /**
+     * 子实例 jobKey -> 子实例状态
+     */
+    private final Map<String, ChildNode> childNodes = new ConcurrentHashMap<>();
+
+    /**
+     * 父实例进入结束状态后的回调，用于唤醒扫描
+     */
+    private final List<Runnable> readyListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 注册一页扫描出来的实例，并批量刷新这些实例尚未结束的父实例状态
+     *
+     * @param scheduleJobDetailsList 实例详情
+     */
+    public void register(List<ScheduleJobDetails> scheduleJobDetailsList) {
+        if (CollectionUtils.isEmpty(scheduleJobDetailsList)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<String> needLoadKeys = new HashSet<>();
+
+        for (ScheduleJobDetails scheduleJobDetails : scheduleJobDetailsList) {
+            List<ScheduleJobJob> jobJobList = scheduleJobDetails.getJobJobList();
+            if (CollectionUtils.isEmpty(jobJobList)) {
+                continue;
+            }
+            String jobKey = scheduleJobDetails.getScheduleJob().getJobKey();
+            ChildNode childNode = childNodes.computeIfAbsent(jobKey, k -> new ChildNode());
+            childNode.touchTime = now;
+
+            for (ScheduleJobJob scheduleJobJob : jobJobList) {
+                String parentJobKey = scheduleJobJob.getParentJobKey();
+                ParentNode parentNode = parentNodes.computeIfAbsent(parentJobKey, k -> new ParentNode());
+                parentNode.children.add(jobKey);
+                childNode.parents.add(parentJobKey);
+                if (parentNode.job == null || needRefresh(parentNode, now)) {
+                    needLoadKeys.add(parentJobKey);
+                }
+            }
+        }
+
+        if (CollectionUtils.isNotEmpty(needLoadKeys)) {
+            load(needLoadKeys, now);
+        }
+    }
+
+    /**
+     * 判断子实例是否需要重新走依赖判断，调用后清除标记
+     *
+     * @param jobKey 子实例 jobKey
+     * @return true 需要判断
+     */
+    public boolean needEvaluate(String jobKey) {
+        ChildNode childNode = childNodes.get(jobKey);
+        if (childNode == null) {
+            return true;
+        }
+        if (childNode.dirty) {
+            childNode.dirty = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 获得父实例，缓存中没有的父实例会批量查询一次
+     *
+     * @param parentJobKeys 父实例 jobKey
+     * @return jobKey -> 父实例，没有生成的父实例不在结果中
+     */
+    public Map<String, ScheduleJob> getParentJobs(Collection<String> parentJobKeys) {
+        Map<String, ScheduleJob> parentJobMap = new HashMap<>(parentJobKeys.size());
+        Set<String> needLoadKeys = new HashSet<>();
+        for (String parentJobKey : parentJobKeys) {
+            ParentNode parentNode = parentNodes.get(parentJobKey);
+            if (parentNode == null || parentNode.job == null) {
+                needLoadKeys.add(parentJobKey);
+            } else {
+                parentJobMap.put(parentJobKey, parentNode.job);
+            }
+        }
+
+        if (CollectionUtils.isNotEmpty(needLoadKeys)) {
+            parentJobMap.putAll(load(needLoadKeys, System.currentTimeMillis()));
+        }
+        return parentJobMap;
+    }
+
+    /**
+     * 子实例已经提交或者已经被判定为结束，不再追踪
+     *
+     * @param jobKey 子实例 jobKey
+     */
+    public void remove(String jobKey) {
+        ChildNode childNode = childNodes.remove(jobKey);
+        if (childNode == null) {
+            return;
+        }
+        for (String parentJobKey : childNode.parents) {
+            ParentNode parentNode = parentNodes.get(parentJobKey);
+            if (parentNode != null && parentNode.children.remove(jobKey) && parentNode.children.isEmpty()) {
+                removeParent(parentJobKey, parentNode);
+            }
+        }
+    }
+
+    /**
+     * 实例状态变更
+     *
+     * @param jobId  实例id
+     * @param status 变更后的状态
+     */
+    public void onStatusChange(String jobId, Integer status) {
+        if (StringUtils.isBlank(jobId) || status == null) {
+            return;
+        }
+        String parentJobKey = parentJobIdToKey.get(jobId);
+        if (parentJobKey == null) {
+            return;
+        }
+        ParentNode parentNode = parentNodes.get(parentJobKey);
+        if (parentNode == null || parentNode.job == null) {
+            return;
+        }
+        if (status.equals(parentNode.job.getStatus())) {
+            return;
+        }
+        parentNode.job = copyWithStatus(parentNode.job, status);
+        parentNode.loadTime = System.currentTimeMillis();
+        markChildrenDirty(parentNode);
+
+        if (TaskStatus.STOPPED_STATUS.contains(status)) {
+            LOGGER.info("parent jobId:{} jobKey:{} stopped with status:{}, {} children need evaluate", jobId, parentJobKey, status, parentNode.children.size());
+            fireReady();
+        }
+    }
+
+    /**
+     * 批量实例状态变更
+     *
+     * @param jobIds 实例id
+     * @param status 变更后的状态
+     */
+    public void onStatusChange(Collection<String> jobIds, Integer status) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return;
+        }
+        for (String jobId : jobIds) {
+            onStatusChange(jobId, status);
+        }
+    }
+
+    /**
+     * 实例被重置（重跑等），丢弃缓存的状态，下次扫描重新加载
+     *
+     * @param jobIds 实例id
+     */
+    public void invalidate(Collection<String> jobIds) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return;
+        }
+        for (String jobId : jobIds) {
+            String parentJobKey = parentJobIdToKey.remove(jobId);
+            if (parentJobKey == null) {
+                continue;
+            }
+            ParentNode parentNode = parentNodes.get(parentJobKey);
+            if (parentNode != null) {
+                parentNode.job = null;
+                markChildrenDirty(parentNode);
+            }
+        }
+    }
+
+    /**
+     * 注册父实例结束的回调
+     *
+     * @param listener 回调
+     */
+    public void addReadyListener(Runnable listener) {
+        readyListeners.add(listener);
+    }
+
+    /**
+     * 清理长时间没有被扫描到的子实例，这些实例可能已经被删除、停止或者迁移到其他节点
+     */
+    public void cleanExpire() {
+        long expireTime = System.currentTimeMillis() - environmentContext.getJobDependencyCacheExpire();
+        List<String> expireKeys = new ArrayList<>();
+        for (Map.Entry<String, ChildNode> entry : childNodes.entrySet()) {
+            if (entry.getValue().touchTime < expireTime) {
+                expireKeys.add(entry.getKey());
+            }
+        }
+        for (String expireKey : expireKeys) {
+            remove(expireKey);
+        }
+        if (!expireKeys.isEmpty()) {
+            LOGGER.info("clean expire children size:{}, tracked children:{} parents:{}", expireKeys.size(), childNodes.size(), parentNodes.size());
+        }
+    }
+
+    private boolean needRefresh(ParentNode parentNode, long now) {
+        // 未结束的父实例每次扫描都需要刷新，其他节点上的状态变更只能通过这里感知
+        if (!TaskStatus.STOPPED_STATUS.contains(parentNode.job.getStatus())) {
+            return true;
+        }
+        return now - parentNode.loadTime > environmentContext.getJobDependencyCacheExpire();
+    }
+
+    private Map<String, ScheduleJob> load(Set<String> parentJobKeys, long now) {
+        Map<String, ScheduleJob> loaded = new HashMap<>(parentJobKeys.size());
+        for (List<String> partition : Lists.partition(new ArrayList<>(parentJobKeys), environmentContext.getBatchInsertSize())) {
+            List<ScheduleJob> scheduleJobs = scheduleJobMapper.selectList(Wrappers.lambdaQuery(ScheduleJob.class)
+                    .select(ScheduleJob::getStatus, ScheduleJob::getJobId,
+                            ScheduleJob::getJobKey, ScheduleJob::getJobName)
+                    .in(ScheduleJob::getJobKey, partition)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus()));
+
+            for (ScheduleJob scheduleJob : scheduleJobs) {
+                loaded.put(scheduleJob.getJobKey(), scheduleJob);
+                ParentNode parentNode = parentNodes.get(scheduleJob.getJobKey());
+                if (parentNode == null) {
+                    // 没有子实例在等待，只返回不缓存
+                    continue;
+                }
+                ScheduleJob old = parentNode.job;
+                parentNode.job = scheduleJob;
+                parentNode.loadTime = now;
+                parentJobIdToKey.put(scheduleJob.getJobId(), scheduleJob.getJobKey());
+                if (old == null || !old.getStatus().equals(scheduleJob.getStatus())) {
+                    markChildrenDirty(parentNode);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private void removeParent(String parentJobKey, ParentNode parentNode) {
+        parentNodes.remove(parentJobKey, parentNode);
+        ScheduleJob job = parentNode.job;
+        if (job != null) {
+            parentJobIdToKey.remove(job.getJobId(), parentJobKey);
+        }
+    }
+
+    private void markChildrenDirty(ParentNode parentNode) {
+        for (String child : parentNode.children) {
+            ChildNode childNode = childNodes.get(child);
+            if (childNode != null) {
+                childNode.dirty = true;
+            }
+        }
+    }
+
+    private void fireReady() {
+        for (Runnable readyListener : readyListeners) {
+            try {
+                readyListener.run();
+            } catch (Exception e) {
+                LOGGER.error("dependency ready listener error:", e);
+            }
+        }
+    }
+
+    private ScheduleJob copyWithStatus(ScheduleJob job, Integer status) {
+        ScheduleJob copy = new ScheduleJob();
+        copy.setJobId(job.getJobId());
+        copy.setJobKey(job.getJobKey());
+        copy.setJobName(job.getJobName());
+        copy.setStatus(status);
+        return copy;
+    }
+
+    private static class ParentNode {
+
+        /**
+         * 父实例，只包含 status jobId jobKey jobName，替换而不是修改，保证读到的是完整的快照
+         */
+        private volatile ScheduleJob job;
+
+        /**
+         * 加载时间
+         */
+        private volatile long loadTime;
+
+        /**
+         * 等待该父实例的子实例 jobKey
+         */
+        private final Set<String> children = ConcurrentHashMap.newKeySet();
+    }
+
+    private static class ChildNode {
+
+        /**
+         * 父实例状态有变化，需要重新判断
+         */
+        private volatile boolean dirty = true;
+
+        /**
+         * 最近一次被扫描到的时间
+         */
+        private volatile long touchTime;
+
+        /**
+         * 依赖的父实例 jobKey
+         */
+        private final Set<String> parents = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -5,6 +5,8 @@ import com.dtstack.taier.scheduler.server.Sort;
 import com.dtstack.taier.scheduler.server.scheduler.Scheduler;
 import org.apache.commons.collections.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -31,14 +33,28 @@ public class InterceptorInvocation {
         // 调度器
         this.scheduler = scheduler;
 
-        // 对拦截器进行排序
+        // 拦截器需要先通过 sort 方法排序，扫描线程之间共用同一个列表，这里不能再原地排序
         if (CollectionUtils.isNotEmpty(interceptorList)) {
-            interceptorList.sort(Comparator.comparingInt(Sort::getSort));
             iterator = interceptorList.iterator();
         }
 
     }
 
+    /**
+     * 对拦截器进行排序
+     *
+     * @param interceptorList 拦截器列表
+     * @return 排好序的只读列表
+     */
+    public static List<SubmitInterceptor> sort(List<SubmitInterceptor> interceptorList) {
+        if (CollectionUtils.isEmpty(interceptorList)) {
+            return Collections.emptyList();
+        }
+        List<SubmitInterceptor> sorted = new ArrayList<>(interceptorList);
+        sorted.sort(Comparator.comparingInt(Sort::getSort));
+        return Collections.unmodifiableList(sorted);
+    }
+
     public Boolean submit(ScheduleJobDetails scheduleJobDetails) {
         if (iterator == null || !iterator.hasNext()) {
             scheduler.submitJob(scheduleJobDetails);
@@ -1,6 +1,5 @@
 package com.dtstack.taier.scheduler.server.scheduler.interceptor;
 
-import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.common.enums.EScheduleType;
 import com.dtstack.taier.common.enums.JobCheckStatus;
 import com.dtstack.taier.dao.domain.ScheduleJob;
@@ -9,6 +8,7 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.enums.RelyRule;
 import com.dtstack.taier.scheduler.enums.RelyType;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.server.scheduler.dependency.JobDependencyTracker;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -34,6 +34,9 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
     @Autowired
     private ScheduleJobService scheduleJobService;
 
+    @Autowired
+    private JobDependencyTracker jobDependencyTracker;
+
     @Override
     public Integer getSort() {
         return 0;
@@ -45,16 +48,16 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
         ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
 
         if (CollectionUtils.isNotEmpty(jobJobList)) {
+            // 父实例状态没有变化，上次判断的结果依然有效，直接拦截
+            if (!jobDependencyTracker.needEvaluate(scheduleJob.getJobKey())) {
+                return Boolean.FALSE;
+            }
+
             List<String> parentJobKeys = jobJobList.stream()
                     .map(ScheduleJobJob::getParentJobKey)
                     .collect(Collectors.toList());
 
-            Map<String, ScheduleJob> scheduleJobMap = scheduleJobService.lambdaQuery()
-                    .select(ScheduleJob::getStatus, ScheduleJob::getJobId,
-                            ScheduleJob::getJobKey, ScheduleJob::getJobName)
-                    .in(ScheduleJob::getJobKey, parentJobKeys)
-                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                    .list().stream().collect(Collectors.toMap(ScheduleJob::getJobKey, g -> (g)));
+            Map<String, ScheduleJob> scheduleJobMap = jobDependencyTracker.getParentJobs(parentJobKeys);
 
 
             for (ScheduleJobJob scheduleJobJob : jobJobList) {
@@ -71,6 +74,7 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                         scheduleJob.getJobName(),
                                         scheduleJob.getJobId(),
                                         scheduleJobJob.getParentJobKey()));
+                        jobDependencyTracker.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     } else {
                         continue;
@@ -93,6 +97,7 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                 String.format(JobCheckStatus.FATHER_JOB_EXCEPTION.getMsg(),
                                         parentScheduleJob.getJobName(),
                                         parentScheduleJob.getJobId()));
+                        jobDependencyTracker.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     }
 
@@ -104,6 +109,7 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                 String.format(JobCheckStatus.FATHER_JOB_FROZEN.getMsg(),
                                         parentScheduleJob.getJobName(),
                                         parentScheduleJob.getJobId()));
+                        jobDependencyTracker.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     }
 
@@ -118,6 +124,7 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                         scheduleJob.getJobId(),
                                         parentScheduleJob.getJobName(),
                                         parentScheduleJob.getJobId()));
+                        jobDependencyTracker.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     }
                 }
@@ -127,6 +134,8 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                     return Boolean.FALSE;
                 }
             }
+            // 依赖全部满足，不再追踪
+            jobDependencyTracker.remove(scheduleJob.getJobKey());
         }
 
         return super.beforeSubmit(scheduleJobDetails);
@@ -4,10 +4,14 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.dao.mapper.ScheduleEngineJobCacheMapper;
+import com.dtstack.taier.scheduler.jobdealer.cache.JobInfoCache;
+import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,20 +20,46 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
     @Autowired
     private ScheduleEngineJobCacheMapper scheduleEngineJobCacheMapper;
 
+    @Autowired
+    private JobInfoCache jobInfoCache;
+
+    @Autowired
+    private ShardCache shardCache;
+
     public ScheduleEngineJobCache getJobCacheByJobId(String jobId) {
         return scheduleEngineJobCacheMapper.selectOne(Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
                 .eq(ScheduleEngineJobCache::getJobId, jobId));
     }
 
     public int deleteByJobId(String jobId) {
+        jobInfoCache.invalidate(jobId);
+        shardCache.removeIndex(jobId);
         return scheduleEngineJobCacheMapper.delete(Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
                 .eq(ScheduleEngineJobCache::getJobId, jobId));
     }
 
+    /**
+     * 批量删除，同时清理任务信息缓存和分片索引
+     */
+    public Integer deleteByJobIds(List<String> jobIds) {
+        for (String jobId : jobIds) {
+            jobInfoCache.invalidate(jobId);
+            shardCache.removeIndex(jobId);
+        }
+        return scheduleEngineJobCacheMapper.deleteByJobIds(jobIds);
+    }
+
     public List<ScheduleEngineJobCache> listByStage(long startId, String localAddress, Integer stage, String jobResource, Boolean selectJobInfo) {
         return scheduleEngineJobCacheMapper.listByStage(startId, localAddress, stage, jobResource, selectJobInfo);
     }
 
+    /**
+     * 按优先级从高到低分页查询，startPriority 为空时从第一条开始
+     */
+    public List<ScheduleEngineJobCache> listByStageOrderByPriority(String localAddress, Integer stage, String jobResource, Long startPriority, Long startId, int limit) {
+        return scheduleEngineJobCacheMapper.listByStageOrderByPriority(localAddress, stage, jobResource, startPriority, startId, limit);
+    }
+
     public int updateStage(String jobId, int stage, String nodeAddress, long priority, String waitReason) {
         ScheduleEngineJobCache engineJobCache = new ScheduleEngineJobCache();
         engineJobCache.setJobId(jobId);
@@ -57,12 +87,34 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
 
     }
 
-    public int updateStageBatch(List<String> jobIds, int stage, String nodeAddress) {
-        ScheduleEngineJobCache engineJobCache = new ScheduleEngineJobCache();
-        engineJobCache.setNodeAddress(nodeAddress);
-        engineJobCache.setStage(stage);
-        return scheduleEngineJobCacheMapper.update(engineJobCache, Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
-                .in(ScheduleEngineJobCache::getJobId, jobIds));
+    /**
+     * 按计算资源统计节点上未提交的任务数和最高优先级
+     *
+     * @return jobResource, jobSize, minPriority
+     */
+    public List<Map<String, Object>> groupQueueInfoByStage(String nodeAddress, List<Integer> stages, List<Integer> priorityStages) {
+        return scheduleEngineJobCacheMapper.groupQueueInfoByStage(nodeAddress, stages, priorityStages);
+    }
+
+    /**
+     * 批量更新 stage，和 updateStage 一样同时写入优先级，相同优先级的任务合并为一条 update
+     *
+     * @param jobPriorities jobId -> priority
+     */
+    public int updateStageBatch(Map<String, Long> jobPriorities, int stage, String nodeAddress) {
+        Map<Long, List<String>> priorityJobIds = jobPriorities.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue, LinkedHashMap::new,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        int updated = 0;
+        for (Map.Entry<Long, List<String>> entry : priorityJobIds.entrySet()) {
+            ScheduleEngineJobCache engineJobCache = new ScheduleEngineJobCache();
+            engineJobCache.setNodeAddress(nodeAddress);
+            engineJobCache.setStage(stage);
+            engineJobCache.setJobPriority(entry.getKey());
+            updated += scheduleEngineJobCacheMapper.update(engineJobCache, Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
+                    .in(ScheduleEngineJobCache::getJobId, entry.getValue()));
+        }
+        return updated;
     }
 
     public void insert(String jobId, Integer computeType, int stage, String jobInfo, String nodeAddress, String jobName, long priority, String jobResource, Long tenantId) {
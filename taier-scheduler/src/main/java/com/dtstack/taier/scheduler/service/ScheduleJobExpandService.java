@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -68,6 +69,17 @@ public class ScheduleJobExpandService extends ServiceImpl<ScheduleJobExpandMappe
                 .eq(ScheduleJobExpand::getJobId, jobId));
     }
 
+    /**
+     * 批量更新 jobExtraInfo 和 logInfo
+     *
+     * @param jobExpands 需要 jobId、jobExtraInfo、logInfo
+     */
+    public void updateExtraInfoAndLogBatch(List<ScheduleJobExpand> jobExpands) {
+        if (CollectionUtils.isNotEmpty(jobExpands)) {
+            this.baseMapper.updateExtraInfoAndLogBatch(jobExpands);
+        }
+    }
+
     public String getJobGraphJson(String jobId) {
         String jobExtraInfo =getByJobId(jobId).getJobExtraInfo();
         JSONObject jobExtraObj = JSONObject.parseObject(jobExtraInfo);
@@ -22,6 +22,7 @@ import com.dtstack.taier.scheduler.impl.pojo.ParamActionExt;
 import com.dtstack.taier.scheduler.mapstruct.ScheduleJobMapStruct;
 import com.dtstack.taier.scheduler.server.JobPartitioner;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.server.scheduler.dependency.JobDependencyTracker;
 import com.dtstack.taier.scheduler.zookeeper.ZkService;
 import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
@@ -31,11 +32,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -48,6 +54,11 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleJobService.class);
 
+    /**
+     * 多行 insert 中每行除字符串外的字节数估算值
+     */
+    private static final int INSERT_ROW_FIXED_BYTES = 256;
+
     @Autowired
     private ZkService zkService;
 
@@ -72,6 +83,12 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
     @Autowired
     private ScheduleTaskShadeInfoService scheduleTaskShadeInfoService;
 
+    @Autowired
+    private JobDependencyTracker jobDependencyTracker;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     /**
      * 开始运行实例
      *
@@ -144,6 +161,7 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
                  // 清除日志
                 scheduleJobExpandService.clearData(jobIds);
                 scheduleJobOperatorRecordService.insertBatch(records);
+                jobDependencyTracker.invalidate(jobIds);
                 LOGGER.info("reset job {}", jobIds);
             }
         }
@@ -151,11 +169,11 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
 
     /**
      * 批量插入周期实例 jobSize 在负载均衡时 区分 scheduleType（正常调度 和 补数据）
+     * 没有外部事务时每批实例单独提交，失败时抛出异常，已经提交的实例 id 不为空，回滚和未插入的实例 id 为空
      *
      * @param jobBuilderBeanCollection 实例集合
      * @param scheduleType 调度类型 正常调度 和 补数据
      */
-    @Transactional(rollbackFor = Exception.class)
     public Long insertJobList(Collection<ScheduleJobDetails> jobBuilderBeanCollection, Integer scheduleType) {
         if (CollectionUtils.isEmpty(jobBuilderBeanCollection)) {
             return null;
@@ -226,37 +244,30 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
 
     /**
      * 插入实例
+     * 实例、扩展信息、实例关系都使用多行 insert，按行数和字节数切分
+     * 没有外部事务时每批单独一个事务，失败时整批回滚后重试；在外部事务中（如补数据）时加入外部事务，不重试
      */
     private Long persistJobs(List<ScheduleJob> jobWaitForSave, List<ScheduleJobJob> jobJobWaitForSave, Long minJobId,Integer jobJobSize) {
         try {
-            return RetryUtil.executeWithRetry(() -> {
-                Long curMinJobId=minJobId;
-                if (jobWaitForSave.size() > 0) {
-                    this.saveBatch(jobWaitForSave);
-                    if (Objects.isNull(minJobId)) {
-                        curMinJobId = jobWaitForSave.stream().map(ScheduleJob::getId).min(Long::compareTo).orElse(null);
-                    }
-
-                    // 插入扩展数据
-                   List<ScheduleJobExpand> scheduleJobExpandList =  ScheduleJobMapStruct.INSTANCE.scheduleJobTOScheduleJobExpand(jobWaitForSave);
-                    scheduleJobExpandService.saveBatch(scheduleJobExpandList);
-                    jobWaitForSave.clear();
-                }
-                if (jobJobWaitForSave.size() > 0) {
-                    if (jobJobWaitForSave.size() > jobJobSize) {
-                        List<List<ScheduleJobJob>> partition = Lists.partition(jobJobWaitForSave, jobJobSize);
-                        for (List<ScheduleJobJob> scheduleJobJobs : partition) {
-                            scheduleJobJobService.saveBatch(scheduleJobJobs);
-                            jobJobWaitForSave.removeAll(scheduleJobJobs);
-                        }
-                    } else {
-                        scheduleJobJobService.saveBatch(jobJobWaitForSave);
-                    }
-                    jobJobWaitForSave.clear();
-                }
-                return curMinJobId;
-            }, environmentContext.getBuildJobErrorRetry(), 200, false);
+            if (jobWaitForSave.isEmpty() && jobJobWaitForSave.isEmpty()) {
+                return minJobId;
+            }
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                doPersistJobs(jobWaitForSave, jobJobWaitForSave, jobJobSize);
+            } else {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                RetryUtil.executeWithRetry(() -> transactionTemplate.execute(status -> {
+                    doPersistJobs(jobWaitForSave, jobJobWaitForSave, jobJobSize);
+                    return Boolean.TRUE;
+                }), environmentContext.getBuildJobErrorRetry(), 200, false);
+            }
+            if (Objects.isNull(minJobId)) {
+                return jobWaitForSave.stream().map(ScheduleJob::getId).filter(Objects::nonNull).min(Long::compareTo).orElse(null);
+            }
+            return minJobId;
         } catch (Exception e) {
+            // 整批已经回滚，清空回写的 id，调用方据此区分已经提交的实例
+            jobWaitForSave.forEach(scheduleJob -> scheduleJob.setId(null));
             LOGGER.error("!!!!! persistJobs job error !!!! job {} jobjob {}", jobWaitForSave, jobJobWaitForSave, e);
             throw new RdosDefineException(e);
         } finally {
@@ -269,6 +280,65 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         }
     }
 
+    private void doPersistJobs(List<ScheduleJob> jobWaitForSave, List<ScheduleJobJob> jobJobWaitForSave, Integer jobJobSize) {
+        if (jobWaitForSave.size() > 0) {
+            for (List<ScheduleJob> scheduleJobs : partitionInsert(jobWaitForSave, jobWaitForSave.size(), ScheduleJobService::estimateInsertBytes)) {
+                this.baseMapper.insertBatch(scheduleJobs);
+            }
+
+            // 插入扩展数据
+            List<ScheduleJobExpand> scheduleJobExpandList = ScheduleJobMapStruct.INSTANCE.scheduleJobTOScheduleJobExpand(jobWaitForSave);
+            scheduleJobExpandService.getBaseMapper().insertBatch(scheduleJobExpandList);
+        }
+        if (jobJobWaitForSave.size() > 0) {
+            for (List<ScheduleJobJob> scheduleJobJobs : partitionInsert(jobJobWaitForSave, jobJobSize, ScheduleJobService::estimateInsertBytes)) {
+                scheduleJobJobService.getBaseMapper().insertBatch(scheduleJobJobs);
+            }
+        }
+    }
+
+    /**
+     * 切分多行 insert，每批不超过 maxRows 行，且语句大小不超过 batch.insert.max.bytes，避免超过 max_allowed_packet
+     */
+    private <T> List<List<T>> partitionInsert(List<T> rows, int maxRows, ToIntFunction<T> rowBytes) {
+        int maxBytes = environmentContext.getBatchInsertMaxBytes();
+        List<List<T>> partitions = Lists.newArrayList();
+        int from = 0;
+        int bytes = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            int currentBytes = rowBytes.applyAsInt(rows.get(i));
+            if (i > from && (i - from >= maxRows || bytes + currentBytes > maxBytes)) {
+                partitions.add(rows.subList(from, i));
+                from = i;
+                bytes = 0;
+            }
+            bytes += currentBytes;
+        }
+        if (from < rows.size()) {
+            partitions.add(rows.subList(from, rows.size()));
+        }
+        return partitions;
+    }
+
+    /**
+     * 估算一行实例在 insert 语句中的字节数，字符串按 utf8 最长 3 字节计算
+     */
+    private static int estimateInsertBytes(ScheduleJob scheduleJob) {
+        return INSERT_ROW_FIXED_BYTES + 3 * (StringUtils.length(scheduleJob.getJobId())
+                + StringUtils.length(scheduleJob.getJobKey())
+                + StringUtils.length(scheduleJob.getJobName())
+                + StringUtils.length(scheduleJob.getCycTime())
+                + StringUtils.length(scheduleJob.getFlowJobId())
+                + StringUtils.length(scheduleJob.getNodeAddress())
+                + StringUtils.length(scheduleJob.getNextCycTime())
+                + StringUtils.length(scheduleJob.getSubmitUserName()));
+    }
+
+    private static int estimateInsertBytes(ScheduleJobJob scheduleJobJob) {
+        return INSERT_ROW_FIXED_BYTES + 3 * (StringUtils.length(scheduleJobJob.getJobKey())
+                + StringUtils.length(scheduleJobJob.getParentJobKey()));
+    }
+
     /**
      * 更新实例状态和版本
      * @param jobId 实例id
@@ -279,10 +349,14 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(status);
         scheduleJob.setVersionId(versionId);
-        return this.lambdaUpdate()
+        boolean update = this.lambdaUpdate()
                 .eq(ScheduleJob::getJobId,jobId)
                 .eq(ScheduleJob::getIsDeleted,Deleted.NORMAL.getStatus())
                 .update(scheduleJob);
+        if (update) {
+            jobDependencyTracker.onStatusChange(jobId, status);
+        }
+        return update;
     }
 
     /**
@@ -317,7 +391,9 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
      */
     public Integer updateJobStatusAndExecTime(String jobId, Integer status) {
         if (StringUtils.isNotBlank(jobId) && status != null) {
-            return this.baseMapper.updateJobStatusAndExecTime(jobId, status);
+            Integer update = this.baseMapper.updateJobStatusAndExecTime(jobId, status);
+            jobDependencyTracker.onStatusChange(jobId, status);
+            return update;
         }
         return 0;
     }
@@ -471,8 +547,10 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(status);
         scheduleJob.setPhaseStatus(phaseStatus);
-        return this.baseMapper.update(scheduleJob,Wrappers.lambdaQuery(ScheduleJob.class)
+        int update = this.baseMapper.update(scheduleJob,Wrappers.lambdaQuery(ScheduleJob.class)
                 .in(ScheduleJob::getJobId, jobIds));
+        jobDependencyTracker.onStatusChange(jobIds, status);
+        return update;
     }
 
     /**
@@ -507,6 +585,19 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         this.baseMapper.update(scheduleJob, updateWrapper);
     }
 
+    /**
+     * 批量更新提交成功的实例 engineJobId、appId，并将状态更新为已提交
+     *
+     * @param scheduleJobs 实例，需要 jobId、engineJobId、applicationId
+     */
+    public void updateJobSubmitSuccessBatch(List<ScheduleJob> scheduleJobs) {
+        if (CollectionUtils.isEmpty(scheduleJobs)) {
+            return;
+        }
+        this.baseMapper.updateJobSubmitSuccessBatch(scheduleJobs, TaskStatus.SUBMITTED.getStatus());
+        jobDependencyTracker.onStatusChange(scheduleJobs.stream().map(ScheduleJob::getJobId).collect(Collectors.toList()), TaskStatus.SUBMITTED.getStatus());
+    }
+
     /**
      * 更新状态
      * @param jobId 实例id
@@ -518,6 +609,7 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         updateScheduleJob.setStatus(status);
         this.baseMapper.update(updateScheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
                 .eq(ScheduleJob::getJobId, jobId));
+        jobDependencyTracker.onStatusChange(jobId, status);
     }
 
     /**
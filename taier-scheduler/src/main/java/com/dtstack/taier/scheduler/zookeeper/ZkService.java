@@ -31,6 +31,7 @@ import com.dtstack.taier.scheduler.server.listener.Listener;
 import com.dtstack.taier.scheduler.server.listener.MasterListener;
 import com.dtstack.taier.scheduler.utils.PathUtil;
 import com.dtstack.taier.scheduler.zookeeper.data.BrokerHeartNode;
+import com.dtstack.taier.scheduler.zookeeper.data.BrokerQueueNode;
 import com.dtstack.taier.scheduler.zookeeper.data.BrokersNode;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
@@ -65,6 +66,7 @@ public class ZkService implements InitializingBean, DisposableBean {
     private final static String HEART_NODE = "heart";
     private final static String WORKER_NODE = "workers";
     private final static String LOCK_NODE = "locks";
+    private final static String QUEUE_NODE = "queue";
 
     private ZkConfig zkConfig;
     private String zkAddress;
@@ -296,6 +298,43 @@ public class ZkService implements InitializingBean, DisposableBean {
         return allWorkers;
     }
 
+    /**
+     * 更新本节点的队列快照
+     */
+    public void updateLocalBrokerQueueNode(BrokerQueueNode brokerQueueNode) {
+        String nodePath = String.format("%s/%s", this.localNode, QUEUE_NODE);
+        try {
+            byte[] data = objectMapper.writeValueAsBytes(brokerQueueNode);
+            if (zkClient.checkExists().forPath(nodePath) == null) {
+                zkClient.create().forPath(nodePath, data);
+            } else {
+                zkClient.setData().forPath(nodePath, data);
+            }
+        } catch (Exception e) {
+            LOGGER.error("{}:updateLocalBrokerQueueNode error:", nodePath, e);
+        }
+    }
+
+    /**
+     * 获取所有节点的队列快照，没有推送过快照的节点不返回
+     * key: nodeAddress
+     */
+    public Map<String, BrokerQueueNode> getAllBrokerQueueNode() {
+        Map<String, BrokerQueueNode> allQueueNode = new HashMap<>();
+        for (String address : this.getBrokersChildren()) {
+            String nodePath = String.format("%s/%s/%s", this.brokersNode, address, QUEUE_NODE);
+            try {
+                if (zkClient.checkExists().forPath(nodePath) == null) {
+                    continue;
+                }
+                allQueueNode.put(address, objectMapper.readValue(zkClient.getData().forPath(nodePath), BrokerQueueNode.class));
+            } catch (Exception e) {
+                LOGGER.error("{}:getBrokerQueueNode error:", nodePath, e);
+            }
+        }
+        return allQueueNode;
+    }
+
     public String getLocalAddress() {
         return localAddress;
     }
@@ -0,0 +1,47 @@
+package com.dtstack.taier.scheduler.zookeeper.data;
+
+import com.dtstack.taier.scheduler.server.queue.GroupInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 节点推送到 zk 的队列快照
+ *
+ * Company: www.dtstack.com
+ */
+public class BrokerQueueNode {
+
+    /**
+     * key: jobResource
+     */
+    private Map<String, GroupInfo> groupQueueInfo;
+
+    /**
+     * 快照生成时间
+     */
+    private Long gmtModified;
+
+    public Map<String, GroupInfo> getGroupQueueInfo() {
+        return groupQueueInfo;
+    }
+
+    public void setGroupQueueInfo(Map<String, GroupInfo> groupQueueInfo) {
+        this.groupQueueInfo = groupQueueInfo;
+    }
+
+    public Long getGmtModified() {
+        return gmtModified;
+    }
+
+    public void setGmtModified(Long gmtModified) {
+        this.gmtModified = gmtModified;
+    }
+
+    public static BrokerQueueNode initBrokerQueueNode(Map<String, GroupInfo> groupQueueInfo) {
+        BrokerQueueNode brokerQueueNode = new BrokerQueueNode();
+        brokerQueueNode.setGroupQueueInfo(groupQueueInfo == null ? new HashMap<>() : groupQueueInfo);
+        brokerQueueNode.setGmtModified(System.currentTimeMillis());
+        return brokerQueueNode;
+    }
+}
@@ -0,0 +1,113 @@
+package com.dtstack.taier.scheduler;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.dtstack.taier.common.enums.EScheduleJobType;
+import com.dtstack.taier.pluginapi.enums.EDeployMode;
+import com.dtstack.taier.scheduler.service.ClusterService;
+import com.dtstack.taier.scheduler.service.ScheduleDictService;
+import com.dtstack.taier.scheduler.utils.LocalCacheUtil;
+import com.dtstack.taier.scheduler.zookeeper.ZkService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PluginWrapperTest {
+
+    private static final Long TENANT_ID = 1L;
+
+    private static final Integer TASK_TYPE = EScheduleJobType.SPARK_SQL.getType();
+
+    private static final Integer DEPLOY_MODE = EDeployMode.PERJOB.getType();
+
+    private ClusterService clusterService;
+
+    private PluginWrapper pluginWrapper;
+
+    @Before
+    public void setUp() throws Exception {
+        clusterService = Mockito.mock(ClusterService.class);
+        ScheduleDictService scheduleDictService = Mockito.mock(ScheduleDictService.class);
+        when(scheduleDictService.convertVersionNameToValue("2.1", TASK_TYPE)).thenReturn("210");
+        when(clusterService.pluginInfoJSON(TENANT_ID, TASK_TYPE, DEPLOY_MODE, "210")).thenAnswer(invocation -> pluginInfo());
+
+        LocalCacheUtil localCacheUtil = new LocalCacheUtil();
+        setField(localCacheUtil, "zkService", Mockito.mock(ZkService.class));
+        // 缓存是静态的，清理其他用例留下的数据
+        localCacheUtil.removeLocalAll();
+
+        pluginWrapper = new PluginWrapper();
+        setField(pluginWrapper, "clusterService", clusterService);
+        setField(pluginWrapper, "scheduleDictService", scheduleDictService);
+        setField(pluginWrapper, "localCacheUtil", localCacheUtil);
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static JSONObject pluginInfo() {
+        JSONObject sparkConf = new JSONObject();
+        sparkConf.put("spark.executor.memory", "1g");
+        JSONArray jars = new JSONArray();
+        jars.add("a.jar");
+        JSONObject pluginInfo = new JSONObject();
+        pluginInfo.put("typeName", "yarn2-hdfs2-spark210");
+        pluginInfo.put("sparkConf", sparkConf);
+        pluginInfo.put("jars", jars);
+        return pluginInfo;
+    }
+
+    @Test
+    public void testCacheHit() {
+        PluginWrapper.ResolvedPluginInfo first = pluginWrapper.getPluginInfo(TASK_TYPE, "2.1", TENANT_ID, DEPLOY_MODE);
+        PluginWrapper.ResolvedPluginInfo second = pluginWrapper.getPluginInfo(TASK_TYPE, "2.1", TENANT_ID, DEPLOY_MODE);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(pluginInfo().toJSONString(), first.getPluginInfoStr());
+        verify(clusterService, times(1)).pluginInfoJSON(TENANT_ID, TASK_TYPE, DEPLOY_MODE, "210");
+    }
+
+    @Test
+    public void testClearCache() {
+        PluginWrapper.ResolvedPluginInfo first = pluginWrapper.getPluginInfo(TASK_TYPE, "2.1", TENANT_ID, DEPLOY_MODE);
+        pluginWrapper.clearPluginInfoCache();
+        PluginWrapper.ResolvedPluginInfo second = pluginWrapper.getPluginInfo(TASK_TYPE, "2.1", TENANT_ID, DEPLOY_MODE);
+
+        Assert.assertNotSame(first, second);
+        verify(clusterService, times(2)).pluginInfoJSON(TENANT_ID, TASK_TYPE, DEPLOY_MODE, "210");
+    }
+
+    @Test
+    public void testNestedReadOnly() {
+        PluginWrapper.ResolvedPluginInfo resolved = pluginWrapper.getPluginInfo(TASK_TYPE, "2.1", TENANT_ID, DEPLOY_MODE);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> sparkConf = (Map<String, Object>) resolved.getPluginInfo().get("sparkConf");
+        Assert.assertEquals("1g", sparkConf.get("spark.executor.memory"));
+        try {
+            sparkConf.put("spark.executor.memory", "2g");
+            Assert.fail("nested config must be read only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            ((List<?>) resolved.getPluginInfo().get("jars")).clear();
+            Assert.fail("nested list must be read only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertEquals(pluginInfo().toJSONString(), resolved.getPluginInfoStr());
+    }
+}
@@ -0,0 +1,81 @@
+package com.dtstack.taier.scheduler.jobdealer;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JobCompletedLogDelayDealerTest {
+
+    private static final int MAX_SIZE = 1000;
+
+    @Test
+    public void testSmallLogUnchanged() {
+        String log = "{\"root-exception\":\"error\"}";
+        Assert.assertSame(log, JobCompletedLogDelayDealer.truncateLog(log, MAX_SIZE));
+        String large = StringUtils.repeat("a", MAX_SIZE * 2);
+        Assert.assertSame(large, JobCompletedLogDelayDealer.truncateLog(large, 0));
+    }
+
+    @Test
+    public void testNonJsonKeepTail() {
+        String log = StringUtils.repeat("a", MAX_SIZE) + "tail-error";
+        String truncated = JobCompletedLogDelayDealer.truncateLog(log, MAX_SIZE);
+        Assert.assertTrue(truncated.endsWith("tail-error"));
+        Assert.assertTrue(truncated.contains("characters before are truncated"));
+    }
+
+    @Test
+    public void testJsonTruncateLongestField() {
+        JSONObject log = new JSONObject(true);
+        log.put("countInfo", "{\"numRead\":10,\"numWrite\":10}");
+        log.put("msg_info", StringUtils.repeat("m", MAX_SIZE * 3) + "last-line");
+        log.put("root-exception", "root error");
+
+        String truncated = JobCompletedLogDelayDealer.truncateLog(log.toJSONString(), MAX_SIZE);
+        Assert.assertTrue(truncated.length() <= MAX_SIZE);
+
+        JSONObject result = JSON.parseObject(truncated);
+        Assert.assertEquals("{\"numRead\":10,\"numWrite\":10}", result.getString("countInfo"));
+        Assert.assertEquals("root error", result.getString("root-exception"));
+        Assert.assertTrue(result.getString("msg_info").endsWith("last-line"));
+    }
+
+    @Test
+    public void testJsonTruncateSeveralFields() {
+        JSONObject log = new JSONObject(true);
+        log.put("all-exceptions", StringUtils.repeat("e", MAX_SIZE));
+        log.put("msg_info", StringUtils.repeat("m", MAX_SIZE));
+        log.put("countInfo", "{}");
+
+        String truncated = JobCompletedLogDelayDealer.truncateJsonFields(JSON.parseObject(log.toJSONString()), MAX_SIZE);
+        Assert.assertTrue(truncated.length() <= MAX_SIZE);
+        JSONObject result = JSON.parseObject(truncated);
+        Assert.assertEquals("{}", result.getString("countInfo"));
+        Assert.assertTrue(result.containsKey("all-exceptions"));
+        Assert.assertTrue(result.containsKey("msg_info"));
+    }
+
+    @Test
+    public void testJsonWithoutStringFieldsWrapTail() {
+        StringBuilder array = new StringBuilder("{\"metrics\":[");
+        for (int i = 0; i < MAX_SIZE; i++) {
+            array.append(i).append(',');
+        }
+        array.append("0]}");
+
+        String truncated = JobCompletedLogDelayDealer.truncateLog(array.toString(), MAX_SIZE);
+        Assert.assertTrue(truncated.length() <= MAX_SIZE);
+        JSONObject result = JSON.parseObject(truncated);
+        Assert.assertTrue(result.getString("msg_info").endsWith("0]}"));
+    }
+
+    @Test
+    public void testTruncateTailKeepSurrogatePair() {
+        String value = "a😀b";
+        String truncated = JobCompletedLogDelayDealer.truncateTail(value, 2);
+        Assert.assertTrue(truncated.endsWith("b"));
+        Assert.assertFalse(truncated.endsWith("\uDE00b"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.dtstack.taier.scheduler.jobdealer;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JobStopDealerTest {
+
+    private static final int POOL_SIZE = 10;
+
+    private static List<List<Integer>> split(int recordSize) {
+        List<Integer> records = new ArrayList<>(recordSize);
+        for (int i = 0; i < recordSize; i++) {
+            records.add(i);
+        }
+        return Lists.partition(records, JobStopDealer.stopBatchSize(recordSize, POOL_SIZE));
+    }
+
+    @Test
+    public void testFewRecordsOnePerThread() {
+        Assert.assertEquals(1, JobStopDealer.stopBatchSize(0, POOL_SIZE));
+        Assert.assertEquals(1, JobStopDealer.stopBatchSize(1, POOL_SIZE));
+        Assert.assertEquals(3, split(3).size());
+        Assert.assertEquals(10, split(10).size());
+    }
+
+    @Test
+    public void testSpreadAcrossPool() {
+        // 不足 STOP_BATCH_SIZE * 线程数时每个线程都分到一批
+        Assert.assertEquals(2, JobStopDealer.stopBatchSize(11, POOL_SIZE));
+        Assert.assertEquals(6, split(11).size());
+        Assert.assertEquals(10, JobStopDealer.stopBatchSize(100, POOL_SIZE));
+        Assert.assertEquals(10, split(100).size());
+        Assert.assertEquals(15, JobStopDealer.stopBatchSize(145, POOL_SIZE));
+        Assert.assertEquals(10, split(145).size());
+    }
+
+    @Test
+    public void testBatchSizeCapped() {
+        Assert.assertEquals(20, JobStopDealer.stopBatchSize(200, POOL_SIZE));
+        Assert.assertEquals(20, JobStopDealer.stopBatchSize(1000, POOL_SIZE));
+        Assert.assertEquals(50, split(1000).size());
+    }
+}
@@ -0,0 +1,86 @@
+package com.dtstack.taier.scheduler.jobdealer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ResourceParkBackoffTest {
+
+    private static final long BASE = 1000L;
+
+    private static final long MAX = 10000L;
+
+    private ResourceParkBackoff newBackoff() {
+        return new ResourceParkBackoff(BASE, MAX, backoff -> backoff);
+    }
+
+    @Test
+    public void testParkOncePerWindow() {
+        ResourceParkBackoff backoff = newBackoff();
+        Assert.assertEquals(BASE, backoff.park(0L));
+        // 同一个退避窗口内其他提交线程的资源不足不再翻倍
+        Assert.assertEquals(0L, backoff.park(1L));
+        Assert.assertEquals(0L, backoff.park(BASE - 1));
+        Assert.assertEquals(1, backoff.getParkRound());
+    }
+
+    @Test
+    public void testDoubleAfterWindow() {
+        ResourceParkBackoff backoff = newBackoff();
+        long now = 0L;
+        Assert.assertEquals(BASE, backoff.park(now));
+        now += BASE;
+        Assert.assertEquals(2 * BASE, backoff.park(now));
+        now += 2 * BASE;
+        Assert.assertEquals(4 * BASE, backoff.park(now));
+        now += 4 * BASE;
+        Assert.assertEquals(8 * BASE, backoff.park(now));
+        now += 8 * BASE;
+        Assert.assertEquals(MAX, backoff.park(now));
+        now += MAX;
+        Assert.assertEquals(MAX, backoff.park(now));
+    }
+
+    @Test
+    public void testResetRound() {
+        ResourceParkBackoff backoff = newBackoff();
+        backoff.park(0L);
+        backoff.park(BASE);
+        backoff.reset();
+        Assert.assertEquals(0, backoff.getParkRound());
+        Assert.assertEquals(BASE, backoff.park(3 * BASE));
+    }
+
+    @Test
+    public void testWakeUp() throws InterruptedException {
+        ResourceParkBackoff backoff = new ResourceParkBackoff(60000L, 60000L, b -> b);
+        backoff.park(System.currentTimeMillis());
+
+        CountDownLatch awaited = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                backoff.await();
+                awaited.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        Assert.assertFalse(awaited.await(100, TimeUnit.MILLISECONDS));
+
+        backoff.wakeUp();
+        Assert.assertTrue(awaited.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, backoff.getParkRound());
+        // 唤醒后新的资源不足重新开始一个窗口
+        Assert.assertEquals(60000L, backoff.park(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testJitterInRange() {
+        ResourceParkBackoff backoff = new ResourceParkBackoff(BASE, MAX);
+        long parked = backoff.park(0L);
+        Assert.assertTrue(parked >= BASE / 2 && parked <= BASE);
+    }
+}
@@ -0,0 +1,91 @@
+package com.dtstack.taier.scheduler.jobdealer.cache;
+
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
+import com.dtstack.taier.pluginapi.JobIdentifier;
+import com.dtstack.taier.pluginapi.enums.ComputeType;
+import com.dtstack.taier.pluginapi.enums.EDeployMode;
+import com.dtstack.taier.pluginapi.pojo.ParamAction;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+
+import static org.mockito.Mockito.when;
+
+public class JobInfoCacheTest {
+
+    private static final String JOB_ID = "job_1";
+
+    private static final Integer COMPUTE_TYPE = ComputeType.BATCH.getType();
+
+    private JobInfoCache jobInfoCache;
+
+    @Before
+    public void setUp() throws Exception {
+        EnvironmentContext environmentContext = Mockito.mock(EnvironmentContext.class);
+        when(environmentContext.getJobInfoCacheMaxWeight()).thenReturn(1024L * 1024L);
+        jobInfoCache = new JobInfoCache();
+        Field field = JobInfoCache.class.getDeclaredField("environmentContext");
+        field.setAccessible(true);
+        field.set(jobInfoCache, environmentContext);
+        jobInfoCache.afterPropertiesSet();
+    }
+
+    private static ParamAction paramAction(String componentVersion) {
+        ParamAction paramAction = new ParamAction();
+        paramAction.setJobId(JOB_ID);
+        paramAction.setTaskType(0);
+        paramAction.setComponentVersion(componentVersion);
+        paramAction.setPluginInfo(Collections.singletonMap("typeName", "yarn2-hdfs2-spark210"));
+        return paramAction;
+    }
+
+    private static ScheduleEngineJobCache jobCache(String jobInfo) {
+        ScheduleEngineJobCache jobCache = new ScheduleEngineJobCache();
+        jobCache.setJobId(JOB_ID);
+        jobCache.setComputeType(COMPUTE_TYPE);
+        jobCache.setJobInfo(jobInfo);
+        return jobCache;
+    }
+
+    @Test
+    public void testPutUseParamAction() throws Exception {
+        jobInfoCache.put(paramAction("2.1"), COMPUTE_TYPE);
+
+        // 命中缓存时不再解析 jobInfo
+        JobInfoCache.ParsedJobInfo parsedJobInfo = jobInfoCache.get(jobCache("not a json"));
+        Assert.assertEquals("2.1", parsedJobInfo.getComponentVersion());
+        Assert.assertEquals(Integer.valueOf(0), parsedJobInfo.getTaskType());
+        Assert.assertEquals(Integer.valueOf(EDeployMode.SESSION.getType()), parsedJobInfo.getDeployMode());
+        Assert.assertEquals("{\"typeName\":\"yarn2-hdfs2-spark210\"}", parsedJobInfo.getPluginInfo());
+    }
+
+    @Test
+    public void testCacheHitByJobId() throws Exception {
+        ScheduleEngineJobCache jobCache = jobCache(paramAction("2.1").toString());
+        JobInfoCache.ParsedJobInfo first = jobInfoCache.get(jobCache);
+
+        // jobInfo 只在写入 job cache 时变化，同一个 jobId 直接命中缓存
+        jobCache.setJobInfo(paramAction("3.0").toString());
+        JobInfoCache.ParsedJobInfo second = jobInfoCache.get(jobCache);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals("2.1", second.getComponentVersion());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        jobInfoCache.put(paramAction("2.1"), COMPUTE_TYPE);
+        jobInfoCache.invalidate(JOB_ID);
+
+        JobIdentifier jobIdentifier = jobInfoCache.buildJobIdentifier(jobCache(paramAction("3.0").toString()), "engine_1", "application_1", 1L);
+
+        Assert.assertEquals("3.0", jobIdentifier.getComponentVersion());
+        Assert.assertEquals(JOB_ID, jobIdentifier.getJobId());
+        Assert.assertEquals("engine_1", jobIdentifier.getEngineJobId());
+    }
+}
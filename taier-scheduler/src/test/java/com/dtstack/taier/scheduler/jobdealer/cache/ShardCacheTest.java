@@ -0,0 +1,100 @@
+package com.dtstack.taier.scheduler.jobdealer.cache;
+
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShardCacheTest {
+
+    private static final String LOCAL_ADDRESS = "127.0.0.1:8090";
+
+    private ScheduleJobCacheService scheduleJobCacheService;
+
+    private ShardCache shardCache;
+
+    @Before
+    public void setUp() {
+        scheduleJobCacheService = Mockito.mock(ScheduleJobCacheService.class);
+        EnvironmentContext environmentContext = Mockito.mock(EnvironmentContext.class);
+        when(environmentContext.getLocalAddress()).thenReturn(LOCAL_ADDRESS);
+
+        ApplicationContext applicationContext = Mockito.mock(ApplicationContext.class);
+        when(applicationContext.getBean(ScheduleJobCacheService.class)).thenReturn(scheduleJobCacheService);
+        when(applicationContext.getBean(EnvironmentContext.class)).thenReturn(environmentContext);
+        when(applicationContext.getBean(JobInfoCache.class)).thenReturn(Mockito.mock(JobInfoCache.class));
+
+        // 不启动分片的状态轮询线程
+        shardCache = new ShardCache() {
+            @Override
+            ShardManager createShardManager(String jobResource) {
+                return new ShardManager(jobResource);
+            }
+        };
+        shardCache.setApplicationContext(applicationContext);
+    }
+
+    @Test
+    public void testAddIndexWithoutDbQuery() {
+        shardCache.addIndex("job_1", "resource_a");
+        Assert.assertTrue(shardCache.updateLocalMemTaskStatus("job_1", TaskStatus.RUNNING.getStatus()));
+        verify(scheduleJobCacheService, never()).getByJobId("job_1");
+    }
+
+    @Test
+    public void testRemoveIndexQueryDb() {
+        shardCache.addIndex("job_1", "resource_a");
+        shardCache.removeIndex("job_1");
+
+        // 已经从 schedule_engine_job_cache 删除的任务不再更新到分片
+        Assert.assertFalse(shardCache.updateLocalMemTaskStatus("job_1", TaskStatus.RUNNING.getStatus()));
+        verify(scheduleJobCacheService, times(1)).getByJobId("job_1");
+    }
+
+    @Test
+    public void testRemoveIfPresent() {
+        shardCache.addIndex("job_1", "resource_a");
+        shardCache.updateLocalMemTaskStatus("job_1", TaskStatus.RUNNING.getStatus());
+
+        Assert.assertTrue(shardCache.removeIfPresent("job_1"));
+        Assert.assertFalse(shardCache.removeIfPresent("job_1"));
+        verify(scheduleJobCacheService, times(1)).getByJobId("job_1");
+    }
+
+    @Test
+    public void testLoadIndexFromDb() {
+        ScheduleEngineJobCache jobCache = new ScheduleEngineJobCache();
+        jobCache.setId(1L);
+        jobCache.setJobId("job_2");
+        jobCache.setJobResource("resource_b");
+        when(scheduleJobCacheService.listByStage(0L, LOCAL_ADDRESS, null, null, Boolean.FALSE))
+                .thenReturn(Collections.singletonList(jobCache));
+
+        Assert.assertTrue(shardCache.updateLocalMemTaskStatus("job_2", TaskStatus.RUNNING.getStatus()));
+        verify(scheduleJobCacheService, never()).getByJobId("job_2");
+    }
+
+    @Test
+    public void testFailoverJobQueryDbOnce() {
+        ScheduleEngineJobCache jobCache = new ScheduleEngineJobCache();
+        jobCache.setJobId("job_3");
+        jobCache.setJobResource("resource_c");
+        when(scheduleJobCacheService.getByJobId("job_3")).thenReturn(jobCache);
+
+        Assert.assertTrue(shardCache.updateLocalMemTaskStatus("job_3", TaskStatus.RUNNING.getStatus()));
+        Assert.assertTrue(shardCache.updateLocalMemTaskStatus("job_3", TaskStatus.FINISHED.getStatus()));
+        verify(scheduleJobCacheService, times(1)).getByJobId("job_3");
+    }
+}
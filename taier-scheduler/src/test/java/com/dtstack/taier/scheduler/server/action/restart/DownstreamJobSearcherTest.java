@@ -0,0 +1,166 @@
+package com.dtstack.taier.scheduler.server.action.restart;
+
+import com.dtstack.taier.common.enums.EScheduleJobType;
+import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class DownstreamJobSearcherTest {
+
+    private static final String CYC_TIME = "20220101000000";
+
+    private final Map<String, ScheduleJob> jobs = new HashMap<>();
+
+    private final List<ScheduleJobJob> jobJobs = Lists.newArrayList();
+
+    private final List<List<String>> queriedLevels = Lists.newArrayList();
+
+    private DownstreamJobSearcher searcher;
+
+    @Before
+    public void setUp() {
+        searcher = new DownstreamJobSearcher(null, null) {
+            @Override
+            List<ScheduleJobJob> listJobJobs(List<String> parentJobKeys) {
+                queriedLevels.add(parentJobKeys);
+                return jobJobs.stream().filter(jobJob -> parentJobKeys.contains(jobJob.getParentJobKey())).collect(Collectors.toList());
+            }
+
+            @Override
+            List<ScheduleJob> listFlowSubJobs(List<String> flowJobIds) {
+                return jobs.values().stream().filter(job -> flowJobIds.contains(job.getFlowJobId())).collect(Collectors.toList());
+            }
+
+            @Override
+            List<ScheduleJob> listJobsByJobKeys(List<String> jobKeys) {
+                return jobs.values().stream().filter(job -> jobKeys.contains(job.getJobKey())).collect(Collectors.toList());
+            }
+        };
+    }
+
+    private ScheduleJob job(String jobId, long shadeId) {
+        return job(jobId, shadeId, CYC_TIME);
+    }
+
+    private ScheduleJob job(String jobId, long shadeId, String cycTime) {
+        ScheduleJob job = new ScheduleJob();
+        job.setJobId(jobId);
+        job.setJobKey("cronTrigger_" + shadeId + "_" + cycTime);
+        job.setCycTime(cycTime);
+        job.setTaskType(EScheduleJobType.SPARK_SQL.getVal());
+        job.setFlowJobId("0");
+        jobs.put(jobId, job);
+        return job;
+    }
+
+    private void edge(ScheduleJob parent, ScheduleJob child) {
+        ScheduleJobJob jobJob = new ScheduleJobJob();
+        jobJob.setParentJobKey(parent.getJobKey());
+        jobJob.setJobKey(child.getJobKey());
+        jobJobs.add(jobJob);
+    }
+
+    private long farDeadline() {
+        return System.currentTimeMillis() + 60000L;
+    }
+
+    @Test
+    public void testSearchLevelByLevel() {
+        ScheduleJob a = job("a", 1);
+        ScheduleJob b = job("b", 2);
+        ScheduleJob c = job("c", 3);
+        ScheduleJob d = job("d", 4);
+        edge(a, b);
+        edge(a, c);
+        edge(b, d);
+        edge(c, d);
+
+        Map<String, String> children = searcher.search(Lists.newArrayList(a), false, farDeadline());
+
+        Assert.assertEquals(Sets.newHashSet("b", "c", "d"), children.keySet());
+        Assert.assertEquals(CYC_TIME, children.get("d"));
+        // 每层只查询一次实例关系，d 被两个上游指向也只展开一次
+        Assert.assertEquals(3, queriedLevels.size());
+        Assert.assertEquals(Lists.newArrayList(d.getJobKey()), queriedLevels.get(2));
+    }
+
+    @Test
+    public void testOnlyNextChild() {
+        ScheduleJob a = job("a", 1);
+        ScheduleJob b = job("b", 2);
+        ScheduleJob c = job("c", 3);
+        edge(a, b);
+        edge(b, c);
+
+        Map<String, String> children = searcher.search(Lists.newArrayList(a), true, farDeadline());
+
+        Assert.assertEquals(Sets.newHashSet("b"), children.keySet());
+        Assert.assertEquals(1, queriedLevels.size());
+    }
+
+    @Test
+    public void testCycleEnds() {
+        ScheduleJob a = job("a", 1);
+        ScheduleJob b = job("b", 2);
+        ScheduleJob c = job("c", 3);
+        edge(a, b);
+        edge(b, c);
+        edge(c, a);
+        edge(c, b);
+
+        Map<String, String> children = searcher.search(Lists.newArrayList(a), false, farDeadline());
+
+        // 成环时不重复展开，开始的实例不在结果中
+        Assert.assertEquals(Sets.newHashSet("b", "c"), children.keySet());
+        Assert.assertEquals(3, queriedLevels.size());
+    }
+
+    @Test
+    public void testSkipSelfDependAndOtherDay() {
+        ScheduleJob a = job("a", 1);
+        ScheduleJob nextCycle = job("a_next", 1, "20220101010000");
+        ScheduleJob otherDay = job("other_day", 2, "20220102000000");
+        ScheduleJob b = job("b", 3);
+        edge(a, nextCycle);
+        edge(a, otherDay);
+        edge(a, b);
+
+        Map<String, String> children = searcher.search(Lists.newArrayList(a), false, farDeadline());
+
+        Assert.assertEquals(Sets.newHashSet("b"), children.keySet());
+    }
+
+    @Test
+    public void testWorkFlowSubJobs() {
+        ScheduleJob flow = job("flow", 1);
+        flow.setTaskType(EScheduleJobType.WORK_FLOW.getVal());
+        ScheduleJob subJob = job("sub", 2);
+        subJob.setFlowJobId("flow");
+        ScheduleJob next = job("next", 3);
+        edge(flow, subJob);
+        edge(flow, next);
+
+        Map<String, String> children = searcher.search(Lists.newArrayList(flow), false, farDeadline());
+
+        Assert.assertEquals(Sets.newHashSet("sub", "next"), children.keySet());
+    }
+
+    @Test(expected = RdosDefineException.class)
+    public void testTimeoutFailsWholeSearch() {
+        ScheduleJob a = job("a", 1);
+        ScheduleJob b = job("b", 2);
+        edge(a, b);
+
+        searcher.search(Lists.newArrayList(a), false, System.currentTimeMillis() - 1);
+    }
+}
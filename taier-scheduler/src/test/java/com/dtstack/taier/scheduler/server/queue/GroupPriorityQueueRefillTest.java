@@ -0,0 +1,190 @@
+package com.dtstack.taier.scheduler.server.queue;
+
+import com.dtstack.taier.common.enums.EJobCacheStage;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.common.queue.comparator.JobClientComparator;
+import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
+import com.dtstack.taier.pluginapi.JobClient;
+import com.dtstack.taier.scheduler.jobdealer.JobDealer;
+import com.dtstack.taier.scheduler.jobdealer.JobSubmitDealer;
+import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class GroupPriorityQueueRefillTest {
+
+    private static final String LOCAL_ADDRESS = "127.0.0.1:8090";
+
+    private static final String JOB_RESOURCE = "resource_a";
+
+    private static final int DB_STAGE = EJobCacheStage.DB.getStage();
+
+    private ScheduleJobCacheService scheduleJobCacheService;
+
+    private GroupPriorityQueue groupPriorityQueue;
+
+    private PriorityBlockingQueue<JobClient> queue;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduleJobCacheService = Mockito.mock(ScheduleJobCacheService.class);
+        EnvironmentContext environmentContext = Mockito.mock(EnvironmentContext.class);
+        when(environmentContext.getLocalAddress()).thenReturn(LOCAL_ADDRESS);
+        JobSubmitDealer jobSubmitDealer = Mockito.mock(JobSubmitDealer.class);
+        when(jobSubmitDealer.getDelayJobQueueSize()).thenReturn(0);
+        // 补充任务直接在调用线程中执行
+        ExecutorService refillExecutor = Mockito.mock(ExecutorService.class);
+        Mockito.doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(refillExecutor).execute(Mockito.any(Runnable.class));
+
+        queue = new PriorityBlockingQueue<>(16, new JobClientComparator());
+        groupPriorityQueue = GroupPriorityQueue.builder()
+                .setJobResource(JOB_RESOURCE)
+                .setJobDealer(Mockito.mock(JobDealer.class));
+        setField("environmentContext", environmentContext);
+        setField("ScheduleJobCacheService", scheduleJobCacheService);
+        setField("jobSubmitDealer", jobSubmitDealer);
+        setField("refillExecutor", refillExecutor);
+        setField("queue", queue);
+        setQueueSizeLimited(10);
+        blocked().set(true);
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = GroupPriorityQueue.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(groupPriorityQueue, value);
+    }
+
+    private void setQueueSizeLimited(int queueSizeLimited) throws Exception {
+        setField("queueSizeLimited", queueSizeLimited);
+        setField("refillWaterMark", Math.max(1, queueSizeLimited / 2));
+    }
+
+    private AtomicBoolean blocked() throws Exception {
+        Field field = GroupPriorityQueue.class.getDeclaredField("blocked");
+        field.setAccessible(true);
+        return (AtomicBoolean) field.get(groupPriorityQueue);
+    }
+
+    private void fillQueue(int size) {
+        for (int i = 0; i < size; i++) {
+            JobClient jobClient = new JobClient();
+            jobClient.setJobId("queued_" + i);
+            queue.put(jobClient);
+        }
+    }
+
+    private static ScheduleEngineJobCache jobCache(long id, Long priority) {
+        ScheduleEngineJobCache jobCache = new ScheduleEngineJobCache();
+        jobCache.setId(id);
+        jobCache.setJobId("job_" + id);
+        jobCache.setJobResource(JOB_RESOURCE);
+        jobCache.setJobPriority(priority);
+        jobCache.setJobInfo(String.format("{\"jobId\":\"job_%d\",\"computeType\":1,\"taskType\":0,\"priority\":%d}",
+                id, priority == null ? 1L : priority));
+        return jobCache;
+    }
+
+    private static List<ScheduleEngineJobCache> jobCaches(long startId, int size, long priority) {
+        List<ScheduleEngineJobCache> jobCaches = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            jobCaches.add(jobCache(startId + i, priority));
+        }
+        return jobCaches;
+    }
+
+    @Test
+    public void testNeedRefill() {
+        Assert.assertFalse(GroupPriorityQueue.needRefill(false, 0, 50));
+        Assert.assertTrue(GroupPriorityQueue.needRefill(true, 49, 50));
+        Assert.assertFalse(GroupPriorityQueue.needRefill(true, 50, 50));
+    }
+
+    @Test
+    public void testNoRefillWhenUnblockedOrAboveWaterMark() throws Exception {
+        blocked().set(false);
+        groupPriorityQueue.signalRefill();
+
+        blocked().set(true);
+        fillQueue(5);
+        groupPriorityQueue.signalRefill();
+
+        verifyZeroInteractions(scheduleJobCacheService);
+        Assert.assertEquals(5, queue.size());
+    }
+
+    @Test
+    public void testRefillOnlyDeficit() throws Exception {
+        fillQueue(4);
+        when(scheduleJobCacheService.listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, null, 0L, 6))
+                .thenReturn(jobCaches(1, 6, 1L));
+
+        groupPriorityQueue.signalRefill();
+
+        // 只查询队列的缺口，补满后不再查询；db 中可能还有任务，保持 blocked
+        verify(scheduleJobCacheService).listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, null, 0L, 6);
+        Assert.assertEquals(10, queue.size());
+        Assert.assertTrue(blocked().get());
+    }
+
+    @Test
+    public void testPageByPriorityAndId() throws Exception {
+        List<ScheduleEngineJobCache> firstPage = new ArrayList<>();
+        firstPage.add(jobCache(5, 1L));
+        firstPage.add(jobCache(8, 1L));
+        firstPage.add(jobCache(3, 2L));
+        when(scheduleJobCacheService.listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, null, 0L, 10))
+                .thenReturn(firstPage);
+        when(scheduleJobCacheService.listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, 2L, 3L, 7))
+                .thenReturn(Collections.singletonList(jobCache(4, 2L)));
+        when(scheduleJobCacheService.listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, 2L, 4L, 6))
+                .thenReturn(Collections.emptyList());
+
+        groupPriorityQueue.signalRefill();
+
+        // 下一页从上一页最后一条的 (priority, id) 之后开始
+        verify(scheduleJobCacheService).listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, 2L, 3L, 7);
+        verify(scheduleJobCacheService).listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, 2L, 4L, 6);
+        Assert.assertEquals(4, queue.size());
+        // db 中的任务已经全部加载，解除 blocked
+        Assert.assertFalse(blocked().get());
+    }
+
+    @Test
+    public void testNullPriorityPageFromZero() throws Exception {
+        when(scheduleJobCacheService.listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, null, 0L, 10))
+                .thenReturn(Collections.singletonList(jobCache(7, null)));
+
+        groupPriorityQueue.signalRefill();
+
+        verify(scheduleJobCacheService).listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, 0L, 7L, 9);
+        Assert.assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testPageSizeCappedByBatchSize() throws Exception {
+        setQueueSizeLimited(1200);
+
+        groupPriorityQueue.signalRefill();
+
+        verify(scheduleJobCacheService).listByStageOrderByPriority(LOCAL_ADDRESS, DB_STAGE, JOB_RESOURCE, null, 0L, 500);
+        Assert.assertFalse(blocked().get());
+    }
+}
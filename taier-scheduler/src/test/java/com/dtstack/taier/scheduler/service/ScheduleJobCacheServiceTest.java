@@ -0,0 +1,83 @@
+package com.dtstack.taier.scheduler.service;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.dtstack.taier.common.enums.EJobCacheStage;
+import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
+import com.dtstack.taier.dao.mapper.ScheduleEngineJobCacheMapper;
+import com.dtstack.taier.scheduler.jobdealer.cache.JobInfoCache;
+import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ScheduleJobCacheServiceTest {
+
+    @Mock
+    private ScheduleEngineJobCacheMapper scheduleEngineJobCacheMapper;
+
+    @Mock
+    private JobInfoCache jobInfoCache;
+
+    @Mock
+    private ShardCache shardCache;
+
+    @InjectMocks
+    private ScheduleJobCacheService scheduleJobCacheService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testDeleteByJobIdsRemoveIndex() {
+        List<String> jobIds = Arrays.asList("job_1", "job_2");
+        when(scheduleEngineJobCacheMapper.deleteByJobIds(jobIds)).thenReturn(2);
+
+        Assert.assertEquals(Integer.valueOf(2), scheduleJobCacheService.deleteByJobIds(jobIds));
+        for (String jobId : jobIds) {
+            verify(jobInfoCache).invalidate(jobId);
+            verify(shardCache).removeIndex(jobId);
+        }
+        verify(scheduleEngineJobCacheMapper).deleteByJobIds(jobIds);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpdateStageBatchPersistPriority() {
+        Map<String, Long> jobPriorities = new LinkedHashMap<>();
+        jobPriorities.put("job_1", 10L);
+        jobPriorities.put("job_2", 20L);
+        jobPriorities.put("job_3", 10L);
+        when(scheduleEngineJobCacheMapper.update(Mockito.any(ScheduleEngineJobCache.class), Mockito.any(Wrapper.class)))
+                .thenReturn(2, 1);
+
+        int updated = scheduleJobCacheService.updateStageBatch(jobPriorities, EJobCacheStage.SUBMITTED.getStage(), "127.0.0.1:8090");
+
+        // 相同优先级的任务合并为一条 update
+        Assert.assertEquals(3, updated);
+        ArgumentCaptor<ScheduleEngineJobCache> captor = ArgumentCaptor.forClass(ScheduleEngineJobCache.class);
+        verify(scheduleEngineJobCacheMapper, times(2)).update(captor.capture(), Mockito.any(Wrapper.class));
+        List<ScheduleEngineJobCache> jobCaches = captor.getAllValues();
+        Assert.assertEquals(Long.valueOf(10L), jobCaches.get(0).getJobPriority());
+        Assert.assertEquals(Long.valueOf(20L), jobCaches.get(1).getJobPriority());
+        for (ScheduleEngineJobCache jobCache : jobCaches) {
+            Assert.assertEquals(Integer.valueOf(EJobCacheStage.SUBMITTED.getStage()), jobCache.getStage());
+            Assert.assertEquals("127.0.0.1:8090", jobCache.getNodeAddress());
+        }
+    }
+}
@@ -58,6 +58,11 @@ public class JobClient implements Serializable {
 
     private JobClientCallBack jobClientCallBack;
 
+    /**
+     * 资源不足时插件通知资源释放
+     */
+    private transient ResourceCallBack resourceCallBack;
+
     private List<JarFileInfo> attachJarInfos = Lists.newArrayList();
 
     private JarFileInfo coreJarInfo;
@@ -359,6 +364,14 @@ public class JobClient implements Serializable {
         this.jobClientCallBack = jobClientCallBack;
     }
 
+    public ResourceCallBack getResourceCallBack() {
+        return resourceCallBack;
+    }
+
+    public void setResourceCallBack(ResourceCallBack resourceCallBack) {
+        this.resourceCallBack = resourceCallBack;
+    }
+
     public JobClientCallBack getJobCallBack() {
         return jobClientCallBack;
     }
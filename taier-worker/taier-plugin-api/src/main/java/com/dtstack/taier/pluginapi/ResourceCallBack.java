@@ -0,0 +1,11 @@
+package com.dtstack.taier.pluginapi;
+
+/**
+ * 资源不足的任务在插件侧登记，插件发现资源释放（如 yarn 资源快照中空闲资源增加）时回调，提前唤醒等待资源的提交线程
+ *
+ * Company: www.dtstack.com
+ */
+public interface ResourceCallBack {
+
+    void resourceAvailable();
+}
@@ -28,7 +28,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Reason:
@@ -79,6 +81,25 @@ public abstract class AbstractClient implements IClient {
         return status;
     }
 
+    /**
+     * 默认逐个查询，支持批量查询的插件覆盖该方法
+     */
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            TaskStatus status;
+            try {
+                status = getJobStatus(jobIdentifier);
+            } catch (Exception e) {
+                LOGGER.error("jobId:{} get job status error: {}", jobIdentifier.getJobId(), e.getMessage());
+                status = TaskStatus.NOTFOUND;
+            }
+            statusMap.put(jobIdentifier.getJobId(), status);
+        }
+        return statusMap;
+    }
+
     protected TaskStatus processJobStatus(JobIdentifier jobIdentifier) {
         return TaskStatus.NOTFOUND;
     }
@@ -156,4 +177,8 @@ public abstract class AbstractClient implements IClient {
     public List<FileResult> listFile(String path,boolean isPathPattern) {
         return null;
     }
+
+    @Override
+    public void close() {
+    }
 }
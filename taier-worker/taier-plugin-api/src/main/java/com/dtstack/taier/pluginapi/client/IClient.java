@@ -25,6 +25,7 @@ import com.dtstack.taier.pluginapi.pojo.*;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -42,6 +43,14 @@ public interface IClient {
 
     TaskStatus getJobStatus(JobIdentifier jobIdentifier) throws IOException;
 
+    /**
+     * 批量获取任务状态，一次远程调用返回多个任务的状态
+     *
+     * @param jobIdentifiers 任务标识
+     * @return jobId -> 任务状态
+     */
+    Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers);
+
 	String getJobMaster(JobIdentifier jobIdentifier);
 
 	String getMessageByHttp(String path);
@@ -65,4 +74,9 @@ public interface IClient {
 	CheckResult grammarCheck(JobClient jobClient);
 
 	List<FileResult> listFile(String path,boolean isPathPattern);
+
+    /**
+     * client 被淘汰后释放资源，如 yarn 客户端、后台线程、会话状态
+     */
+    void close();
 }
@@ -46,6 +46,12 @@ public class BaseConfig {
 
     private String mergeKrbContent;
 
+    /** yarn 资源快照刷新间隔(ms) */
+    private long yarnResourceRefreshInterval = 5000L;
+
+    /** judgeSlots 通过后为任务预留资源的最长时间(ms) */
+    private long yarnResourceReserveTimeout = 5 * 60 * 1000L;
+
     public String getMergeKrbContent() {
         return mergeKrbContent;
     }
@@ -109,4 +115,20 @@ public class BaseConfig {
     public void setPrincipalFile(String principalFile) {
         this.principalFile = principalFile;
     }
+
+    public long getYarnResourceRefreshInterval() {
+        return yarnResourceRefreshInterval;
+    }
+
+    public void setYarnResourceRefreshInterval(long yarnResourceRefreshInterval) {
+        this.yarnResourceRefreshInterval = yarnResourceRefreshInterval;
+    }
+
+    public long getYarnResourceReserveTimeout() {
+        return yarnResourceReserveTimeout;
+    }
+
+    public void setYarnResourceReserveTimeout(long yarnResourceReserveTimeout) {
+        this.yarnResourceReserveTimeout = yarnResourceReserveTimeout;
+    }
 }
@@ -52,7 +52,7 @@ public class AcceptedApplicationMonitor implements Runnable {
 
     private static final long THRESHOLD = 60L * 1000 * 10;
 
-    private static ScheduledExecutorService scheduledService;
+    private ScheduledExecutorService scheduledService;
 
     private static final String SPLIT = "_";
 
@@ -62,14 +62,22 @@ public class AcceptedApplicationMonitor implements Runnable {
 
     private BaseConfig config;
 
-    public static void start(YarnConfiguration yarnConf, String queueName, BaseConfig config) {
+    public static AcceptedApplicationMonitor start(YarnConfiguration yarnConf, String queueName, BaseConfig config) {
         AcceptedApplicationMonitor monitor = new AcceptedApplicationMonitor();
         monitor.queueName = queueName;
         monitor.yarnConf = yarnConf;
         monitor.config = config;
         String namePrefix = monitor.getClass().getSimpleName() + SPLIT + queueName;
-        scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(namePrefix));
-        scheduledService.scheduleWithFixedDelay(monitor, 0, INTERVAL, TimeUnit.MILLISECONDS);
+        monitor.scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(namePrefix));
+        monitor.scheduledService.scheduleWithFixedDelay(monitor, 0, INTERVAL, TimeUnit.MILLISECONDS);
+        return monitor;
+    }
+
+    /**
+     * client 关闭时停止监控
+     */
+    public void stop() {
+        scheduledService.shutdownNow();
     }
 
     @Override
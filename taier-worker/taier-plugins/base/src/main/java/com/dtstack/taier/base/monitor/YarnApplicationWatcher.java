@@ -0,0 +1,319 @@
+package com.dtstack.taier.base.monitor;
+
+import com.dtstack.taier.base.BaseConfig;
+import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.base.util.YarnApplicationUtils;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.ipc.RPC;
+import org.apache.hadoop.yarn.api.ApplicationClientProtocol;
+import org.apache.hadoop.yarn.api.protocolrecords.ApplicationsRequestScope;
+import org.apache.hadoop.yarn.api.protocolrecords.GetApplicationsRequest;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.ClientRMProxy;
+import org.apache.hadoop.yarn.conf.HAUtil;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时拉取 yarn 上的 application 列表并维护状态，批量获取任务状态时直接读取，不再每个任务调用一次 RM
+ * 每次拉取所有运行中的 application，以及上次拉取之后结束的 application（按结束时间游标增量查询）
+ * 同一个 RM 地址、同一个用户的插件 client 共用一个 watcher，只拉取这些 client 所属队列的 application
+ * 一段时间没有被读取时停止拉取，再次读取时重新开始，所有 client 关闭后移除
+ *
+ * Company: www.dtstack.com
+ */
+public class YarnApplicationWatcher implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(YarnApplicationWatcher.class);
+
+    private static final long INTERVAL = 2000L;
+
+    /**
+     * 超过该时间没有拉取成功，认为状态已过期，调用方需要逐个查询
+     */
+    private static final long EXPIRE_TIME = INTERVAL * 5;
+
+    /**
+     * 超过该时间没有被读取，停止拉取
+     */
+    private static final long IDLE_TIME = 10 * 60 * 1000L;
+
+    /**
+     * 已结束的 application 保留时间，也是首次拉取时结束时间的回溯范围
+     */
+    private static final long FINISHED_RETENTION = 30 * 60 * 1000L;
+
+    /**
+     * 结束时间游标向前重叠的范围，避免同一毫秒结束的 application 遗漏
+     */
+    private static final long CURSOR_OVERLAP = 60 * 1000L;
+
+    private static final String ROOT_QUEUE_PREFIX = "root.";
+
+    private static final Map<String, YarnApplicationWatcher> WATCHERS = new ConcurrentHashMap<>();
+
+    private static final EnumSet<YarnApplicationState> FINISHED_STATES = EnumSet.of(
+            YarnApplicationState.FINISHED,
+            YarnApplicationState.FAILED,
+            YarnApplicationState.KILLED);
+
+    private final String name;
+
+    private final BaseConfig config;
+
+    private final Configuration conf;
+
+    private final Set<QueueView> views = ConcurrentHashMap.newKeySet();
+
+    private volatile Map<String, ApplicationReport> activeApplications = Collections.emptyMap();
+
+    private final Map<String, ApplicationReport> finishedApplications = new ConcurrentHashMap<>();
+
+    private long finishCursor = 0L;
+
+    private volatile long lastPollTime = 0L;
+
+    private volatile long lastAccessTime = 0L;
+
+    private ScheduledExecutorService scheduledService;
+
+    private YarnApplicationWatcher(String name, BaseConfig config, Configuration conf) {
+        this.name = name;
+        this.config = config;
+        this.conf = conf;
+    }
+
+    /**
+     * 获取 RM 对应的 watcher，只读取指定队列的 application
+     *
+     * @param name   client 名称
+     * @param config kerberos 配置
+     * @param conf   yarn 配置
+     * @param queue  client 所属队列，为空时读取所有队列
+     * @return 使用完需要 close
+     */
+    public static QueueView watch(String name, BaseConfig config, Configuration conf, String queue) {
+        QueueView[] view = new QueueView[1];
+        WATCHERS.compute(buildKey(config, conf), (key, watcher) -> {
+            if (watcher == null) {
+                watcher = new YarnApplicationWatcher(name, config, conf);
+            }
+            view[0] = watcher.new QueueView(key, queue);
+            watcher.views.add(view[0]);
+            return watcher;
+        });
+        return view[0];
+    }
+
+    /**
+     * RM 地址和 kerberos 用户相同时共用一个 watcher
+     */
+    static String buildKey(BaseConfig config, Configuration conf) {
+        StringBuilder key = new StringBuilder();
+        Collection<String> rmIds = conf.getTrimmedStringCollection(YarnConfiguration.RM_HA_IDS);
+        if (HAUtil.isHAEnabled(conf) && !rmIds.isEmpty()) {
+            for (String rmId : rmIds) {
+                key.append(conf.get(HAUtil.addSuffix(YarnConfiguration.RM_ADDRESS, rmId))).append(',');
+            }
+        } else {
+            key.append(conf.get(YarnConfiguration.RM_ADDRESS, YarnConfiguration.DEFAULT_RM_ADDRESS));
+        }
+        if (config != null && config.isOpenKerberos()) {
+            key.append('_').append(config.getPrincipal());
+        }
+        return key.toString();
+    }
+
+    static String normalizeQueue(String queue) {
+        return StringUtils.removeStart(StringUtils.trimToEmpty(queue), ROOT_QUEUE_PREFIX);
+    }
+
+    /**
+     * 需要拉取的队列，有 client 不限队列时返回 null 拉取所有队列
+     * RM 按队列名精确匹配，fair scheduler 的队列名带 root. 前缀，两种写法都加上
+     */
+    Set<String> getWatchQueues() {
+        Set<String> queues = new HashSet<>();
+        for (QueueView view : views) {
+            if (StringUtils.isBlank(view.queue)) {
+                return null;
+            }
+            queues.add(view.queue);
+            queues.add(ROOT_QUEUE_PREFIX + view.queue);
+        }
+        return queues;
+    }
+
+    /**
+     * 获取 application 的最新状态
+     *
+     * @param applicationId applicationId
+     * @return 不在列表中或者状态已过期时返回 null
+     */
+    private ApplicationReport getApplicationReport(String applicationId) {
+        lastAccessTime = System.currentTimeMillis();
+        ensureStarted();
+        if (lastAccessTime - lastPollTime > EXPIRE_TIME) {
+            return null;
+        }
+        ApplicationReport report = activeApplications.get(applicationId);
+        return report != null ? report : finishedApplications.get(applicationId);
+    }
+
+    private synchronized void ensureStarted() {
+        if (scheduledService != null) {
+            return;
+        }
+        scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName() + "_" + name));
+        scheduledService.scheduleWithFixedDelay(this, 0, INTERVAL, TimeUnit.MILLISECONDS);
+        LOGGER.info("{} start watch yarn applications.", name);
+    }
+
+    private synchronized void stop() {
+        if (scheduledService == null) {
+            return;
+        }
+        scheduledService.shutdown();
+        scheduledService = null;
+        activeApplications = Collections.emptyMap();
+        finishedApplications.clear();
+        finishCursor = 0L;
+        lastPollTime = 0L;
+        LOGGER.info("{} idle, stop watch yarn applications.", name);
+    }
+
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        if (now - lastAccessTime > IDLE_TIME) {
+            stop();
+            return;
+        }
+        try {
+            poll(now);
+            lastPollTime = now;
+        } catch (Exception e) {
+            LOGGER.error("{} watch yarn applications error", name, e);
+        }
+    }
+
+    private void poll(long now) throws Exception {
+        long finishBegin = finishCursor > 0 ? finishCursor - CURSOR_OVERLAP : now - FINISHED_RETENTION;
+        Set<String> queues = getWatchQueues();
+        Map<String, List<ApplicationReport>> reports = KerberosUtils.login(config, () -> {
+            ApplicationClientProtocol rmClient = null;
+            try {
+                rmClient = ClientRMProxy.createRMProxy(conf, ApplicationClientProtocol.class);
+
+                GetApplicationsRequest activeRequest = GetApplicationsRequest.newInstance(YarnApplicationUtils.ACTIVE_STATES);
+                activeRequest.setScope(ApplicationsRequestScope.ALL);
+                if (queues != null) {
+                    activeRequest.setQueues(queues);
+                }
+
+                GetApplicationsRequest finishedRequest = GetApplicationsRequest.newInstance(FINISHED_STATES);
+                finishedRequest.setScope(ApplicationsRequestScope.ALL);
+                finishedRequest.setFinishRange(finishBegin, Long.MAX_VALUE);
+                if (queues != null) {
+                    finishedRequest.setQueues(queues);
+                }
+
+                Map<String, List<ApplicationReport>> result = new HashMap<>(2);
+                result.put("active", rmClient.getApplications(activeRequest).getApplicationList());
+                result.put("finished", rmClient.getApplications(finishedRequest).getApplicationList());
+                return result;
+            } catch (Exception e) {
+                throw new PluginDefineException(e);
+            } finally {
+                if (rmClient != null) {
+                    RPC.stopProxy(rmClient);
+                }
+            }
+        }, conf);
+
+        Map<String, ApplicationReport> newActiveApplications = new HashMap<>(reports.get("active").size());
+        for (ApplicationReport report : reports.get("active")) {
+            newActiveApplications.put(report.getApplicationId().toString(), report);
+        }
+
+        int finishedCount = 0;
+        long maxFinishTime = finishCursor;
+        for (ApplicationReport report : reports.get("finished")) {
+            String applicationId = report.getApplicationId().toString();
+            if (finishedApplications.put(applicationId, report) == null) {
+                finishedCount++;
+            }
+            maxFinishTime = Math.max(maxFinishTime, report.getFinishTime());
+        }
+        // 结束时间使用 RM 的时钟，游标只根据 RM 返回的结束时间推进
+        finishCursor = maxFinishTime > 0 ? maxFinishTime : finishBegin + CURSOR_OVERLAP;
+        finishedApplications.values().removeIf(report -> report.getFinishTime() < finishCursor - FINISHED_RETENTION);
+        activeApplications = newActiveApplications;
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("{} active applications:{}, new finished applications:{}, cached finished applications:{}",
+                    name, newActiveApplications.size(), finishedCount, finishedApplications.size());
+        }
+    }
+
+    /**
+     * client 持有的 watcher 视图，只返回所属队列的 application
+     */
+    public class QueueView {
+
+        private final String key;
+
+        private final String queue;
+
+        private QueueView(String key, String queue) {
+            this.key = key;
+            this.queue = normalizeQueue(queue);
+        }
+
+        /**
+         * 获取 application 的最新状态
+         *
+         * @param applicationId applicationId
+         * @return 不在列表中、不属于该队列或者状态已过期时返回 null
+         */
+        public ApplicationReport getApplicationReport(String applicationId) {
+            ApplicationReport report = YarnApplicationWatcher.this.getApplicationReport(applicationId);
+            if (report == null || StringUtils.isBlank(queue) || queue.equals(normalizeQueue(report.getQueue()))) {
+                return report;
+            }
+            return null;
+        }
+
+        /**
+         * client 关闭时调用，RM 上没有其他 client 时停止监听并移除 watcher
+         */
+        public void close() {
+            WATCHERS.computeIfPresent(key, (k, watcher) -> {
+                watcher.views.remove(this);
+                if (watcher.views.isEmpty()) {
+                    watcher.stop();
+                    return null;
+                }
+                return watcher;
+            });
+        }
+    }
+}
@@ -18,24 +18,20 @@
 
 package com.dtstack.taier.base.resource;
 
+import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.pojo.JudgeResult;
 import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.hadoop.yarn.api.records.ApplicationReport;
-import org.apache.hadoop.yarn.api.records.NodeReport;
-import org.apache.hadoop.yarn.api.records.NodeState;
 import org.apache.hadoop.yarn.api.records.QueueInfo;
-import org.apache.hadoop.yarn.api.records.Resource;
-import org.apache.hadoop.yarn.api.records.YarnApplicationState;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 
 /**
@@ -69,9 +65,21 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
     protected int totalMem = 0;
     protected int[] nmFreeCore = null;
     protected int[] nmFreeMem = null;
+    protected String[] nmIds = null;
     protected int containerCoreMax;
     protected int containerMemoryMax;
 
+    /**
+     * 未设置共享快照时每次判断都重新从 RM 拉取
+     */
+    protected YarnResourceSnapshot resourceSnapshot = new YarnResourceSnapshot(0L, 0L);
+    protected boolean reserveResource = true;
+
+    /**
+     * 本次判断在各个节点上分配的资源, nodeId -> [cores, memory]
+     */
+    protected Map<String, int[]> allocations = new HashMap<>();
+
     protected JudgeResult judgeYarnResource(List<InstanceInfo> instanceInfos) {
         if (totalFreeCore == 0 || totalFreeMem == 0) {
             logger.info("judgeYarnResource, totalFreeCore={}, totalFreeMem={}", totalFreeCore, totalFreeMem);
@@ -122,77 +130,87 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
         if (instances == 0 || coresPerInstance == 0 || memPerInstance == 0) {
             return JudgeResult.limitError("Yarn task resource configuration error，instance：" + instances + ", coresPerInstance：" + coresPerInstance + ", memPerInstance：" + memPerInstance);
         }
-        if (!judgeCores(instances, coresPerInstance)) {
-            return JudgeResult.notOk( "Insufficient cpu resources of yarn cluster");
-        }
-        if (!judgeMem(instances, memPerInstance)) {
-            return JudgeResult.notOk( "Insufficient memory resources of yarn cluster");
-        }
-        return JudgeResult.ok();
-    }
-
-    private boolean judgeCores(int instances, int coresPerInstance) {
         for (int i = 1; i <= instances; i++) {
-            if (!allocateResource(nmFreeCore, coresPerInstance)) {
-                return false;
+            if (!allocateResource(coresPerInstance, memPerInstance)) {
+                return JudgeResult.notOk( "Insufficient cpu or memory resources of yarn cluster");
             }
         }
-        return true;
+        return JudgeResult.ok();
     }
 
-    private boolean judgeMem(int instances, int memPerInstance) {
-        for (int i = 1; i <= instances; i++) {
-            if (!allocateResource(nmFreeMem, memPerInstance)) {
-                return false;
+    /**
+     * best-fit: container 的 core 和 memory 必须分配在同一个 nodeManager 上，
+     * 选择能放下该 container 且剩余内存(其次剩余core)最少的节点，把大块空闲留给后面更大的 container
+     */
+    private boolean allocateResource(int coresPerInstance, int memPerInstance) {
+        int bestIndex = -1;
+        for (int i = 0; i < nmFreeCore.length; i++) {
+            if (nmFreeCore[i] < coresPerInstance || nmFreeMem[i] < memPerInstance) {
+                continue;
+            }
+            if (bestIndex == -1
+                    || nmFreeMem[i] < nmFreeMem[bestIndex]
+                    || (nmFreeMem[i] == nmFreeMem[bestIndex] && nmFreeCore[i] < nmFreeCore[bestIndex])) {
+                bestIndex = i;
             }
         }
+        if (bestIndex == -1) {
+            return false;
+        }
+        nmFreeCore[bestIndex] -= coresPerInstance;
+        nmFreeMem[bestIndex] -= memPerInstance;
+        int[] allocated = allocations.computeIfAbsent(nmIds[bestIndex], k -> new int[2]);
+        allocated[0] += coresPerInstance;
+        allocated[1] += memPerInstance;
         return true;
     }
 
-    private boolean allocateResource(int[] nodeManagers, int toAllocate) {
-        for (int i = 0; i < nodeManagers.length; i++) {
-            if (nodeManagers[i] >= toAllocate) {
-                nodeManagers[i] -= toAllocate;
-                return true;
+    /**
+     * 判断资源是否足够，足够时在共享快照上为该任务预留资源，判断和预留在快照锁内完成，避免同一时间的多个任务重复使用同一份空闲资源
+     *
+     * 资源不足时登记任务的回调，快照中资源释放后通知
+     *
+     * @param yarnClient             yarnClient
+     * @param jobClient              任务
+     * @param queueName              队列
+     * @param yarnAccepterTaskNumber 队列允许的 accepted 任务数
+     * @param instanceInfos          任务需要的 container
+     */
+    protected JudgeResult judgeYarnSlots(YarnClient yarnClient, JobClient jobClient, String queueName, int yarnAccepterTaskNumber, List<InstanceInfo> instanceInfos) {
+        synchronized (resourceSnapshot) {
+            JudgeResult jr = getYarnSlots(yarnClient, queueName, yarnAccepterTaskNumber);
+            if (jr.available()) {
+                jr = judgeYarnResource(instanceInfos);
+            }
+            if (jr.available() && reserveResource) {
+                resourceSnapshot.reserve(jobClient.getJobId(), queueName, allocations);
+            } else if (JudgeResult.JudgeType.NOT_OK == jr.getResult()) {
+                resourceSnapshot.awaitResource(jobClient.getResourceCallBack());
             }
+            return jr;
         }
-        return false;
     }
 
     public JudgeResult getYarnSlots(YarnClient yarnClient, String queueName, int yarnAccepterTaskNumber) {
         try {
-            EnumSet<YarnApplicationState> enumSet = EnumSet.noneOf(YarnApplicationState.class);
-            enumSet.add(YarnApplicationState.ACCEPTED);
-            List<ApplicationReport> acceptedApps = yarnClient.getApplications(enumSet).stream().
-                    filter(report -> report.getQueue().endsWith(queueName)).collect(Collectors.toList());
-            if (acceptedApps.size() > yarnAccepterTaskNumber) {
-                logger.info("queueName:{} acceptedApps:{} >= yarnAccepterTaskNumber:{}", queueName, acceptedApps.size(), yarnAccepterTaskNumber);
-                return JudgeResult.notOk( "queueName:" + queueName + " acceptedApps:" + acceptedApps.size() + " >= yarnAccepterTaskNumber:" + yarnAccepterTaskNumber);
+            resourceSnapshot.refreshIfExpired(yarnClient, !elasticCapacity);
+            int acceptedApps = resourceSnapshot.countAccepted(queueName);
+            if (acceptedApps > yarnAccepterTaskNumber) {
+                logger.info("queueName:{} acceptedApps:{} >= yarnAccepterTaskNumber:{}", queueName, acceptedApps, yarnAccepterTaskNumber);
+                return JudgeResult.notOk( "queueName:" + queueName + " acceptedApps:" + acceptedApps + " >= yarnAccepterTaskNumber:" + yarnAccepterTaskNumber);
             }
 
-            List<NodeReport> nodeReports = yarnClient.getNodeReports(NodeState.RUNNING);
             if (!elasticCapacity) {
-                getQueueRemainCapacity(1, queueName, yarnClient.getRootQueueInfos());
+                getQueueRemainCapacity(1, queueName, resourceSnapshot.getRootQueueInfos());
             }
-            for (NodeReport report : nodeReports) {
-                Resource capability = report.getCapability();
-                Resource used = report.getUsed();
-                int totalMem = capability.getMemory();
-                int totalCores = capability.getVirtualCores();
-
-                int usedMem = used.getMemory();
-                int usedCores = used.getVirtualCores();
-
-                int freeCores = totalCores - usedCores;
-                int freeMem = totalMem - usedMem;
-
-                if (freeCores > containerCoreMax) {
-                    containerCoreMax = freeCores;
+            for (NodeResourceDetail nodeResource : resourceSnapshot.getNodeResources()) {
+                if (nodeResource.coresFree > containerCoreMax) {
+                    containerCoreMax = nodeResource.coresFree;
                 }
-                if (freeMem > containerMemoryMax) {
-                    containerMemoryMax = freeMem;
+                if (nodeResource.memoryFree > containerMemoryMax) {
+                    containerMemoryMax = nodeResource.memoryFree;
                 }
-                this.addNodeResource(new NodeResourceDetail(report.getNodeId().toString(), totalCores, usedCores, freeCores, totalMem, usedMem, freeMem));
+                this.addNodeResource(nodeResource);
             }
 
             calc();
@@ -224,6 +242,7 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
     protected void calc() {
         nmFreeCore = new int[nodeResources.size()];
         nmFreeMem = new int[nodeResources.size()];
+        nmIds = new String[nodeResources.size()];
         int index = 0;
         //yarn 方式执行时，统一对每个node保留512M和1core
         for (NodeResourceDetail resourceDetail : nodeResources) {
@@ -239,6 +258,7 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
 
             nmFreeMem[index] = nodeFreeMem;
             nmFreeCore[index] = nodeFreeCores;
+            nmIds[index] = resourceDetail.nodeId;
             index++;
         }
     }
@@ -284,6 +304,16 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
         }
     }
 
+    public void setResourceSnapshot(YarnResourceSnapshot resourceSnapshot) {
+        if (resourceSnapshot != null) {
+            this.resourceSnapshot = resourceSnapshot;
+        }
+    }
+
+    public void setReserveResource(boolean reserveResource) {
+        this.reserveResource = reserveResource;
+    }
+
     public void setElasticCapacity(boolean elasticCapacity) {
         this.elasticCapacity = elasticCapacity;
     }
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.base.resource;
+
+import com.dtstack.taier.base.util.YarnApplicationUtils;
+import com.dtstack.taier.pluginapi.ResourceCallBack;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.NodeReport;
+import org.apache.hadoop.yarn.api.records.NodeState;
+import org.apache.hadoop.yarn.api.records.QueueInfo;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 同一个 yarn 集群共享的资源快照
+ * 1. 节点、运行中的 application、队列信息按 refreshInterval 定期从 RM 拉取，避免每次 judgeSlots 都访问 RM
+ * 2. judgeSlots 通过后为任务预留资源，直到提交的 application 在 yarn 上 running(或已结束)，或者预留超时
+ * 3. 资源不足的任务登记回调，快照刷新后空闲资源增加或 accepted 的 application 减少时通知资源释放
+ *
+ * Company: www.dtstack.com
+ */
+public class YarnResourceSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(YarnResourceSnapshot.class);
+
+    private final long refreshInterval;
+
+    private final long reserveTimeout;
+
+    private long refreshTime = 0L;
+
+    private List<NodeReport> nodeReports = Collections.emptyList();
+
+    private Map<String, ApplicationReport> activeApplications = Collections.emptyMap();
+
+    private List<QueueInfo> rootQueueInfos;
+
+    /**
+     * jobId -> 预留的资源
+     */
+    private final Map<String, Reservation> reservations = new HashMap<>();
+
+    /**
+     * 等待资源释放的回调，通知一次后移除
+     */
+    private final Set<ResourceCallBack> resourceWaiters = new LinkedHashSet<>();
+
+    /**
+     * 上一次刷新时的空闲 core、空闲 memory 和 accepted 的 application 数量
+     */
+    private long freeCores = -1L;
+
+    private long freeMem = -1L;
+
+    private int acceptedApps = -1;
+
+    public YarnResourceSnapshot(long refreshInterval, long reserveTimeout) {
+        this.refreshInterval = refreshInterval;
+        this.reserveTimeout = reserveTimeout;
+    }
+
+    /**
+     * 快照过期时重新从 RM 拉取
+     *
+     * @param yarnClient    yarnClient
+     * @param withQueueInfo 是否需要队列信息(非弹性容量时使用)
+     */
+    public synchronized void refreshIfExpired(YarnClient yarnClient, boolean withQueueInfo) throws IOException, YarnException {
+        boolean expired = System.currentTimeMillis() - refreshTime >= refreshInterval;
+        if (expired || (withQueueInfo && rootQueueInfos == null)) {
+            refresh(yarnClient, withQueueInfo);
+        }
+    }
+
+    private void refresh(YarnClient yarnClient, boolean withQueueInfo) throws IOException, YarnException {
+        activeApplications = YarnApplicationUtils.listActiveApplications(yarnClient);
+        nodeReports = yarnClient.getNodeReports(NodeState.RUNNING);
+        rootQueueInfos = withQueueInfo ? yarnClient.getRootQueueInfos() : null;
+        refreshTime = System.currentTimeMillis();
+        releaseObsoleteReservations();
+        notifyIfResourceReleased();
+    }
+
+    /**
+     * 资源不足，等待快照中出现资源释放
+     */
+    public synchronized void awaitResource(ResourceCallBack callBack) {
+        if (callBack != null) {
+            resourceWaiters.add(callBack);
+        }
+    }
+
+    /**
+     * 与上次刷新相比空闲资源增加或者 accepted 的 application 减少，通知等待资源的任务
+     */
+    private void notifyIfResourceReleased() {
+        long currentFreeCores = 0L;
+        long currentFreeMem = 0L;
+        for (NodeReport report : nodeReports) {
+            currentFreeCores += Math.max(report.getCapability().getVirtualCores() - report.getUsed().getVirtualCores(), 0);
+            currentFreeMem += Math.max(report.getCapability().getMemory() - report.getUsed().getMemory(), 0);
+        }
+        int currentAccepted = 0;
+        for (ApplicationReport report : activeApplications.values()) {
+            if (YarnApplicationState.ACCEPTED == report.getYarnApplicationState()) {
+                currentAccepted++;
+            }
+        }
+        boolean released = freeCores >= 0
+                && (currentFreeCores > freeCores || currentFreeMem > freeMem || currentAccepted < acceptedApps);
+        freeCores = currentFreeCores;
+        freeMem = currentFreeMem;
+        acceptedApps = currentAccepted;
+        if (!released || resourceWaiters.isEmpty()) {
+            return;
+        }
+        LOG.info("yarn resource released, freeCores:{} freeMem:{} acceptedApps:{}, notify {} waiters", currentFreeCores, currentFreeMem, currentAccepted, resourceWaiters.size());
+        for (ResourceCallBack callBack : resourceWaiters) {
+            try {
+                callBack.resourceAvailable();
+            } catch (Exception e) {
+                LOG.error("resource available callback error:", e);
+            }
+        }
+        resourceWaiters.clear();
+    }
+
+    /**
+     * 已经 running 的 application 资源已体现在 nodeReport 中，已结束的 application 不再占用资源，都不需要继续预留
+     */
+    private void releaseObsoleteReservations() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Reservation>> iterator = reservations.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Reservation> entry = iterator.next();
+            Reservation reservation = entry.getValue();
+            boolean release = now - reservation.createTime > reserveTimeout;
+            if (!release && reservation.applicationId != null) {
+                ApplicationReport report = activeApplications.get(reservation.applicationId);
+                release = report == null || YarnApplicationState.RUNNING == report.getYarnApplicationState();
+            }
+            if (release) {
+                LOG.info("jobId:{} applicationId:{} release reserved resource", entry.getKey(), reservation.applicationId);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 队列中处于 accepted 的 application 数量，该队列已预留但还未提交到 yarn 的任务也计算在内
+     */
+    public synchronized int countAccepted(String queueName) {
+        int accepted = 0;
+        for (ApplicationReport report : activeApplications.values()) {
+            if (YarnApplicationState.ACCEPTED == report.getYarnApplicationState() && report.getQueue().endsWith(queueName)) {
+                accepted++;
+            }
+        }
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.applicationId == null && StringUtils.equals(reservation.queueName, queueName)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * 扣除预留资源后的节点资源
+     */
+    public synchronized List<AbstractYarnResourceInfo.NodeResourceDetail> getNodeResources() {
+        Map<String, int[]> reserved = new HashMap<>(nodeReports.size());
+        for (Reservation reservation : reservations.values()) {
+            for (Map.Entry<String, int[]> entry : reservation.nodeResources.entrySet()) {
+                int[] nodeReserved = reserved.computeIfAbsent(entry.getKey(), k -> new int[2]);
+                nodeReserved[0] += entry.getValue()[0];
+                nodeReserved[1] += entry.getValue()[1];
+            }
+        }
+
+        List<AbstractYarnResourceInfo.NodeResourceDetail> nodeResources = new ArrayList<>(nodeReports.size());
+        for (NodeReport report : nodeReports) {
+            String nodeId = report.getNodeId().toString();
+            Resource capability = report.getCapability();
+            Resource used = report.getUsed();
+            int[] nodeReserved = reserved.getOrDefault(nodeId, new int[2]);
+
+            int totalCores = capability.getVirtualCores();
+            int totalMem = capability.getMemory();
+            int usedCores = used.getVirtualCores() + nodeReserved[0];
+            int usedMem = used.getMemory() + nodeReserved[1];
+            nodeResources.add(new AbstractYarnResourceInfo.NodeResourceDetail(nodeId, totalCores, usedCores,
+                    Math.max(totalCores - usedCores, 0), totalMem, usedMem, Math.max(totalMem - usedMem, 0)));
+        }
+        return nodeResources;
+    }
+
+    public synchronized List<QueueInfo> getRootQueueInfos() {
+        return rootQueueInfos;
+    }
+
+    /**
+     * 为任务预留资源
+     *
+     * @param jobId         任务 id
+     * @param queueName     任务提交的队列
+     * @param nodeResources nodeId -> [cores, memory]
+     */
+    public synchronized void reserve(String jobId, String queueName, Map<String, int[]> nodeResources) {
+        reservations.put(jobId, new Reservation(queueName, nodeResources));
+    }
+
+    /**
+     * 任务提交完成，提交成功时关联 applicationId，等待 application 出现在 yarn 上，提交失败时直接释放
+     *
+     * @param jobId         任务 id
+     * @param applicationId 提交成功时的 applicationId，失败时为空
+     */
+    public synchronized void submitted(String jobId, String applicationId) {
+        if (StringUtils.isBlank(applicationId)) {
+            release(jobId);
+            return;
+        }
+        Reservation reservation = reservations.get(jobId);
+        if (reservation != null) {
+            reservation.applicationId = applicationId;
+        }
+    }
+
+    public synchronized void release(String jobId) {
+        reservations.remove(jobId);
+    }
+
+    private static class Reservation {
+
+        private final String queueName;
+
+        private final Map<String, int[]> nodeResources;
+
+        private final long createTime = System.currentTimeMillis();
+
+        private String applicationId;
+
+        private Reservation(String queueName, Map<String, int[]> nodeResources) {
+            this.queueName = queueName;
+            this.nodeResources = nodeResources;
+        }
+    }
+}
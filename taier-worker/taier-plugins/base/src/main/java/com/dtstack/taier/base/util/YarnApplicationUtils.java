@@ -0,0 +1,88 @@
+package com.dtstack.taier.base.util;
+
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * yarn application 状态相关的工具方法
+ *
+ * Company: www.dtstack.com
+ */
+public class YarnApplicationUtils {
+
+    /**
+     * 还在运行中的 application 状态，已结束的 application 在 RM 中保留的数量很多，批量查询时不拉取
+     */
+    public static final EnumSet<YarnApplicationState> ACTIVE_STATES = EnumSet.of(
+            YarnApplicationState.NEW,
+            YarnApplicationState.NEW_SAVING,
+            YarnApplicationState.SUBMITTED,
+            YarnApplicationState.ACCEPTED,
+            YarnApplicationState.RUNNING);
+
+    /**
+     * 一次 RPC 拉取所有运行中的 application
+     *
+     * @param yarnClient yarnClient
+     * @return applicationId -> report
+     */
+    public static Map<String, ApplicationReport> listActiveApplications(YarnClient yarnClient) throws IOException, YarnException {
+        List<ApplicationReport> reports = yarnClient.getApplications(ACTIVE_STATES);
+        Map<String, ApplicationReport> reportMap = new HashMap<>(reports.size());
+        for (ApplicationReport report : reports) {
+            reportMap.put(report.getApplicationId().toString(), report);
+        }
+        return reportMap;
+    }
+
+    /**
+     * application 状态转换为任务状态
+     *
+     * @param report application report
+     * @return 任务状态
+     */
+    public static TaskStatus convertToTaskStatus(ApplicationReport report) {
+        YarnApplicationState applicationState = report.getYarnApplicationState();
+        switch (applicationState) {
+            case KILLED:
+                return TaskStatus.KILLED;
+            case NEW:
+            case NEW_SAVING:
+                return TaskStatus.CREATED;
+            case SUBMITTED:
+                //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
+                return TaskStatus.WAITCOMPUTE;
+            case ACCEPTED:
+                return TaskStatus.SCHEDULED;
+            case RUNNING:
+                return TaskStatus.RUNNING;
+            case FINISHED:
+                //state 为finished状态下需要兼顾判断finalStatus.
+                FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
+                if (finalApplicationStatus == FinalApplicationStatus.FAILED) {
+                    return TaskStatus.FAILED;
+                } else if (finalApplicationStatus == FinalApplicationStatus.SUCCEEDED) {
+                    return TaskStatus.FINISHED;
+                } else if (finalApplicationStatus == FinalApplicationStatus.KILLED) {
+                    return TaskStatus.KILLED;
+                } else {
+                    return TaskStatus.RUNNING;
+                }
+            case FAILED:
+                return TaskStatus.FAILED;
+            default:
+                throw new PluginDefineException("Unsupported application state");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.dtstack.taier.base.resource;
+
+import com.dtstack.taier.pluginapi.ResourceCallBack;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.NodeReport;
+import org.apache.hadoop.yarn.api.records.NodeState;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class YarnResourceSnapshotTest {
+
+    private YarnClient yarnClient;
+
+    private YarnResourceSnapshot snapshot;
+
+    private AtomicInteger notified;
+
+    @Before
+    public void setUp() throws Exception {
+        yarnClient = Mockito.mock(YarnClient.class);
+        when(yarnClient.getApplications(any(EnumSet.class))).thenReturn(Collections.emptyList());
+        // 每次判断都重新拉取
+        snapshot = new YarnResourceSnapshot(0L, 60000L);
+        notified = new AtomicInteger();
+    }
+
+    private void nodes(int usedCores, int usedMem) throws Exception {
+        NodeReport report = Mockito.mock(NodeReport.class);
+        when(report.getCapability()).thenReturn(resource(8, 8192));
+        when(report.getUsed()).thenReturn(resource(usedCores, usedMem));
+        when(yarnClient.getNodeReports(NodeState.RUNNING)).thenReturn(Collections.singletonList(report));
+    }
+
+    private void acceptedApps(int accepted) throws Exception {
+        List<ApplicationReport> reports = new ArrayList<>(accepted);
+        for (int i = 0; i < accepted; i++) {
+            ApplicationId applicationId = Mockito.mock(ApplicationId.class);
+            when(applicationId.toString()).thenReturn("application_0_" + i);
+            ApplicationReport report = Mockito.mock(ApplicationReport.class);
+            when(report.getApplicationId()).thenReturn(applicationId);
+            when(report.getYarnApplicationState()).thenReturn(YarnApplicationState.ACCEPTED);
+            when(report.getQueue()).thenReturn("root.default");
+            reports.add(report);
+        }
+        when(yarnClient.getApplications(any(EnumSet.class))).thenReturn(reports);
+    }
+
+    private static Resource resource(int cores, int mem) {
+        Resource resource = Mockito.mock(Resource.class);
+        when(resource.getVirtualCores()).thenReturn(cores);
+        when(resource.getMemory()).thenReturn(mem);
+        return resource;
+    }
+
+    @Test
+    public void testNotifyWhenFreeResourceIncreased() throws Exception {
+        nodes(8, 8192);
+        snapshot.refreshIfExpired(yarnClient, false);
+        snapshot.awaitResource(notified::incrementAndGet);
+
+        // 资源没有变化不通知
+        snapshot.refreshIfExpired(yarnClient, false);
+        Assert.assertEquals(0, notified.get());
+
+        nodes(6, 8192);
+        snapshot.refreshIfExpired(yarnClient, false);
+        Assert.assertEquals(1, notified.get());
+
+        // 通知后移除，再次释放不会重复通知
+        nodes(4, 4096);
+        snapshot.refreshIfExpired(yarnClient, false);
+        Assert.assertEquals(1, notified.get());
+    }
+
+    @Test
+    public void testNotifyWhenAcceptedDecreased() throws Exception {
+        nodes(8, 8192);
+        acceptedApps(3);
+        snapshot.refreshIfExpired(yarnClient, false);
+        snapshot.awaitResource(notified::incrementAndGet);
+
+        acceptedApps(2);
+        snapshot.refreshIfExpired(yarnClient, false);
+        Assert.assertEquals(1, notified.get());
+    }
+
+    @Test
+    public void testNoNotifyOnFirstRefreshOrLessResource() throws Exception {
+        snapshot.awaitResource(notified::incrementAndGet);
+        nodes(4, 4096);
+        snapshot.refreshIfExpired(yarnClient, false);
+        Assert.assertEquals(0, notified.get());
+
+        nodes(8, 8192);
+        snapshot.refreshIfExpired(yarnClient, false);
+        Assert.assertEquals(0, notified.get());
+    }
+
+    @Test
+    public void testSameCallBackRegisteredOnce() throws Exception {
+        nodes(8, 8192);
+        snapshot.refreshIfExpired(yarnClient, false);
+        ResourceCallBack callBack = notified::incrementAndGet;
+        snapshot.awaitResource(callBack);
+        snapshot.awaitResource(callBack);
+
+        nodes(0, 0);
+        snapshot.refreshIfExpired(yarnClient, false);
+        Assert.assertEquals(1, notified.get());
+    }
+}
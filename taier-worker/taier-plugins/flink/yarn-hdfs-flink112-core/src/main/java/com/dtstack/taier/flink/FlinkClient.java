@@ -3,9 +3,11 @@ package com.dtstack.taier.flink;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.dtstack.taier.base.util.HadoopUtils;
 import com.dtstack.taier.base.util.HttpClientUtil;
 import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.base.util.YarnApplicationUtils;
 import com.dtstack.taier.flink.base.enums.ClusterMode;
 import com.dtstack.taier.flink.client.AbstractClientManager;
 import com.dtstack.taier.flink.client.ClientManagerBuilder;
@@ -104,6 +106,8 @@ public class FlinkClient extends AbstractClient {
 
     private FilesystemManager filesystemManager;
 
+    private YarnResourceSnapshot resourceSnapshot;
+
     private final Map<String, List<String>> cacheFile = Maps.newConcurrentMap();
 
     private final static Predicate<TaskStatus> IS_END_STATUS =
@@ -128,9 +132,18 @@ public class FlinkClient extends AbstractClient {
         filesystemManager = new FilesystemManager(
                 clientManager.getHadoopConfig().getCoreConfiguration(),
                 flinkConfig.getSftpConf());
+        resourceSnapshot = new YarnResourceSnapshot(flinkConfig.getYarnResourceRefreshInterval(), flinkConfig.getYarnResourceReserveTimeout());
         LOG.info("<== init Flink client");
     }
 
+    @Override
+    public void close() {
+        if (clientManager != null) {
+            clientManager.close();
+        }
+        LOG.info("Flink client closed");
+    }
+
     @Override
     protected void beforeSubmitFunc(JobClient jobClient) {
         LOG.info("Job[{}] submit before", jobClient.getJobId());
@@ -215,8 +228,9 @@ public class FlinkClient extends AbstractClient {
 
     @Override
     protected JobResult processSubmitJobWithType(JobClient jobClient) {
+        JobResult submitResult = null;
         try {
-            return KerberosUtils.login(flinkConfig,()->{
+            submitResult = KerberosUtils.login(flinkConfig,()->{
                 try {
                     JobResult jobResult;
                     switch (jobClient.getJobType()){
@@ -244,9 +258,12 @@ public class FlinkClient extends AbstractClient {
                     throw new PluginDefineException(e);
                 }
             }, clientManager.getHadoopConfig().getYarnConfiguration());
+            return submitResult;
         } catch (Exception e) {
             String errMsg = jobClient.getJobId() + " submit job error";
             throw new PluginDefineException(errMsg, e);
+        } finally {
+            resourceSnapshot.submitted(jobClient.getJobId(), submitResult == null ? null : submitResult.getData(JobResult.JOB_ID_KEY));
         }
     }
 
@@ -475,6 +492,8 @@ public class FlinkClient extends AbstractClient {
                         .withQueueName(flinkConfig.getQueue())
                         .withYarnAccepterTaskNumber(flinkConfig.getYarnAccepterTaskNumber())
                         .withProperties(flinkExtProp)
+                        .withResourceSnapshot(resourceSnapshot)
+                        .withReserveResource(isPerJob)
                         .build();
 
                 return perJobResourceInfo.judgeSlots(jobClient);
@@ -599,6 +618,100 @@ public class FlinkClient extends AbstractClient {
         }
     }
 
+    /**
+     * 批量获取任务状态
+     * session/standalone 模式一次 /jobs/overview 获取集群上所有任务的状态
+     * per-job 模式一次 getApplications 获取所有还没有运行的 application 的状态
+     * 上面拿不到的任务（per-job 运行中的任务需要 flink 的任务状态，以及已结束、已归档的任务）再逐个查询
+     */
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        ClusterMode clusterMode = ClusterMode.getClusteMode(flinkConfig.getClusterMode());
+        if (ClusterMode.isPerjob(clusterMode)) {
+            Map<String, TaskStatus> applicationStatus = getActiveApplicationStatus();
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                String applicationId = jobIdentifier.getApplicationId();
+                if (StringUtils.isNotEmpty(applicationId) && applicationStatus.containsKey(applicationId)) {
+                    statusMap.put(jobIdentifier.getJobId(), applicationStatus.get(applicationId));
+                }
+            }
+        } else {
+            Map<String, TaskStatus> overviewStatus = getJobsOverviewStatus();
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                String engineJobId = jobIdentifier.getEngineJobId();
+                if (StringUtils.isNotEmpty(engineJobId) && overviewStatus.containsKey(engineJobId)) {
+                    statusMap.put(jobIdentifier.getJobId(), overviewStatus.get(engineJobId));
+                }
+            }
+        }
+
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            if (!statusMap.containsKey(jobIdentifier.getJobId())) {
+                statusMap.put(jobIdentifier.getJobId(), getJobStatus(jobIdentifier));
+            }
+        }
+        return statusMap;
+    }
+
+    /**
+     * 通过 /jobs/overview 获取 session 上所有任务的状态
+     *
+     * @return engineJobId -> 任务状态，请求失败时返回空
+     */
+    private Map<String, TaskStatus> getJobsOverviewStatus() {
+        Map<String, TaskStatus> overviewStatus = new HashMap<>();
+        try {
+            ClusterClient clusterClient = clientManager.getClusterClient(null);
+            String response = PoolHttpClient.get(clusterClient.getWebInterfaceURL() + ConfigConstant.JOBS_OVERVIEW_URL);
+            if (StringUtils.isEmpty(response)) {
+                return overviewStatus;
+            }
+            JSONArray jobs = JSONObject.parseObject(response).getJSONArray("jobs");
+            if (jobs == null) {
+                return overviewStatus;
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                JSONObject job = jobs.getJSONObject(i);
+                String state = job.getString("state");
+                if (StringUtils.isNotEmpty(state)) {
+                    overviewStatus.put(job.getString("jid"), TaskStatus.getTaskStatus(StringUtils.upperCase(state)));
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("get jobs overview error, fallback to get job status one by one", e);
+        }
+        return overviewStatus;
+    }
+
+    /**
+     * 通过一次 getApplications 获取 application 的状态
+     * RUNNING 的 application 中 flink 任务可能处于 RESTARTING、FAILING 等状态，不在结果中，需要通过 rest 查询
+     *
+     * @return applicationId -> 任务状态，请求失败时返回空
+     */
+    private Map<String, TaskStatus> getActiveApplicationStatus() {
+        try {
+            return KerberosUtils.login(flinkConfig, () -> {
+                Map<String, TaskStatus> applicationStatus = new HashMap<>();
+                try {
+                    Map<String, ApplicationReport> reports = YarnApplicationUtils.listActiveApplications(clientManager.getYarnClient());
+                    for (Map.Entry<String, ApplicationReport> entry : reports.entrySet()) {
+                        if (YarnApplicationState.RUNNING != entry.getValue().getYarnApplicationState()) {
+                            applicationStatus.put(entry.getKey(), YarnApplicationUtils.convertToTaskStatus(entry.getValue()));
+                        }
+                    }
+                } catch (YarnException | IOException e) {
+                    LOG.error("list active applications with yarnClient error: ", e);
+                }
+                return applicationStatus;
+            }, clientManager.getHadoopConfig().getYarnConfiguration());
+        } catch (Exception e) {
+            LOG.error("list active applications with yarnClient error: ", e);
+            return new HashMap<>();
+        }
+    }
+
     /**
      * per-job模式其实获取的任务状态是yarn-application状态
      */
@@ -608,43 +721,7 @@ public class FlinkClient extends AbstractClient {
                 ApplicationId appId = ConverterUtils.toApplicationId(applicationId);
                 try {
                     ApplicationReport report = clientManager.getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch (applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            switch (finalApplicationStatus){
-                                case FAILED:
-                                case UNDEFINED: {
-                                    return TaskStatus.FAILED;
-                                }
-                                case SUCCEEDED:{
-                                    return TaskStatus.FINISHED;
-                                }
-                                case KILLED:{
-                                    return TaskStatus.KILLED;
-                                }
-                                default:{
-                                    return TaskStatus.RUNNING;
-                                }
-                            }
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return convertApplicationStatus(report);
                 } catch (YarnException | IOException e) {
                     LOG.error("appId: {}, getPerJobStatus with yarnClient error: ", applicationId, e);
                     return TaskStatus.NOTFOUND;
@@ -657,6 +734,49 @@ public class FlinkClient extends AbstractClient {
         }
     }
 
+    /**
+     * 单个查询时 application 已经结束的状态转换，flink 的 AM 异常退出时 finalStatus 为 UNDEFINED，按失败处理
+     */
+    private TaskStatus convertApplicationStatus(ApplicationReport report) {
+        YarnApplicationState applicationState = report.getYarnApplicationState();
+        switch (applicationState) {
+            case KILLED:
+                return TaskStatus.KILLED;
+            case NEW:
+            case NEW_SAVING:
+                return TaskStatus.CREATED;
+            case SUBMITTED:
+                //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
+                return TaskStatus.WAITCOMPUTE;
+            case ACCEPTED:
+                return TaskStatus.SCHEDULED;
+            case RUNNING:
+                return TaskStatus.RUNNING;
+            case FINISHED:
+                //state 为finished状态下需要兼顾判断finalStatus.
+                FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
+                switch (finalApplicationStatus){
+                    case FAILED:
+                    case UNDEFINED: {
+                        return TaskStatus.FAILED;
+                    }
+                    case SUCCEEDED:{
+                        return TaskStatus.FINISHED;
+                    }
+                    case KILLED:{
+                        return TaskStatus.KILLED;
+                    }
+                    default:{
+                        return TaskStatus.RUNNING;
+                    }
+                }
+            case FAILED:
+                return TaskStatus.FAILED;
+            default:
+                throw new PluginDefineException("Unsupported application state");
+        }
+    }
+
     @Override
     public String getJobLog(JobIdentifier jobIdentifier) {
         String taskId = jobIdentifier.getJobId();
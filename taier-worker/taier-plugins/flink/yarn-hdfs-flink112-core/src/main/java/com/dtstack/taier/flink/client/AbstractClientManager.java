@@ -120,6 +120,16 @@ public class AbstractClientManager implements IClientManager {
         return yarnClient;
     }
 
+    /**
+     * FlinkClient 关闭时释放 yarn 客户端和线程池
+     */
+    public void close() {
+        threadPoolExecutor.shutdownNow();
+        if (yarnClient != null) {
+            yarnClient.stop();
+        }
+    }
+
     /**
      * 创建YarnClient 增加KerberosUtils 逻辑
      */
@@ -6,6 +6,7 @@ import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.flink.constant.ConfigConstant;
 import com.dtstack.taier.flink.util.FlinkUtil;
 import com.dtstack.taier.base.resource.AbstractYarnResourceInfo;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.google.common.collect.Lists;
 import org.apache.flink.configuration.JobManagerOptions;
 import org.apache.flink.configuration.MemorySize;
@@ -35,11 +36,14 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
     private final int yarnAccepterTaskNumber;
     private final Properties envProperties;
 
-    private FlinkPerJobResourceInfo(YarnClient yarnClient, String queueName, int yarnAccepterTaskNumber, Properties envProperties) {
+    private FlinkPerJobResourceInfo(YarnClient yarnClient, String queueName, int yarnAccepterTaskNumber, Properties envProperties,
+                                    YarnResourceSnapshot resourceSnapshot, boolean reserveResource) {
         this.yarnClient = yarnClient;
         this.queueName = queueName;
         this.yarnAccepterTaskNumber = yarnAccepterTaskNumber;
         this.envProperties = envProperties;
+        setResourceSnapshot(resourceSnapshot);
+        setReserveResource(reserveResource);
     }
 
     @Override
@@ -49,11 +53,6 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
 
     private JudgeResult judgePerJobResource(JobClient jobClient) {
 
-        JudgeResult jr = getYarnSlots(yarnClient, queueName, yarnAccepterTaskNumber);
-        if (!jr.available()) {
-            return jr;
-        }
-
         setTaskResourceInfo(jobClient);
 
         List<InstanceInfo> instanceInfos = Lists.newArrayList(
@@ -61,7 +60,7 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
                 InstanceInfo.newRecord(1, 1, jobManagerMemoryMb),
                 InstanceInfo.newRecord(numberTaskManagers, slotsPerTaskManager, taskManagerMemoryMb));
 
-        return judgeYarnResource(instanceInfos);
+        return judgeYarnSlots(yarnClient, jobClient, queueName, yarnAccepterTaskNumber, instanceInfos);
     }
 
     /**
@@ -107,6 +106,8 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
         private String queueName;
         private Integer yarnAccepterTaskNumber;
         private Properties envProperties;
+        private YarnResourceSnapshot resourceSnapshot;
+        private boolean reserveResource = true;
 
         public FlinkPerJobResourceInfoBuilder withYarnClient(YarnClient yarnClient) {
             this.yarnClient = yarnClient;
@@ -128,8 +129,21 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
             return this;
         }
 
+        public FlinkPerJobResourceInfoBuilder withResourceSnapshot(YarnResourceSnapshot resourceSnapshot) {
+            this.resourceSnapshot = resourceSnapshot;
+            return this;
+        }
+
+        /**
+         * session 模式下任务不会启动新的 application，不需要预留资源
+         */
+        public FlinkPerJobResourceInfoBuilder withReserveResource(boolean reserveResource) {
+            this.reserveResource = reserveResource;
+            return this;
+        }
+
         public FlinkPerJobResourceInfo build() {
-            return new FlinkPerJobResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, envProperties);
+            return new FlinkPerJobResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, envProperties, resourceSnapshot, reserveResource);
         }
     }
 
@@ -273,6 +273,12 @@ public class PerJobClientManager extends AbstractClientManager {
         }
     }
 
+    @Override
+    public void close() {
+        perJobClientCache.invalidateAll();
+        super.close();
+    }
+
     /**
      * 在任务执行成功后放入缓存
      */
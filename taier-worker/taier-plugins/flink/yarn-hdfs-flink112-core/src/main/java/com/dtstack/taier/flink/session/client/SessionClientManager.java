@@ -69,6 +69,7 @@ public class SessionClientManager extends AbstractClientManager {
     private final SessionHealthInfo sessionHealthInfo = new SessionHealthInfo();
     private final AtomicBoolean startMonitor = new AtomicBoolean(false);
     private ExecutorService yarnMonitorService;
+    private SessionStatusMonitor sessionStatusMonitor;
 
     public SessionClientManager(FlinkConfig flinkConfig, HadoopConfig hadoopConf, Configuration flinkGlobalConfiguration) {
         super(flinkConfig, hadoopConf);
@@ -135,7 +136,26 @@ public class SessionClientManager extends AbstractClientManager {
                 new LinkedBlockingQueue<>(), new CustomThreadFactory(threadName));
 
         //启动守护线程---用于获取当前application状态和更新flink对应的application
-        yarnMonitorService.submit(new SessionStatusMonitor(this));
+        sessionStatusMonitor = new SessionStatusMonitor(this);
+        yarnMonitorService.submit(sessionStatusMonitor);
+    }
+
+    @Override
+    public void close() {
+        if (sessionStatusMonitor != null) {
+            sessionStatusMonitor.setRun(false);
+        }
+        if (yarnMonitorService != null) {
+            yarnMonitorService.shutdownNow();
+        }
+        if (clusterClient != null) {
+            try {
+                clusterClient.close();
+            } catch (Exception e) {
+                LOG.warn("close session cluster client error", e);
+            }
+        }
+        super.close();
     }
 
     public ClusterClient<ApplicationId> startAndGetSessionClusterClient() {
@@ -24,9 +24,11 @@ import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.pluginapi.pojo.ClusterResource;
 import com.dtstack.taier.pluginapi.pojo.ComponentTestResult;
 import com.dtstack.taier.pluginapi.pojo.ParamAction;
+import com.dtstack.taier.base.monitor.YarnApplicationWatcher;
 import com.dtstack.taier.base.resource.EngineResourceInfo;
 import com.dtstack.taier.base.util.HadoopConfTool;
 import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.base.util.YarnApplicationUtils;
 import com.dtstack.taier.pluginapi.JarFileInfo;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.JobIdentifier;
@@ -81,6 +83,7 @@ public class HadoopClient extends AbstractClient {
     private EngineResourceInfo resourceInfo = new HadoopResourceInfo();
     private Configuration conf = new Configuration();
     private volatile YarnClient yarnClient;
+    private YarnApplicationWatcher.QueueView applicationWatcher;
     private Config config;
     private Map<String, List<String>> cacheFile = Maps.newConcurrentMap();
     private static final String YARN_RM_WEB_KEY_PREFIX = "yarn.resourcemanager.webapp.address.";
@@ -107,11 +110,23 @@ public class HadoopClient extends AbstractClient {
         setHadoopUserName(config);
 
         yarnClient = buildYarnClient();
+        // 任务的队列在提交参数中，不按队列过滤
+        applicationWatcher = YarnApplicationWatcher.watch(this.getClass().getSimpleName(), config, conf, null);
 
         LOG.info("UGI info: " + UserGroupInformation.getCurrentUser());
 
     }
 
+    @Override
+    public void close() {
+        if (applicationWatcher != null) {
+            applicationWatcher.close();
+        }
+        if (yarnClient != null) {
+            yarnClient.stop();
+        }
+    }
+
     @Override
     protected JobResult processSubmitJobWithType(JobClient jobClient) {
         try {
@@ -164,38 +179,7 @@ public class HadoopClient extends AbstractClient {
 
                 try {
                     ApplicationReport report = getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch(applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            if(finalApplicationStatus == FinalApplicationStatus.FAILED){
-                                return TaskStatus.FAILED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.SUCCEEDED){
-                                return TaskStatus.FINISHED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.KILLED){
-                                return TaskStatus.KILLED;
-                            }else{
-                                return TaskStatus.RUNNING;
-                            }
-
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return YarnApplicationUtils.convertToTaskStatus(report);
                 } catch (Exception e) {
                     return TaskStatus.NOTFOUND;
                 }
@@ -206,6 +190,30 @@ public class HadoopClient extends AbstractClient {
         }
     }
 
+    /**
+     * 任务状态从 applicationWatcher 维护的 application 列表中获取，不在列表中的任务再逐个查询
+     */
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        List<JobIdentifier> missJobIdentifiers = new ArrayList<>();
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            ApplicationReport report = null;
+            if (StringUtils.isNotBlank(jobIdentifier.getEngineJobId())) {
+                report = applicationWatcher.getApplicationReport(generateApplicationId(jobIdentifier.getEngineJobId()).toString());
+            }
+            if (report != null) {
+                statusMap.put(jobIdentifier.getJobId(), YarnApplicationUtils.convertToTaskStatus(report));
+            } else {
+                missJobIdentifiers.add(jobIdentifier);
+            }
+        }
+        if (!missJobIdentifiers.isEmpty()) {
+            statusMap.putAll(super.getJobStatusBatch(missJobIdentifiers));
+        }
+        return statusMap;
+    }
+
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         throw new PluginDefineException("hadoop client not support method 'getJobMaster'");
@@ -58,6 +58,11 @@ public abstract class AbstractRdbsClient extends AbstractClient {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractRdbsClient.class);
 
+    /**
+     * 查询结果每次从数据库拉取的行数，避免驱动一次把结果集全部缓存到内存
+     */
+    private static final int QUERY_FETCH_SIZE = 1000;
+
     private RdbsExeQueue exeQueue;
 
     private EngineResourceInfo resourceInfo;
@@ -176,12 +181,14 @@ public abstract class AbstractRdbsClient extends AbstractClient {
             if (StringUtils.isBlank(sql)) {
                 return null;
             }
-            conn = connFactory.getConn();
+            // use database 会修改连接的会话状态，不能归还到连接池
+            conn = StringUtils.isNotBlank(database) ? connFactory.getConn() : connFactory.getPooledConn();
             statement = conn.createStatement();
             if (StringUtils.isNotBlank(database)) {
                 statement.execute("use " + database);
             }
 
+            statement.setFetchSize(QUERY_FETCH_SIZE);
             if (statement.execute(sql)) {
                 res = statement.getResultSet();
                 int columns = res.getMetaData().getColumnCount();
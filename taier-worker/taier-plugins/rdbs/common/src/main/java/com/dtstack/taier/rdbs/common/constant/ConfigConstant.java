@@ -36,4 +36,10 @@ public class ConfigConstant {
     public static final String MAX_JOB_POOL_KEY = "maxJobPoolSize";
     public static final String MIN_JOB_POOL_KEY = "minJobPoolSize";
 
+    public static final String CONN_POOL_ENABLE = "connPoolEnable";
+    public static final String CONN_POOL_MAX_ACTIVE = "connPoolMaxActive";
+    public static final String CONN_POOL_MAX_WAIT = "connPoolMaxWait";
+    public static final String CONN_POOL_MIN_EVICTABLE_IDLE = "connPoolMinEvictableIdle";
+    public static final String CONN_POOL_REMOVE_ABANDONED_TIMEOUT = "connPoolRemoveAbandonedTimeout";
+
 }
@@ -64,6 +64,11 @@ public abstract class AbstractConnFactory {
 
     protected BaseConfig baseConfig = new BaseConfig();
 
+    /**
+     * 为空时不使用连接池
+     */
+    private RdbsConnPool connPool;
+
     public void init(Properties properties) throws ClassNotFoundException {
         synchronized (AbstractConnFactory.class) {
             if (isFirstLoaded.get()) {
@@ -86,6 +91,9 @@ public abstract class AbstractConnFactory {
                 Map<String, Object> yarnMap = (Map<String, Object>) properties.get("yarnConf");
                 yarnConf = KerberosUtils.convertMapConfToConfiguration(yarnMap);
             }
+            // 连接池中的连接由 druid 的线程创建，拿不到 kerberos 认证，开启 kerberos 时不使用连接池
+            boolean poolEnable = MathUtil.getBoolean(properties.get(ConfigConstant.CONN_POOL_ENABLE), true);
+            connPool = poolEnable && !baseConfig.isOpenKerberos() ? new RdbsConnPool(properties) : null;
             testConn();
         } catch (Exception e) {
             throw new PluginDefineException("get conn exception:" + e.toString());
@@ -134,8 +142,29 @@ public abstract class AbstractConnFactory {
         }, yarnConf);
     }
 
+    /**
+     * 从连接池获取连接，close 时归还到连接池
+     * 会修改连接会话状态(如 use database)的场景使用 {@link #getConn()}，执行任务使用 {@link #getPooledJobConn()}
+     */
+    public Connection getPooledConn() throws Exception {
+        if (connPool == null) {
+            return getConn();
+        }
+        return connPool.getConn(driverName, getClass().getClassLoader(), jdbcUrl, username, password, testSql);
+    }
+
     public Connection getConnByTaskParams(String taskParams, String jobName) throws Exception {
-        return getConn();
+        return getPooledJobConn();
+    }
+
+    /**
+     * 任务从连接池获取连接，归还前回滚未提交的事务并还原 autocommit、catalog、schema，避免影响后续任务
+     */
+    public Connection getPooledJobConn() throws Exception {
+        if (connPool == null) {
+            return getConn();
+        }
+        return SessionResetConnection.wrap(getPooledConn());
     }
 
     public boolean supportTransaction() {
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.rdbs.common.executor;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.dtstack.taier.pluginapi.util.MathUtil;
+import com.dtstack.taier.rdbs.common.constant.ConfigConstant;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * rdbs 插件的 jdbc 连接池
+ * 相同 jdbcUrl、用户、密码、连接池配置的数据源共用一个连接池，避免每次查询都重新建立连接
+ * 长时间没有使用的连接池会被关闭
+ * Company: www.dtstack.com
+ */
+public class RdbsConnPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RdbsConnPool.class);
+
+    private static final Map<String, PooledDataSource> DATA_SOURCES = new ConcurrentHashMap<>();
+
+    /**
+     * 没有借出连接且超过该时间没有获取连接的连接池会被关闭
+     */
+    private static final long DATA_SOURCE_IDLE_TIMEOUT = 30 * 60 * 1000L;
+
+    /**
+     * 最大连接数
+     */
+    private int maxActive = 10;
+
+    /**
+     * 获取连接等待超时的时间
+     */
+    private long maxWait = 60 * 1000L;
+
+    /**
+     * 配置间隔多久才进行一次检测，检测需要关闭的空闲连接，单位是毫秒
+     */
+    private long timeBetweenEvictionRunsMillis = 60 * 1000L;
+
+    /**
+     * 配置一个连接在池中最小生存的时间，单位是毫秒
+     */
+    private long minEvictableIdleTimeMillis = 300 * 1000L;
+
+    /**
+     * 连接借出超过该时间未归还视为泄漏，回收连接并打印借出时的堆栈，需要大于任务的最长执行时间
+     */
+    private long removeAbandonedTimeoutMillis = 24 * 60 * 60 * 1000L;
+
+    public RdbsConnPool(Properties properties) {
+        maxActive = MathUtil.getIntegerVal(properties.get(ConfigConstant.CONN_POOL_MAX_ACTIVE), maxActive);
+        maxWait = MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_MAX_WAIT), maxWait);
+        minEvictableIdleTimeMillis = MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_MIN_EVICTABLE_IDLE), minEvictableIdleTimeMillis);
+        removeAbandonedTimeoutMillis = MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_REMOVE_ABANDONED_TIMEOUT), removeAbandonedTimeoutMillis);
+    }
+
+    public Connection getConn(String driverName, ClassLoader driverClassLoader, String jdbcUrl, String username,
+                              String password, String validationQuery) throws SQLException {
+        String key = buildKey(jdbcUrl, username, password);
+        while (true) {
+            PooledDataSource pooledDataSource = DATA_SOURCES.computeIfAbsent(key,
+                    k -> new PooledDataSource(createDataSource(driverName, driverClassLoader, jdbcUrl, username, password, validationQuery)));
+            // 连接池刚好因为空闲被关闭时重新创建
+            if (pooledDataSource.touch()) {
+                return pooledDataSource.dataSource.getConnection();
+            }
+            DATA_SOURCES.remove(key, pooledDataSource);
+        }
+    }
+
+    /**
+     * 关闭长时间没有使用的连接池
+     */
+    public static void closeIdleDataSources() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, PooledDataSource>> iterator = DATA_SOURCES.entrySet().iterator();
+        while (iterator.hasNext()) {
+            PooledDataSource pooledDataSource = iterator.next().getValue();
+            if (pooledDataSource.closeIfIdle(now)) {
+                iterator.remove();
+                LOG.info("close idle conn pool, url:{}, user:{}", pooledDataSource.dataSource.getUrl(), pooledDataSource.dataSource.getUsername());
+            }
+        }
+    }
+
+    private DruidDataSource createDataSource(String driverName, ClassLoader driverClassLoader, String jdbcUrl,
+                                             String username, String password, String validationQuery) {
+        DruidDataSource dataSource = new DruidDataSource();
+        // 驱动在插件的 classloader 中
+        dataSource.setDriverClassLoader(driverClassLoader);
+        dataSource.setDriverClassName(driverName);
+        dataSource.setUrl(jdbcUrl);
+        if (username != null) {
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+        }
+
+        dataSource.setInitialSize(0);
+        dataSource.setMinIdle(0);
+        dataSource.setMaxActive(maxActive);
+        dataSource.setMaxWait(maxWait);
+
+        dataSource.setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis);
+        dataSource.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
+        dataSource.setValidationQuery(validationQuery);
+        dataSource.setTestWhileIdle(StringUtils.isNotBlank(validationQuery));
+        dataSource.setTestOnBorrow(false);
+        dataSource.setTestOnReturn(false);
+
+        dataSource.setRemoveAbandoned(true);
+        dataSource.setRemoveAbandonedTimeoutMillis(removeAbandonedTimeoutMillis);
+        dataSource.setLogAbandoned(true);
+
+        LOG.info("create conn pool, url:{}, user:{}, maxActive:{}", jdbcUrl, username, maxActive);
+        return dataSource;
+    }
+
+    /**
+     * 连接池配置不同时使用不同的连接池，避免配置被先创建的连接池固定
+     */
+    private String buildKey(String jdbcUrl, String username, String password) {
+        return jdbcUrl + "_" + username + "_" + StringUtils.defaultString(password).hashCode()
+                + "_" + maxActive + "_" + maxWait + "_" + minEvictableIdleTimeMillis + "_" + removeAbandonedTimeoutMillis;
+    }
+
+    /**
+     * 连接池的使用情况
+     */
+    public static Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new HashMap<>(DATA_SOURCES.size());
+        for (PooledDataSource pooledDataSource : DATA_SOURCES.values()) {
+            DruidDataSource dataSource = pooledDataSource.dataSource;
+            Map<String, Object> stat = new HashMap<>(8);
+            stat.put("activeCount", dataSource.getActiveCount());
+            stat.put("poolingCount", dataSource.getPoolingCount());
+            stat.put("waitThreadCount", dataSource.getWaitThreadCount());
+            stat.put("connectCount", dataSource.getConnectCount());
+            stat.put("createCount", dataSource.getCreateCount());
+            stat.put("destroyCount", dataSource.getDestroyCount());
+            stat.put("removeAbandonedCount", dataSource.getRemoveAbandonedCount());
+            stats.put(dataSource.getUrl() + "_" + dataSource.getUsername(), stat);
+        }
+        return stats;
+    }
+
+    private static class PooledDataSource {
+
+        private final DruidDataSource dataSource;
+
+        private long lastBorrowTime = System.currentTimeMillis();
+
+        private boolean closed = false;
+
+        private PooledDataSource(DruidDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * 记录获取连接的时间
+         *
+         * @return 连接池已经关闭时返回 false
+         */
+        private synchronized boolean touch() {
+            lastBorrowTime = System.currentTimeMillis();
+            return !closed;
+        }
+
+        private synchronized boolean closeIfIdle(long now) {
+            if (dataSource.getActiveCount() > 0 || now - lastBorrowTime <= DATA_SOURCE_IDLE_TIMEOUT) {
+                return false;
+            }
+            closed = true;
+            dataSource.close();
+            return true;
+        }
+    }
+}
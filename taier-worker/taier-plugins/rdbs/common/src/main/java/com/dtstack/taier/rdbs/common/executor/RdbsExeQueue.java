@@ -355,7 +355,7 @@ public class RdbsExeQueue {
             Statement procCreateStmt = null;
 
             try {
-                conn = connFactory.getConn();
+                conn = connFactory.getPooledJobConn();
                 if (isCancel.get()) {
                     LOG.info("job:{} is canceled", engineJobId);
                     return false;
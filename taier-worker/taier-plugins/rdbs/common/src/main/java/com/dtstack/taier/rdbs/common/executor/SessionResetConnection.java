@@ -0,0 +1,102 @@
+package com.dtstack.taier.rdbs.common.executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * 任务使用的连接池连接，close 归还前回滚未提交的事务，并还原获取连接时的 autocommit、catalog、schema
+ * 还原失败时关闭物理连接，连接池会丢弃该连接，不会把任务修改过的会话交给其他任务
+ *
+ * Company: www.dtstack.com
+ */
+public class SessionResetConnection implements InvocationHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionResetConnection.class);
+
+    private final Connection conn;
+
+    private final boolean autoCommit;
+
+    private final String catalog;
+
+    private final String schema;
+
+    private boolean closed = false;
+
+    private SessionResetConnection(Connection conn) throws SQLException {
+        this.conn = conn;
+        this.autoCommit = conn.getAutoCommit();
+        this.catalog = conn.getCatalog();
+        this.schema = getSchema(conn);
+    }
+
+    public static Connection wrap(Connection conn) throws SQLException {
+        return (Connection) Proxy.newProxyInstance(SessionResetConnection.class.getClassLoader(),
+                new Class[]{Connection.class}, new SessionResetConnection(conn));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+            close();
+            return null;
+        }
+        try {
+            return method.invoke(conn, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private synchronized void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            reset();
+        } catch (Exception e) {
+            LOG.warn("reset session state error, discard the connection", e);
+            try {
+                conn.unwrap(Connection.class).close();
+            } catch (Exception e1) {
+                LOG.error("close physical connection error", e1);
+            }
+        }
+        conn.close();
+    }
+
+    private void reset() throws SQLException {
+        if (!conn.getAutoCommit()) {
+            conn.rollback();
+        }
+        if (conn.getAutoCommit() != autoCommit) {
+            conn.setAutoCommit(autoCommit);
+        }
+        if (catalog != null && !Objects.equals(catalog, conn.getCatalog())) {
+            conn.setCatalog(catalog);
+        }
+        if (schema != null && !Objects.equals(schema, getSchema(conn))) {
+            conn.setSchema(schema);
+        }
+    }
+
+    /**
+     * jdbc 4.1 之前的驱动没有实现 getSchema
+     */
+    private static String getSchema(Connection conn) {
+        try {
+            return conn.getSchema();
+        } catch (AbstractMethodError | SQLException e) {
+            return null;
+        }
+    }
+}
@@ -93,6 +93,10 @@ public class StatusUpdateDealer {
                 if (null != logStore) {
                     logStore.timeOutDeal();
                 }
+                RdbsConnPool.closeIdleDataSources();
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("conn pool stats:{}", RdbsConnPool.getStats());
+                }
             } catch (Throwable e) {
                 LOG.error("", e);
             }
@@ -51,8 +51,7 @@ public class AbstractConnFactoryTest {
         MockitoAnnotations.initMocks(this);
     }
 
-    @Test
-    public void testInit() throws Exception {
+    private Connection initFactory(Properties props) throws Exception {
         MemberModifier.field(TestConnFactory.class, "driverName").set(testConnFactory, "com.mysql.jdbc.Driver");
         MemberModifier.field(TestConnFactory.class, "isFirstLoaded").set(testConnFactory, new AtomicBoolean(true));
 
@@ -63,11 +62,25 @@ public class AbstractConnFactoryTest {
         when(conn.createStatement()).thenReturn(stmt);
         when(DriverManager.getConnection(any(String.class), any(String.class), any(String.class))).thenReturn(conn);
 
-        Properties props = new Properties();
         props.put("jdbcUrl", "jdbcUrl");
         props.put("username", "username");
         props.put("password", "password");
         testConnFactory.init(props);
+        return conn;
+    }
+
+    @Test
+    public void testInit() throws Exception {
+        initFactory(new Properties());
+    }
+
+    @Test
+    public void testGetPooledConnWithPoolDisabled() throws Exception {
+        Properties props = new Properties();
+        props.put("connPoolEnable", "false");
+        Connection conn = initFactory(props);
+        Assert.assertSame(conn, testConnFactory.getPooledConn());
+        Assert.assertSame(conn, testConnFactory.getConnByTaskParams(null, "test"));
     }
 
     @Test
@@ -0,0 +1,78 @@
+package com.dtstack.taier.rdbs.common.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionResetConnectionTest {
+
+    private Connection mockConn() throws SQLException {
+        Connection conn = Mockito.mock(Connection.class);
+        when(conn.getAutoCommit()).thenReturn(true);
+        when(conn.getCatalog()).thenReturn("db_a");
+        when(conn.getSchema()).thenReturn("schema_a");
+        return conn;
+    }
+
+    @Test
+    public void testResetSessionOnClose() throws SQLException {
+        Connection conn = mockConn();
+        Connection jobConn = SessionResetConnection.wrap(conn);
+
+        // 任务关闭了 autocommit 并切换了库
+        when(conn.getAutoCommit()).thenReturn(false);
+        when(conn.getCatalog()).thenReturn("db_b");
+        when(conn.getSchema()).thenReturn("schema_b");
+        jobConn.close();
+
+        verify(conn).rollback();
+        verify(conn).setAutoCommit(true);
+        verify(conn).setCatalog("db_a");
+        verify(conn).setSchema("schema_a");
+        verify(conn).close();
+    }
+
+    @Test
+    public void testUnchangedSessionOnlyClose() throws SQLException {
+        Connection conn = mockConn();
+        Connection jobConn = SessionResetConnection.wrap(conn);
+        jobConn.close();
+        jobConn.close();
+
+        verify(conn, never()).rollback();
+        verify(conn, never()).setAutoCommit(Mockito.anyBoolean());
+        verify(conn, never()).setCatalog(Mockito.anyString());
+        verify(conn).close();
+    }
+
+    @Test
+    public void testDiscardWhenResetFail() throws SQLException {
+        Connection conn = mockConn();
+        Connection physicalConn = Mockito.mock(Connection.class);
+        when(conn.unwrap(Connection.class)).thenReturn(physicalConn);
+        Connection jobConn = SessionResetConnection.wrap(conn);
+
+        when(conn.getAutoCommit()).thenReturn(false);
+        Mockito.doThrow(new SQLException("connection broken")).when(conn).rollback();
+        jobConn.close();
+
+        verify(physicalConn).close();
+        verify(conn).close();
+    }
+
+    @Test
+    public void testDelegateOtherMethod() throws SQLException {
+        Connection conn = mockConn();
+        when(conn.isReadOnly()).thenReturn(true);
+        Connection jobConn = SessionResetConnection.wrap(conn);
+        Assert.assertTrue(jobConn.isReadOnly());
+        Assert.assertEquals("db_a", jobConn.getCatalog());
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.sql.main;
+
+import com.dtstack.taier.base.util.Splitter;
+import com.dtstack.taier.sql.main.util.ZipUtil;
+import com.google.common.base.Charsets;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.SparkConf;
+import org.apache.spark.sql.SparkSession;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * spark sql 常驻会话服务
+ * 作为一个长期运行的 yarn application 启动，共享一个 SparkContext，每个任务使用 newSession() 隔离会话配置和临时视图
+ * 启动后把 host:port 写到 registerPath/applicationId，插件通过该地址提交、查询、取消任务
+ * 没有任务且空闲超过 idleTimeout 后自动退出
+ * Company: www.dtstack.com
+ */
+public class SqlSessionServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlSessionServer.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String DEFAULT_APP_NAME = "taier_sql_session";
+
+    private static final String APP_NAME_KEY = "appName";
+
+    private static final String LOG_LEVEL_KEY = "logLevel";
+
+    private static final String SPARK_SESSION_CONF_KEY = "sparkSessionConf";
+
+    private static final String REGISTER_PATH_KEY = "registerPath";
+
+    private static final String TOKEN_KEY = "token";
+
+    private static final String IDLE_TIMEOUT_KEY = "idleTimeout";
+
+    private static final String PARALLELISM_KEY = "parallelism";
+
+    private static final String ACTION_KEY = "action";
+
+    private static final String JOB_ID_KEY = "jobId";
+
+    private static final String SQL_KEY = "sql";
+
+    private static final String STATE_KEY = "state";
+
+    private static final String MSG_KEY = "msg";
+
+    public static final String ACTION_SUBMIT = "submit";
+
+    public static final String ACTION_STATUS = "status";
+
+    public static final String ACTION_CANCEL = "cancel";
+
+    public static final String STATE_ACCEPTED = "ACCEPTED";
+
+    public static final String STATE_RUNNING = "RUNNING";
+
+    public static final String STATE_FINISHED = "FINISHED";
+
+    public static final String STATE_FAILED = "FAILED";
+
+    public static final String STATE_CANCELED = "CANCELED";
+
+    public static final String STATE_NOTFOUND = "NOTFOUND";
+
+    /**
+     * token 不一致，不能返回 FAILED，否则调用方会把运行中的任务当作失败
+     */
+    public static final String STATE_UNAUTHORIZED = "UNAUTHORIZED";
+
+    /**
+     * 已结束任务的结果保留时间，超过后查询返回 NOTFOUND
+     */
+    private static final long RESULT_RETENTION = 10 * 60 * 1000L;
+
+    private static final long CHECK_INTERVAL = 10 * 1000L;
+
+    private static final int SOCKET_TIMEOUT = 60 * 1000;
+
+    private final SparkSession spark;
+
+    private final String token;
+
+    private final long idleTimeout;
+
+    private final ExecutorService jobExecutor;
+
+    private final ExecutorService rpcExecutor = Executors.newCachedThreadPool();
+
+    private final ScheduledExecutorService checkExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    private final Map<String, SessionJob> jobs = new ConcurrentHashMap<>();
+
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    private ServerSocket serverSocket;
+
+    public SqlSessionServer(SparkSession spark, String token, long idleTimeout, int parallelism) {
+        this.spark = spark;
+        this.token = token;
+        this.idleTimeout = idleTimeout;
+        this.jobExecutor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    public void serve(String registerPath) throws IOException {
+        serverSocket = new ServerSocket(0);
+        String host = spark.sparkContext().getConf().get("spark.driver.host", InetAddress.getLocalHost().getHostName());
+        String address = host + ":" + serverSocket.getLocalPort();
+
+        FileSystem fs = FileSystem.get(spark.sparkContext().hadoopConfiguration());
+        Path registerFile = new Path(registerPath, spark.sparkContext().applicationId());
+        try (FSDataOutputStream out = fs.create(registerFile, true)) {
+            out.write(address.getBytes(Charsets.UTF_8));
+        }
+        logger.warn("sql session server start at {}, register file:{}", address, registerFile);
+
+        checkExecutor.scheduleWithFixedDelay(this::checkIdle, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        try {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException e) {
+                    if (serverSocket.isClosed()) {
+                        break;
+                    }
+                    throw e;
+                }
+                rpcExecutor.submit(() -> handle(socket));
+            }
+        } finally {
+            fs.delete(registerFile, false);
+            checkExecutor.shutdownNow();
+            rpcExecutor.shutdownNow();
+            jobExecutor.shutdownNow();
+            spark.stop();
+            logger.warn("sql session server stopped");
+        }
+    }
+
+    /**
+     * 清理过期的任务结果，没有任务且空闲超时后关闭服务
+     */
+    private void checkIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, SessionJob>> iterator = jobs.entrySet().iterator();
+        while (iterator.hasNext()) {
+            SessionJob job = iterator.next().getValue();
+            if (job.endTime > 0 && now - job.endTime > RESULT_RETENTION) {
+                iterator.remove();
+            }
+        }
+        if (jobs.isEmpty() && now - lastActiveTime > idleTimeout) {
+            logger.warn("sql session server idle for {} ms, shutdown", now - lastActiveTime);
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                logger.error("", e);
+            }
+        }
+    }
+
+    void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), Charsets.UTF_8));
+             Writer writer = new OutputStreamWriter(s.getOutputStream(), Charsets.UTF_8)) {
+            s.setSoTimeout(SOCKET_TIMEOUT);
+            Map<String, Object> request = OBJECT_MAPPER.readValue(reader.readLine(), Map.class);
+            Map<String, Object> response;
+            if (!token.equals(request.get(TOKEN_KEY))) {
+                response = result(STATE_UNAUTHORIZED, "invalid token");
+            } else {
+                lastActiveTime = System.currentTimeMillis();
+                response = dispatch(request);
+            }
+            writer.write(OBJECT_MAPPER.writeValueAsString(response));
+            writer.write('\n');
+            writer.flush();
+        } catch (Exception e) {
+            logger.error("handle request error", e);
+        }
+    }
+
+    private Map<String, Object> dispatch(Map<String, Object> request) {
+        String action = (String) request.get(ACTION_KEY);
+        String jobId = (String) request.get(JOB_ID_KEY);
+        if (StringUtils.isBlank(jobId)) {
+            return result(STATE_FAILED, "jobId can not be null");
+        }
+        if (ACTION_SUBMIT.equals(action)) {
+            return submit(jobId, (String) request.get(SQL_KEY), (Map<String, String>) request.get(SPARK_SESSION_CONF_KEY));
+        }
+
+        SessionJob job = jobs.get(jobId);
+        if (job == null) {
+            return result(STATE_NOTFOUND, "job not found");
+        }
+        if (ACTION_CANCEL.equals(action)) {
+            cancel(job);
+        }
+        return result(job.state, job.msg);
+    }
+
+    private synchronized Map<String, Object> submit(String jobId, String zipSql, Map<String, String> sessionConf) {
+        SessionJob job = jobs.get(jobId);
+        if (job != null && job.endTime == 0) {
+            // 重复提交
+            return result(job.state, job.msg);
+        }
+        SessionJob newJob = new SessionJob(jobId);
+        jobs.put(jobId, newJob);
+        newJob.future = jobExecutor.submit(() -> runJob(newJob, zipSql, sessionConf));
+        return result(newJob.state, newJob.msg);
+    }
+
+    private void runJob(SessionJob job, String zipSql, Map<String, String> sessionConf) {
+        if (job.endTime > 0) {
+            return;
+        }
+        job.state = STATE_RUNNING;
+        SparkSession session = spark.newSession();
+        spark.sparkContext().setJobGroup(job.jobId, "taier sql session job " + job.jobId, true);
+        try {
+            if (sessionConf != null) {
+                sessionConf.forEach((key, val) -> session.conf().set(key, val));
+            }
+
+            //屏蔽引号内的 分号
+            Splitter splitter = new Splitter(';');
+            List<String> sqlArray = splitter.splitEscaped(ZipUtil.unzip(zipSql));
+            for (String sql : sqlArray) {
+                if (sql == null || sql.trim().length() == 0) {
+                    continue;
+                }
+                if (STATE_CANCELED.equals(job.state)) {
+                    return;
+                }
+                logger.info("job:{} processed sql statement {}", job.jobId, sql);
+                session.sql(sql);
+            }
+            job.finish(STATE_FINISHED, "job finished");
+        } catch (Throwable e) {
+            logger.error("job:{} run error", job.jobId, e);
+            job.finish(STATE_FAILED, ExceptionUtils.getFullStackTrace(e));
+        } finally {
+            spark.sparkContext().clearJobGroup();
+            lastActiveTime = System.currentTimeMillis();
+        }
+    }
+
+    private void cancel(SessionJob job) {
+        if (job.endTime > 0) {
+            return;
+        }
+        job.finish(STATE_CANCELED, "job canceled");
+        spark.sparkContext().cancelJobGroup(job.jobId);
+        if (job.future != null) {
+            job.future.cancel(true);
+        }
+    }
+
+    private static Map<String, Object> result(String state, String msg) {
+        Map<String, Object> result = new HashMap<>(4);
+        result.put(STATE_KEY, state);
+        result.put(MSG_KEY, msg);
+        return result;
+    }
+
+    private static class SessionJob {
+
+        private final String jobId;
+
+        private volatile String state = STATE_ACCEPTED;
+
+        private volatile String msg = "job accepted";
+
+        private volatile long endTime = 0L;
+
+        private volatile Future<?> future;
+
+        private SessionJob(String jobId) {
+            this.jobId = jobId;
+        }
+
+        private synchronized void finish(String state, String msg) {
+            if (endTime > 0) {
+                return;
+            }
+            this.state = state;
+            this.msg = msg;
+            this.endTime = System.currentTimeMillis();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 1) {
+            logger.error("must set args for sql session!!!");
+            throw new RuntimeException("must set args for sql session!!!");
+        }
+
+        String argInfo = URLDecoder.decode(args[0], Charsets.UTF_8.name());
+        Map<String, Object> argsMap;
+        try {
+            argsMap = OBJECT_MAPPER.readValue(argInfo, Map.class);
+        } catch (Exception e) {
+            logger.error("", e);
+            throw new RuntimeException("parse args json error, message: " + argInfo, e);
+        }
+
+        String appName = argsMap.get(APP_NAME_KEY) == null ? DEFAULT_APP_NAME : (String) argsMap.get(APP_NAME_KEY);
+        SparkConf sparkConf = new SparkConf();
+        Map<String, String> sessionConf = (Map<String, String>) argsMap.get(SPARK_SESSION_CONF_KEY);
+        if (sessionConf != null) {
+            sessionConf.forEach(sparkConf::set);
+        }
+
+        SparkSession spark = SparkSession
+                .builder()
+                .config(sparkConf)
+                .appName(appName)
+                .enableHiveSupport()
+                .getOrCreate();
+
+        String logLevel = (String) argsMap.get(LOG_LEVEL_KEY);
+        if (StringUtils.isNotBlank(logLevel)) {
+            spark.sparkContext().setLogLevel(logLevel);
+        }
+
+        String token = (String) argsMap.get(TOKEN_KEY);
+        long idleTimeout = ((Number) argsMap.get(IDLE_TIMEOUT_KEY)).longValue();
+        int parallelism = ((Number) argsMap.get(PARALLELISM_KEY)).intValue();
+        new SqlSessionServer(spark, token, idleTimeout, parallelism).serve((String) argsMap.get(REGISTER_PATH_KEY));
+    }
+}
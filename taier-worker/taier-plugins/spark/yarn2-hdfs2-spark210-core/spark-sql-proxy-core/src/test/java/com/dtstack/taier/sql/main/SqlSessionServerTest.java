@@ -0,0 +1,170 @@
+package com.dtstack.taier.sql.main;
+
+import com.google.common.base.Charsets;
+import org.apache.spark.SparkContext;
+import org.apache.spark.sql.SparkSession;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class SqlSessionServerTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String TOKEN = "test_token";
+
+    private SparkSession session;
+
+    private SqlSessionServer server;
+
+    @Before
+    public void setUp() {
+        SparkSession spark = Mockito.mock(SparkSession.class);
+        session = Mockito.mock(SparkSession.class);
+        when(spark.newSession()).thenReturn(session);
+        when(spark.sparkContext()).thenReturn(Mockito.mock(SparkContext.class));
+        server = new SqlSessionServer(spark, TOKEN, 60 * 1000L, 1);
+    }
+
+    private static String zip(String sql) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zout = new ZipOutputStream(out)) {
+            zout.putNextEntry(new ZipEntry("0"));
+            zout.write(sql.getBytes(Charsets.UTF_8));
+            zout.closeEntry();
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * 按插件的协议发送一行 json 请求，读取一行 json 响应
+     */
+    private Map<String, Object> request(Map<String, Object> request) throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread handler = new Thread(() -> {
+                try {
+                    server.handle(serverSocket.accept());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            handler.start();
+            try (Socket socket = new Socket("127.0.0.1", serverSocket.getLocalPort());
+                 Writer writer = new OutputStreamWriter(socket.getOutputStream(), Charsets.UTF_8);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8))) {
+                writer.write(OBJECT_MAPPER.writeValueAsString(request));
+                writer.write('\n');
+                writer.flush();
+                String line = reader.readLine();
+                Assert.assertNotNull(line);
+                return OBJECT_MAPPER.readValue(line, Map.class);
+            } finally {
+                handler.join();
+            }
+        }
+    }
+
+    private Map<String, Object> request(String token, String action, String jobId, String sql) throws Exception {
+        Map<String, Object> request = new HashMap<>(8);
+        request.put("token", token);
+        request.put("action", action);
+        request.put("jobId", jobId);
+        if (sql != null) {
+            request.put("sql", zip(sql));
+        }
+        return request(request);
+    }
+
+    private String waitEnd(String jobId) throws Exception {
+        long deadline = System.currentTimeMillis() + 10 * 1000L;
+        while (System.currentTimeMillis() < deadline) {
+            String state = (String) request(TOKEN, SqlSessionServer.ACTION_STATUS, jobId, null).get("state");
+            if (!SqlSessionServer.STATE_ACCEPTED.equals(state) && !SqlSessionServer.STATE_RUNNING.equals(state)) {
+                return state;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("job " + jobId + " not end");
+    }
+
+    @Test
+    public void testInvalidToken() throws Exception {
+        Map<String, Object> response = request("other_token", SqlSessionServer.ACTION_STATUS, "job_1", null);
+        Assert.assertEquals(SqlSessionServer.STATE_UNAUTHORIZED, response.get("state"));
+        Assert.assertEquals("invalid token", response.get("msg"));
+
+        response = request(null, SqlSessionServer.ACTION_SUBMIT, "job_1", "select 1");
+        Assert.assertEquals(SqlSessionServer.STATE_UNAUTHORIZED, response.get("state"));
+        Mockito.verify(session, Mockito.never()).sql(anyString());
+    }
+
+    @Test
+    public void testBlankJobIdFailed() throws Exception {
+        Map<String, Object> response = request(TOKEN, SqlSessionServer.ACTION_STATUS, "", null);
+        Assert.assertEquals(SqlSessionServer.STATE_FAILED, response.get("state"));
+    }
+
+    @Test
+    public void testUnknownJobNotFound() throws Exception {
+        Assert.assertEquals(SqlSessionServer.STATE_NOTFOUND, request(TOKEN, SqlSessionServer.ACTION_STATUS, "job_1", null).get("state"));
+        Assert.assertEquals(SqlSessionServer.STATE_NOTFOUND, request(TOKEN, SqlSessionServer.ACTION_CANCEL, "job_1", null).get("state"));
+    }
+
+    @Test
+    public void testSubmitFinished() throws Exception {
+        Map<String, Object> response = request(TOKEN, SqlSessionServer.ACTION_SUBMIT, "job_1", "insert into t1 select 1;insert into t2 select ';'");
+        Assert.assertTrue(SqlSessionServer.STATE_ACCEPTED.equals(response.get("state")) || SqlSessionServer.STATE_RUNNING.equals(response.get("state")));
+
+        Assert.assertEquals(SqlSessionServer.STATE_FINISHED, waitEnd("job_1"));
+        Mockito.verify(session).sql("insert into t1 select 1");
+        Mockito.verify(session).sql("insert into t2 select ';'");
+    }
+
+    @Test
+    public void testSubmitFailed() throws Exception {
+        when(session.sql(anyString())).thenThrow(new IllegalStateException("table not found"));
+        request(TOKEN, SqlSessionServer.ACTION_SUBMIT, "job_1", "select * from t1");
+
+        Assert.assertEquals(SqlSessionServer.STATE_FAILED, waitEnd("job_1"));
+        String msg = (String) request(TOKEN, SqlSessionServer.ACTION_STATUS, "job_1", null).get("msg");
+        Assert.assertTrue(msg.contains("table not found"));
+    }
+
+    @Test
+    public void testCancelRunningJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(session.sql(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(60 * 1000L);
+            return null;
+        });
+        request(TOKEN, SqlSessionServer.ACTION_SUBMIT, "job_1", "insert into t1 select 1");
+        started.await();
+
+        Map<String, Object> response = request(TOKEN, SqlSessionServer.ACTION_CANCEL, "job_1", null);
+        Assert.assertEquals(SqlSessionServer.STATE_CANCELED, response.get("state"));
+        // 取消后任务线程被中断抛出的异常不会把状态改成失败
+        Thread.sleep(100);
+        Assert.assertEquals(SqlSessionServer.STATE_CANCELED, request(TOKEN, SqlSessionServer.ACTION_STATUS, "job_1", null).get("state"));
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.sparkyarn.sparkyarn;
+
+import com.dtstack.taier.base.util.YarnApplicationUtils;
+import com.dtstack.taier.pluginapi.JobClient;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import com.dtstack.taier.pluginapi.pojo.JobResult;
+import com.dtstack.taier.pluginapi.util.DtStringUtil;
+import com.dtstack.taier.pluginapi.util.MathUtil;
+import com.dtstack.taier.pluginapi.util.PublicUtil;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 常驻 spark sql 会话的管理
+ * 会话服务(SqlSessionServer)作为一个 yarn application 启动，sql 任务通过 socket 提交到会话中执行，不需要每个任务都启动 AM 和 executor
+ * 会话中执行的任务 applicationId 为 sqlsession@{会话applicationId}@{jobId}，状态、日志、取消都通过会话服务完成
+ * Company: www.dtstack.com
+ */
+public class SparkSqlSessionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparkSqlSessionManager.class);
+
+    public static final String SESSION_JOB_PREFIX = "sqlsession@";
+
+    private static final String SESSION_JOB_SEPARATOR = "@";
+
+    private static final String SESSION_MODE_KEY = "sqlSessionMode";
+
+    private static final String ACTION_SUBMIT = "submit";
+
+    private static final String ACTION_STATUS = "status";
+
+    private static final String ACTION_CANCEL = "cancel";
+
+    private static final String STATE_KEY = "state";
+
+    private static final String MSG_KEY = "msg";
+
+    private static final String STATE_UNAUTHORIZED = "UNAUTHORIZED";
+
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+
+    private static final int SOCKET_TIMEOUT = 60 * 1000;
+
+    private static final long START_CHECK_INTERVAL = 2 * 1000L;
+
+    private final SparkYarnConfig sparkYarnConfig;
+
+    private final Configuration yarnConf;
+
+    private final Supplier<YarnClient> yarnClientSupplier;
+
+    private final SessionLauncher launcher;
+
+    /**
+     * 会话 applicationId -> host:port
+     */
+    private final Map<String, String> sessionAddresses = new ConcurrentHashMap<>();
+
+    /**
+     * 由集群配置生成，重启、客户端重建或切换节点后仍然可以访问已经启动的会话
+     */
+    private final String token;
+
+    private volatile String sessionAppId;
+
+    /**
+     * 正在启动的会话，启动过程不持有锁，其他提交线程等待同一个会话启动
+     */
+    private CompletableFuture<String> startingSession;
+
+    public SparkSqlSessionManager(SparkYarnConfig sparkYarnConfig, Configuration yarnConf,
+                                  Supplier<YarnClient> yarnClientSupplier, SessionLauncher launcher) {
+        this.sparkYarnConfig = sparkYarnConfig;
+        this.yarnConf = yarnConf;
+        this.yarnClientSupplier = yarnClientSupplier;
+        this.launcher = launcher;
+        this.token = buildToken(sparkYarnConfig);
+    }
+
+    private static String buildToken(SparkYarnConfig sparkYarnConfig) {
+        try {
+            return Hashing.sha256().hashString(PublicUtil.objToString(sparkYarnConfig), Charsets.UTF_8).toString();
+        } catch (IOException e) {
+            throw new PluginDefineException("build sql session token error", e);
+        }
+    }
+
+    public static boolean isSessionJob(String applicationId) {
+        return applicationId != null && applicationId.startsWith(SESSION_JOB_PREFIX);
+    }
+
+    /**
+     * 开启会话模式且任务没有设置 sqlSessionMode=false 时使用会话执行，任务自身的资源配置不再生效
+     */
+    public boolean isEligible(JobClient jobClient) {
+        if (!sparkYarnConfig.getSparkSqlSessionMode()) {
+            return false;
+        }
+        Properties confProp = jobClient.getConfProperties();
+        return confProp == null || MathUtil.getBoolean(confProp.get(SESSION_MODE_KEY), true);
+    }
+
+    public JobResult submit(JobClient jobClient, Map<String, String> sessionConf) throws Exception {
+        Map<String, Object> request = new HashMap<>(4);
+        request.put("sql", DtStringUtil.zip(jobClient.getSql()));
+        request.put("sparkSessionConf", sessionConf);
+
+        String appId = ensureSession(jobClient);
+        Map<String, Object> response;
+        try {
+            response = call(appId, ACTION_SUBMIT, jobClient.getJobId(), request);
+        } catch (IOException e) {
+            // 会话服务可能已经退出，重新启动后再提交一次
+            logger.warn("submit job:{} to sql session {} error, restart session", jobClient.getJobId(), appId, e);
+            invalidate(appId);
+            appId = ensureSession(jobClient);
+            response = call(appId, ACTION_SUBMIT, jobClient.getJobId(), request);
+        }
+        if (isUnauthorized(response) || TaskStatus.FAILED == convertToTaskStatus(response)) {
+            return JobResult.createErrorResult("submit job to sql session error:" + response.get(MSG_KEY));
+        }
+        return JobResult.createSuccessResult(SESSION_JOB_PREFIX + appId + SESSION_JOB_SEPARATOR + jobClient.getJobId());
+    }
+
+    public TaskStatus getJobStatus(String applicationId) {
+        try {
+            return convertToTaskStatus(call(applicationId, ACTION_STATUS));
+        } catch (Exception e) {
+            logger.error("get job status from sql session error, applicationId:{}", applicationId, e);
+            return TaskStatus.NOTFOUND;
+        }
+    }
+
+    public String getJobLog(String applicationId) {
+        try {
+            Map<String, Object> response = call(applicationId, ACTION_STATUS);
+            return MathUtil.getString(response.get(MSG_KEY), "");
+        } catch (Exception e) {
+            logger.error("get job log from sql session error, applicationId:{}", applicationId, e);
+            return "get log from sql session err:" + e.getMessage();
+        }
+    }
+
+    public JobResult cancelJob(String applicationId) {
+        try {
+            Map<String, Object> response = call(applicationId, ACTION_CANCEL);
+            if (isUnauthorized(response)) {
+                return JobResult.createErrorResult("cancel job from sql session error:" + response.get(MSG_KEY));
+            }
+            return JobResult.createSuccessResult(applicationId);
+        } catch (Exception e) {
+            logger.error("cancel job from sql session error, applicationId:{}", applicationId, e);
+            return JobResult.createErrorResult(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取可用的会话，不存在或已经结束时重新启动
+     * 只有发起启动的线程执行启动和等待，其他线程在锁外等待启动结果
+     */
+    private String ensureSession(JobClient jobClient) throws Exception {
+        CompletableFuture<String> future;
+        boolean launch = false;
+        synchronized (this) {
+            if (sessionAppId != null && sessionAddresses.containsKey(sessionAppId)) {
+                return sessionAppId;
+            }
+            if (startingSession == null) {
+                startingSession = new CompletableFuture<>();
+                launch = true;
+            }
+            future = startingSession;
+        }
+
+        if (launch) {
+            try {
+                String appId = startSession(jobClient);
+                synchronized (this) {
+                    sessionAppId = appId;
+                }
+                future.complete(appId);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    startingSession = null;
+                }
+            }
+        }
+
+        try {
+            return future.get(sparkYarnConfig.getSparkSqlSessionStartTimeout(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw new PluginDefineException("wait sql session start timeout");
+        }
+    }
+
+    private String startSession(JobClient jobClient) throws Exception {
+        Map<String, Object> params = new HashMap<>(8);
+        params.put("appName", "taier_sql_session_" + sparkYarnConfig.getQueue());
+        params.put("registerPath", sparkYarnConfig.getSparkSqlSessionRegisterPath());
+        params.put("token", token);
+        params.put("idleTimeout", sparkYarnConfig.getSparkSqlSessionIdleTimeout());
+        params.put("parallelism", sparkYarnConfig.getSparkSqlSessionParallelism());
+        ApplicationId appId = launcher.launch(jobClient, params);
+        logger.info("launch sql session application:{}", appId);
+
+        long deadline = System.currentTimeMillis() + sparkYarnConfig.getSparkSqlSessionStartTimeout();
+        YarnClient yarnClient = yarnClientSupplier.get();
+        while (System.currentTimeMillis() < deadline) {
+            ApplicationReport report = yarnClient.getApplicationReport(appId);
+            YarnApplicationState state = report.getYarnApplicationState();
+            if (!YarnApplicationUtils.ACTIVE_STATES.contains(state)) {
+                throw new PluginDefineException("sql session application " + appId + " exit with state " + state + ", " + report.getDiagnostics());
+            }
+            if (YarnApplicationState.RUNNING == state) {
+                String address = readAddress(appId.toString());
+                if (address != null) {
+                    sessionAddresses.put(appId.toString(), address);
+                    logger.info("sql session application:{} started at {}", appId, address);
+                    return appId.toString();
+                }
+            }
+            Thread.sleep(START_CHECK_INTERVAL);
+        }
+
+        yarnClient.killApplication(appId);
+        throw new PluginDefineException("wait sql session application " + appId + " start timeout");
+    }
+
+    /**
+     * client 关闭时清理会话状态，会话应用空闲超时后自行退出，新的 client 通过相同的 token 继续访问
+     */
+    public synchronized void close() {
+        if (startingSession != null) {
+            startingSession.completeExceptionally(new PluginDefineException("sql session manager closed"));
+            startingSession = null;
+        }
+        sessionAddresses.clear();
+        sessionAppId = null;
+    }
+
+    private synchronized void invalidate(String appId) {
+        sessionAddresses.remove(appId);
+        if (appId.equals(sessionAppId)) {
+            sessionAppId = null;
+        }
+    }
+
+    private String readAddress(String appId) throws IOException {
+        Path registerFile = new Path(sparkYarnConfig.getSparkSqlSessionRegisterPath(), appId);
+        FileSystem fs = registerFile.getFileSystem(yarnConf);
+        if (!fs.exists(registerFile)) {
+            return null;
+        }
+        try (FSDataInputStream in = fs.open(registerFile)) {
+            return IOUtils.toString(in, Charsets.UTF_8);
+        }
+    }
+
+    private Map<String, Object> call(String applicationId, String action) throws IOException {
+        String[] ids = applicationId.substring(SESSION_JOB_PREFIX.length()).split(SESSION_JOB_SEPARATOR, 2);
+        return call(ids[0], action, ids[1], new HashMap<>(4));
+    }
+
+    private Map<String, Object> call(String appId, String action, String jobId, Map<String, Object> request) throws IOException {
+        String address = sessionAddresses.get(appId);
+        if (address == null) {
+            address = readAddress(appId);
+            if (address == null) {
+                throw new IOException("sql session " + appId + " not exist");
+            }
+            sessionAddresses.put(appId, address);
+        }
+
+        request.put("token", token);
+        request.put("action", action);
+        request.put("jobId", jobId);
+        try {
+            return request(address, request);
+        } catch (IOException e) {
+            sessionAddresses.remove(appId);
+            throw e;
+        }
+    }
+
+    /**
+     * 请求和响应都是一行 json
+     */
+    static Map<String, Object> request(String address, Map<String, Object> request) throws IOException {
+        String[] hostAndPort = address.trim().split(":");
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1])), CONNECT_TIMEOUT);
+            socket.setSoTimeout(SOCKET_TIMEOUT);
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), Charsets.UTF_8);
+            writer.write(PublicUtil.objToString(request));
+            writer.write('\n');
+            writer.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8));
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("sql session " + address + " closed connection");
+            }
+            return PublicUtil.jsonStrToObject(line, Map.class);
+        }
+    }
+
+    /**
+     * token 不一致时会话服务不会返回任务的真实状态
+     */
+    static boolean isUnauthorized(Map<String, Object> response) {
+        return STATE_UNAUTHORIZED.equals(MathUtil.getString(response.get(STATE_KEY)));
+    }
+
+    static TaskStatus convertToTaskStatus(Map<String, Object> response) {
+        String state = MathUtil.getString(response.get(STATE_KEY));
+        if (StringUtils.isBlank(state) || isUnauthorized(response)) {
+            logger.warn("sql session response unknown state:{}, msg:{}", state, response.get(MSG_KEY));
+            return TaskStatus.NOTFOUND;
+        }
+        switch (state) {
+            case "ACCEPTED":
+                return TaskStatus.SCHEDULED;
+            case "RUNNING":
+                return TaskStatus.RUNNING;
+            case "FINISHED":
+                return TaskStatus.FINISHED;
+            case "FAILED":
+                return TaskStatus.FAILED;
+            case "CANCELED":
+                return TaskStatus.CANCELED;
+            default:
+                return TaskStatus.NOTFOUND;
+        }
+    }
+
+    /**
+     * 启动会话服务的 yarn application
+     */
+    @FunctionalInterface
+    public interface SessionLauncher {
+        ApplicationId launch(JobClient jobClient, Map<String, Object> params) throws Exception;
+    }
+}
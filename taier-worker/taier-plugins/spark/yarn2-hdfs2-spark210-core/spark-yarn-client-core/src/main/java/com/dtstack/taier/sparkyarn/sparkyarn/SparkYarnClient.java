@@ -21,9 +21,12 @@ package com.dtstack.taier.sparkyarn.sparkyarn;
 import com.alibaba.fastjson.JSON;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
 import com.dtstack.taier.base.monitor.AcceptedApplicationMonitor;
+import com.dtstack.taier.base.monitor.YarnApplicationWatcher;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.dtstack.taier.base.util.HadoopConfTool;
 import com.dtstack.taier.base.util.KerberosUtils;
 import com.dtstack.taier.base.util.Splitter;
+import com.dtstack.taier.base.util.YarnApplicationUtils;
 import com.dtstack.taier.pluginapi.*;
 import com.dtstack.taier.pluginapi.client.AbstractClient;
 import com.dtstack.taier.pluginapi.enums.ComputeType;
@@ -52,8 +55,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ApplicationReport;
-import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
-import org.apache.hadoop.yarn.api.records.YarnApplicationState;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.util.ConverterUtils;
@@ -126,6 +127,14 @@ public class SparkYarnClient extends AbstractClient {
 
     private ThreadPoolExecutor threadPoolExecutor;
 
+    private YarnResourceSnapshot resourceSnapshot;
+
+    private YarnApplicationWatcher.QueueView applicationWatcher;
+
+    private SparkSqlSessionManager sqlSessionManager;
+
+    private AcceptedApplicationMonitor acceptedApplicationMonitor;
+
     private static String userDir = System.getProperty("user.dir");
 
     private static final String SPARK_CONF_DIR = "sparkconf";
@@ -148,9 +157,12 @@ public class SparkYarnClient extends AbstractClient {
         yarnClient = this.buildYarnClient();
 
         this.filesystemManager = new FilesystemManager(yarnConf, sparkYarnConfig.getSftpConf());
+        this.applicationWatcher = YarnApplicationWatcher.watch(this.getClass().getSimpleName(), sparkYarnConfig, yarnConf, sparkYarnConfig.getQueue());
+        this.resourceSnapshot = new YarnResourceSnapshot(sparkYarnConfig.getYarnResourceRefreshInterval(), sparkYarnConfig.getYarnResourceReserveTimeout());
+        this.sqlSessionManager = new SparkSqlSessionManager(sparkYarnConfig, yarnConf, this::getYarnClient, this::submitSqlSessionApplication);
 
         if (sparkYarnConfig.getMonitorAcceptedApp()) {
-            AcceptedApplicationMonitor.start(yarnConf, sparkYarnConfig.getQueue(), sparkYarnConfig);
+            acceptedApplicationMonitor = AcceptedApplicationMonitor.start(yarnConf, sparkYarnConfig.getQueue(), sparkYarnConfig);
         }
 
         this.threadPoolExecutor = new ThreadPoolExecutor(sparkYarnConfig.getAsyncCheckYarnClientThreadNum(), sparkYarnConfig.getAsyncCheckYarnClientThreadNum(),
@@ -159,6 +171,26 @@ public class SparkYarnClient extends AbstractClient {
 
     }
 
+    @Override
+    public void close() {
+        if (acceptedApplicationMonitor != null) {
+            acceptedApplicationMonitor.stop();
+        }
+        if (applicationWatcher != null) {
+            applicationWatcher.close();
+        }
+        if (sqlSessionManager != null) {
+            sqlSessionManager.close();
+        }
+        if (threadPoolExecutor != null) {
+            threadPoolExecutor.shutdownNow();
+        }
+        if (yarnClient != null) {
+            yarnClient.stop();
+        }
+        logger.info("spark yarn client closed, queue:{}", sparkYarnConfig.getQueue());
+    }
+
     private void initYarnConf(SparkYarnConfig sparkConfig){
         HadoopConf customerConf = new HadoopConf();
         customerConf.initHadoopConf(sparkConfig.getHadoopConf());
@@ -173,8 +205,9 @@ public class SparkYarnClient extends AbstractClient {
 
     @Override
     protected JobResult processSubmitJobWithType(JobClient jobClient) {
+        JobResult submitResult = null;
         try {
-            return KerberosUtils.login(sparkYarnConfig, () -> {
+            submitResult = KerberosUtils.login(sparkYarnConfig, () -> {
                 EJobType jobType = jobClient.getJobType();
                 JobResult jobResult = null;
                 if (EJobType.MR.equals(jobType)) {
@@ -186,9 +219,12 @@ public class SparkYarnClient extends AbstractClient {
                 }
                 return jobResult;
             }, yarnConf, true);
+            return submitResult;
         } catch (Exception e) {
             logger.info("", e);
             return JobResult.createErrorResult("submit job get unknown error\n" + ExceptionUtil.getErrorMessage(e));
+        } finally {
+            resourceSnapshot.submitted(jobClient.getJobId(), submitResult == null ? null : submitResult.getData(JobResult.JOB_ID_KEY));
         }
     }
 
@@ -417,6 +453,36 @@ public class SparkYarnClient extends AbstractClient {
         }
 
 
+        try {
+            ApplicationId appId = submitSqlProxyApplication(jobClient, sparkYarnConfig.getSparkSqlProxyMainClass(), paramsMap, jobClient.getJobName(), true);
+            return JobResult.createSuccessResult(appId.toString());
+        } catch(Exception ex) {
+            return JobResult.createErrorResult("submit job get unknown error\n" + ExceptionUtil.getErrorMessage(ex));
+        }
+
+    }
+
+    /**
+     * 提交到常驻的 spark sql 会话执行
+     */
+    private JobResult submitSparkSqlJobForSession(JobClient jobClient) {
+        try {
+            return sqlSessionManager.submit(jobClient, getSparkSessionConf(jobClient.getConfProperties()));
+        } catch (Exception ex) {
+            return JobResult.createErrorResult("submit job to sql session get unknown error\n" + ExceptionUtil.getErrorMessage(ex));
+        }
+    }
+
+    /**
+     * 启动常驻的 spark sql 会话，不使用触发启动的任务自身的配置
+     */
+    private ApplicationId submitSqlSessionApplication(JobClient jobClient, Map<String, Object> paramsMap) throws Exception {
+        paramsMap.put("sparkSessionConf", getSparkSessionConf(null));
+        return submitSqlProxyApplication(jobClient, sparkYarnConfig.getSparkSqlSessionMainClass(), paramsMap, (String) paramsMap.get("appName"), false);
+    }
+
+    private ApplicationId submitSqlProxyApplication(JobClient jobClient, String mainClass, Map<String, Object> paramsMap,
+                                                    String appName, boolean fillJobConf) throws Exception {
         String sqlExeJson = null;
         try{
             sqlExeJson = PublicUtil.objToString(paramsMap);
@@ -426,40 +492,31 @@ public class SparkYarnClient extends AbstractClient {
             throw new PluginDefineException("get unexpected exception:" + e.getMessage());
         }
 
-        String sqlProxyClass = sparkYarnConfig.getSparkSqlProxyMainClass();
-
         List<String> argList = new ArrayList<>();
         argList.add("--jar");
         argList.add(sparkYarnConfig.getSparkSqlProxyPath());
         argList.add("--class");
-        argList.add(sqlProxyClass);
+        argList.add(mainClass);
         argList.add("--arg");
         argList.add(sqlExeJson);
 
         ClientArguments clientArguments = new ClientArguments(argList.toArray(new String[argList.size()]));
         SparkConf sparkConf = buildBasicSparkConf(jobClient);
-        sparkConf.setAppName(jobClient.getJobName());
+        sparkConf.setAppName(appName);
         setSparkLog4jLocalFilePath(sparkConf, jobClient);
-        fillExtSparkConf(sparkConf, confProp);
+        if (fillJobConf) {
+            fillExtSparkConf(sparkConf, jobClient.getConfProperties());
+        }
         setSparkLog4jConfiguration(sparkConf);
 
-        ApplicationId appId = null;
-
-        try {
-            ClientExt clientExt = ClientExtFactory.getClientExt(filesystemManager, clientArguments, yarnConf, sparkConf);
-            clientExt.setSparkYarnConfig(sparkYarnConfig);
-            String proxyUserName = sparkYarnConfig.getDtProxyUserName();
-            if (StringUtils.isNotBlank(proxyUserName)) {
-                logger.info("ugi proxyUser is {}", proxyUserName);
-                appId = UserGroupInformation.createProxyUser(proxyUserName, UserGroupInformation.getLoginUser()).doAs((PrivilegedExceptionAction<ApplicationId>) () -> clientExt.submitApplication(jobClient.getApplicationPriority()));
-            } else {
-                appId = clientExt.submitApplication(jobClient.getApplicationPriority());
-            }
-            return JobResult.createSuccessResult(appId.toString());
-        } catch(Exception ex) {
-            return JobResult.createErrorResult("submit job get unknown error\n" + ExceptionUtil.getErrorMessage(ex));
+        ClientExt clientExt = ClientExtFactory.getClientExt(filesystemManager, clientArguments, yarnConf, sparkConf);
+        clientExt.setSparkYarnConfig(sparkYarnConfig);
+        String proxyUserName = sparkYarnConfig.getDtProxyUserName();
+        if (StringUtils.isNotBlank(proxyUserName)) {
+            logger.info("ugi proxyUser is {}", proxyUserName);
+            return UserGroupInformation.createProxyUser(proxyUserName, UserGroupInformation.getLoginUser()).doAs((PrivilegedExceptionAction<ApplicationId>) () -> clientExt.submitApplication(jobClient.getApplicationPriority()));
         }
-
+        return clientExt.submitApplication(jobClient.getApplicationPriority());
     }
 
     private Map<String, String> getSparkSessionConf(Properties confProp){
@@ -575,6 +632,9 @@ public class SparkYarnClient extends AbstractClient {
 
         switch (computeType){
             case BATCH:
+                if (sqlSessionManager.isEligible(jobClient)) {
+                    return submitSparkSqlJobForSession(jobClient);
+                }
                 return submitSparkSqlJobForBatch(jobClient);
             case STREAM:
                 return submitSparkSqlJobForStream(jobClient);
@@ -592,6 +652,9 @@ public class SparkYarnClient extends AbstractClient {
         try {
             return KerberosUtils.login(sparkYarnConfig, ()->{
                 String jobId = jobIdentifier.getApplicationId();
+                if (SparkSqlSessionManager.isSessionJob(jobId)) {
+                    return sqlSessionManager.cancelJob(jobId);
+                }
                 try {
                     ApplicationId appId = ConverterUtils.toApplicationId(jobId);
                     getYarnClient().killApplication(appId);
@@ -617,41 +680,14 @@ public class SparkYarnClient extends AbstractClient {
                     return null;
                 }
 
+                if (SparkSqlSessionManager.isSessionJob(jobId)) {
+                    return sqlSessionManager.getJobStatus(jobId);
+                }
+
                 ApplicationId appId = ConverterUtils.toApplicationId(jobId);
                 try {
                     ApplicationReport report = getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch(applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            if(finalApplicationStatus == FinalApplicationStatus.FAILED){
-                                return TaskStatus.FAILED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.SUCCEEDED){
-                                return TaskStatus.FINISHED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.KILLED){
-                                return TaskStatus.KILLED;
-                            }else{
-                                return TaskStatus.RUNNING;
-                            }
-
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return YarnApplicationUtils.convertToTaskStatus(report);
                 } catch (Exception e) {
                     logger.error("", e);
                     return TaskStatus.NOTFOUND;
@@ -663,6 +699,30 @@ public class SparkYarnClient extends AbstractClient {
         }
     }
 
+    /**
+     * 任务状态从 applicationWatcher 维护的 application 列表中获取，不在列表中的任务再逐个查询
+     */
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        List<JobIdentifier> missJobIdentifiers = new ArrayList<>();
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            ApplicationReport report = null;
+            if (StringUtils.isNotEmpty(jobIdentifier.getApplicationId())) {
+                report = applicationWatcher.getApplicationReport(jobIdentifier.getApplicationId());
+            }
+            if (report != null) {
+                statusMap.put(jobIdentifier.getJobId(), YarnApplicationUtils.convertToTaskStatus(report));
+            } else {
+                missJobIdentifiers.add(jobIdentifier);
+            }
+        }
+        if (!missJobIdentifiers.isEmpty()) {
+            statusMap.putAll(super.getJobStatusBatch(missJobIdentifiers));
+        }
+        return statusMap;
+    }
+
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         //解析config,获取web-address
@@ -740,6 +800,10 @@ public class SparkYarnClient extends AbstractClient {
         try {
             return KerberosUtils.login(sparkYarnConfig, ()-> {
                 String jobId = jobIdentifier.getApplicationId();
+                if (SparkSqlSessionManager.isSessionJob(jobId)) {
+                    sparkJobLog.addAppLog(jobId, sqlSessionManager.getJobLog(jobId));
+                    return sparkJobLog.toString();
+                }
                 ApplicationId applicationId = ConverterUtils.toApplicationId(jobId);
 
                 try {
@@ -769,6 +833,7 @@ public class SparkYarnClient extends AbstractClient {
                             .withYarnClient(getYarnClient())
                             .withQueueName(sparkYarnConfig.getQueue())
                             .withYarnAccepterTaskNumber(sparkYarnConfig.getYarnAccepterTaskNumber())
+                            .withResourceSnapshot(resourceSnapshot)
                             .build();
                     return resourceInfo.judgeSlots(jobClient);
             }, yarnConf, false);
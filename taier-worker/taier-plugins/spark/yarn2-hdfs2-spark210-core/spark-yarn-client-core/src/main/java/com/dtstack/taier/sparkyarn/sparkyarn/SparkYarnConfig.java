@@ -39,6 +39,10 @@ public class SparkYarnConfig extends BaseConfig {
 
     private static final String DEFAULT_SPARK_SQL_PROXY_MAINCLASS = "com.dtstack.taier.sql.main.SqlProxy";
 
+    private static final String DEFAULT_SPARK_SQL_SESSION_MAINCLASS = "com.dtstack.taier.sql.main.SqlSessionServer";
+
+    private static final String DEFAULT_SPARK_SQL_SESSION_REGISTER_PATH = "%s/user/spark/sql-session";
+
     public static final String DEFAULT_CARBON_SQL_PROXY_MAINCLASS = "com.dtstack.sql.main.CarbondataSqlProxy";
 
     private static final String HDFS_FLAG = "hdfs";
@@ -85,6 +89,33 @@ public class SparkYarnConfig extends BaseConfig {
     private int asyncCheckYarnClientThreadNum = 3;
     private String dtProxyUserName;
 
+    /**
+     * sql 任务是否提交到常驻的 spark sql 会话执行
+     */
+    private boolean sparkSqlSessionMode = false;
+
+    private String sparkSqlSessionMainClass;
+
+    /**
+     * 会话服务注册地址的 hdfs 目录
+     */
+    private String sparkSqlSessionRegisterPath;
+
+    /**
+     * 会话服务空闲多久后退出
+     */
+    private long sparkSqlSessionIdleTimeout = 30 * 60 * 1000L;
+
+    /**
+     * 等待会话服务启动的超时时间
+     */
+    private long sparkSqlSessionStartTimeout = 5 * 60 * 1000L;
+
+    /**
+     * 会话服务同时执行的任务数
+     */
+    private int sparkSqlSessionParallelism = 10;
+
     public String getDtProxyUserName() {
         return dtProxyUserName;
     }
@@ -285,4 +316,64 @@ public class SparkYarnConfig extends BaseConfig {
     public void setMonitorAcceptedApp(boolean monitorAcceptedApp) {
         this.monitorAcceptedApp = monitorAcceptedApp;
     }
+
+    public boolean getSparkSqlSessionMode() {
+        return sparkSqlSessionMode;
+    }
+
+    public void setSparkSqlSessionMode(boolean sparkSqlSessionMode) {
+        this.sparkSqlSessionMode = sparkSqlSessionMode;
+    }
+
+    public String getSparkSqlSessionMainClass() {
+        if (Strings.isNullOrEmpty(sparkSqlSessionMainClass)) {
+            return DEFAULT_SPARK_SQL_SESSION_MAINCLASS;
+        }
+
+        return sparkSqlSessionMainClass;
+    }
+
+    public void setSparkSqlSessionMainClass(String sparkSqlSessionMainClass) {
+        this.sparkSqlSessionMainClass = sparkSqlSessionMainClass;
+    }
+
+    public String getSparkSqlSessionRegisterPath() {
+        if (Strings.isNullOrEmpty(sparkSqlSessionRegisterPath)) {
+            return String.format(DEFAULT_SPARK_SQL_SESSION_REGISTER_PATH, defaultFs);
+        }
+
+        if (!sparkSqlSessionRegisterPath.trim().startsWith(HDFS_FLAG)) {
+            sparkSqlSessionRegisterPath = defaultFs + sparkSqlSessionRegisterPath.trim();
+        }
+
+        return sparkSqlSessionRegisterPath;
+    }
+
+    public void setSparkSqlSessionRegisterPath(String sparkSqlSessionRegisterPath) {
+        this.sparkSqlSessionRegisterPath = sparkSqlSessionRegisterPath;
+    }
+
+    public long getSparkSqlSessionIdleTimeout() {
+        return sparkSqlSessionIdleTimeout;
+    }
+
+    public void setSparkSqlSessionIdleTimeout(long sparkSqlSessionIdleTimeout) {
+        this.sparkSqlSessionIdleTimeout = sparkSqlSessionIdleTimeout;
+    }
+
+    public long getSparkSqlSessionStartTimeout() {
+        return sparkSqlSessionStartTimeout;
+    }
+
+    public void setSparkSqlSessionStartTimeout(long sparkSqlSessionStartTimeout) {
+        this.sparkSqlSessionStartTimeout = sparkSqlSessionStartTimeout;
+    }
+
+    public int getSparkSqlSessionParallelism() {
+        return sparkSqlSessionParallelism;
+    }
+
+    public void setSparkSqlSessionParallelism(int sparkSqlSessionParallelism) {
+        this.sparkSqlSessionParallelism = sparkSqlSessionParallelism;
+    }
 }
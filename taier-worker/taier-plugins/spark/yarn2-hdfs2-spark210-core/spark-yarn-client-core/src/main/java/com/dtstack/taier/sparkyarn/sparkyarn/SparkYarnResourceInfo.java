@@ -23,6 +23,7 @@ import com.dtstack.taier.pluginapi.util.MathUtil;
 import com.dtstack.taier.pluginapi.util.UnitConvertUtil;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.base.resource.AbstractYarnResourceInfo;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 
@@ -64,20 +65,16 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
     private String queueName;
     private Integer yarnAccepterTaskNumber;
 
-    public SparkYarnResourceInfo(YarnClient yarnClient, String queueName, Integer yarnAccepterTaskNumber) {
+    public SparkYarnResourceInfo(YarnClient yarnClient, String queueName, Integer yarnAccepterTaskNumber, YarnResourceSnapshot resourceSnapshot) {
         this.yarnClient = yarnClient;
         this.queueName = queueName;
         this.yarnAccepterTaskNumber = yarnAccepterTaskNumber;
+        setResourceSnapshot(resourceSnapshot);
     }
 
     @Override
     public JudgeResult judgeSlots(JobClient jobClient) {
 
-        JudgeResult jr = getYarnSlots(yarnClient, queueName, yarnAccepterTaskNumber);
-        if (!jr.available()) {
-            return jr;
-        }
-
         Properties properties = jobClient.getConfProperties();
         int driverCores = DEFAULT_CORES;
         if(properties != null && properties.containsKey(DRIVER_CORE_KEY)){
@@ -119,7 +116,7 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
         List<InstanceInfo> instanceInfos = Lists.newArrayList(
                 InstanceInfo.newRecord(1, driverCores, driverMem),
                 InstanceInfo.newRecord(executorNum, executorCores, executorMem));
-        return judgeYarnResource(instanceInfos);
+        return judgeYarnSlots(yarnClient, jobClient, queueName, yarnAccepterTaskNumber, instanceInfos);
     }
 
 
@@ -131,6 +128,7 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
         private YarnClient yarnClient;
         private String queueName;
         private Integer yarnAccepterTaskNumber;
+        private YarnResourceSnapshot resourceSnapshot;
 
         public SparkYarnResourceInfoBuilder withYarnClient(YarnClient yarnClient) {
             this.yarnClient = yarnClient;
@@ -147,8 +145,13 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
             return this;
         }
 
+        public SparkYarnResourceInfoBuilder withResourceSnapshot(YarnResourceSnapshot resourceSnapshot) {
+            this.resourceSnapshot = resourceSnapshot;
+            return this;
+        }
+
         public SparkYarnResourceInfo build() {
-            return new SparkYarnResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber);
+            return new SparkYarnResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, resourceSnapshot);
         }
     }
 
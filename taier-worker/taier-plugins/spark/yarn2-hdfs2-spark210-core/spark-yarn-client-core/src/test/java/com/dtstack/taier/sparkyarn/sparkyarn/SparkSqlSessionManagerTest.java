@@ -0,0 +1,102 @@
+package com.dtstack.taier.sparkyarn.sparkyarn;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.google.common.base.Charsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SparkSqlSessionManagerTest {
+
+    private static Map<String, Object> response(String state, String msg) {
+        Map<String, Object> response = new HashMap<>(4);
+        response.put("state", state);
+        response.put("msg", msg);
+        return response;
+    }
+
+    @Test
+    public void testConvertToTaskStatus() {
+        Assert.assertEquals(TaskStatus.SCHEDULED, SparkSqlSessionManager.convertToTaskStatus(response("ACCEPTED", null)));
+        Assert.assertEquals(TaskStatus.RUNNING, SparkSqlSessionManager.convertToTaskStatus(response("RUNNING", null)));
+        Assert.assertEquals(TaskStatus.FINISHED, SparkSqlSessionManager.convertToTaskStatus(response("FINISHED", null)));
+        Assert.assertEquals(TaskStatus.FAILED, SparkSqlSessionManager.convertToTaskStatus(response("FAILED", "error")));
+        Assert.assertEquals(TaskStatus.CANCELED, SparkSqlSessionManager.convertToTaskStatus(response("CANCELED", null)));
+        Assert.assertEquals(TaskStatus.NOTFOUND, SparkSqlSessionManager.convertToTaskStatus(response("NOTFOUND", null)));
+        Assert.assertEquals(TaskStatus.NOTFOUND, SparkSqlSessionManager.convertToTaskStatus(response(null, null)));
+        Assert.assertEquals(TaskStatus.NOTFOUND, SparkSqlSessionManager.convertToTaskStatus(response("UNKNOWN", null)));
+    }
+
+    @Test
+    public void testUnauthorizedNotFailed() {
+        Map<String, Object> unauthorized = response("UNAUTHORIZED", "invalid token");
+        Assert.assertTrue(SparkSqlSessionManager.isUnauthorized(unauthorized));
+        // token 不一致时不能把运行中的任务当作失败
+        Assert.assertEquals(TaskStatus.NOTFOUND, SparkSqlSessionManager.convertToTaskStatus(unauthorized));
+
+        Map<String, Object> failed = response("FAILED", "invalid token");
+        Assert.assertFalse(SparkSqlSessionManager.isUnauthorized(failed));
+        Assert.assertEquals(TaskStatus.FAILED, SparkSqlSessionManager.convertToTaskStatus(failed));
+    }
+
+    @Test
+    public void testRequestOneJsonLine() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread server = new Thread(() -> {
+                try (Socket socket = serverSocket.accept();
+                     BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8));
+                     Writer writer = new OutputStreamWriter(socket.getOutputStream(), Charsets.UTF_8)) {
+                    received.set(reader.readLine());
+                    writer.write("{\"state\":\"RUNNING\",\"msg\":\"job running\"}\n");
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            server.start();
+
+            Map<String, Object> request = new HashMap<>(4);
+            request.put("token", "token");
+            request.put("action", "status");
+            request.put("jobId", "job_1");
+            Map<String, Object> response = SparkSqlSessionManager.request("127.0.0.1:" + serverSocket.getLocalPort(), request);
+            server.join();
+
+            JSONObject receivedRequest = JSON.parseObject(received.get());
+            Assert.assertEquals("token", receivedRequest.getString("token"));
+            Assert.assertEquals("status", receivedRequest.getString("action"));
+            Assert.assertEquals("job_1", receivedRequest.getString("jobId"));
+            Assert.assertEquals(TaskStatus.RUNNING, SparkSqlSessionManager.convertToTaskStatus(response));
+            Assert.assertEquals("job running", response.get("msg"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRequestClosedWithoutResponse() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread server = new Thread(() -> {
+                try (Socket socket = serverSocket.accept();
+                     BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8))) {
+                    reader.readLine();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            server.start();
+            SparkSqlSessionManager.request("127.0.0.1:" + serverSocket.getLocalPort(), new HashMap<>(4));
+        }
+    }
+}